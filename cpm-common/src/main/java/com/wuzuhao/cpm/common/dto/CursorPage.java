@@ -0,0 +1,26 @@
+package com.wuzuhao.cpm.common.dto;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 带游标的分页结果（搜索服务列表接口使用）
+ * 在 MyBatis-Plus 分页结果的基础上返回下一页游标，前端翻到下一页时带上游标，搜索服务从游标位置继续查询，
+ * 查询代价与页码无关
+ * @param <T> 记录类型
+ */
+@Getter
+@Setter
+public class CursorPage<T> extends Page<T> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 下一页游标，最后一页为 null
+     */
+    private String cursor;
+
+    public CursorPage(long current, long size) {
+        super(current, size);
+    }
+}
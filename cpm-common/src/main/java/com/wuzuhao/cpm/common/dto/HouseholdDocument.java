@@ -0,0 +1,118 @@
+package com.wuzuhao.cpm.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 户籍搜索文档
+ * 搜索服务直接把 ES 文档反序列化为该类型返回，户籍服务的列表接口原样输出，不再逐条转换。
+ * 列表行会直接用于编辑表单，因此保留全部可编辑字段。
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class HouseholdDocument implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 查询时从 _source 中读取的字段，与本类的属性保持一致
+     */
+    public static final List<String> SOURCE_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "id", "headId", "headName", "headIdCard", "householdNo", "address", "householdType",
+            "memberCount", "contactPhone", "moveInDate", "moveOutDate", "moveInReason", "moveOutReason",
+            "status", "remark", "createTime", "updateTime"));
+
+    /**
+     * 导出时从 _source 中读取的字段（只取Excel中的列，不读取迁出信息和备注）
+     */
+    public static final List<String> EXPORT_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "id", "headName", "headIdCard", "householdNo", "address", "householdType",
+            "memberCount", "contactPhone", "moveInDate", "moveInReason", "status", "createTime"));
+
+    private Long id;
+
+    /**
+     * 户主ID（关联resident表）
+     */
+    private Long headId;
+
+    /**
+     * 户主姓名
+     */
+    private String headName;
+
+    /**
+     * 户主身份证号
+     */
+    private String headIdCard;
+
+    /**
+     * 户籍编号
+     */
+    private String householdNo;
+
+    /**
+     * 户籍地址
+     */
+    private String address;
+
+    /**
+     * 户别：1-家庭户, 2-集体户
+     */
+    private Integer householdType;
+
+    /**
+     * 户人数
+     */
+    private Integer memberCount;
+
+    /**
+     * 联系电话
+     */
+    private String contactPhone;
+
+    /**
+     * 迁入日期
+     */
+    private LocalDateTime moveInDate;
+
+    /**
+     * 迁出日期
+     */
+    private LocalDateTime moveOutDate;
+
+    /**
+     * 迁入原因
+     */
+    private String moveInReason;
+
+    /**
+     * 迁出原因
+     */
+    private String moveOutReason;
+
+    /**
+     * 状态：0-迁出, 1-正常
+     */
+    private Integer status;
+
+    /**
+     * 备注
+     */
+    private String remark;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
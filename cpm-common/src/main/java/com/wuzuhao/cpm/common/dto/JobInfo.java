@@ -0,0 +1,93 @@
+package com.wuzuhao.cpm.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 后台任务（导入、导出）的状态和进度
+ * 由 {@link com.wuzuhao.cpm.util.JobManager} 保存在 Redis 中，前端通过各服务的 /jobs/{jobId} 接口轮询
+ */
+@Data
+public class JobInfo implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_SUCCESS = "SUCCESS";
+    public static final String STATUS_FAILED = "FAILED";
+
+    /**
+     * 任务ID
+     */
+    private String jobId;
+
+    /**
+     * 任务类型，如 resident-import、resident-export
+     */
+    private String type;
+
+    /**
+     * 状态：PENDING-排队中, RUNNING-执行中, SUCCESS-已完成, FAILED-失败
+     */
+    private String status;
+
+    /**
+     * 提交任务的用户ID（只有本人可以查询）
+     */
+    private Long userId;
+
+    /**
+     * 总行数（导入时为预估值，未知时为null）
+     */
+    private Integer total;
+
+    /**
+     * 已处理行数
+     */
+    private int processed;
+
+    /**
+     * 成功行数
+     */
+    private int successCount;
+
+    /**
+     * 失败行数
+     */
+    private int failCount;
+
+    /**
+     * 失败行（row-行号, message-原因），最多保留 cpm.job.max-errors 条
+     */
+    private List<Map<String, Object>> errors = new ArrayList<>();
+
+    /**
+     * 导出文件的下载地址（导出任务完成后才有）
+     */
+    private String fileUrl;
+
+    /**
+     * 任务失败时的错误信息
+     */
+    private String message;
+
+    private LocalDateTime createTime;
+
+    private LocalDateTime updateTime;
+
+    private LocalDateTime finishTime;
+
+    /**
+     * 任务是否已结束（成功或失败）
+     */
+    @JsonIgnore
+    public boolean isFinished() {
+        return STATUS_SUCCESS.equals(status) || STATUS_FAILED.equals(status);
+    }
+}
@@ -0,0 +1,124 @@
+package com.wuzuhao.cpm.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 居民搜索文档
+ * 搜索服务直接把 ES 文档反序列化为该类型返回，居民服务的列表接口原样输出，不再逐条转换。
+ * 只包含列表展示需要的字段（编辑时会按ID重新查询完整信息），头像、证件照等大字段不从 ES 读取。
+ * 导出时额外读取紧急联系人字段，列表查询不读取，也不输出这两个字段。
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ResidentDocument implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 查询时从 _source 中读取的字段，与本类的属性保持一致
+     */
+    public static final List<String> SOURCE_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "id", "userId", "realName", "idCard", "gender", "birthDate", "nationality",
+            "registeredAddress", "currentAddress", "occupation", "education", "maritalStatus",
+            "contactPhone", "createTime", "updateTime"));
+
+    /**
+     * 导出时从 _source 中读取的字段（在列表字段的基础上增加紧急联系人）
+     */
+    public static final List<String> EXPORT_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "id", "userId", "realName", "idCard", "gender", "birthDate", "nationality",
+            "registeredAddress", "currentAddress", "occupation", "education", "maritalStatus",
+            "contactPhone", "emergencyContact", "emergencyPhone", "createTime", "updateTime"));
+
+    private Long id;
+
+    /**
+     * 用户ID（关联sys_user表）
+     */
+    private Long userId;
+
+    /**
+     * 真实姓名
+     */
+    private String realName;
+
+    /**
+     * 身份证号
+     */
+    private String idCard;
+
+    /**
+     * 性别：0-女, 1-男
+     */
+    private Integer gender;
+
+    /**
+     * 出生日期
+     */
+    private LocalDate birthDate;
+
+    /**
+     * 民族
+     */
+    private String nationality;
+
+    /**
+     * 户籍地址
+     */
+    private String registeredAddress;
+
+    /**
+     * 现居住地址
+     */
+    private String currentAddress;
+
+    /**
+     * 职业
+     */
+    private String occupation;
+
+    /**
+     * 文化程度
+     */
+    private String education;
+
+    /**
+     * 婚姻状况：0-未婚, 1-已婚, 2-离异, 3-丧偶
+     */
+    private Integer maritalStatus;
+
+    /**
+     * 联系电话
+     */
+    private String contactPhone;
+
+    /**
+     * 紧急联系人（只在导出时读取）
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String emergencyContact;
+
+    /**
+     * 紧急联系电话（只在导出时读取）
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String emergencyPhone;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,61 @@
+package com.wuzuhao.cpm.common.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 搜索过滤条件
+ * 作为 ES 的 filter 子句执行（不参与评分、可缓存），与关键词检索组合使用；为空的条件不生效。
+ * 通过查询参数传递（Feign 端使用 @SpringQueryMap）
+ */
+@Data
+public class SearchFilter implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 状态（户籍：0-迁出, 1-正常；用户：0-禁用, 1-启用）
+     */
+    private Integer status;
+
+    /**
+     * 性别：0-女, 1-男
+     */
+    private Integer gender;
+
+    /**
+     * 日期范围过滤的字段，如 birthDate、moveInDate、createTime（只允许索引中的日期字段）
+     */
+    private String dateField;
+
+    /**
+     * 开始日期（包含），格式 yyyy-MM-dd 或 yyyy-MM-dd HH:mm:ss
+     */
+    private String dateFrom;
+
+    /**
+     * 结束日期（包含），格式 yyyy-MM-dd 或 yyyy-MM-dd HH:mm:ss
+     */
+    private String dateTo;
+
+    /**
+     * 分页游标（上一页结果中的 cursor），传入后忽略页码，从游标位置继续查询
+     */
+    private String cursor;
+
+    /**
+     * 把多个模糊查询条件合并为检索关键词（以空格分隔），都为空时返回 "*"（匹配全部）
+     */
+    public static String keyword(String... parts) {
+        StringBuilder keywordBuilder = new StringBuilder();
+        for (String part : parts) {
+            if (part != null && !part.trim().isEmpty()) {
+                if (keywordBuilder.length() > 0) {
+                    keywordBuilder.append(" ");
+                }
+                keywordBuilder.append(part.trim());
+            }
+        }
+        return keywordBuilder.length() > 0 ? keywordBuilder.toString() : "*";
+    }
+}
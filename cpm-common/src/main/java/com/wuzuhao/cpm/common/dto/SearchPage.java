@@ -0,0 +1,31 @@
+package com.wuzuhao.cpm.common.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 搜索分页结果
+ * @param <T> 文档类型
+ */
+@Data
+public class SearchPage<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 命中总数（命中完全匹配时为1）
+     */
+    private long total;
+
+    /**
+     * 当前页文档
+     */
+    private List<T> hits = new ArrayList<>();
+
+    /**
+     * 下一页游标，最后一页为 null
+     */
+    private String cursor;
+}
@@ -0,0 +1,38 @@
+package com.wuzuhao.cpm.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Token 中的用户信息
+ * 由 {@link com.wuzuhao.cpm.util.JwtUtil#parseToken} 一次解析得到，认证通过后存入 request（属性名 claims）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenClaims implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 用户名
+     */
+    private String username;
+
+    /**
+     * 角色
+     */
+    private String role;
+
+    /**
+     * 过期时间（毫秒时间戳）
+     */
+    private long expiration;
+}
@@ -0,0 +1,172 @@
+package com.wuzuhao.cpm.config;
+
+import com.alibaba.csp.sentinel.Entry;
+import com.alibaba.csp.sentinel.EntryType;
+import com.alibaba.csp.sentinel.SphU;
+import com.alibaba.csp.sentinel.Tracer;
+import com.alibaba.csp.sentinel.slots.block.BlockException;
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
+import com.alibaba.csp.sentinel.slots.block.degrade.DegradeException;
+import com.alibaba.csp.sentinel.slots.block.degrade.DegradeRule;
+import com.alibaba.csp.sentinel.slots.block.degrade.DegradeRuleManager;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRule;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRuleManager;
+import feign.Client;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.Target;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 带隔离和熔断的Feign客户端
+ * 包装实际的HTTP客户端，每个 Feign 客户端对应一个 Sentinel 资源（feign:客户端名，即 @FeignClient 的 contextId，
+ * 未指定时为服务名）：同一服务的不同客户端（如列表检索和导出遍历）互相隔离，导出占满并发数时不影响列表检索。
+ * 并发线程数规则作为信号量隔离，某个下游变慢时最多占用 maxConcurrent 个调用方线程，超出的调用立即失败；
+ * 慢调用比例、异常比例（包括 5xx 响应）规则用于熔断，熔断期间调用直接失败，不再等待超时。
+ *
+ * 规则在首次调用该客户端时按 {@link FeignBulkheadProperties} 注册；已在 Sentinel 控制台为该资源配置规则时不覆盖。
+ * 被拒绝的调用抛出 RuntimeException（不是 IOException），Feign 不会对其重试。
+ */
+public class FeignBulkheadClient implements Client {
+
+    private static final Logger log = LoggerFactory.getLogger(FeignBulkheadClient.class);
+
+    /**
+     * Sentinel 资源名前缀
+     */
+    public static final String RESOURCE_PREFIX = "feign:";
+
+    /**
+     * 已注册规则的资源
+     */
+    private static final Set<String> REGISTERED = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Feign 客户端接口 -> 客户端名
+     */
+    private static final Map<Class<?>, String> CLIENT_NAMES = new ConcurrentHashMap<>();
+
+    private final Client delegate;
+    private final FeignBulkheadProperties properties;
+
+    public FeignBulkheadClient(Client delegate, FeignBulkheadProperties properties) {
+        this.delegate = delegate;
+        this.properties = properties;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        String clientName = properties.isEnabled() ? clientName(request) : null;
+        if (clientName == null) {
+            return delegate.execute(request, options);
+        }
+
+        String resource = RESOURCE_PREFIX + clientName;
+        registerRules(resource, clientName);
+        Entry entry;
+        try {
+            entry = SphU.entry(resource, EntryType.OUT);
+        } catch (BlockException e) {
+            if (e instanceof DegradeException) {
+                log.warn("服务 {} 已熔断，拒绝调用: {} {}", clientName, request.httpMethod(), request.url());
+                throw new RuntimeException("服务 " + clientName + " 暂时不可用，请稍后再试");
+            }
+            log.warn("服务 {} 并发调用数已达上限，拒绝调用: {} {}", clientName, request.httpMethod(), request.url());
+            throw new RuntimeException("服务 " + clientName + " 繁忙，请稍后再试");
+        }
+
+        try {
+            Response response = delegate.execute(request, options);
+            if (response.status() >= 500) {
+                Tracer.traceEntry(new IllegalStateException("服务 " + clientName + " 响应状态码: " + response.status()), entry);
+            }
+            return response;
+        } catch (IOException | RuntimeException e) {
+            Tracer.traceEntry(e, entry);
+            throw e;
+        } finally {
+            entry.exit();
+        }
+    }
+
+    /**
+     * 取 Feign 客户端名：@FeignClient 的 contextId，未指定时为服务名，与 feign.client.config.{客户端名} 一致；
+     * 请求不是由 Feign 接口生成时，取请求地址的主机名（负载均衡之前的地址，主机名即服务名）
+     */
+    private String clientName(Request request) {
+        RequestTemplate template = request.requestTemplate();
+        Target<?> target = template != null ? template.feignTarget() : null;
+        if (target != null) {
+            return CLIENT_NAMES.computeIfAbsent(target.type(), type -> {
+                FeignClient client = AnnotatedElementUtils.findMergedAnnotation(type, FeignClient.class);
+                if (client != null && StringUtils.hasText(client.contextId())) {
+                    return client.contextId();
+                }
+                return client != null && StringUtils.hasText(client.name()) ? client.name() : target.name();
+            });
+        }
+        try {
+            return URI.create(request.url()).getHost();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 注册资源的隔离和熔断规则，与已有规则合并
+     */
+    private void registerRules(String resource, String clientName) {
+        if (REGISTERED.contains(resource)) {
+            return;
+        }
+        synchronized (REGISTERED) {
+            if (!REGISTERED.add(resource)) {
+                return;
+            }
+            FeignBulkheadProperties.Rule rule = properties.ruleFor(clientName);
+
+            if (!FlowRuleManager.hasConfig(resource) && rule.getMaxConcurrent() > 0) {
+                List<FlowRule> flowRules = new ArrayList<>(FlowRuleManager.getRules());
+                flowRules.add(new FlowRule(resource)
+                        .setGrade(RuleConstant.FLOW_GRADE_THREAD)
+                        .setCount(rule.getMaxConcurrent()));
+                FlowRuleManager.loadRules(flowRules);
+            }
+
+            if (!DegradeRuleManager.hasConfig(resource)) {
+                List<DegradeRule> degradeRules = new ArrayList<>(DegradeRuleManager.getRules());
+                // 慢调用比例
+                degradeRules.add(new DegradeRule(resource)
+                        .setGrade(RuleConstant.DEGRADE_GRADE_RT)
+                        .setCount(rule.getSlowCallMillis())
+                        .setSlowRatioThreshold(rule.getSlowCallRatio())
+                        .setMinRequestAmount(rule.getMinRequestAmount())
+                        .setStatIntervalMs(1000)
+                        .setTimeWindow(rule.getOpenSeconds()));
+                // 异常比例
+                degradeRules.add(new DegradeRule(resource)
+                        .setGrade(RuleConstant.DEGRADE_GRADE_EXCEPTION_RATIO)
+                        .setCount(rule.getErrorRatio())
+                        .setMinRequestAmount(rule.getMinRequestAmount())
+                        .setStatIntervalMs(1000)
+                        .setTimeWindow(rule.getOpenSeconds()));
+                DegradeRuleManager.loadRules(degradeRules);
+            }
+            log.info("已注册Feign调用隔离规则，客户端: {}, 最大并发: {}, 慢调用阈值: {}ms", clientName,
+                    rule.getMaxConcurrent(), rule.getSlowCallMillis());
+        }
+    }
+}
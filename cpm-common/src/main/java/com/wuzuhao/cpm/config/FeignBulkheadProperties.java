@@ -0,0 +1,89 @@
+package com.wuzuhao.cpm.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Feign调用隔离配置
+ * 对应配置前缀 cpm.feign.bulkhead，按 Feign 客户端（@FeignClient 的 contextId，未指定时为服务名）分别限制并发调用数并熔断，
+ * 未单独配置的客户端使用 defaults。规则由 {@link FeignBulkheadClient} 首次调用该客户端时注册到 Sentinel。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "cpm.feign.bulkhead")
+public class FeignBulkheadProperties {
+
+    /**
+     * 是否启用
+     */
+    private boolean enabled = true;
+
+    /**
+     * 默认规则
+     */
+    private Rule defaults = new Rule();
+
+    /**
+     * 按客户端名单独配置的规则（客户端名 -> 规则），未配置的字段使用默认值
+     */
+    private Map<String, Rule> clients = new HashMap<>();
+
+    /**
+     * 获取客户端的规则
+     */
+    public Rule ruleFor(String serviceName) {
+        Rule rule = clients.get(serviceName);
+        if (rule == null) {
+            return defaults;
+        }
+        Rule merged = new Rule();
+        merged.setMaxConcurrent(rule.getMaxConcurrent() != null ? rule.getMaxConcurrent() : defaults.getMaxConcurrent());
+        merged.setSlowCallMillis(rule.getSlowCallMillis() != null ? rule.getSlowCallMillis() : defaults.getSlowCallMillis());
+        merged.setSlowCallRatio(rule.getSlowCallRatio() != null ? rule.getSlowCallRatio() : defaults.getSlowCallRatio());
+        merged.setErrorRatio(rule.getErrorRatio() != null ? rule.getErrorRatio() : defaults.getErrorRatio());
+        merged.setMinRequestAmount(rule.getMinRequestAmount() != null ? rule.getMinRequestAmount() : defaults.getMinRequestAmount());
+        merged.setOpenSeconds(rule.getOpenSeconds() != null ? rule.getOpenSeconds() : defaults.getOpenSeconds());
+        return merged;
+    }
+
+    /**
+     * 单个下游服务的隔离规则
+     */
+    @Data
+    public static class Rule {
+
+        /**
+         * 同时进行的最大调用数（信号量隔离），超出时立即失败而不是占用调用方线程等待，0 表示不限制
+         */
+        private Integer maxConcurrent = 20;
+
+        /**
+         * 慢调用阈值（毫秒），超过该耗时的调用计为慢调用
+         */
+        private Integer slowCallMillis = 3000;
+
+        /**
+         * 慢调用比例阈值（0~1），统计窗口内达到该比例时熔断
+         */
+        private Double slowCallRatio = 0.5;
+
+        /**
+         * 异常比例阈值（0~1），统计窗口内达到该比例时熔断
+         */
+        private Double errorRatio = 0.5;
+
+        /**
+         * 熔断触发的最小请求数，统计窗口（1秒）内请求数少于该值时不熔断
+         */
+        private Integer minRequestAmount = 10;
+
+        /**
+         * 熔断时长（秒），之后放行一个探测请求，成功则恢复
+         */
+        private Integer openSeconds = 10;
+    }
+}
@@ -1,15 +1,32 @@
 package com.wuzuhao.cpm.config;
 
+import com.wuzuhao.cpm.util.JobContext;
+import com.wuzuhao.cpm.util.JobManager;
+import com.wuzuhao.cpm.util.UserHeaderSigner;
+import feign.Capability;
+import feign.Client;
 import feign.Logger;
 import feign.Request;
 import feign.RequestInterceptor;
 import feign.Retryer;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Feign统一配置类
  * 用于配置Feign客户端的超时、重试、日志等参数
+ * HTTP 客户端使用 Apache HttpClient 连接池（feign.httpclient.*），按客户端的超时配置在 feign.client.config.{客户端名} 中，
+ * 调用隔离和熔断配置在 cpm.feign.bulkhead 中
  */
 @Configuration
 public class FeignConfig {
@@ -32,8 +49,8 @@ public class FeignConfig {
      * readTimeoutMillis: 读取超时时间（毫秒）
      * 
      * 注意：Request.Options构造函数已弃用，但Spring Cloud OpenFeign仍支持此方式
-     * 未来版本建议通过配置文件(application.yml)中的feign.client.config来设置超时时间
-     * 例如：feign.client.config.default.connectTimeout=5000, readTimeout=10000
+     * 这里只是兜底值，各服务在配置文件(application.yml)的feign.client.config中按客户端设置超时时间，配置文件优先
+     * 例如：feign.client.config.default.connectTimeout=2000, feign.client.config.cpm-search-service.readTimeout=2000
      */
     @Bean
     @SuppressWarnings("deprecation")
@@ -46,19 +63,44 @@ public class FeignConfig {
 
     /**
      * 配置Feign重试机制
+     * 只重试幂等请求，注册、新增等 POST 请求不重试，避免重复写入
      * period: 初始重试间隔时间（毫秒）
      * maxPeriod: 最大重试间隔时间（毫秒）
-     * maxAttempts: 最大重试次数（包括第一次请求）
+     * maxAttempts: 最大尝试次数（包括第一次请求）
      */
     @Bean
     public Retryer feignRetryer() {
-        return new Retryer.Default(
+        return new IdempotentRetryer(
                 100,      // 初始重试间隔：100毫秒
                 1000,     // 最大重试间隔：1秒
-                3         // 最大重试次数：3次（总共尝试4次）
+                3         // 最大尝试次数：3次（第一次请求 + 最多重试2次）
         );
     }
 
+    /**
+     * 配置Feign调用隔离和熔断
+     * 为每个下游服务限制并发调用数并在慢调用、异常过多时熔断，避免一个慢服务占满本服务的 Tomcat 线程
+     */
+    @Bean
+    public Capability feignBulkheadCapability(FeignBulkheadProperties properties) {
+        return new Capability() {
+            @Override
+            public Client enrich(Client client) {
+                return new FeignBulkheadClient(client, properties);
+            }
+        };
+    }
+
+    /**
+     * 配置Feign连接池监控
+     * 定期输出连接池使用情况，连接用满时输出警告
+     */
+    @Bean
+    public FeignPoolMonitor feignPoolMonitor(ObjectProvider<HttpClientConnectionManager> connectionManager,
+                                             @Value("${cpm.feign.pool-monitor-interval:60}") long intervalSeconds) {
+        return new FeignPoolMonitor(connectionManager, intervalSeconds);
+    }
+
     /**
      * 配置Feign请求拦截器
      * 用于将当前请求的Token传递给Feign调用
@@ -67,5 +109,33 @@ public class FeignConfig {
     public RequestInterceptor feignRequestInterceptor() {
         return new FeignRequestInterceptor();
     }
+
+    /**
+     * 配置Feign用户信息请求头传递
+     * 把网关签名的 X-User-* 请求头原样传给下游服务，下游在请求头信任模式下校验签名即可，不必再解析 Token。
+     * 后台任务线程中没有请求，使用提交任务时保存的请求头（包括 Authorization），X-User-* 签名的有效期很短，发送前重新签名
+     */
+    @Bean
+    public RequestInterceptor userHeaderRequestInterceptor(UserHeaderSigner userHeaderSigner) {
+        return template -> {
+            RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+            if (!(attributes instanceof ServletRequestAttributes)) {
+                JobContext job = JobManager.currentJob();
+                if (job != null) {
+                    Map<String, String> headers = new HashMap<>(job.getHeaders());
+                    userHeaderSigner.resign(headers);
+                    headers.forEach(template::header);
+                }
+                return;
+            }
+            HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+            for (String header : UserHeaderSigner.HEADERS) {
+                String value = request.getHeader(header);
+                if (value != null) {
+                    template.header(header, value);
+                }
+            }
+        };
+    }
 }
 
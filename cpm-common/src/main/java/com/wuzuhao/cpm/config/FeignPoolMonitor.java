@@ -0,0 +1,82 @@
+package com.wuzuhao.cpm.config;
+
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feign连接池监控
+ * 定期输出 Feign 使用的 Apache HttpClient 连接池状态（已租用、等待、空闲、上限）。
+ * 有请求在等待连接或连接已用满时按 warn 输出，并列出各下游实例的连接情况；否则按 debug 输出。
+ * 未使用连接池（如关闭了 feign.httpclient）时不输出。
+ */
+public class FeignPoolMonitor implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(FeignPoolMonitor.class);
+
+    private final ObjectProvider<HttpClientConnectionManager> connectionManager;
+    private final ScheduledExecutorService executor;
+
+    /**
+     * @param connectionManager Feign 自动配置创建的连接管理器
+     * @param intervalSeconds 输出间隔（秒），小于等于0时不监控
+     */
+    public FeignPoolMonitor(ObjectProvider<HttpClientConnectionManager> connectionManager, long intervalSeconds) {
+        this.connectionManager = connectionManager;
+        if (intervalSeconds <= 0) {
+            this.executor = null;
+            return;
+        }
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "feign-pool-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 输出连接池状态
+     */
+    public void report() {
+        try {
+            HttpClientConnectionManager manager = connectionManager.getIfAvailable();
+            if (!(manager instanceof PoolingHttpClientConnectionManager)) {
+                return;
+            }
+            PoolingHttpClientConnectionManager pool = (PoolingHttpClientConnectionManager) manager;
+            PoolStats total = pool.getTotalStats();
+            boolean saturated = total.getPending() > 0 || total.getLeased() >= total.getMax();
+            if (!saturated) {
+                log.debug("Feign连接池状态 - 租用: {}, 等待: {}, 空闲: {}, 上限: {}",
+                        total.getLeased(), total.getPending(), total.getAvailable(), total.getMax());
+                return;
+            }
+            log.warn("Feign连接池已满 - 租用: {}, 等待: {}, 空闲: {}, 上限: {}",
+                    total.getLeased(), total.getPending(), total.getAvailable(), total.getMax());
+            for (HttpRoute route : pool.getRoutes()) {
+                PoolStats stats = pool.getStats(route);
+                log.warn("Feign连接池 {} - 租用: {}, 等待: {}, 空闲: {}, 上限: {}", route.getTargetHost(),
+                        stats.getLeased(), stats.getPending(), stats.getAvailable(), stats.getMax());
+            }
+        } catch (Exception e) {
+            log.error("获取Feign连接池状态失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
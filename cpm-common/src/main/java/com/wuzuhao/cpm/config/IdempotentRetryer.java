@@ -0,0 +1,67 @@
+package com.wuzuhao.cpm.config;
+
+import feign.Request;
+import feign.RetryableException;
+import feign.Retryer;
+
+/**
+ * 只重试幂等请求的Feign重试器
+ * GET、HEAD、OPTIONS、PUT、DELETE 请求按指数退避重试；POST、PATCH 等非幂等请求（如注册、新增）失败后直接抛出，
+ * 避免读取超时时请求实际已执行，重试导致重复写入。
+ * 可通过 feign.client.config.{客户端名}.retryer 为单个客户端指定，不需要重试的客户端使用 {@link NoRetry}。
+ */
+public class IdempotentRetryer implements Retryer {
+
+    private final long period;
+    private final long maxPeriod;
+    private final int maxAttempts;
+    private final Retryer delegate;
+
+    /**
+     * 默认参数：初始间隔100毫秒，最大间隔1秒，最多尝试3次
+     */
+    public IdempotentRetryer() {
+        this(100, 1000, 3);
+    }
+
+    /**
+     * @param period 初始重试间隔（毫秒）
+     * @param maxPeriod 最大重试间隔（毫秒）
+     * @param maxAttempts 最大尝试次数（包括第一次请求）
+     */
+    public IdempotentRetryer(long period, long maxPeriod, int maxAttempts) {
+        this.period = period;
+        this.maxPeriod = maxPeriod;
+        this.maxAttempts = maxAttempts;
+        this.delegate = new Retryer.Default(period, maxPeriod, maxAttempts);
+    }
+
+    @Override
+    public void continueOrPropagate(RetryableException e) {
+        if (!isIdempotent(e.method())) {
+            throw e;
+        }
+        delegate.continueOrPropagate(e);
+    }
+
+    private boolean isIdempotent(Request.HttpMethod method) {
+        return method == Request.HttpMethod.GET || method == Request.HttpMethod.HEAD
+                || method == Request.HttpMethod.OPTIONS || method == Request.HttpMethod.PUT
+                || method == Request.HttpMethod.DELETE;
+    }
+
+    @Override
+    public Retryer clone() {
+        return new IdempotentRetryer(period, maxPeriod, maxAttempts);
+    }
+
+    /**
+     * 不重试（只尝试1次），用于对延迟敏感、重试只会放大下游负载的调用（如列表检索）
+     */
+    public static class NoRetry extends IdempotentRetryer {
+
+        public NoRetry() {
+            super(100, 1000, 1);
+        }
+    }
+}
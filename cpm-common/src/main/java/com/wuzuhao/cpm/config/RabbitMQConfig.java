@@ -55,6 +55,30 @@ public class RabbitMQConfig {
     public static final String HOUSEHOLD_MEMBER_SYNC_EXCHANGE = "household-member.sync.exchange";
     public static final String HOUSEHOLD_MEMBER_SYNC_ROUTING_KEY = "household-member.sync";
 
+    // 统计服务增量聚合队列（绑定到居民/户籍同步交换机，与搜索服务的同步队列互不争抢消息）
+    public static final String STATISTICS_RESIDENT_SYNC_QUEUE = "statistics.resident.sync.queue";
+    public static final String STATISTICS_HOUSEHOLD_SYNC_QUEUE = "statistics.household.sync.queue";
+
+    // 搜索同步死信队列（搜索服务无法写入ES的同步消息，保留原始消息便于排查和重放）
+    public static final String SEARCH_SYNC_DEAD_LETTER_QUEUE = "search.sync.dead-letter.queue";
+    public static final String SEARCH_SYNC_DEAD_LETTER_EXCHANGE = "search.sync.dead-letter.exchange";
+    public static final String SEARCH_SYNC_DEAD_LETTER_ROUTING_KEY = "search.sync.dead-letter";
+
+    // 邮件发送队列（通知服务先把邮件写入队列，再由后台批量发送）
+    public static final String EMAIL_SEND_QUEUE = "email.send.queue";
+    public static final String EMAIL_SEND_EXCHANGE = "email.send.exchange";
+    public static final String EMAIL_SEND_ROUTING_KEY = "email.send";
+
+    // 邮件重试队列（没有消费者，消息按各自的过期时间延迟后转回发送队列）
+    public static final String EMAIL_RETRY_QUEUE = "email.retry.queue";
+    public static final String EMAIL_RETRY_EXCHANGE = "email.retry.exchange";
+    public static final String EMAIL_RETRY_ROUTING_KEY = "email.retry";
+
+    // 邮件死信队列（重试次数用完或无法发送的邮件）
+    public static final String EMAIL_DEAD_LETTER_QUEUE = "email.dead-letter.queue";
+    public static final String EMAIL_DEAD_LETTER_EXCHANGE = "email.dead-letter.exchange";
+    public static final String EMAIL_DEAD_LETTER_ROUTING_KEY = "email.dead-letter";
+
     /**
      * 日期时间格式化器：yyyy-MM-dd HH:mm:ss
      */
@@ -238,5 +262,129 @@ public class RabbitMQConfig {
                 .to(householdMemberSyncExchange())
                 .with(HOUSEHOLD_MEMBER_SYNC_ROUTING_KEY);
     }
-}
 
+    // ========== 统计增量聚合 ==========
+    /**
+     * 统计服务的居民事件队列
+     * 开启单活跃消费者，多实例部署时同一时刻只有一个实例在更新计数器，保证增量计算有序
+     */
+    @Bean
+    @NonNull
+    public Queue statisticsResidentSyncQueue() {
+        return QueueBuilder.durable(STATISTICS_RESIDENT_SYNC_QUEUE).singleActiveConsumer().build();
+    }
+
+    @Bean
+    @NonNull
+    public Binding statisticsResidentSyncBinding() {
+        return BindingBuilder.bind(statisticsResidentSyncQueue())
+                .to(residentSyncExchange())
+                .with(RESIDENT_SYNC_ROUTING_KEY);
+    }
+
+    /**
+     * 统计服务的户籍事件队列
+     */
+    @Bean
+    @NonNull
+    public Queue statisticsHouseholdSyncQueue() {
+        return QueueBuilder.durable(STATISTICS_HOUSEHOLD_SYNC_QUEUE).singleActiveConsumer().build();
+    }
+
+    @Bean
+    @NonNull
+    public Binding statisticsHouseholdSyncBinding() {
+        return BindingBuilder.bind(statisticsHouseholdSyncQueue())
+                .to(householdSyncExchange())
+                .with(HOUSEHOLD_SYNC_ROUTING_KEY);
+    }
+
+    // ========== 搜索同步死信 ==========
+    @Bean
+    @NonNull
+    public Queue searchSyncDeadLetterQueue() {
+        return QueueBuilder.durable(SEARCH_SYNC_DEAD_LETTER_QUEUE).build();
+    }
+
+    @Bean
+    @NonNull
+    public DirectExchange searchSyncDeadLetterExchange() {
+        return new DirectExchange(SEARCH_SYNC_DEAD_LETTER_EXCHANGE);
+    }
+
+    @Bean
+    @NonNull
+    public Binding searchSyncDeadLetterBinding() {
+        return BindingBuilder.bind(searchSyncDeadLetterQueue())
+                .to(searchSyncDeadLetterExchange())
+                .with(SEARCH_SYNC_DEAD_LETTER_ROUTING_KEY);
+    }
+
+    // ========== 邮件发送 ==========
+    @Bean
+    @NonNull
+    public Queue emailSendQueue() {
+        return QueueBuilder.durable(EMAIL_SEND_QUEUE).build();
+    }
+
+    @Bean
+    @NonNull
+    public DirectExchange emailSendExchange() {
+        return new DirectExchange(EMAIL_SEND_EXCHANGE);
+    }
+
+    @Bean
+    @NonNull
+    public Binding emailSendBinding() {
+        return BindingBuilder.bind(emailSendQueue())
+                .to(emailSendExchange())
+                .with(EMAIL_SEND_ROUTING_KEY);
+    }
+
+    /**
+     * 邮件重试队列
+     * 消息过期后经死信交换机转回发送队列，实现延迟重试
+     */
+    @Bean
+    @NonNull
+    public Queue emailRetryQueue() {
+        return QueueBuilder.durable(EMAIL_RETRY_QUEUE)
+                .deadLetterExchange(EMAIL_SEND_EXCHANGE)
+                .deadLetterRoutingKey(EMAIL_SEND_ROUTING_KEY)
+                .build();
+    }
+
+    @Bean
+    @NonNull
+    public DirectExchange emailRetryExchange() {
+        return new DirectExchange(EMAIL_RETRY_EXCHANGE);
+    }
+
+    @Bean
+    @NonNull
+    public Binding emailRetryBinding() {
+        return BindingBuilder.bind(emailRetryQueue())
+                .to(emailRetryExchange())
+                .with(EMAIL_RETRY_ROUTING_KEY);
+    }
+
+    @Bean
+    @NonNull
+    public Queue emailDeadLetterQueue() {
+        return QueueBuilder.durable(EMAIL_DEAD_LETTER_QUEUE).build();
+    }
+
+    @Bean
+    @NonNull
+    public DirectExchange emailDeadLetterExchange() {
+        return new DirectExchange(EMAIL_DEAD_LETTER_EXCHANGE);
+    }
+
+    @Bean
+    @NonNull
+    public Binding emailDeadLetterBinding() {
+        return BindingBuilder.bind(emailDeadLetterQueue())
+                .to(emailDeadLetterExchange())
+                .with(EMAIL_DEAD_LETTER_ROUTING_KEY);
+    }
+}
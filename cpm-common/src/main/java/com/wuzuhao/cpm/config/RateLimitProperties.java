@@ -0,0 +1,74 @@
+package com.wuzuhao.cpm.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 限流配置
+ * 对应配置前缀 cpm.rate-limit，所有限额均为每分钟请求数，按令牌桶方式平滑补充（允许不超过限额的突发）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "cpm.rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * 是否启用限流
+     */
+    private boolean enabled = true;
+
+    /**
+     * 每个IP每分钟最大请求数
+     */
+    private int maxRequestsPerMinute = 180;
+
+    /**
+     * 每个登录用户每分钟最大请求数，0 表示不按用户限流
+     */
+    private int userMaxRequestsPerMinute = 0;
+
+    /**
+     * 按接口限流（每个IP在单个接口上的额度），按配置顺序匹配第一条
+     */
+    private List<RouteLimit> routes = new ArrayList<>();
+
+    /**
+     * 本地预取比例：每次从 Redis 预取 限额 × 该比例 个令牌在本地消费，预取用完后才再次访问 Redis
+     * 预取的令牌已经从 Redis 的桶中扣除，多节点部署也不会超发；比例越大 Redis 访问越少，
+     * 但预取到某个节点后没用完的令牌越多（过期前其他节点用不到），流量不均时总放行量会低于限额；设为 0 则每个请求都访问 Redis
+     */
+    private double localLeaseRatio = 0.05;
+
+    /**
+     * 本地预取令牌的有效期（毫秒），过期未用完的令牌直接丢弃，避免空闲节点囤积额度
+     */
+    private long localLeaseMillis = 1000;
+
+    /**
+     * 受信任的代理（单个IP或CIDR）：只有直接连接的对端在此列表中时才读取 X-Forwarded-For / X-Real-IP，
+     * 否则按对端地址限流，防止客户端伪造请求头绕过按IP限流。默认只信任本机
+     */
+    private List<String> trustedProxies = new ArrayList<>(Arrays.asList("127.0.0.1", "::1"));
+
+    /**
+     * 接口限流规则
+     */
+    @Data
+    public static class RouteLimit {
+
+        /**
+         * 接口路径（Ant风格），如 /auth/login、/resident/export/**
+         */
+        private String pattern;
+
+        /**
+         * 每个IP每分钟最大请求数
+         */
+        private int maxRequestsPerMinute;
+    }
+}
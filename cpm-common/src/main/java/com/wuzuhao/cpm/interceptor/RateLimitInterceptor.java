@@ -2,24 +2,27 @@ package com.wuzuhao.cpm.interceptor;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wuzuhao.cpm.common.Result;
+import com.wuzuhao.cpm.common.dto.TokenClaims;
 import com.wuzuhao.cpm.config.RateLimitProperties;
+import com.wuzuhao.cpm.util.ClientIpUtil;
+import com.wuzuhao.cpm.util.RedisRateLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.web.servlet.HandlerInterceptor;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 限流拦截器（防刷）
  * 通用模块，供各微服务使用
+ * 依次按IP、接口、用户三个维度限流，额度见 {@link RateLimitProperties}，令牌桶由 {@link RedisRateLimiter} 原子维护
  */
 @Component
 public class RateLimitInterceptor implements HandlerInterceptor {
@@ -28,7 +31,7 @@ public class RateLimitInterceptor implements HandlerInterceptor {
 
     @Autowired
     @NonNull
-    private RedisTemplate<String, Object> redisTemplate;
+    private RedisRateLimiter redisRateLimiter;
 
     @Autowired
     @NonNull
@@ -40,6 +43,8 @@ public class RateLimitInterceptor implements HandlerInterceptor {
 
     private static final String RATE_LIMIT_PREFIX = "rate_limit:";
 
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
     @Override
     public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) throws Exception {
         // 如果限流被禁用，直接放行
@@ -50,29 +55,33 @@ public class RateLimitInterceptor implements HandlerInterceptor {
         try {
             // 获取客户端IP
             String clientIp = getClientIp(request);
-            if (clientIp == null || clientIp.isEmpty()) {
-                // 如果无法获取IP，使用默认值
-                clientIp = "unknown";
-            }
-            String key = RATE_LIMIT_PREFIX + clientIp;
 
-            // 获取当前请求次数
-            Integer count = (Integer) redisTemplate.opsForValue().get(key);
-            if (count == null) {
-                count = 0;
+            // 按IP限流
+            if (!redisRateLimiter.tryAcquire(RATE_LIMIT_PREFIX + "ip:" + clientIp, rateLimitProperties.getMaxRequestsPerMinute())) {
+                log.warn("IP {} 请求过于频繁，已限流", clientIp);
+                sendErrorResponse(response, "请求过于频繁，请稍后再试");
+                return false;
             }
 
-            // 检查是否超过限制
-            int maxRequests = rateLimitProperties.getMaxRequestsPerMinute();
-            if (count >= maxRequests) {
-                log.warn("IP {} 请求过于频繁，已限流", clientIp);
+            // 按接口限流（每个IP在单个接口上的额度）
+            RateLimitProperties.RouteLimit routeLimit = matchRoute(request.getRequestURI());
+            if (routeLimit != null && !redisRateLimiter.tryAcquire(
+                    RATE_LIMIT_PREFIX + "route:" + routeLimit.getPattern() + ":" + clientIp, routeLimit.getMaxRequestsPerMinute())) {
+                log.warn("IP {} 访问接口 {} 过于频繁，已限流", clientIp, request.getRequestURI());
                 sendErrorResponse(response, "请求过于频繁，请稍后再试");
                 return false;
             }
 
-            // 增加请求次数
-            count++;
-            redisTemplate.opsForValue().set(key, count, 1, TimeUnit.MINUTES);
+            // 按用户限流
+            if (rateLimitProperties.getUserMaxRequestsPerMinute() > 0) {
+                Long userId = getUserId(request);
+                if (userId != null && !redisRateLimiter.tryAcquire(
+                        RATE_LIMIT_PREFIX + "user:" + userId, rateLimitProperties.getUserMaxRequestsPerMinute())) {
+                    log.warn("用户 {} 请求过于频繁，已限流", userId);
+                    sendErrorResponse(response, "请求过于频繁，请稍后再试");
+                    return false;
+                }
+            }
         } catch (Exception e) {
             // Redis连接失败或其他异常时，记录日志但允许请求通过，避免因Redis问题导致服务不可用
             log.error("限流拦截器执行异常，允许请求通过: {}", e.getMessage(), e);
@@ -83,26 +92,41 @@ public class RateLimitInterceptor implements HandlerInterceptor {
     }
 
     /**
-     * 获取客户端真实IP
-     * @return IP地址，如果无法获取则返回null
+     * 匹配接口限流规则
      */
     @Nullable
-    private String getClientIp(@NonNull HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("Proxy-Client-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("WL-Proxy-Client-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getRemoteAddr();
+    private RateLimitProperties.RouteLimit matchRoute(@NonNull String uri) {
+        for (RateLimitProperties.RouteLimit routeLimit : rateLimitProperties.getRoutes()) {
+            if (routeLimit.getPattern() != null && pathMatcher.match(routeLimit.getPattern(), uri)) {
+                return routeLimit;
+            }
         }
-        // 处理多个IP的情况，取第一个
-        if (ip != null && ip.contains(",")) {
-            ip = ip.split(",")[0].trim();
+        return null;
+    }
+
+    /**
+     * 获取当前用户ID：使用 {@link UserHeaderInterceptor} 校验网关签名后写入的属性，不在限流时再解析 Token
+     * （未经校验的 Token 不能作为限流维度，否则伪造的 userId 可以消耗他人的额度）
+     * @return 用户ID，请求头信任模式未开启或签名不正确时返回null（此时由网关按用户限流）
+     */
+    @Nullable
+    private Long getUserId(@NonNull HttpServletRequest request) {
+        Object claims = request.getAttribute("claims");
+        if (claims instanceof TokenClaims) {
+            return ((TokenClaims) claims).getUserId();
         }
-        return ip;
+        Object userId = request.getAttribute("userId");
+        return userId instanceof Long ? (Long) userId : null;
+    }
+
+    /**
+     * 获取客户端真实IP：对端是受信任的代理（如网关，见 cpm.rate-limit.trusted-proxies）时才读取转发请求头
+     * @return IP地址，如果无法获取则返回 "unknown"
+     */
+    @NonNull
+    private String getClientIp(@NonNull HttpServletRequest request) {
+        return ClientIpUtil.resolve(request.getRemoteAddr(), request.getHeader("X-Forwarded-For"),
+                request.getHeader("X-Real-IP"), rateLimitProperties.getTrustedProxies());
     }
 
     /**
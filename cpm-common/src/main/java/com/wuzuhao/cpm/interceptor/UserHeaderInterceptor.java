@@ -0,0 +1,48 @@
+package com.wuzuhao.cpm.interceptor;
+
+import com.wuzuhao.cpm.common.dto.TokenClaims;
+import com.wuzuhao.cpm.util.UserHeaderSigner;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 用户信息请求头拦截器（请求头信任模式）
+ * 通用模块，供各微服务使用
+ * 校验网关签名的 X-User-* 请求头（见 {@link UserHeaderSigner}），通过后把用户信息写入 request 的 claims、userId、role 属性，
+ * 后续的限流拦截器、认证拦截器和控制器直接使用，不再解析 JWT。
+ * 只负责识别用户，不拦截请求；请求头缺失或签名不正确时不写入任何属性。由 cpm.auth.header-trust 开启。
+ */
+@Component
+public class UserHeaderInterceptor implements HandlerInterceptor {
+
+    @Autowired
+    @NonNull
+    private UserHeaderSigner userHeaderSigner;
+
+    @Value("${cpm.auth.header-trust:false}")
+    private boolean headerTrust;
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) {
+        if (!headerTrust) {
+            return true;
+        }
+        TokenClaims claims = userHeaderSigner.verify(
+                request.getHeader(UserHeaderSigner.USER_ID_HEADER),
+                request.getHeader(UserHeaderSigner.USER_ROLE_HEADER),
+                request.getHeader(UserHeaderSigner.USER_EXPIRES_HEADER),
+                request.getHeader(UserHeaderSigner.SIGNATURE_HEADER));
+        if (claims != null) {
+            request.setAttribute("claims", claims);
+            request.setAttribute("userId", claims.getUserId());
+            request.setAttribute("role", claims.getRole());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,126 @@
+package com.wuzuhao.cpm.util;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 客户端IP解析工具类
+ *
+ * X-Forwarded-For、X-Real-IP 可以由客户端任意填写，只有直接连接的对端是受信任的代理时才读取：
+ * 从 X-Forwarded-For 最右侧（离本机最近的一跳）开始向左跳过受信任的代理，第一个不受信任的地址即客户端IP。
+ * 对端不是受信任的代理时直接使用对端地址。
+ */
+public class ClientIpUtil {
+
+    /**
+     * IP 字面量（IPv4/IPv6），只对字面量做解析，避免 InetAddress 发起 DNS 查询
+     */
+    private static final Pattern IP_LITERAL_PATTERN = Pattern.compile("^[0-9a-fA-F:.]+$");
+
+    private ClientIpUtil() {
+    }
+
+    /**
+     * 解析客户端IP
+     * @param remoteAddr 直接连接的对端地址
+     * @param forwardedFor X-Forwarded-For 请求头
+     * @param realIp X-Real-IP 请求头（没有 X-Forwarded-For 时使用）
+     * @param trustedProxies 受信任的代理地址，支持单个IP或CIDR（如 10.0.0.0/8）
+     * @return 客户端IP，无法获取时返回 "unknown"
+     */
+    @NonNull
+    public static String resolve(@Nullable String remoteAddr, @Nullable String forwardedFor, @Nullable String realIp,
+                                 @NonNull List<String> trustedProxies) {
+        if (isBlank(remoteAddr)) {
+            return "unknown";
+        }
+        if (!isTrusted(remoteAddr, trustedProxies)) {
+            return remoteAddr;
+        }
+        if (!isBlank(forwardedFor)) {
+            String[] hops = forwardedFor.split(",");
+            for (int i = hops.length - 1; i >= 0; i--) {
+                String hop = hops[i].trim();
+                if (isBlank(hop) || "unknown".equalsIgnoreCase(hop)) {
+                    continue;
+                }
+                if (i == 0 || !isTrusted(hop, trustedProxies)) {
+                    return hop;
+                }
+            }
+        }
+        if (!isBlank(realIp) && !"unknown".equalsIgnoreCase(realIp)) {
+            return realIp.trim();
+        }
+        return remoteAddr;
+    }
+
+    /**
+     * 地址是否属于受信任的代理
+     */
+    public static boolean isTrusted(@NonNull String ip, @NonNull List<String> trustedProxies) {
+        for (String rule : trustedProxies) {
+            if (rule != null && matches(ip, rule.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 地址是否匹配单个IP或CIDR规则
+     */
+    private static boolean matches(String ip, String rule) {
+        if (rule.isEmpty()) {
+            return false;
+        }
+        int slash = rule.indexOf('/');
+        byte[] address = toBytes(ip);
+        byte[] network = toBytes(slash >= 0 ? rule.substring(0, slash) : rule);
+        if (address == null || network == null || address.length != network.length) {
+            return false;
+        }
+        int prefix;
+        try {
+            prefix = slash >= 0 ? Integer.parseInt(rule.substring(slash + 1)) : address.length * 8;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (prefix < 0 || prefix > address.length * 8) {
+            return false;
+        }
+        int fullBytes = prefix / 8;
+        for (int i = 0; i < fullBytes; i++) {
+            if (address[i] != network[i]) {
+                return false;
+            }
+        }
+        int remainingBits = prefix % 8;
+        if (remainingBits == 0) {
+            return true;
+        }
+        int mask = (0xFF << (8 - remainingBits)) & 0xFF;
+        return (address[fullBytes] & mask) == (network[fullBytes] & mask);
+    }
+
+    @Nullable
+    private static byte[] toBytes(String ip) {
+        if (!IP_LITERAL_PATTERN.matcher(ip).matches()) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(ip).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private static boolean isBlank(@Nullable String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
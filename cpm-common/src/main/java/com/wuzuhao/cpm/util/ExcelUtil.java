@@ -1,21 +1,31 @@
 package com.wuzuhao.cpm.util;
 
 import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelWriter;
+import com.alibaba.excel.write.metadata.WriteSheet;
 import com.alibaba.excel.write.style.column.LongestMatchColumnWidthStyleStrategy;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Excel工具类
+ *
+ * 数据量较大的导出使用 {@link ChunkLoader} 分批写入：每次只取一批数据写入工作表，写完即可回收，
+ * EasyExcel 写 xlsx 时已写的行会刷到磁盘临时文件，内存占用与导出行数无关。
+ * xlsx 是 zip 格式，文件内容在全部数据写完后才输出到响应或文件中。
  */
 public class ExcelUtil {
 
@@ -32,6 +42,20 @@ public class ExcelUtil {
      * @param clazz Excel DTO类
      */
     public static <T> void export(HttpServletResponse response, String fileName, String sheetName, List<T> data, Class<T> clazz) {
+        export(response, fileName, sheetName, clazz, singleChunk(data));
+    }
+
+    /**
+     * 分批导出Excel
+     *
+     * @param response 响应对象
+     * @param fileName 文件名（不含扩展名）
+     * @param sheetName 工作表名称
+     * @param clazz Excel DTO类
+     * @param loader 分批数据加载器
+     * @return 导出行数
+     */
+    public static <T> long export(HttpServletResponse response, String fileName, String sheetName, Class<T> clazz, ChunkLoader<T> loader) {
         try {
             // 设置响应头
             response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
@@ -44,15 +68,85 @@ public class ExcelUtil {
                     "attachment; filename=\"" + encodedFileName + ".xlsx\"; filename*=UTF-8''" + encodedFileName + ".xlsx");
 
             // 写入Excel
-            EasyExcel.write(response.getOutputStream(), clazz)
-                    .sheet(sheetName)
-                    .registerWriteHandler(new LongestMatchColumnWidthStyleStrategy()) // 自动列宽
-                    .doWrite(data);
+            return write(response.getOutputStream(), sheetName, clazz, loader);
         } catch (IOException e) {
             throw new RuntimeException("导出Excel失败", e);
         }
     }
 
+    /**
+     * 导出Excel到临时文件（后台导出任务使用，调用方负责删除文件）
+     *
+     * @param sheetName 工作表名称
+     * @param data 数据列表
+     * @param clazz Excel DTO类
+     * @return 临时文件
+     */
+    public static <T> File exportToTempFile(String sheetName, List<T> data, Class<T> clazz) {
+        return exportToTempFile(sheetName, clazz, singleChunk(data));
+    }
+
+    /**
+     * 分批导出Excel到临时文件（后台导出任务使用，调用方负责删除文件）
+     *
+     * @param sheetName 工作表名称
+     * @param clazz Excel DTO类
+     * @param loader 分批数据加载器
+     * @return 临时文件
+     */
+    public static <T> File exportToTempFile(String sheetName, Class<T> clazz, ChunkLoader<T> loader) {
+        File file = null;
+        try {
+            file = File.createTempFile("cpm-export-", ".xlsx");
+            try (OutputStream out = Files.newOutputStream(file.toPath())) {
+                write(out, sheetName, clazz, loader);
+            }
+            return file;
+        } catch (IOException e) {
+            if (file != null && !file.delete()) {
+                file.deleteOnExit();
+            }
+            throw new RuntimeException("导出Excel失败", e);
+        }
+    }
+
+    /**
+     * 逐批写入同一个工作表，直到加载器返回空列表
+     * @return 写入行数
+     */
+    private static <T> long write(OutputStream out, String sheetName, Class<T> clazz, ChunkLoader<T> loader) {
+        long total = 0;
+        try (ExcelWriter writer = EasyExcel.write(out, clazz)
+                .registerWriteHandler(new LongestMatchColumnWidthStyleStrategy()) // 自动列宽
+                .build()) {
+            WriteSheet sheet = EasyExcel.writerSheet(sheetName).build();
+            List<T> chunk;
+            while ((chunk = loader.next()) != null && !chunk.isEmpty()) {
+                writer.write(chunk, sheet);
+                total += chunk.size();
+            }
+            if (total == 0) {
+                // 没有数据时也输出表头
+                writer.write(Collections.emptyList(), sheet);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 把已有的数据列表包装成只有一批的加载器
+     */
+    private static <T> ChunkLoader<T> singleChunk(List<T> data) {
+        boolean[] loaded = {false};
+        return () -> {
+            if (loaded[0]) {
+                return Collections.emptyList();
+            }
+            loaded[0] = true;
+            return data;
+        };
+    }
+
     /**
      * 格式化日期时间
      */
@@ -72,5 +166,13 @@ public class ExcelUtil {
         }
         return date.format(DATE_FORMATTER);
     }
-}
 
+    /**
+     * 分批数据加载器，每次调用返回下一批数据，返回空列表表示已经没有数据
+     */
+    @FunctionalInterface
+    public interface ChunkLoader<T> {
+
+        List<T> next();
+    }
+}
@@ -0,0 +1,119 @@
+package com.wuzuhao.cpm.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wuzuhao.cpm.common.Result;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 导出文件上传工具类
+ * 后台导出任务把生成的临时文件上传到文件服务。Feign 会把请求体编码成字节数组，大文件要整个读入内存，
+ * 这里直接用 Feign 的 Apache HttpClient 连接池把文件从磁盘流式发送出去。
+ *
+ * 只能在后台任务中调用：请求附带提交任务的用户信息（重新签名）和服务签名，文件服务据此确认调用来自服务内部，
+ * 并把文件保存在该用户名下，只有该用户能下载。
+ */
+@Component
+public class ExportFileUploader {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportFileUploader.class);
+
+    private static final String FILE_SERVICE = "cpm-file-service";
+
+    @Autowired
+    private LoadBalancerClient loadBalancerClient;
+
+    @Autowired
+    private CloseableHttpClient httpClient;
+
+    @Autowired
+    private UserHeaderSigner userHeaderSigner;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 连接超时时间（毫秒）
+     */
+    @Value("${cpm.export.upload.connect-timeout:2000}")
+    private int connectTimeout;
+
+    /**
+     * 上传超时时间（毫秒），大文件上传耗时较长，不使用 Feign 的读取超时
+     */
+    @Value("${cpm.export.upload.read-timeout:300000}")
+    private int readTimeout;
+
+    /**
+     * 上传导出文件
+     * @param file 导出的临时文件
+     * @param fileName 文件名（用于校验扩展名）
+     * @return 文件下载地址
+     */
+    @NonNull
+    public String upload(@NonNull File file, @NonNull String fileName) throws IOException {
+        JobContext job = JobManager.currentJob();
+        if (job == null) {
+            throw new IllegalStateException("导出文件只能在后台任务中上传");
+        }
+        ServiceInstance instance = loadBalancerClient.choose(FILE_SERVICE);
+        if (instance == null) {
+            throw new RuntimeException("上传导出文件失败：文件服务不可用");
+        }
+        URI uri = UriComponentsBuilder.fromUri(instance.getUri())
+                .path("/upload/export")
+                .queryParam("fileName", fileName)
+                .encode()
+                .build()
+                .toUri();
+
+        HttpPost post = new HttpPost(uri);
+        post.setConfig(RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setSocketTimeout(readTimeout)
+                .build());
+        Map<String, String> headers = new HashMap<>(job.getHeaders());
+        userHeaderSigner.resign(headers);
+        userHeaderSigner.signService(headers);
+        headers.forEach(post::setHeader);
+        post.setEntity(new FileEntity(file, ContentType.APPLICATION_OCTET_STREAM));
+
+        Result<String> result;
+        try (CloseableHttpResponse response = httpClient.execute(post)) {
+            String body = EntityUtils.toString(response.getEntity(), "UTF-8");
+            try {
+                result = objectMapper.readValue(body, new TypeReference<Result<String>>() {
+                });
+            } catch (IOException e) {
+                log.error("文件服务响应无法解析, 状态码: {}, 响应: {}", response.getStatusLine().getStatusCode(), body);
+                throw new RuntimeException("上传导出文件失败：文件服务响应异常");
+            }
+        }
+        if (result == null || result.getCode() == null || result.getCode() != 200 || result.getData() == null) {
+            throw new RuntimeException("上传导出文件失败：" + (result != null ? result.getMessage() : "未知错误"));
+        }
+        log.info("导出文件已上传, jobId: {}, 大小: {} 字节", job.getJobId(), file.length());
+        return result.getData();
+    }
+}
@@ -0,0 +1,128 @@
+package com.wuzuhao.cpm.util;
+
+import com.wuzuhao.cpm.common.dto.JobInfo;
+import org.springframework.beans.BeanUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 后台任务的执行上下文，任务通过它上报进度、失败行和导出文件地址
+ * 进度按 cpm.job.progress-interval 节流写入 Redis，任务结束时再完整写入一次
+ */
+public class JobContext {
+
+    private final JobManager jobManager;
+    private final JobInfo job;
+    private final Map<String, String> headers;
+    private final int maxErrors;
+    private final long progressInterval;
+    private long lastSaveTime;
+
+    JobContext(JobManager jobManager, JobInfo job, Map<String, String> headers, int maxErrors, long progressInterval) {
+        this.jobManager = jobManager;
+        this.job = job;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.maxErrors = maxErrors;
+        this.progressInterval = progressInterval;
+    }
+
+    public String getJobId() {
+        return job.getJobId();
+    }
+
+    public Long getUserId() {
+        return job.getUserId();
+    }
+
+    /**
+     * 提交任务时请求中的认证请求头（Authorization 和网关签名的 X-User-*），任务中的 Feign 调用使用它们访问下游服务
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * 设置总行数（用于计算进度百分比）
+     */
+    public synchronized void setTotal(Integer total) {
+        job.setTotal(total);
+        saveIfDue();
+    }
+
+    /**
+     * 记录成功的行数
+     */
+    public synchronized void addSuccess(int count) {
+        job.setSuccessCount(job.getSuccessCount() + count);
+        job.setProcessed(job.getProcessed() + count);
+        saveIfDue();
+    }
+
+    /**
+     * 记录一条失败行
+     * @param row Excel行号
+     * @param message 失败原因
+     */
+    public synchronized void addError(int row, String message) {
+        job.setFailCount(job.getFailCount() + 1);
+        job.setProcessed(job.getProcessed() + 1);
+        if (job.getErrors().size() < maxErrors) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("row", row);
+            error.put("message", message);
+            job.getErrors().add(error);
+        }
+        saveIfDue();
+    }
+
+    /**
+     * 设置导出文件的下载地址
+     */
+    public synchronized void setFileUrl(String fileUrl) {
+        job.setFileUrl(fileUrl);
+    }
+
+    synchronized void markRunning() {
+        job.setStatus(JobInfo.STATUS_RUNNING);
+        save();
+    }
+
+    synchronized void markSuccess() {
+        job.setStatus(JobInfo.STATUS_SUCCESS);
+        job.setFinishTime(LocalDateTime.now());
+        save();
+    }
+
+    synchronized void markFailed(String message) {
+        job.setStatus(JobInfo.STATUS_FAILED);
+        job.setMessage(message);
+        job.setFinishTime(LocalDateTime.now());
+        save();
+    }
+
+    /**
+     * 当前状态的副本（任务线程会继续修改原对象）
+     */
+    synchronized JobInfo snapshot() {
+        JobInfo copy = new JobInfo();
+        BeanUtils.copyProperties(job, copy);
+        copy.setErrors(new ArrayList<>(job.getErrors()));
+        return copy;
+    }
+
+    private void saveIfDue() {
+        if (System.currentTimeMillis() - lastSaveTime >= progressInterval) {
+            save();
+        }
+    }
+
+    private void save() {
+        job.setUpdateTime(LocalDateTime.now());
+        jobManager.save(job);
+        lastSaveTime = System.currentTimeMillis();
+    }
+}
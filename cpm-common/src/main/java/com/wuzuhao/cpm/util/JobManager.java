@@ -0,0 +1,248 @@
+package com.wuzuhao.cpm.util;
+
+import com.wuzuhao.cpm.common.dto.JobInfo;
+import com.wuzuhao.cpm.common.dto.TokenClaims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台任务管理器
+ * 导入、导出等耗时操作提交到有界线程池中执行，接口立即返回任务ID，前端通过任务ID轮询进度和结果。
+ *
+ * 任务状态（{@link JobInfo}）保存在 Redis 中（键 job:{jobId}，保留 cpm.job.ttl 秒），
+ * 各服务共用同一个 Redis，任意节点都可以查询任务状态。
+ * 队列已满时直接拒绝提交，不会无限堆积任务；服务关闭时未完成的任务标记为失败。
+ *
+ * 任务在后台线程中执行，拿不到原请求。提交时把认证请求头保存在 {@link JobContext} 中，
+ * 任务执行期间可通过 {@link #currentJob()} 取得，Feign 拦截器据此把请求头传给下游服务。
+ */
+@Component
+public class JobManager {
+
+    private static final Logger log = LoggerFactory.getLogger(JobManager.class);
+
+    private static final String JOB_KEY_PREFIX = "job:";
+
+    /**
+     * 当前线程正在执行的任务
+     */
+    private static final ThreadLocal<JobContext> CURRENT_JOB = new ThreadLocal<>();
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    /**
+     * 工作线程数
+     */
+    @Value("${cpm.job.core-pool-size:2}")
+    private int corePoolSize;
+
+    /**
+     * 最大工作线程数（队列满后才会超过核心线程数）
+     */
+    @Value("${cpm.job.max-pool-size:4}")
+    private int maxPoolSize;
+
+    /**
+     * 排队任务数上限
+     */
+    @Value("${cpm.job.queue-capacity:20}")
+    private int queueCapacity;
+
+    /**
+     * 任务状态保留时间（秒）
+     */
+    @Value("${cpm.job.ttl:86400}")
+    private long ttl;
+
+    /**
+     * 每个任务最多保留的失败行数
+     */
+    @Value("${cpm.job.max-errors:1000}")
+    private int maxErrors;
+
+    /**
+     * 进度写入 Redis 的最小间隔（毫秒）
+     */
+    @Value("${cpm.job.progress-interval:1000}")
+    private long progressInterval;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * 本节点上排队中和执行中的任务
+     */
+    private final Map<String, JobContext> activeJobs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(corePoolSize, Math.max(corePoolSize, maxPoolSize), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "cpm-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 提交后台任务
+     * @param type 任务类型，如 resident-export
+     * @param userId 提交任务的用户ID，任务只有该用户能查询
+     * @param task 任务内容
+     * @return 任务的初始状态（PENDING）
+     * @throws RuntimeException 未登录（userId 为空）或队列已满
+     */
+    public JobInfo submit(@NonNull String type, Long userId, @NonNull JobTask task) {
+        if (userId == null) {
+            throw new RuntimeException("未登录，无法提交后台任务");
+        }
+        JobInfo job = new JobInfo();
+        job.setJobId(UUID.randomUUID().toString().replace("-", ""));
+        job.setType(type);
+        job.setStatus(JobInfo.STATUS_PENDING);
+        job.setUserId(userId);
+        job.setCreateTime(LocalDateTime.now());
+        job.setUpdateTime(job.getCreateTime());
+        save(job);
+
+        JobContext context = new JobContext(this, job, captureHeaders(), maxErrors, progressInterval);
+        JobInfo snapshot = context.snapshot();
+        activeJobs.put(job.getJobId(), context);
+        try {
+            executor.execute(() -> run(context, task));
+        } catch (RejectedExecutionException e) {
+            activeJobs.remove(job.getJobId());
+            redisUtil.del(JOB_KEY_PREFIX + job.getJobId());
+            log.warn("后台任务队列已满，拒绝任务: {}", type);
+            throw new RuntimeException("后台任务较多，请稍后再试");
+        }
+        log.info("提交后台任务: {}, jobId: {}, userId: {}", type, job.getJobId(), userId);
+        return snapshot;
+    }
+
+    /**
+     * 查询任务状态
+     * @return 任务状态，不存在或已过期时返回null
+     */
+    public JobInfo getJob(@NonNull String jobId) {
+        Object value = redisUtil.get(JOB_KEY_PREFIX + jobId);
+        return value instanceof JobInfo ? (JobInfo) value : null;
+    }
+
+    /**
+     * 查询当前用户提交的任务（没有所属用户的任务任何人都不能查询）
+     * @throws RuntimeException 任务不存在、已过期或不属于该用户
+     */
+    public JobInfo getJob(@NonNull String jobId, Long userId) {
+        JobInfo job = getJob(jobId);
+        if (job == null || job.getUserId() == null || !job.getUserId().equals(userId)) {
+            throw new RuntimeException("任务不存在或已过期");
+        }
+        return job;
+    }
+
+    /**
+     * 当前线程正在执行的任务，不在任务线程中时返回null
+     */
+    @Nullable
+    public static JobContext currentJob() {
+        return CURRENT_JOB.get();
+    }
+
+    void save(JobInfo job) {
+        if (!redisUtil.set(JOB_KEY_PREFIX + job.getJobId(), job, ttl)) {
+            log.warn("保存任务状态失败, jobId: {}", job.getJobId());
+        }
+    }
+
+    private void run(JobContext context, JobTask task) {
+        String jobId = context.getJobId();
+        CURRENT_JOB.set(context);
+        try {
+            context.markRunning();
+            task.run(context);
+            context.markSuccess();
+            log.info("后台任务完成, jobId: {}", jobId);
+        } catch (Exception e) {
+            log.error("后台任务执行失败, jobId: {}", jobId, e);
+            context.markFailed(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            CURRENT_JOB.remove();
+            activeJobs.remove(jobId);
+        }
+    }
+
+    /**
+     * 保存当前请求的认证请求头（请求结束后 request 对象会被容器回收，不能在任务线程中再读取）
+     * X-User-* 不直接复制请求头，而是取已校验的用户信息（request 中的 claims 属性），任务中调用下游服务时重新签名
+     */
+    private Map<String, String> captureHeaders() {
+        Map<String, String> headers = new HashMap<>();
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return headers;
+        }
+        HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization != null) {
+            headers.put(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        Object claims = request.getAttribute("claims");
+        if (claims instanceof TokenClaims) {
+            // 只保存已校验的用户信息，过期时间和签名在任务中调用下游服务时重新计算
+            headers.put(UserHeaderSigner.USER_ID_HEADER, ((TokenClaims) claims).getUserId().toString());
+            if (((TokenClaims) claims).getRole() != null) {
+                headers.put(UserHeaderSigner.USER_ROLE_HEADER, ((TokenClaims) claims).getRole());
+            }
+        }
+        return headers;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 仍未结束的任务（排队中或未响应中断）不会再执行，标记为失败，避免前端一直轮询
+        for (JobContext context : activeJobs.values()) {
+            context.markFailed("服务已停止，任务被中断，请重新提交");
+        }
+        activeJobs.clear();
+    }
+
+    /**
+     * 后台任务
+     */
+    @FunctionalInterface
+    public interface JobTask {
+
+        void run(JobContext context) throws Exception;
+    }
+}
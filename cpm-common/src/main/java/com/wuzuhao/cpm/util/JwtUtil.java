@@ -1,5 +1,6 @@
 package com.wuzuhao.cpm.util;
 
+import com.wuzuhao.cpm.common.dto.TokenClaims;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -17,6 +18,16 @@ import java.util.Map;
 @Component
 public class JwtUtil {
 
+    /**
+     * 登录会话在 Redis 中的键前缀（token:{userId} -> 当前有效的 Token）
+     */
+    public static final String TOKEN_KEY_PREFIX = "token:";
+
+    /**
+     * Token 吊销通知频道（登录顶替或登出时发布），消息内容为用户ID
+     */
+    public static final String TOKEN_REVOKE_CHANNEL = "cpm:auth:token-revoke";
+
     @Value("${jwt.secret}")
     private String secret;
 
@@ -59,6 +70,20 @@ public class JwtUtil {
                 .getBody();
     }
 
+    /**
+     * 解析Token，一次校验签名并取出全部用户信息
+     * @throws io.jsonwebtoken.JwtException Token 无效或已过期
+     */
+    @NonNull
+    public TokenClaims parseToken(@NonNull String token) {
+        Claims claims = getClaimsFromToken(token);
+        return new TokenClaims(
+                Long.valueOf(claims.get("userId").toString()),
+                claims.get("username") != null ? claims.get("username").toString() : null,
+                claims.get("role") != null ? claims.get("role").toString() : null,
+                claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE);
+    }
+
     /**
      * 从Token中获取用户ID
      */
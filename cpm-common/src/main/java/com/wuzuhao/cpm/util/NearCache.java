@@ -0,0 +1,261 @@
+package com.wuzuhao.cpm.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.temporal.Temporal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 两级缓存工具类
+ * 一级为进程内 Caffeine 缓存（按容量淘汰，W-TinyLFU），二级为 Redis（{@link RedisUtil}）。
+ *
+ * 读取时先查本地缓存，未命中再查 Redis 并回填本地；失效时删除 Redis 并通过 Redis 发布/订阅通知所有节点清除本地缓存。
+ * 本地缓存另设较短的写入过期时间，作为失效通知丢失时的兜底。
+ *
+ * {@link #getOrLoad} 在此基础上提供缓存加载能力：同一节点上同一个键的并发未命中只有一个线程回源（single-flight），
+ * 查询结果为空时写入短期的空值标记（防止缓存穿透），写入时对过期时间加随机抖动，避免大量键同时过期。
+ *
+ * 本地缓存中的对象会被多个请求共享，而调用方经常会修改查询结果（如把密码置空后返回），
+ * 因此读取时返回的是浅拷贝；实体字段均为 String、Long、LocalDateTime 等不可变类型，浅拷贝即可隔离修改。
+ */
+@Component
+public class NearCache {
+
+    private static final Logger log = LoggerFactory.getLogger(NearCache.class);
+
+    /**
+     * 失效通知频道，消息内容为以换行分隔的缓存键
+     */
+    private static final String INVALIDATE_CHANNEL = "cpm:near-cache:invalidate";
+
+    private static final String KEY_SEPARATOR = "\n";
+
+    /**
+     * 空值标记，表示数据库中不存在该数据
+     */
+    private static final String NULL_VALUE = "__NULL__";
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 本地缓存最大条目数
+     */
+    @Value("${cpm.near-cache.maximum-size:10000}")
+    private long maximumSize;
+
+    /**
+     * 本地缓存写入后的过期时间（秒）
+     */
+    @Value("${cpm.near-cache.expire-after-write:60}")
+    private long expireAfterWrite;
+
+    /**
+     * 空值标记的过期时间（秒）
+     */
+    @Value("${cpm.near-cache.null-value-ttl:60}")
+    private long nullValueTtl;
+
+    /**
+     * 过期时间随机抖动比例，如 0.1 表示在原过期时间基础上随机增加 0~10%
+     */
+    @Value("${cpm.near-cache.ttl-jitter:0.1}")
+    private double ttlJitter;
+
+    private Cache<String, Object> localCache;
+
+    /**
+     * 失效序号：每次本地失效（本节点失效或收到失效通知）都会递增，用于丢弃失效期间从 Redis 读到或回源查到的旧值
+     */
+    private final AtomicLong invalidateSequence = new AtomicLong();
+
+    /**
+     * 正在回源加载的键，同一个键的并发请求共享同一次加载结果
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite, TimeUnit.SECONDS)
+                .build();
+        redisMessageListenerContainer.addMessageListener((message, pattern) -> {
+            Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (body != null) {
+                invalidateLocal(body.toString().split(KEY_SEPARATOR));
+            }
+        }, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 获取缓存，本地未命中时读取 Redis 并回填本地
+     * @param key 键
+     * @return 值的副本，不存在（或为空值标记）时返回 null
+     */
+    @Nullable
+    public Object get(@NonNull String key) {
+        Object value = lookup(key);
+        return NULL_VALUE.equals(value) ? null : value;
+    }
+
+    /**
+     * 获取缓存，未命中时调用 loader 回源并写入缓存
+     * 同一节点上同一个键同时只有一个线程执行 loader，其他线程等待并共享其结果；loader 返回 null 时缓存空值标记
+     * loader 执行期间该节点发生过缓存失效时只返回结果、不写入缓存，避免旧值覆盖刚失效的缓存
+     * @param key 键
+     * @param time Redis 过期时间(秒)
+     * @param loader 回源函数（通常是数据库查询）
+     * @return 值，不存在时返回 null
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(@NonNull String key, long time, @NonNull Supplier<T> loader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return NULL_VALUE.equals(cached) ? null : (T) cached;
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            try {
+                Object value = existing.join();
+                return value != null ? (T) copyOf(value) : null;
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        try {
+            long sequence = invalidateSequence.get();
+            T value = loader.get();
+            // 回源期间发生过失效时不写缓存：数据可能在查询之后被修改，写入的会是旧值，交给下一次读取重新加载
+            if (sequence != invalidateSequence.get()) {
+                log.debug("回源期间缓存已失效，不写入缓存: {}", key);
+            } else if (value != null) {
+                set(key, value, time);
+            } else {
+                setNull(key);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * 依次查询本地缓存和 Redis，返回原始缓存值（可能为空值标记）
+     */
+    @Nullable
+    private Object lookup(String key) {
+        Object value = localCache.getIfPresent(key);
+        if (value != null) {
+            return copyOf(value);
+        }
+        long sequence = invalidateSequence.get();
+        value = redisUtil.get(key);
+        // 读取 Redis 期间发生过失效时不回填，避免把旧值放回本地缓存
+        if (value != null && sequence == invalidateSequence.get()) {
+            localCache.put(key, copyOf(value));
+        }
+        return value;
+    }
+
+    /**
+     * 写入两级缓存
+     * @param key 键
+     * @param value 值
+     * @param time Redis 过期时间(秒)
+     */
+    public void set(@NonNull String key, @NonNull Object value, long time) {
+        redisUtil.set(key, value, jitter(time));
+        localCache.put(key, copyOf(value));
+    }
+
+    /**
+     * 写入空值标记，表示数据不存在
+     */
+    private void setNull(String key) {
+        redisUtil.set(key, NULL_VALUE, nullValueTtl);
+        localCache.put(key, NULL_VALUE);
+    }
+
+    /**
+     * 在过期时间上增加随机抖动
+     */
+    private long jitter(long time) {
+        long bound = (long) (time * ttlJitter);
+        return bound > 0 ? time + ThreadLocalRandom.current().nextLong(bound + 1) : time;
+    }
+
+    /**
+     * 失效缓存：删除 Redis 和本节点本地缓存，并通知其他节点清除本地缓存
+     * @param keys 键
+     */
+    public void evict(@NonNull String... keys) {
+        if (keys.length == 0) {
+            return;
+        }
+        redisUtil.del(keys);
+        invalidateLocal(keys);
+        try {
+            redisTemplate.convertAndSend(INVALIDATE_CHANNEL, String.join(KEY_SEPARATOR, keys));
+        } catch (Exception e) {
+            // 通知失败时其他节点的本地缓存在过期时间后自然失效
+            log.warn("发送缓存失效通知失败: {}", e.getMessage());
+        }
+    }
+
+    private void invalidateLocal(String... keys) {
+        invalidateSequence.incrementAndGet();
+        for (String key : keys) {
+            localCache.invalidate(key);
+        }
+    }
+
+    /**
+     * 创建对象的浅拷贝；不可变的基础类型直接返回
+     */
+    private Object copyOf(Object value) {
+        if (value instanceof String || value instanceof Number || value instanceof Boolean
+                || value instanceof Temporal || value instanceof Enum) {
+            return value;
+        }
+        Object copy = BeanUtils.instantiateClass(value.getClass());
+        BeanUtils.copyProperties(value, copy);
+        return copy;
+    }
+}
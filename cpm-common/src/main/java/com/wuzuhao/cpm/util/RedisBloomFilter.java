@@ -0,0 +1,251 @@
+package com.wuzuhao.cpm.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 基于 Redis 位图的布隆过滤器
+ * 所有节点共享同一个过滤器，用于在查询前快速判断某个值（如身份证号、用户名）一定不存在，避免不存在的值穿透到数据库。
+ *
+ * 过滤器由业务服务在启动时全量构建（{@link #buildIfAbsent}），之后新增数据时调用 {@link #put} 追加；
+ * 删除的数据无法从过滤器中移除，只会带来少量误判（仍走正常查询），不影响正确性。
+ * 过滤器尚未构建完成时 {@link #mightContain} 一律返回 true。
+ */
+@Component
+public class RedisBloomFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisBloomFilter.class);
+
+    private static final String KEY_PREFIX = "bloom:";
+
+    /**
+     * 位图大小：2^24 位（2MB），百万级数据下误判率约 0.1%
+     */
+    private static final long BIT_SIZE = 1L << 24;
+
+    /**
+     * 哈希函数个数
+     */
+    private static final int HASH_COUNT = 5;
+
+    /**
+     * 构建锁过期时间（秒）
+     */
+    private static final long BUILD_LOCK_TIME = 1800;
+
+    /**
+     * 构建时每批写入的值个数
+     */
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    /**
+     * 本地缓存"已构建"状态的时长（毫秒），避免每次查询都多一次 Redis 往返
+     */
+    private static final long READY_CHECK_INTERVAL = 60000;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    /**
+     * 过滤器名称 -> 本地认为其已构建的截止时间
+     */
+    private final Map<String, Long> readyUntil = new ConcurrentHashMap<>();
+
+    /**
+     * 判断值是否可能存在
+     * @param name 过滤器名称
+     * @param value 值
+     * @return false 表示一定不存在；true 表示可能存在（或过滤器尚未构建完成）
+     */
+    public boolean mightContain(@NonNull String name, @NonNull String value) {
+        try {
+            if (!isReady(name)) {
+                return true;
+            }
+            for (boolean bit : redisUtil.getBits(dataKey(name), offsets(value))) {
+                if (!bit) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            // Redis 异常时按"可能存在"处理，交给正常查询
+            log.warn("布隆过滤器查询失败，name: {}, error: {}", name, e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * 添加值；构建进行中时同时写入构建中的位图，避免构建期间新增的值在切换后丢失
+     * @param name 过滤器名称
+     * @param value 值
+     */
+    public void put(@NonNull String name, @NonNull String value) {
+        try {
+            long[] offsets = offsets(value);
+            redisUtil.setBits(dataKey(name), offsets);
+            if (redisUtil.hasKey(lockKey(name))) {
+                redisUtil.setBits(buildingKey(name), offsets);
+            }
+        } catch (Exception e) {
+            log.warn("布隆过滤器写入失败，name: {}, error: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * 批量添加值（管道执行，一次往返），用于批量导入等场景
+     * @param name 过滤器名称
+     * @param values 值
+     */
+    public void putAll(@NonNull String name, @NonNull Collection<String> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        try {
+            long[] offsets = new long[HASH_COUNT * values.size()];
+            int index = 0;
+            for (String value : values) {
+                System.arraycopy(offsets(value), 0, offsets, index, HASH_COUNT);
+                index += HASH_COUNT;
+            }
+            redisUtil.setBits(dataKey(name), offsets);
+            if (redisUtil.hasKey(lockKey(name))) {
+                redisUtil.setBits(buildingKey(name), offsets);
+            }
+        } catch (Exception e) {
+            log.warn("布隆过滤器批量写入失败，name: {}, error: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * 过滤器未构建时在后台线程中全量构建（多节点同时启动时只有一个节点执行）
+     * @param name 过滤器名称
+     * @param source 数据源，参数为接收每个值的回调，数据源负责分页遍历全部数据
+     */
+    public void buildIfAbsent(@NonNull String name, @NonNull Consumer<Consumer<String>> source) {
+        if (redisUtil.hasKey(readyKey(name))) {
+            return;
+        }
+        Thread thread = new Thread(() -> rebuild(name, source), "bloom-filter-build-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 全量重建过滤器：写入临时位图，完成后替换正式位图并标记为可用
+     * @return 是否执行了重建（其他节点正在构建时返回 false）
+     */
+    public boolean rebuild(@NonNull String name, @NonNull Consumer<Consumer<String>> source) {
+        String lockOwner = UUID.randomUUID().toString();
+        if (!redisUtil.setIfAbsent(lockKey(name), lockOwner, BUILD_LOCK_TIME)) {
+            log.info("布隆过滤器正在由其他节点构建，跳过，name: {}", name);
+            return false;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            String buildingKey = buildingKey(name);
+            redisUtil.del(buildingKey);
+            // 攒够一批再通过管道写入，减少往返次数
+            long[] buffer = new long[HASH_COUNT * BUILD_BATCH_SIZE];
+            int[] buffered = new int[1];
+            long[] count = new long[1];
+            source.accept(value -> {
+                if (value != null && !value.isEmpty()) {
+                    System.arraycopy(offsets(value), 0, buffer, buffered[0], HASH_COUNT);
+                    buffered[0] += HASH_COUNT;
+                    count[0]++;
+                    if (buffered[0] == buffer.length) {
+                        redisUtil.setBits(buildingKey, buffer);
+                        buffered[0] = 0;
+                    }
+                }
+            });
+            if (buffered[0] > 0) {
+                redisUtil.setBits(buildingKey, Arrays.copyOf(buffer, buffered[0]));
+            }
+            if (count[0] > 0) {
+                redisUtil.rename(buildingKey, dataKey(name));
+            } else {
+                redisUtil.del(dataKey(name));
+            }
+            redisUtil.set(readyKey(name), System.currentTimeMillis());
+            log.info("布隆过滤器构建完成，name: {}, 数量: {}, 耗时: {}ms", name, count[0], System.currentTimeMillis() - start);
+            return true;
+        } catch (Exception e) {
+            log.error("布隆过滤器构建失败，name: {}", name, e);
+            return false;
+        } finally {
+            // 构建超过锁过期时间、锁已被其他节点取得时不删除
+            if (!redisUtil.releaseLock(lockKey(name), lockOwner)) {
+                log.warn("布隆过滤器构建锁已过期，未释放，name: {}", name);
+            }
+        }
+    }
+
+    private boolean isReady(String name) {
+        Long until = readyUntil.get(name);
+        long now = System.currentTimeMillis();
+        if (until != null && until > now) {
+            return true;
+        }
+        boolean ready = redisUtil.hasKey(readyKey(name));
+        if (ready) {
+            readyUntil.put(name, now + READY_CHECK_INTERVAL);
+        }
+        return ready;
+    }
+
+    /**
+     * 计算值在位图中的各个位置（双重哈希：h1 + i * h2）
+     */
+    private long[] offsets(String value) {
+        long h1 = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h1 ^= b;
+            h1 *= 0x100000001b3L;
+        }
+        h1 = mix(h1);
+        long h2 = mix(h1 ^ 0x9e3779b97f4a7c15L) | 1L;
+        long[] offsets = new long[HASH_COUNT];
+        for (int i = 0; i < HASH_COUNT; i++) {
+            offsets[i] = Math.floorMod(h1 + i * h2, BIT_SIZE);
+        }
+        return offsets;
+    }
+
+    private long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private String dataKey(String name) {
+        return KEY_PREFIX + name;
+    }
+
+    private String buildingKey(String name) {
+        return KEY_PREFIX + name + ":building";
+    }
+
+    private String readyKey(String name) {
+        return KEY_PREFIX + name + ":ready";
+    }
+
+    private String lockKey(String name) {
+        return KEY_PREFIX + name + ":lock";
+    }
+}
@@ -0,0 +1,127 @@
+package com.wuzuhao.cpm.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wuzuhao.cpm.config.RateLimitProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式限流器（令牌桶）
+ *
+ * 令牌桶状态保存在 Redis 中，补充和扣减在一段 Lua 脚本中原子完成，一次往返、无并发竞争。
+ * 为减少 Redis 访问，每个节点按 {@link RateLimitProperties#getLocalLeaseRatio()} 一次预取一批令牌在本地消费，
+ * 本地令牌用完或过期后才再次访问 Redis；多个节点共享同一个桶，总放行量不会超过限额。
+ */
+@Component
+public class RedisRateLimiter {
+
+    /**
+     * 令牌桶脚本
+     * KEYS[1] 桶的键；ARGV[1] 容量；ARGV[2] 每毫秒补充的令牌数；ARGV[3] 申请的令牌数；ARGV[4] 键过期时间（秒）
+     * 当前时间取 Redis 服务器时间（TIME），各节点时钟不一致时桶的补充速度也不会偏差；
+     * 返回实际发放的令牌数（0 表示被限流）；网关的响应式限流复用同一脚本，两者的桶互相兼容
+     */
+    public static final String TOKEN_BUCKET_SCRIPT =
+            "redis.replicate_commands()\n" +
+            "local capacity = tonumber(ARGV[1])\n" +
+            "local rate = tonumber(ARGV[2])\n" +
+            "local requested = tonumber(ARGV[3])\n" +
+            "local time = redis.call('TIME')\n" +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n" +
+            "local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')\n" +
+            "local tokens = tonumber(state[1])\n" +
+            "local ts = tonumber(state[2])\n" +
+            "if tokens == nil or ts == nil then\n" +
+            "  tokens = capacity\n" +
+            "  ts = now\n" +
+            "end\n" +
+            "if now > ts then\n" +
+            "  tokens = math.min(capacity, tokens + (now - ts) * rate)\n" +
+            "  ts = now\n" +
+            "end\n" +
+            "local granted = math.min(requested, math.floor(tokens))\n" +
+            "tokens = tokens - granted\n" +
+            "redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(ts))\n" +
+            "redis.call('EXPIRE', KEYS[1], tonumber(ARGV[4]))\n" +
+            "return granted";
+
+    private static final RedisScript<Long> SCRIPT = new DefaultRedisScript<>(TOKEN_BUCKET_SCRIPT, Long.class);
+
+    /**
+     * 桶的键过期时间（秒），空闲超过该时间的桶视为已补满
+     */
+    public static final long BUCKET_TTL = 120;
+
+    private static final StringRedisSerializer ARGS_SERIALIZER = new StringRedisSerializer();
+
+    private static final GenericToStringSerializer<Long> RESULT_SERIALIZER = new GenericToStringSerializer<>(Long.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private RateLimitProperties rateLimitProperties;
+
+    /**
+     * 本地预取的令牌（键 -> 剩余令牌），按访问时间淘汰
+     */
+    private final Cache<String, LocalLease> leases = Caffeine.newBuilder()
+            .maximumSize(100000)
+            .expireAfterAccess(1, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * 尝试获取一个令牌
+     * @param key 桶的键
+     * @param limitPerMinute 每分钟限额（同时也是桶容量）
+     * @return true 放行 false 限流
+     */
+    public boolean tryAcquire(@NonNull String key, int limitPerMinute) {
+        if (limitPerMinute <= 0) {
+            return true;
+        }
+        LocalLease lease = leases.get(key, k -> new LocalLease());
+        synchronized (lease) {
+            long now = System.currentTimeMillis();
+            if (lease.remaining > 0 && now < lease.expiresAt) {
+                lease.remaining--;
+                return true;
+            }
+            int leaseSize = (int) Math.max(1, Math.floor(limitPerMinute * rateLimitProperties.getLocalLeaseRatio()));
+            long granted = acquire(key, limitPerMinute, leaseSize);
+            if (granted <= 0) {
+                lease.remaining = 0;
+                return false;
+            }
+            lease.remaining = granted - 1;
+            lease.expiresAt = now + rateLimitProperties.getLocalLeaseMillis();
+            return true;
+        }
+    }
+
+    private long acquire(String key, int limitPerMinute, int requested) {
+        double ratePerMillis = limitPerMinute / 60000.0;
+        Long granted = redisTemplate.execute(SCRIPT, ARGS_SERIALIZER, RESULT_SERIALIZER, Collections.singletonList(key),
+                String.valueOf(limitPerMinute), String.valueOf(ratePerMillis),
+                String.valueOf(requested), String.valueOf(BUCKET_TTL));
+        return granted != null ? granted : 0L;
+    }
+
+    /**
+     * 本地预取的令牌
+     */
+    private static class LocalLease {
+        private long remaining;
+        private long expiresAt;
+    }
+}
@@ -1,12 +1,25 @@
 package com.wuzuhao.cpm.util;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -16,10 +29,36 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class RedisUtil {
 
+    /**
+     * 命名空间版本号键前缀
+     */
+    private static final String NAMESPACE_VERSION_PREFIX = "namespace:version:";
+
+    /**
+     * SCAN 每批遍历/删除的键数量
+     */
+    private static final int SCAN_BATCH_SIZE = 1000;
+
+    /**
+     * 释放锁脚本：只有锁的值仍是调用方写入的持有者标识时才删除
+     */
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
     @Autowired
     @NonNull
     private RedisTemplate<String, Object> redisTemplate;
 
+    /**
+     * 后台清理线程（按模式删除键）
+     */
+    private final ExecutorService cleanupExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "redis-cleanup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     // =============================common============================
     /**
      * 指定缓存失效时间
@@ -38,6 +77,15 @@ public class RedisUtil {
         }
     }
 
+    /**
+     * 重命名key（目标key已存在时会被覆盖）
+     * @param oldKey 原键
+     * @param newKey 新键
+     */
+    public void rename(@NonNull String oldKey, @NonNull String newKey) {
+        redisTemplate.rename(oldKey, newKey);
+    }
+
     /**
      * 根据key 获取过期时间
      * @param key 键 不能为null
@@ -133,6 +181,30 @@ public class RedisUtil {
         }
     }
 
+    /**
+     * 仅当key不存在时放入缓存并设置时间（可用作简单的分布式锁）
+     * @param key 键
+     * @param value 值
+     * @param time 时间(秒) 要大于0
+     * @return true 放入成功 false key已存在
+     */
+    public boolean setIfAbsent(@NonNull String key, @NonNull Object value, long time) {
+        Boolean result = redisTemplate.opsForValue().setIfAbsent(key, value, time, TimeUnit.SECONDS);
+        return result != null && result;
+    }
+
+    /**
+     * 释放通过 {@link #setIfAbsent} 获取的锁：比较和删除在一段 Lua 脚本中原子完成，
+     * 锁已过期并被其他持有者重新获取时不会误删
+     * @param key 锁的键
+     * @param owner 获取锁时写入的持有者标识（如 UUID）
+     * @return true 已释放 false 锁已不属于该持有者
+     */
+    public boolean releaseLock(@NonNull String key, @NonNull Object owner) {
+        Long result = redisTemplate.execute(RELEASE_LOCK_SCRIPT, Collections.singletonList(key), owner);
+        return result != null && result > 0;
+    }
+
     /**
      * 递增
      * @param key 键
@@ -170,6 +242,52 @@ public class RedisUtil {
         return redisTemplate.opsForHash().get(key, item);
     }
 
+    /**
+     * 获取hashKey对应的所有键值
+     * @param key 键
+     * @return 对应的多个键值
+     */
+    public Map<Object, Object> hmget(@NonNull String key) {
+        return redisTemplate.opsForHash().entries(key);
+    }
+
+    /**
+     * 批量获取多个hash的所有键值（管道执行，一次往返）
+     * @param keys 键
+     * @return 各个hash的键值，顺序与 keys 一致，不存在的键返回空Map
+     */
+    @SuppressWarnings("unchecked")
+    public List<Map<Object, Object>> hmgetAll(@NonNull List<String> keys) {
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.hGetAll(key.getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        List<Map<Object, Object>> entries = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            Object result = i < results.size() ? results.get(i) : null;
+            entries.add(result instanceof Map ? (Map<Object, Object>) result : Collections.emptyMap());
+        }
+        return entries;
+    }
+
+    /**
+     * 向hash表中批量放入数据
+     * @param key 键
+     * @param map 对应多个键值
+     * @return true 成功 false失败
+     */
+    public boolean hmset(@NonNull String key, @NonNull Map<String, Object> map) {
+        try {
+            redisTemplate.opsForHash().putAll(key, map);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
     /**
      * 向一张hash表中放入数据,如果不存在将创建
      * @param key 键
@@ -225,6 +343,17 @@ public class RedisUtil {
         redisTemplate.opsForHash().delete(key, item);
     }
 
+    /**
+     * hash递增 如果不存在,就会创建一个 并把新增后的值返回
+     * @param key 键
+     * @param item 项
+     * @param by 要增加几(可以为负数，表示递减)
+     */
+    public long hincr(@NonNull String key, @NonNull String item, long by) {
+        Long result = redisTemplate.opsForHash().increment(key, item, by);
+        return result != null ? result : 0L;
+    }
+
     // ============================Set=============================
     /**
      * 根据key获取Set中的所有值
@@ -321,19 +450,117 @@ public class RedisUtil {
         }
     }
 
+    // ============================bitmap=============================
+
+    /**
+     * 批量将位图中的指定位置为1（管道执行，一次往返）
+     * @param key 键
+     * @param offsets 位偏移量
+     */
+    public void setBits(@NonNull String key, @NonNull long[] offsets) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (long offset : offsets) {
+                connection.setBit(rawKey, offset, true);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 批量读取位图中的指定位（管道执行，一次往返）
+     * @param key 键
+     * @param offsets 位偏移量
+     * @return 各位置是否为1，顺序与 offsets 一致
+     */
+    public boolean[] getBits(@NonNull String key, @NonNull long[] offsets) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (long offset : offsets) {
+                connection.getBit(rawKey, offset);
+            }
+            return null;
+        });
+        boolean[] bits = new boolean[offsets.length];
+        for (int i = 0; i < bits.length && i < results.size(); i++) {
+            bits[i] = Boolean.TRUE.equals(results.get(i));
+        }
+        return bits;
+    }
+
+    // ============================namespace============================
+
+    /**
+     * 获取命名空间下的实际缓存键：{命名空间}:v{版本号}:{键}
+     * 配合 {@link #invalidateNamespace} 使用，整个命名空间的失效只需递增版本号，旧版本的键不再被读取
+     * @param namespace 命名空间，如 "search:cursor:resident_index"
+     * @param key 命名空间内的键
+     */
+    public String namespacedKey(@NonNull String namespace, @NonNull String key) {
+        return namespace + ":v" + getNamespaceVersion(namespace) + ":" + key;
+    }
+
+    /**
+     * 失效整个命名空间：递增版本号（O(1)），旧版本的键在后台通过 SCAN 渐进清理，未清理到的键也会按过期时间自然过期
+     * @param namespace 命名空间
+     * @return 新版本号
+     */
+    public long invalidateNamespace(@NonNull String namespace) {
+        Long version = redisTemplate.opsForValue().increment(NAMESPACE_VERSION_PREFIX + namespace);
+        long newVersion = version != null ? version : 0L;
+        deleteByPatternAsync(namespace + ":v" + (newVersion - 1) + ":*");
+        return newVersion;
+    }
+
+    private long getNamespaceVersion(String namespace) {
+        Object version = redisTemplate.opsForValue().get(NAMESPACE_VERSION_PREFIX + namespace);
+        return version instanceof Number ? ((Number) version).longValue() : 0L;
+    }
+
     /**
      * 根据模式删除key
+     * 使用 SCAN 分批遍历并以 UNLINK 删除（由 Redis 后台线程回收内存），不会像 KEYS 一样阻塞整个 Redis 实例；
+     * 耗时与键总数成正比，不要在请求路径上调用，请求路径上请使用 {@link #deleteByPatternAsync} 或命名空间版本号
      * @param pattern 模式，如 "resident:*"
+     * @return 删除的键数量
      */
-    public void deleteByPattern(@NonNull String pattern) {
-        try {
-            Set<String> keys = redisTemplate.keys(pattern);
-            if (keys != null && !keys.isEmpty()) {
-                redisTemplate.delete(keys);
+    public long deleteByPattern(@NonNull String pattern) {
+        long deleted = 0;
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_BATCH_SIZE).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            List<String> batch = new ArrayList<>(SCAN_BATCH_SIZE);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= SCAN_BATCH_SIZE) {
+                    deleted += unlink(batch);
+                    batch.clear();
+                }
             }
+            deleted += unlink(batch);
         } catch (Exception e) {
             e.printStackTrace();
         }
+        return deleted;
+    }
+
+    /**
+     * 在后台线程中根据模式删除key，立即返回
+     * @param pattern 模式，如 "resident:*"
+     */
+    public void deleteByPatternAsync(@NonNull String pattern) {
+        cleanupExecutor.execute(() -> deleteByPattern(pattern));
+    }
+
+    private long unlink(List<String> keys) {
+        if (keys.isEmpty()) {
+            return 0L;
+        }
+        Long count = redisTemplate.unlink(keys);
+        return count != null ? count : 0L;
     }
-}
 
+    @PreDestroy
+    public void destroy() {
+        cleanupExecutor.shutdown();
+    }
+}
@@ -0,0 +1,158 @@
+package com.wuzuhao.cpm.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import com.wuzuhao.cpm.common.Result;
+import com.wuzuhao.cpm.common.dto.SearchPage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 游标分页遍历工具类
+ * 配合各服务的 /scroll 接口（id > lastId，按ID升序）逐页拉取数据，调用方每次只持有一页数据；
+ * 服务内部直接查库时使用 {@link #keysetLoader}，按主键游标分批读取；
+ * 按搜索条件导出时使用 {@link #searchLoader}，配合搜索服务的 /scan 接口逐批拉取
+ */
+public class ScrollUtil {
+
+    /**
+     * 默认每页数量
+     */
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+
+    /**
+     * 逐页遍历全部数据
+     * @param fetcher 分页拉取函数，参数为 (lastId, size)，通常是 Feign 客户端的 scroll 方法
+     * @param pageSize 每页数量
+     * @param handler 每页数据的处理函数，页内元素为 Map 形式的记录
+     * @return 遍历的记录总数
+     */
+    @SuppressWarnings("unchecked")
+    public static long forEachPage(BiFunction<Long, Integer, Result<?>> fetcher, int pageSize,
+                                   Consumer<List<Map<String, Object>>> handler) {
+        long lastId = 0L;
+        long total = 0L;
+        while (true) {
+            Result<?> result = fetcher.apply(lastId, pageSize);
+            if (result == null) {
+                throw new RuntimeException("分页拉取数据失败：返回结果为空");
+            }
+            if (result.getCode() == null || result.getCode() != 200) {
+                throw new RuntimeException("分页拉取数据失败，code: " + result.getCode() + ", message: " + result.getMessage());
+            }
+            if (!(result.getData() instanceof List)) {
+                return total;
+            }
+            List<?> data = (List<?>) result.getData();
+            List<Map<String, Object>> page = new ArrayList<>(data.size());
+            for (Object item : data) {
+                if (item instanceof Map) {
+                    page.add((Map<String, Object>) item);
+                }
+            }
+            if (page.isEmpty()) {
+                return total;
+            }
+            Object id = page.get(page.size() - 1).get("id");
+            if (id == null) {
+                throw new RuntimeException("分页拉取数据失败：记录缺少ID，无法继续翻页");
+            }
+            handler.accept(page);
+            total += page.size();
+            if (data.size() < pageSize) {
+                return total;
+            }
+            lastId = Long.parseLong(id.toString());
+        }
+    }
+
+    /**
+     * 按主键游标分批查询本服务的数据（id < lastId，按ID降序，新数据在前），用于导出等需要遍历大量数据的场景
+     * 每批都是主键索引上的范围扫描，不会像 OFFSET 分页一样越往后越慢，调用方每次只持有一批数据
+     * @param conditions 查询条件，每批重新创建一个（在其基础上追加游标条件，不能带排序和 LIMIT）
+     * @param idColumn 主键列
+     * @param query 执行查询的函数，通常是 service::list
+     * @param batchSize 每批数量
+     * @param converter 每批实体的转换函数（如转换为 Excel DTO，可在这里批量补充关联数据）
+     * @return 分批数据加载器
+     */
+    public static <E, T> ExcelUtil.ChunkLoader<T> keysetLoader(Supplier<LambdaQueryWrapper<E>> conditions, SFunction<E, Long> idColumn,
+                                                             Function<LambdaQueryWrapper<E>, List<E>> query, int batchSize,
+                                                             Function<List<E>, List<T>> converter) {
+        return new ExcelUtil.ChunkLoader<T>() {
+            private Long lastId;
+            private boolean finished;
+
+            @Override
+            public List<T> next() {
+                if (finished) {
+                    return Collections.emptyList();
+                }
+                LambdaQueryWrapper<E> wrapper = conditions.get();
+                if (lastId != null) {
+                    wrapper.lt(idColumn, lastId);
+                }
+                wrapper.orderByDesc(idColumn).last("LIMIT " + batchSize);
+                List<E> records = query.apply(wrapper);
+                if (records.size() < batchSize) {
+                    finished = true;
+                }
+                if (records.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                lastId = idColumn.apply(records.get(records.size() - 1));
+                return converter.apply(records);
+            }
+        };
+    }
+
+    /**
+     * 按搜索服务返回的游标逐批拉取搜索结果（/search/{类型}/scan 接口），用于按列表页的搜索条件导出
+     * @param fetcher 拉取函数，参数为上一批返回的游标（第一批为null），通常是 Feign 客户端的 scan 方法
+     * @param converter 文档的转换函数
+     * @return 分批数据加载器
+     * @throws RuntimeException 搜索服务返回失败时（不会导出不完整的文件）
+     */
+    public static <D, T> ExcelUtil.ChunkLoader<T> searchLoader(Function<String, Result<SearchPage<D>>> fetcher,
+                                                             Function<D, T> converter) {
+        return new ExcelUtil.ChunkLoader<T>() {
+            private String cursor;
+            private boolean finished;
+
+            @Override
+            public List<T> next() {
+                if (finished) {
+                    return Collections.emptyList();
+                }
+                Result<SearchPage<D>> result = fetcher.apply(cursor);
+                if (result == null) {
+                    throw new RuntimeException("拉取搜索结果失败：返回结果为空");
+                }
+                if (result.getCode() == null || result.getCode() != 200) {
+                    throw new RuntimeException("拉取搜索结果失败，code: " + result.getCode() + ", message: " + result.getMessage());
+                }
+                SearchPage<D> page = result.getData();
+                cursor = page != null ? page.getCursor() : null;
+                if (cursor == null) {
+                    finished = true;
+                }
+                if (page == null || page.getHits() == null || page.getHits().isEmpty()) {
+                    finished = true;
+                    return Collections.emptyList();
+                }
+                List<T> chunk = new ArrayList<>(page.getHits().size());
+                for (D document : page.getHits()) {
+                    chunk.add(converter.apply(document));
+                }
+                return chunk;
+            }
+        };
+    }
+}
@@ -0,0 +1,199 @@
+package com.wuzuhao.cpm.util;
+
+import com.wuzuhao.cpm.common.dto.TokenClaims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * 用户信息请求头签名工具类
+ *
+ * 网关校验 Token 后把用户信息放入 X-User-Id、X-User-Role、X-User-Expires 请求头，并用 HMAC-SHA256 签名（X-User-Signature），
+ * 业务服务和服务间的 Feign 调用只需校验签名即可信任这些请求头，不必再解析 JWT。
+ * 签名的过期时间（X-User-Expires）取 Token 过期时间与 当前时间 + cpm.auth.header-ttl 中较早的一个，
+ * 请求头被截获后只能在很短的时间内重放，登出或被顶替的 Token 也不会因为请求头仍然有效而继续被信任。
+ * 签名密钥 cpm.auth.header-secret 必须单独配置，不能与 JWT 密钥相同，避免持有 JWT 密钥的一方也能伪造请求头。
+ *
+ * 服务内部的后台任务调用下游时另外附带服务签名（X-Service-Signature），网关从不添加它，
+ * 只供内部调用的接口（如文件服务保存导出文件）据此拒绝经网关转发的外部请求。
+ */
+@Component
+public class UserHeaderSigner {
+
+    public static final String USER_ID_HEADER = "X-User-Id";
+    public static final String USER_ROLE_HEADER = "X-User-Role";
+    public static final String USER_EXPIRES_HEADER = "X-User-Expires";
+    public static final String SIGNATURE_HEADER = "X-User-Signature";
+    public static final String SERVICE_SIGNATURE_HEADER = "X-Service-Signature";
+
+    /**
+     * 全部签名请求头，网关会先移除客户端传入的同名请求头
+     */
+    public static final String[] HEADERS = {USER_ID_HEADER, USER_ROLE_HEADER, USER_EXPIRES_HEADER, SIGNATURE_HEADER,
+            SERVICE_SIGNATURE_HEADER};
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    /**
+     * 签名密钥，网关与各服务必须一致
+     */
+    @Value("${cpm.auth.header-secret:}")
+    private String secret;
+
+    @Value("${jwt.secret:}")
+    private String jwtSecret;
+
+    /**
+     * 签名有效期（秒）
+     */
+    @Value("${cpm.auth.header-ttl:60}")
+    private long headerTtl;
+
+    /**
+     * 是否使用请求头签名（网关统一认证或请求头信任模式开启时），未使用时不要求配置密钥
+     */
+    @Value("${cpm.auth.gateway.enabled:false}")
+    private boolean gatewayAuth;
+
+    @Value("${cpm.auth.header-trust:false}")
+    private boolean headerTrust;
+
+    /**
+     * Mac 不是线程安全的，每个线程各用一个
+     */
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::createMac);
+
+    @PostConstruct
+    public void init() {
+        if ((gatewayAuth || headerTrust) && !hasValidSecret()) {
+            throw new IllegalStateException("请求头签名需要单独配置 cpm.auth.header-secret（不能为空，也不能与 jwt.secret 相同）");
+        }
+    }
+
+    /**
+     * 签名的过期时间：Token 过期时间与 当前时间 + header-ttl 中较早的一个
+     * @param tokenExpiration Token 过期时间（毫秒时间戳）
+     */
+    public long expiration(long tokenExpiration) {
+        return Math.min(tokenExpiration, System.currentTimeMillis() + headerTtl * 1000);
+    }
+
+    /**
+     * 为后台任务重新签名：任务可能在提交它的请求结束很久之后才调用下游服务，原签名已过期，
+     * 按提交任务时已校验过的用户信息重新计算过期时间和签名
+     * @param headers 提交任务时保存的请求头，包含 X-User-Id 时原地替换 X-User-Expires 和 X-User-Signature
+     */
+    public void resign(@NonNull Map<String, String> headers) {
+        String userId = headers.get(USER_ID_HEADER);
+        if (userId == null) {
+            return;
+        }
+        long expiration = System.currentTimeMillis() + headerTtl * 1000;
+        headers.put(USER_EXPIRES_HEADER, Long.toString(expiration));
+        headers.put(SIGNATURE_HEADER, sign(Long.valueOf(userId), headers.get(USER_ROLE_HEADER), expiration));
+    }
+
+    /**
+     * 添加服务签名（X-Service-Signature，格式为 过期时间.签名），表明请求由服务内部发出而不是经网关转发
+     */
+    public void signService(@NonNull Map<String, String> headers) {
+        String expires = Long.toString(System.currentTimeMillis() + headerTtl * 1000);
+        byte[] digest = macs.get().doFinal(servicePayload(expires));
+        headers.put(SERVICE_SIGNATURE_HEADER, expires + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(digest));
+    }
+
+    /**
+     * 校验服务签名
+     * @return 签名正确且未过期
+     */
+    public boolean verifyService(@Nullable String value) {
+        int separator = value != null ? value.indexOf('.') : -1;
+        if (separator <= 0) {
+            return false;
+        }
+        String expires = value.substring(0, separator);
+        try {
+            if (Long.parseLong(expires) <= System.currentTimeMillis()) {
+                return false;
+            }
+            byte[] expected = macs.get().doFinal(servicePayload(expires));
+            byte[] actual = Base64.getUrlDecoder().decode(value.substring(separator + 1));
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 计算签名
+     */
+    @NonNull
+    public String sign(@NonNull Long userId, @Nullable String role, long expiration) {
+        byte[] digest = macs.get().doFinal(payload(userId.toString(), role, Long.toString(expiration)));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+
+    /**
+     * 校验请求头
+     * @return 用户信息（username 为空），请求头缺失、签名不正确或已过期时返回null
+     */
+    @Nullable
+    public TokenClaims verify(@Nullable String userId, @Nullable String role, @Nullable String expires,
+                              @Nullable String signature) {
+        if (userId == null || expires == null || signature == null) {
+            return null;
+        }
+        try {
+            long expiration = Long.parseLong(expires);
+            if (expiration <= System.currentTimeMillis()) {
+                return null;
+            }
+            byte[] expected = macs.get().doFinal(payload(userId, role, expires));
+            byte[] actual = Base64.getUrlDecoder().decode(signature);
+            if (!MessageDigest.isEqual(expected, actual)) {
+                return null;
+            }
+            return new TokenClaims(Long.valueOf(userId), null, role, expiration);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] payload(String userId, String role, String expires) {
+        return (userId + "\n" + (role != null ? role : "") + "\n" + expires).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 服务签名的内容只有两行，不会与三行的用户信息签名内容相同
+     */
+    private byte[] servicePayload(String expires) {
+        return ("service\n" + expires).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private boolean hasValidSecret() {
+        return secret != null && !secret.trim().isEmpty() && !secret.equals(jwtSecret);
+    }
+
+    private Mac createMac() {
+        if (!hasValidSecret()) {
+            throw new IllegalStateException("未配置请求头签名密钥 cpm.auth.header-secret");
+        }
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("初始化请求头签名失败", e);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.wuzuhao.cpm.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.wuzuhao.cpm.common.dto.TokenClaims;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token 校验结果本地缓存
+ * 键为 Token 的 SHA-256，同一个 Token 只在首次请求时校验签名和会话；缓存时间不超过 Token 的剩余有效期，
+ * 也不超过 maxTtl（吊销通知丢失时的兜底）。
+ *
+ * 吊销按用户记录版本号：登录（顶替旧 Token）和登出时调用 {@link #revoke}，早于该版本写入的缓存不再使用。
+ * 调用方在校验前通过 {@link #version()} 取版本号、校验通过后连同版本号一起写入，校验期间发生的吊销也能生效。
+ */
+public class VerifiedTokenCache {
+
+    /**
+     * 已校验的 Token（Token 哈希 -> 用户信息及校验时的版本）
+     */
+    private final Cache<String, Entry> cache;
+
+    /**
+     * 用户的吊销版本（用户ID -> 最近一次吊销时的版本），保留时间为缓存最长保留时间的两倍，之前的缓存必然已过期
+     */
+    private final Cache<Long, Long> revokedVersions;
+
+    /**
+     * 全局版本号，每次吊销递增
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * @param maximumSize 最大条目数
+     * @param maxTtlSeconds 最长保留时间（秒）
+     */
+    public VerifiedTokenCache(long maximumSize, long maxTtlSeconds) {
+        long maxTtlNanos = TimeUnit.SECONDS.toNanos(maxTtlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(@NonNull String key, @NonNull Entry value, long currentTime) {
+                        long remaining = TimeUnit.MILLISECONDS.toNanos(
+                                Math.max(0, value.claims.getExpiration() - System.currentTimeMillis()));
+                        return Math.min(remaining, maxTtlNanos);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(@NonNull String key, @NonNull Entry value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(@NonNull String key, @NonNull Entry value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        this.revokedVersions = Caffeine.newBuilder()
+                .expireAfterWrite(maxTtlSeconds * 2, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 获取缓存的校验结果
+     * @return 用户信息，未缓存、已过期或已被吊销时返回null
+     */
+    @Nullable
+    public TokenClaims get(@NonNull String token) {
+        Entry entry = cache.getIfPresent(hash(token));
+        if (entry == null || entry.claims.getExpiration() <= System.currentTimeMillis()) {
+            return null;
+        }
+        Long revokedVersion = revokedVersions.getIfPresent(entry.claims.getUserId());
+        return revokedVersion != null && revokedVersion > entry.version ? null : entry.claims;
+    }
+
+    /**
+     * 当前版本号，应在开始校验之前获取
+     */
+    public long version() {
+        return sequence.get();
+    }
+
+    /**
+     * 写入校验通过的结果
+     * @param version 开始校验前通过 {@link #version()} 获取的版本号
+     */
+    public void put(@NonNull String token, @NonNull TokenClaims claims, long version) {
+        cache.put(hash(token), new Entry(claims, version));
+    }
+
+    /**
+     * 吊销用户此前缓存的校验结果（只影响本节点，跨节点由调用方通过 {@link JwtUtil#TOKEN_REVOKE_CHANNEL} 通知）
+     */
+    public void revoke(@NonNull Long userId) {
+        revokedVersions.put(userId, sequence.incrementAndGet());
+    }
+
+    /**
+     * Token 的 SHA-256 摘要，作为缓存键
+     */
+    private String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 缓存的校验结果
+     */
+    private static class Entry {
+
+        private final TokenClaims claims;
+
+        /**
+         * 校验时的版本号
+         */
+        private final long version;
+
+        private Entry(TokenClaims claims, long version) {
+            this.claims = claims;
+            this.version = version;
+        }
+    }
+}
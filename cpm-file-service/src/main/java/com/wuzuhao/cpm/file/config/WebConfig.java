@@ -1,26 +1,47 @@
 package com.wuzuhao.cpm.file.config;
 
+import com.wuzuhao.cpm.interceptor.UserHeaderInterceptor;
+import com.wuzuhao.cpm.util.UserHeaderSigner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
  * Web配置类
+ * 文件服务只扫描自身的包，请求头签名校验相关的组件从 cpm-common 中单独引入
  */
 @Configuration
+@Import({UserHeaderSigner.class, UserHeaderInterceptor.class})
 public class WebConfig implements WebMvcConfigurer {
 
     private static final Logger log = LoggerFactory.getLogger(WebConfig.class);
 
+    @Autowired
+    private UserHeaderInterceptor userHeaderInterceptor;
+
     @Value("${file.upload.path:uploads}")
     private String uploadPath;
 
     @Value("${file.upload.url-prefix:/uploads}")
     private String urlPrefix;
 
+    /**
+     * 配置拦截器
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // 用户信息请求头拦截器 - 识别网关签名的用户信息（导出文件的上传和下载需要）
+        registry.addInterceptor(userHeaderInterceptor)
+                .addPathPatterns("/**")
+                .order(0);
+    }
+
     /**
      * 配置静态资源访问
      */
@@ -3,12 +3,23 @@ package com.wuzuhao.cpm.file.controller;
 import com.wuzuhao.cpm.common.Result;
 import com.wuzuhao.cpm.file.service.FileManageService;
 import com.wuzuhao.cpm.file.service.FileUploadService;
+import com.wuzuhao.cpm.util.UserHeaderSigner;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import org.springframework.web.multipart.MultipartFile;
@@ -27,6 +38,9 @@ public class FileUploadController {
     @Autowired
     private FileManageService fileManageService;
 
+    @Autowired
+    private UserHeaderSigner userHeaderSigner;
+
     /**
      * 上传头像
      */
@@ -61,6 +75,46 @@ public class FileUploadController {
         return Result.success("上传成功", url);
     }
 
+    /**
+     * 保存导出文件（内部接口，只供各服务的后台导出任务调用）
+     * 请求必须带有服务签名（X-Service-Signature，网关会移除客户端传入的同名请求头）和提交任务的用户信息
+     */
+    @ApiOperation(value = "保存导出文件", notes = "内部接口。请求体为Excel文件内容（application/octet-stream），仅支持xlsx，返回下载地址")
+    @PostMapping(value = "/export", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Result<String> uploadExport(
+            @ApiParam(value = "文件名", required = true) @RequestParam("fileName") String fileName,
+            HttpServletRequest request) throws IOException {
+        Long userId = (Long) request.getAttribute("userId");
+        if (userId == null || !userHeaderSigner.verifyService(request.getHeader(UserHeaderSigner.SERVICE_SIGNATURE_HEADER))) {
+            return Result.error(403, "无权访问");
+        }
+        String url = fileUploadService.saveExportFile(request.getInputStream(), request.getContentLengthLong(), fileName, userId);
+        return Result.success("上传成功", url);
+    }
+
+    /**
+     * 下载导出文件（只能下载自己提交的导出任务生成的文件）
+     */
+    @ApiOperation(value = "下载导出文件", notes = "下载当前用户的后台导出任务生成的文件，地址为任务状态中的 fileUrl")
+    @GetMapping("/export/{date}/{fileName:.+}")
+    public ResponseEntity<Resource> downloadExport(
+            @ApiParam(value = "日期目录", required = true) @PathVariable String date,
+            @ApiParam(value = "文件名", required = true) @PathVariable String fileName,
+            HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        Path file = fileUploadService.getExportFile(userId, date, fileName);
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(new FileSystemResource(file));
+    }
+
     /**
      * 删除文件
      */
@@ -2,6 +2,9 @@ package com.wuzuhao.cpm.file.service;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.nio.file.Path;
+
 /**
  * 文件上传服务接口
  */
@@ -32,4 +35,32 @@ public interface FileUploadService {
      * @return 新文件访问URL
      */
     String replaceFile(MultipartFile file, String subPath, String oldFileUrl);
+
+    /**
+     * 保存导出文件（后台导出任务生成的Excel），保存在提交任务的用户名下
+     *
+     * @param inputStream 文件内容
+     * @param contentLength 请求声明的文件大小，未知时为-1
+     * @param fileName 原始文件名（只用于校验扩展名）
+     * @param userId 提交导出任务的用户ID
+     * @return 文件下载地址
+     */
+    String saveExportFile(InputStream inputStream, long contentLength, String fileName, Long userId);
+
+    /**
+     * 获取用户的导出文件
+     *
+     * @param userId 当前用户ID
+     * @param date 下载地址中的日期目录
+     * @param fileName 下载地址中的文件名
+     * @return 文件路径，地址不合法或文件不存在（不属于该用户、已过期）时返回null
+     */
+    Path getExportFile(Long userId, String date, String fileName);
+
+    /**
+     * 删除超过保留时间的导出文件
+     *
+     * @return 删除的文件数
+     */
+    int deleteExpiredExportFiles();
 }
@@ -9,12 +9,18 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 文件上传服务实现类
@@ -29,12 +35,46 @@ public class FileUploadServiceImpl implements FileUploadService {
 
     @Value("${file.upload.url-prefix:/uploads}")
     private String urlPrefix;
-    
+
+    /**
+     * 导出文件存储目录，不能位于上传目录下（上传目录作为静态资源公开访问）
+     */
+    @Value("${file.export.path:exports}")
+    private String exportPath;
+
+    /**
+     * 导出文件下载地址前缀
+     */
+    @Value("${file.export.url-prefix:/api/upload/export}")
+    private String exportUrlPrefix;
+
+    /**
+     * 单个导出文件大小上限（字节）
+     */
+    @Value("${file.export.max-size:104857600}")
+    private long maxExportSize;
+
+    /**
+     * 导出文件保留时间（秒），与各服务的任务状态保留时间 cpm.job.ttl 一致
+     */
+    @Value("${file.export.ttl:86400}")
+    private long exportTtl;
+
     /**
      * 获取上传路径的绝对路径
      */
     private String getUploadAbsolutePath() {
-        String path = uploadPath;
+        return toAbsolutePath(uploadPath);
+    }
+
+    /**
+     * 获取导出文件存储目录的绝对路径
+     */
+    private String getExportAbsolutePath() {
+        return toAbsolutePath(exportPath);
+    }
+
+    private String toAbsolutePath(String path) {
         // 如果是相对路径，转换为绝对路径
         if (!path.startsWith("/") && !path.contains(":")) {
             // 获取项目根目录
@@ -49,6 +89,9 @@ public class FileUploadServiceImpl implements FileUploadService {
 
     private static final String[] ALLOWED_IMAGE_TYPES = {"image/jpeg", "image/jpg", "image/png", "image/gif", "image/bmp"};
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB
+    private static final String[] ALLOWED_EXPORT_EXTENSIONS = {".xlsx"};
+    private static final Pattern EXPORT_DATE_PATTERN = Pattern.compile("^\\d{4}-\\d{2}-\\d{2}$");
+    private static final Pattern EXPORT_FILE_NAME_PATTERN = Pattern.compile("^[0-9a-f]{8}(-[0-9a-f]{4}){3}-[0-9a-f]{12}\\.xlsx$");
 
     @Override
     public String uploadFile(MultipartFile file, String subPath) {
@@ -197,6 +240,107 @@ public class FileUploadServiceImpl implements FileUploadService {
         return uploadFile(file, subPath);
     }
 
+    @Override
+    public String saveExportFile(InputStream inputStream, long contentLength, String fileName, Long userId) {
+        String extension = fileName != null && fileName.contains(".")
+                ? fileName.substring(fileName.lastIndexOf(".")).toLowerCase() : "";
+        if (!isAllowedExportExtension(extension)) {
+            throw new RuntimeException("不支持的导出文件类型，仅支持：xlsx");
+        }
+        if (contentLength > maxExportSize) {
+            throw new RuntimeException("导出文件大小不能超过" + maxExportSize / 1024 / 1024 + "MB");
+        }
+
+        // 文件存储路径：exports/userId/yyyy-MM-dd/uuid.xlsx，只能由该用户通过下载接口获取
+        String datePath = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+        String name = UUID.randomUUID().toString() + extension;
+        Path target = Paths.get(getExportAbsolutePath(), userId.toString(), datePath, name);
+        try {
+            Files.createDirectories(target.getParent());
+            // 直接从请求流写入磁盘，不在内存中缓存整个文件；请求未声明大小时在写入过程中检查
+            long size = copyWithLimit(inputStream, target);
+            log.info("导出文件保存成功: {}, 大小: {} 字节", target, size);
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(target);
+            } catch (IOException ex) {
+                log.warn("删除未保存完成的导出文件失败: {}", target, ex);
+            }
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            throw new RuntimeException("导出文件保存失败：" + e.getMessage());
+        }
+        return exportUrlPrefix + "/" + datePath + "/" + name;
+    }
+
+    @Override
+    public Path getExportFile(Long userId, String date, String fileName) {
+        if (userId == null || date == null || fileName == null
+                || !EXPORT_DATE_PATTERN.matcher(date).matches() || !EXPORT_FILE_NAME_PATTERN.matcher(fileName).matches()) {
+            return null;
+        }
+        Path file = Paths.get(getExportAbsolutePath(), userId.toString(), date, fileName);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    @Override
+    public int deleteExpiredExportFiles() {
+        Path basePath = Paths.get(getExportAbsolutePath());
+        if (!Files.isDirectory(basePath)) {
+            return 0;
+        }
+        long expireBefore = System.currentTimeMillis() - exportTtl * 1000;
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(basePath)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (IOException e) {
+            log.error("遍历导出文件目录失败: {}", basePath, e);
+            return 0;
+        }
+        int deleted = 0;
+        for (Path file : files) {
+            try {
+                if (Files.getLastModifiedTime(file).toMillis() < expireBefore && Files.deleteIfExists(file)) {
+                    deleted++;
+                    deleteEmptyParentDirectories(file.getParent().toFile(), basePath.toString());
+                }
+            } catch (IOException e) {
+                log.warn("删除过期导出文件失败: {}", file, e);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * 把请求流写入文件，超过导出文件大小上限时中止
+     * @return 写入的字节数
+     */
+    private long copyWithLimit(InputStream inputStream, Path target) throws IOException {
+        byte[] buffer = new byte[8192];
+        long size = 0;
+        try (OutputStream outputStream = Files.newOutputStream(target)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                size += read;
+                if (size > maxExportSize) {
+                    throw new RuntimeException("导出文件大小不能超过" + maxExportSize / 1024 / 1024 + "MB");
+                }
+                outputStream.write(buffer, 0, read);
+            }
+        }
+        return size;
+    }
+
+    private boolean isAllowedExportExtension(String extension) {
+        for (String allowed : ALLOWED_EXPORT_EXTENSIONS) {
+            if (allowed.equals(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * 检查是否为允许的图片类型
      */
@@ -0,0 +1,36 @@
+package com.wuzuhao.cpm.file.task;
+
+import com.wuzuhao.cpm.file.service.FileUploadService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 导出文件清理任务
+ * 后台导出任务的状态过期后前端已拿不到下载地址，定时删除超过保留时间（file.export.ttl）的导出文件
+ */
+@Component
+public class ExportFileCleanupTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportFileCleanupTask.class);
+
+    @Autowired
+    private FileUploadService fileUploadService;
+
+    /**
+     * 定时清理，默认每小时执行一次
+     */
+    @Scheduled(fixedDelayString = "${file.export.cleanup-interval:3600000}")
+    public void cleanup() {
+        try {
+            int deleted = fileUploadService.deleteExpiredExportFiles();
+            if (deleted > 0) {
+                log.info("已删除过期导出文件: {} 个", deleted);
+            }
+        } catch (Exception e) {
+            log.error("清理过期导出文件失败", e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.wuzuhao.cpm.gateway.config;
+
+import com.wuzuhao.cpm.config.RateLimitProperties;
+import com.wuzuhao.cpm.util.JwtUtil;
+import com.wuzuhao.cpm.util.UserHeaderSigner;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * 网关过滤器配置
+ * 网关不扫描通用模块（其中大部分组件依赖 Spring MVC），这里只引入网关过滤器需要的限流配置、JWT 工具类和请求头签名工具类
+ */
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+@Import({JwtUtil.class, UserHeaderSigner.class})
+public class GatewayFilterConfig {
+}
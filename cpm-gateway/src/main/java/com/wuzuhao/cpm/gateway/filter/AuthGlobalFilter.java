@@ -0,0 +1,184 @@
+package com.wuzuhao.cpm.gateway.filter;
+
+import com.wuzuhao.cpm.common.dto.TokenClaims;
+import com.wuzuhao.cpm.util.JwtUtil;
+import com.wuzuhao.cpm.util.UserHeaderSigner;
+import com.wuzuhao.cpm.util.VerifiedTokenCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Optional;
+
+/**
+ * 网关认证过滤器
+ * 在网关统一校验一次 Token（签名、过期时间以及 Redis 中的登录会话），通过后把用户信息放入签名的 X-User-* 请求头
+ * （见 {@link UserHeaderSigner}），业务服务在请求头信任模式（cpm.auth.header-trust）下只需校验请求头签名，
+ * 服务间 Feign 调用也原样传递这些请求头，不再逐跳解析 JWT。
+ *
+ * 只识别用户，不拦截请求：客户端传入的 X-User-* 请求头一律移除；Token 无效时不添加请求头，由业务服务按原有方式处理。
+ * Authorization 请求头仍然转发，Redis 异常时业务服务可以回退到自行校验 Token。
+ * 校验结果缓存在本地（{@link VerifiedTokenCache}），并订阅用户服务发布的 Token 吊销通知。
+ */
+@Component
+public class AuthGlobalFilter implements GlobalFilter, Ordered {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthGlobalFilter.class);
+
+    /**
+     * 在限流之前执行，限流过滤器直接使用这里解析出的用户ID
+     */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 50;
+
+    /**
+     * 校验通过的用户信息在 exchange 中的属性名
+     */
+    public static final String CLAIMS_ATTRIBUTE = AuthGlobalFilter.class.getName() + ".claims";
+
+    @Autowired
+    private ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserHeaderSigner userHeaderSigner;
+
+    @Value("${cpm.auth.gateway.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Token 校验缓存最大条目数
+     */
+    @Value("${cpm.auth.token-cache.maximum-size:10000}")
+    private long tokenCacheMaximumSize;
+
+    /**
+     * Token 校验缓存最长保留时间（秒）
+     */
+    @Value("${cpm.auth.token-cache.max-ttl:300}")
+    private long tokenCacheMaxTtl;
+
+    private VerifiedTokenCache tokenCache;
+
+    private Disposable revokeSubscription;
+
+    @PostConstruct
+    public void init() {
+        tokenCache = new VerifiedTokenCache(tokenCacheMaximumSize, tokenCacheMaxTtl);
+        revokeSubscription = reactiveStringRedisTemplate.listenToChannel(JwtUtil.TOKEN_REVOKE_CHANNEL)
+                .subscribe(message -> {
+                    // 用户服务使用 JSON 序列化发布，消息为带引号的用户ID
+                    String userId = message.getMessage().replace("\"", "").trim();
+                    try {
+                        tokenCache.revoke(Long.valueOf(userId));
+                    } catch (NumberFormatException e) {
+                        log.warn("无法识别的Token吊销通知: {}", message.getMessage());
+                    }
+                }, e -> log.error("订阅Token吊销通知失败，已缓存的校验结果将在过期后失效: {}", e.getMessage()));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (revokeSubscription != null) {
+            revokeSubscription.dispose();
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String token = enabled ? getToken(request) : null;
+        if (token == null) {
+            return chain.filter(stripUserHeaders(exchange, null));
+        }
+        return verify(token)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(claims -> {
+                    claims.ifPresent(c -> exchange.getAttributes().put(CLAIMS_ATTRIBUTE, c));
+                    return chain.filter(stripUserHeaders(exchange, claims.orElse(null)));
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    /**
+     * 校验 Token：本地缓存未命中时解析 Token，再确认它是 Redis 中该用户当前的登录会话
+     * @return 用户信息，Token 无效、已登出或被顶替时为空
+     */
+    private Mono<TokenClaims> verify(@NonNull String token) {
+        TokenClaims cached = tokenCache.get(token);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+
+        // 在校验前取版本号，校验期间发生的吊销会使这次写入的缓存失效
+        long version = tokenCache.version();
+        TokenClaims claims;
+        try {
+            claims = jwtUtil.parseToken(token);
+        } catch (Exception e) {
+            return Mono.empty();
+        }
+        return reactiveStringRedisTemplate.opsForValue().get(JwtUtil.TOKEN_KEY_PREFIX + claims.getUserId())
+                .filter(stored -> stored.equals(token) || stored.equals("\"" + token + "\""))
+                .map(stored -> {
+                    tokenCache.put(token, claims, version);
+                    return claims;
+                })
+                .onErrorResume(e -> {
+                    log.warn("查询登录会话失败，交由业务服务校验Token: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * 移除客户端传入的签名请求头（X-User-*、X-Service-Signature）；校验通过时写入网关签名的请求头
+     */
+    private ServerWebExchange stripUserHeaders(ServerWebExchange exchange, @Nullable TokenClaims claims) {
+        ServerHttpRequest request = exchange.getRequest().mutate().headers(headers -> {
+            for (String header : UserHeaderSigner.HEADERS) {
+                headers.remove(header);
+            }
+            if (claims != null) {
+                headers.set(UserHeaderSigner.USER_ID_HEADER, claims.getUserId().toString());
+                if (claims.getRole() != null) {
+                    headers.set(UserHeaderSigner.USER_ROLE_HEADER, claims.getRole());
+                }
+                long expiration = userHeaderSigner.expiration(claims.getExpiration());
+                headers.set(UserHeaderSigner.USER_EXPIRES_HEADER, Long.toString(expiration));
+                headers.set(UserHeaderSigner.SIGNATURE_HEADER,
+                        userHeaderSigner.sign(claims.getUserId(), claims.getRole(), expiration));
+            }
+        }).build();
+        return exchange.mutate().request(request).build();
+    }
+
+    @Nullable
+    private String getToken(@NonNull ServerHttpRequest request) {
+        String token = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (token == null || !token.startsWith("Bearer ") || token.length() <= 7) {
+            return null;
+        }
+        return token.substring(7);
+    }
+}
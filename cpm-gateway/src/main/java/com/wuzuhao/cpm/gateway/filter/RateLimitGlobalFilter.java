@@ -0,0 +1,275 @@
+package com.wuzuhao.cpm.gateway.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wuzuhao.cpm.common.Result;
+import com.wuzuhao.cpm.common.dto.TokenClaims;
+import com.wuzuhao.cpm.config.RateLimitProperties;
+import com.wuzuhao.cpm.util.ClientIpUtil;
+import com.wuzuhao.cpm.util.JwtUtil;
+import com.wuzuhao.cpm.util.RedisRateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网关限流过滤器
+ * 在请求进入业务服务之前按IP、接口、用户三个维度限流，超限请求直接在网关返回 429，不再占用业务服务的 Tomcat 线程。
+ *
+ * 额度配置与各服务的 RateLimitInterceptor 相同（cpm.rate-limit，接口规则按网关路径 /api/** 配置），
+ * 令牌桶复用 {@link RedisRateLimiter#TOKEN_BUCKET_SCRIPT}，通过响应式 Redis 客户端执行，不阻塞事件循环线程。
+ * Redis 异常时放行，避免因 Redis 问题导致网关不可用。
+ */
+@Component
+public class RateLimitGlobalFilter implements GlobalFilter, Ordered {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitGlobalFilter.class);
+
+    /**
+     * 在路由和请求合并之前执行，被限流的请求不参与合并
+     */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 100;
+
+    private static final String RATE_LIMIT_PREFIX = "gateway:rate_limit:";
+
+    private static final RedisScript<Long> SCRIPT = new DefaultRedisScript<>(RedisRateLimiter.TOKEN_BUCKET_SCRIPT, Long.class);
+
+    @Autowired
+    private ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+
+    @Autowired
+    private RateLimitProperties rateLimitProperties;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * 本地预取的令牌（键 -> 剩余令牌），按访问时间淘汰
+     */
+    private final Cache<String, LocalLease> leases = Caffeine.newBuilder()
+            .maximumSize(100000)
+            .expireAfterAccess(1, TimeUnit.MINUTES)
+            .build();
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!rateLimitProperties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        ServerHttpRequest request = exchange.getRequest();
+        String clientIp = getClientIp(request);
+        String path = request.getURI().getPath();
+        RateLimitProperties.RouteLimit routeLimit = matchRoute(path);
+        Long userId = rateLimitProperties.getUserMaxRequestsPerMinute() > 0 ? getUserId(exchange) : null;
+
+        // 按IP限流
+        Mono<Boolean> allowed = tryAcquire(RATE_LIMIT_PREFIX + "ip:" + clientIp, rateLimitProperties.getMaxRequestsPerMinute())
+                .doOnNext(ok -> {
+                    if (!ok) {
+                        log.warn("IP {} 请求过于频繁，已在网关限流", clientIp);
+                    }
+                });
+        // 按接口限流（每个IP在单个接口上的额度）
+        if (routeLimit != null) {
+            allowed = allowed.flatMap(ok -> !ok ? Mono.just(false)
+                    : tryAcquire(RATE_LIMIT_PREFIX + "route:" + routeLimit.getPattern() + ":" + clientIp,
+                            routeLimit.getMaxRequestsPerMinute())
+                    .doOnNext(routeOk -> {
+                        if (!routeOk) {
+                            log.warn("IP {} 访问接口 {} 过于频繁，已在网关限流", clientIp, path);
+                        }
+                    }));
+        }
+        // 按用户限流
+        if (userId != null) {
+            allowed = allowed.flatMap(ok -> !ok ? Mono.just(false)
+                    : tryAcquire(RATE_LIMIT_PREFIX + "user:" + userId, rateLimitProperties.getUserMaxRequestsPerMinute())
+                    .doOnNext(userOk -> {
+                        if (!userOk) {
+                            log.warn("用户 {} 请求过于频繁，已在网关限流", userId);
+                        }
+                    }));
+        }
+
+        return allowed
+                .onErrorResume(e -> {
+                    log.error("网关限流执行异常，允许请求通过: {}", e.getMessage());
+                    return Mono.just(true);
+                })
+                .flatMap(ok -> ok ? chain.filter(exchange) : reject(exchange.getResponse()));
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    /**
+     * 尝试获取一个令牌，本地预取的令牌用完后再异步访问 Redis
+     * 同一个键同时只有一个预取请求：本地令牌用完时并发到达的请求等待同一次预取，预取完成后再从本地领取，
+     * 避免一批并发请求各自预取一批令牌、提前耗尽桶而被误限流
+     * @param key 桶的键
+     * @param limitPerMinute 每分钟限额（同时也是桶容量）
+     */
+    private Mono<Boolean> tryAcquire(@NonNull String key, int limitPerMinute) {
+        if (limitPerMinute <= 0) {
+            return Mono.just(true);
+        }
+        LocalLease lease = leases.get(key, k -> new LocalLease());
+        Mono<Long> refill;
+        synchronized (lease) {
+            long now = System.currentTimeMillis();
+            if (lease.remaining > 0 && now < lease.expiresAt) {
+                lease.remaining--;
+                return Mono.just(true);
+            }
+            if (lease.refill == null) {
+                lease.refill = refill(key, limitPerMinute, lease);
+            }
+            refill = lease.refill;
+        }
+        // 预取到令牌后重新领取（令牌可能已被其他等待的请求领完，此时再发起下一次预取）；桶已空时限流
+        return refill.flatMap(granted -> granted > 0 ? tryAcquire(key, limitPerMinute) : Mono.just(false));
+    }
+
+    /**
+     * 从 Redis 预取一批令牌放入本地，结果缓存给所有等待本次预取的请求
+     * @return 本次预取到的令牌数
+     */
+    private Mono<Long> refill(@NonNull String key, int limitPerMinute, @NonNull LocalLease lease) {
+        int leaseSize = (int) Math.max(1, Math.floor(limitPerMinute * rateLimitProperties.getLocalLeaseRatio()));
+        double ratePerMillis = limitPerMinute / 60000.0;
+        return reactiveStringRedisTemplate.execute(SCRIPT, Collections.singletonList(key), Arrays.asList(
+                        String.valueOf(limitPerMinute), String.valueOf(ratePerMillis),
+                        String.valueOf(leaseSize), String.valueOf(RedisRateLimiter.BUCKET_TTL)))
+                .next()
+                .defaultIfEmpty(0L)
+                .doOnNext(granted -> {
+                    // 先放入令牌并结束本次预取，再通知等待的请求
+                    synchronized (lease) {
+                        long now = System.currentTimeMillis();
+                        if (now >= lease.expiresAt) {
+                            lease.remaining = 0;
+                        }
+                        if (granted > 0) {
+                            lease.remaining += granted;
+                            lease.expiresAt = now + rateLimitProperties.getLocalLeaseMillis();
+                        }
+                        lease.refill = null;
+                    }
+                })
+                .doOnError(e -> {
+                    synchronized (lease) {
+                        lease.refill = null;
+                    }
+                })
+                .cache();
+    }
+
+    /**
+     * 匹配接口限流规则
+     */
+    @Nullable
+    private RateLimitProperties.RouteLimit matchRoute(@NonNull String path) {
+        for (RateLimitProperties.RouteLimit routeLimit : rateLimitProperties.getRoutes()) {
+            if (routeLimit.getPattern() != null && pathMatcher.match(routeLimit.getPattern(), path)) {
+                return routeLimit;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取当前用户ID：优先使用认证过滤器校验通过的用户信息，认证过滤器关闭时从Token中解析（只用于限流）
+     * @return 用户ID，未登录或Token无效时返回null
+     */
+    @Nullable
+    private Long getUserId(@NonNull ServerWebExchange exchange) {
+        TokenClaims claims = exchange.getAttribute(AuthGlobalFilter.CLAIMS_ATTRIBUTE);
+        if (claims != null) {
+            return claims.getUserId();
+        }
+        String token = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (token == null || !token.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            return jwtUtil.getUserIdFromToken(token.substring(7));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 获取客户端真实IP：对端是受信任的代理（cpm.rate-limit.trusted-proxies）时才读取转发请求头
+     */
+    @NonNull
+    private String getClientIp(@NonNull ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        String remoteIp = remoteAddress != null && remoteAddress.getAddress() != null
+                ? remoteAddress.getAddress().getHostAddress() : null;
+        return ClientIpUtil.resolve(remoteIp, headers.getFirst("X-Forwarded-For"), headers.getFirst("X-Real-IP"),
+                rateLimitProperties.getTrustedProxies());
+    }
+
+    /**
+     * 返回 429 响应
+     */
+    private Mono<Void> reject(@NonNull ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(Result.error(429, "请求过于频繁，请稍后再试"));
+        } catch (Exception e) {
+            body = "{\"code\":429,\"message\":\"请求过于频繁，请稍后再试\"}".getBytes(StandardCharsets.UTF_8);
+        }
+        DataBuffer buffer = response.bufferFactory().wrap(body);
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    /**
+     * 本地预取的令牌
+     */
+    private static class LocalLease {
+        private long remaining;
+        private long expiresAt;
+
+        /**
+         * 进行中的预取，没有时为 null
+         */
+        private Mono<Long> refill;
+    }
+}
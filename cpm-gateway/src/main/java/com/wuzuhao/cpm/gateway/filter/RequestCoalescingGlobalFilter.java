@@ -0,0 +1,176 @@
+package com.wuzuhao.cpm.gateway.filter;
+
+import com.wuzuhao.cpm.common.dto.TokenClaims;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 请求合并过滤器
+ * 对统计、行政区划等幂等的 GET 接口，同一时刻完全相同的请求（路径、查询参数、用户角色均相同）只转发一次，
+ * 其余请求等待并复用第一个请求的响应，在请求到达业务服务之前削掉重复负载（如大屏多人同时刷新）。
+ *
+ * 请求按认证过滤器校验通过的角色区分，同一角色的不同用户可以共享响应，所以只能配置响应只取决于角色、
+ * 不包含个人数据的接口。没有校验通过的用户信息（认证过滤器关闭或 Token 无效）时按 Authorization 区分，只合并同一用户的请求。
+ *
+ * 只合并同时在途的请求，不做响应缓存：第一个请求完成后再到达的请求会重新转发。
+ * 第一个请求失败、被取消或没有响应体时，等待中的请求各自单独转发。
+ */
+@Component
+public class RequestCoalescingGlobalFilter implements GlobalFilter, Ordered {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestCoalescingGlobalFilter.class);
+
+    /**
+     * 必须在 NettyWriteResponseFilter 之前执行，才能拿到写出的响应体
+     */
+    public static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+
+    @Value("${cpm.coalescing.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 参与合并的接口路径（Ant风格）
+     */
+    @Value("${cpm.coalescing.paths:/api/statistics/**,/api/region/**}")
+    private String[] paths;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * 在途请求（请求键 -> 第一个请求的响应）
+     */
+    private final Map<String, Mono<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!enabled || request.getMethod() != HttpMethod.GET || !matches(request.getURI().getPath())
+                || request.getHeaders().containsKey(HttpHeaders.RANGE)) {
+            return chain.filter(exchange);
+        }
+
+        String key = requestKey(exchange);
+        Sinks.One<CachedResponse> sink = Sinks.one();
+        Mono<CachedResponse> shared = sink.asMono();
+        Mono<CachedResponse> existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            return existing
+                    .map(Optional::of)
+                    .onErrorReturn(Optional.empty())
+                    .flatMap(cached -> cached.isPresent()
+                            ? replay(exchange.getResponse(), cached.get()) : chain.filter(exchange));
+        }
+
+        ServerHttpResponse response = exchange.getResponse();
+        ServerHttpResponseDecorator decorated = new ServerHttpResponseDecorator(response) {
+            @Override
+            @NonNull
+            public Mono<Void> writeWith(@NonNull Publisher<? extends DataBuffer> body) {
+                return DataBufferUtils.join(body).flatMap(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    HttpHeaders headers = new HttpHeaders();
+                    headers.putAll(getHeaders());
+                    sink.tryEmitValue(new CachedResponse(getStatusCode(), headers, bytes));
+                    return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                });
+            }
+        };
+        return chain.filter(exchange.mutate().response(decorated).build())
+                .doFinally(signal -> {
+                    inFlight.remove(key, shared);
+                    // 没有拿到响应体（失败、取消、空响应）时让等待中的请求各自转发
+                    sink.tryEmitError(new IllegalStateException("合并请求未获得响应: " + signal));
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private boolean matches(String path) {
+        for (String pattern : paths) {
+            if (pathMatcher.match(pattern.trim(), path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 请求键：路径 + 查询参数 + 调用方（校验通过的角色；没有时为 Authorization，不同用户不共享响应）
+     */
+    private String requestKey(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        String query = request.getURI().getRawQuery();
+        TokenClaims claims = exchange.getAttribute(AuthGlobalFilter.CLAIMS_ATTRIBUTE);
+        String caller;
+        if (claims != null) {
+            caller = "role:" + claims.getRole();
+        } else {
+            String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            caller = authorization != null ? "token:" + authorization : "anonymous";
+        }
+        return request.getURI().getRawPath() + "?" + (query != null ? query : "") + "|" + caller;
+    }
+
+    /**
+     * 把第一个请求的响应写给等待中的请求；已有的响应头（如跨域头）保留当前请求自己的值
+     */
+    private Mono<Void> replay(ServerHttpResponse response, CachedResponse cached) {
+        if (cached.status != null) {
+            response.setStatusCode(cached.status);
+        }
+        HttpHeaders headers = response.getHeaders();
+        for (Map.Entry<String, List<String>> header : cached.headers.entrySet()) {
+            if (!headers.containsKey(header.getKey()) && !HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(header.getKey())) {
+                headers.put(header.getKey(), header.getValue());
+            }
+        }
+        log.debug("合并请求复用响应，状态: {}, 大小: {} 字节", cached.status, cached.body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body)));
+    }
+
+    /**
+     * 第一个请求的响应快照
+     */
+    private static class CachedResponse {
+
+        private final HttpStatus status;
+        private final HttpHeaders headers;
+        private final byte[] body;
+
+        private CachedResponse(HttpStatus status, HttpHeaders headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+}
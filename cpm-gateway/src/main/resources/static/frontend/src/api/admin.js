@@ -48,3 +48,20 @@ export const exportAdmins = (params) => {
   })
 }
 
+// 提交管理员列表导出任务（后台生成文件）
+export const submitAdminExportJob = (params) => {
+  return request({
+    url: '/admin/export/async',
+    method: 'post',
+    params
+  })
+}
+
+// 查询导入导出任务
+export const getAdminJob = (jobId) => {
+  return request({
+    url: `/admin/jobs/${jobId}`,
+    method: 'get'
+  })
+}
+
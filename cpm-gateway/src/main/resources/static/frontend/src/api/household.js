@@ -63,3 +63,20 @@ export const exportHouseholds = (params) => {
   })
 }
 
+// 提交户籍列表导出任务（后台生成文件）
+export const submitHouseholdExportJob = (params) => {
+  return request({
+    url: '/household/export/async',
+    method: 'post',
+    params
+  })
+}
+
+// 查询导入导出任务
+export const getHouseholdJob = (jobId) => {
+  return request({
+    url: `/household/jobs/${jobId}`,
+    method: 'get'
+  })
+}
+
@@ -62,6 +62,35 @@ export const exportResidents = (params) => {
   })
 }
 
+// 提交居民列表导出任务（后台生成文件）
+export const submitResidentExportJob = (params) => {
+  return request({
+    url: '/resident/export/async',
+    method: 'post',
+    params
+  })
+}
+
+// 提交居民导入任务（后台导入）
+export const submitResidentImportJob = (formData) => {
+  return request({
+    url: '/resident/import/async',
+    method: 'post',
+    data: formData,
+    headers: {
+      'Content-Type': 'multipart/form-data'
+    }
+  })
+}
+
+// 查询导入导出任务
+export const getResidentJob = (jobId) => {
+  return request({
+    url: `/resident/jobs/${jobId}`,
+    method: 'get'
+  })
+}
+
 // 批量删除居民
 export const batchDeleteResidents = (ids) => {
   return request({
@@ -49,3 +49,10 @@ export const getYearlyStatistics = () => {
   })
 }
 
+// 获取数据大屏统计（一次返回全部图表数据）
+export const getDashboard = () => {
+  return request({
+    url: '/statistics/dashboard',
+    method: 'get'
+  })
+}
@@ -43,3 +43,13 @@ export const deleteFile = (url) => {
   })
 }
 
+// 下载后台导出任务生成的文件（需要登录，只能下载自己的导出文件）
+export const downloadExportFile = (fileUrl) => {
+  return request({
+    // fileUrl 为网关路径（/api/upload/export/...），request 的 baseURL 已包含 /api
+    url: fileUrl.replace(/^\/api/, ''),
+    method: 'get',
+    responseType: 'blob',
+    timeout: 0
+  })
+}
@@ -87,6 +87,23 @@ export const exportUsers = (params) => {
   })
 }
 
+// 提交用户列表导出任务（后台生成文件）
+export const submitUserExportJob = (params) => {
+  return request({
+    url: '/user/export/async',
+    method: 'post',
+    params
+  })
+}
+
+// 查询导入导出任务
+export const getUserJob = (jobId) => {
+  return request({
+    url: `/user/jobs/${jobId}`,
+    method: 'get'
+  })
+}
+
 // 批量删除用户
 export const batchDeleteUsers = (ids) => {
   return request({
@@ -4,6 +4,8 @@
  */
 
 import { ElMessage } from 'element-plus'
+import { waitForJob } from './job'
+import { downloadExportFile } from '../api/upload'
 
 /**
  * 处理Excel导出响应
@@ -66,3 +68,44 @@ export const createExportHandler = (exportApi, getParams, defaultFileName = '导
   }
 }
 
+/**
+ * 下载后台导出任务生成的文件
+ * 下载接口需要登录，不能直接用链接打开，先带上 Token 请求文件内容再保存
+ * @param {string} fileUrl - 文件地址（任务状态中的 /api/upload/export/... 地址）
+ * @param {string} fileName - 下载时使用的文件名
+ */
+export const downloadFile = async (fileUrl, fileName) => {
+  const response = await downloadExportFile(fileUrl)
+  const url = window.URL.createObjectURL(response.data)
+  const link = document.createElement('a')
+  link.href = url
+  link.setAttribute('download', fileName)
+  document.body.appendChild(link)
+  link.click()
+  document.body.removeChild(link)
+  window.URL.revokeObjectURL(url)
+}
+
+/**
+ * 创建后台导出处理函数：提交导出任务，轮询到任务完成后下载文件
+ * @param {Function} submitApi - 提交导出任务的API函数
+ * @param {Function} getJobApi - 查询任务状态的API函数
+ * @param {Function} getParams - 获取导出参数的函数
+ * @param {string} defaultFileName - 下载文件名
+ * @param {string} successMessage - 成功消息
+ * @returns {Function} - 导出处理函数
+ */
+export const createJobExportHandler = (submitApi, getJobApi, getParams, defaultFileName = '导出数据.xlsx', successMessage = '导出成功') => {
+  return async () => {
+    try {
+      const res = await submitApi(getParams())
+      ElMessage.info('导出任务已提交，正在生成文件...')
+      const job = await waitForJob(getJobApi, res.data.jobId)
+      await downloadFile(job.fileUrl, defaultFileName)
+      ElMessage.success(successMessage)
+    } catch (error) {
+      ElMessage.error('导出失败：' + (error.message || '未知错误'))
+      console.error('导出失败:', error)
+    }
+  }
+}
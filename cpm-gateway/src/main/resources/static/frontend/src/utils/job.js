@@ -0,0 +1,44 @@
+/**
+ * 后台任务工具函数
+ * 导入、导出任务提交后接口立即返回任务ID，这里轮询任务状态直到任务结束
+ */
+
+const POLL_INTERVAL = 1000
+
+const sleep = (ms) => new Promise(resolve => setTimeout(resolve, ms))
+
+/**
+ * 等待后台任务结束
+ * @param {Function} getJobApi - 查询任务状态的API函数
+ * @param {string} jobId - 任务ID
+ * @param {Function} onProgress - 每次查询到状态时的回调（可选），参数为任务状态
+ * @returns {Promise<Object>} - 成功结束的任务状态，任务失败时抛出异常
+ */
+export const waitForJob = async (getJobApi, jobId, onProgress) => {
+  for (;;) {
+    const res = await getJobApi(jobId)
+    const job = res.data
+    if (onProgress) {
+      onProgress(job)
+    }
+    if (job.status === 'SUCCESS') {
+      return job
+    }
+    if (job.status === 'FAILED') {
+      throw new Error(job.message || '任务执行失败')
+    }
+    await sleep(POLL_INTERVAL)
+  }
+}
+
+/**
+ * 任务进度百分比，总数未知时返回null
+ * @param {Object} job - 任务状态
+ * @returns {number|null}
+ */
+export const jobPercentage = (job) => {
+  if (!job || !job.total) {
+    return null
+  }
+  return Math.min(100, Math.floor(job.processed * 100 / job.total))
+}
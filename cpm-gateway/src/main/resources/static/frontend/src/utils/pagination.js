@@ -53,3 +53,47 @@ export const resetPagination = (pagination) => {
   }
 }
 
+
+/**
+ * 创建分页游标记录
+ * 列表接口返回下一页游标（cursor），按顺序翻到下一页时带上它，后端从游标位置继续查询；
+ * 查询条件或每页大小变化后游标失效，跳页时没有对应游标则按页码查询
+ * @returns {Object} - { cursorFor, remember }
+ */
+export const createCursorTracker = () => {
+  let cursors = {}
+  let lastKey = null
+
+  /**
+   * 获取某一页的游标
+   * @param {Object} params - 不含游标的查询参数
+   * @returns {string|undefined} - 游标，没有时返回 undefined
+   */
+  const cursorFor = (params) => {
+    const { current, ...rest } = params
+    const key = JSON.stringify(rest)
+    if (key !== lastKey) {
+      cursors = {}
+      lastKey = key
+    }
+    return cursors[current]
+  }
+
+  /**
+   * 记录某一页返回的下一页游标
+   * @param {number} current - 当前页码
+   * @param {string|null} cursor - 响应中的 cursor
+   */
+  const remember = (current, cursor) => {
+    if (cursor) {
+      cursors[current + 1] = cursor
+    } else {
+      delete cursors[current + 1]
+    }
+  }
+
+  return {
+    cursorFor,
+    remember
+  }
+}
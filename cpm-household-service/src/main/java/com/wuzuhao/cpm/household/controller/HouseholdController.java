@@ -1,13 +1,18 @@
 package com.wuzuhao.cpm.household.controller;
 
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.wuzuhao.cpm.common.Result;
+import com.wuzuhao.cpm.common.dto.CursorPage;
+import com.wuzuhao.cpm.common.dto.JobInfo;
+import com.wuzuhao.cpm.common.dto.HouseholdDocument;
+import com.wuzuhao.cpm.common.dto.SearchFilter;
+import com.wuzuhao.cpm.common.dto.SearchPage;
 import com.wuzuhao.cpm.household.dto.excel.HouseholdExcelDTO;
 import com.wuzuhao.cpm.household.entity.Household;
 import com.wuzuhao.cpm.household.feign.SearchServiceClient;
 import com.wuzuhao.cpm.household.service.ExcelExportService;
 import com.wuzuhao.cpm.household.service.HouseholdService;
 import com.wuzuhao.cpm.util.ExcelUtil;
+import com.wuzuhao.cpm.util.JobManager;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -15,8 +20,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -29,6 +34,11 @@ import java.util.Map;
 @RequestMapping("/household")
 public class HouseholdController {
 
+    /**
+     * 游标分页接口单页最大数量
+     */
+    private static final int MAX_SCROLL_SIZE = 5000;
+
     @Autowired
     private HouseholdService householdService;
 
@@ -38,6 +48,9 @@ public class HouseholdController {
     @Autowired
     private ExcelExportService excelExportService;
 
+    @Autowired
+    private JobManager jobManager;
+
     /**
      * 创建户籍
      */
@@ -71,162 +84,58 @@ public class HouseholdController {
      */
     @ApiOperation(value = "分页查询户籍列表", notes = "使用Elasticsearch全文检索查询户籍信息")
     @GetMapping("/list")
-    public Result<Page<Household>> getHouseholdList(
+    public Result<CursorPage<HouseholdDocument>> getHouseholdList(
             @ApiParam(value = "当前页码", example = "1") @RequestParam(defaultValue = "1") Integer current,
             @ApiParam(value = "每页数量", example = "10") @RequestParam(defaultValue = "10") Integer size,
+            @ApiParam(value = "分页游标（上一页返回的 cursor），按顺序翻到下一页时传入，跳页时不传") @RequestParam(required = false) String cursor,
             @ApiParam(value = "户籍编号（模糊查询）") @RequestParam(required = false) String householdNo,
             @ApiParam(value = "户主姓名（模糊查询）") @RequestParam(required = false) String headName,
             @ApiParam(value = "户籍地址（模糊查询）") @RequestParam(required = false) String address,
-            @ApiParam(value = "状态：0-迁出, 1-正常") @RequestParam(required = false) Integer status) {
+            @ApiParam(value = "状态：0-迁出, 1-正常") @RequestParam(required = false) Integer status,
+            @ApiParam(value = "迁入日期起（yyyy-MM-dd）") @RequestParam(required = false) String moveInDateFrom,
+            @ApiParam(value = "迁入日期止（yyyy-MM-dd）") @RequestParam(required = false) String moveInDateTo) {
         try {
             // 合并查询参数为keyword
-            StringBuilder keywordBuilder = new StringBuilder();
-            if (householdNo != null && !householdNo.trim().isEmpty()) {
-                keywordBuilder.append(householdNo.trim());
-            }
-            if (headName != null && !headName.trim().isEmpty()) {
-                if (keywordBuilder.length() > 0) {
-                    keywordBuilder.append(" ");
-                }
-                keywordBuilder.append(headName.trim());
-            }
-            if (address != null && !address.trim().isEmpty()) {
-                if (keywordBuilder.length() > 0) {
-                    keywordBuilder.append(" ");
-                }
-                keywordBuilder.append(address.trim());
-            }
+            String keyword = SearchFilter.keyword(householdNo, headName, address);
             
-            String keyword = keywordBuilder.length() > 0 ? keywordBuilder.toString() : "*";
+            // 状态和日期范围交给搜索服务作为过滤条件，total 即为过滤后的总数
+            SearchFilter filter = new SearchFilter();
+            filter.setStatus(status);
+            if (moveInDateFrom != null || moveInDateTo != null) {
+                filter.setDateField("moveInDate");
+                filter.setDateFrom(moveInDateFrom);
+                filter.setDateTo(moveInDateTo);
+            }
             
+            // 翻到下一页时从上一页的游标继续查询，没有游标（跳页）时搜索服务按页码定位
+            filter.setCursor(cursor);
+
             // 调用搜索服务（page参数从1开始，Elasticsearch从0开始，需要减1）
-            Result<Map<String, Object>> searchResult = searchServiceClient.searchHousehold(keyword, current - 1, size);
+            Result<SearchPage<HouseholdDocument>> searchResult = searchServiceClient.searchHousehold(keyword, current - 1, size, filter);
             
+            CursorPage<HouseholdDocument> page = new CursorPage<>(current, size);
             if (searchResult == null || searchResult.getCode() != 200 || searchResult.getData() == null) {
                 // 如果搜索服务失败，返回空结果
-                Page<Household> page = new Page<>(current, size);
                 page.setTotal(0);
                 return Result.success(page);
             }
             
-            Map<String, Object> data = searchResult.getData();
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> hits = (List<Map<String, Object>>) data.get("hits");
-            Long total = ((Number) data.get("total")).longValue();
-            
-            // 转换为Household实体列表
-            List<Household> households = new ArrayList<>();
-            if (hits != null) {
-                for (Map<String, Object> hit : hits) {
-                    try {
-                        Household household = convertMapToHousehold(hit);
-                        // 如果指定了status参数，进行过滤
-                        if (status != null && household.getStatus() != null && !household.getStatus().equals(status)) {
-                            continue;
-                        }
-                        households.add(household);
-                    } catch (Exception e) {
-                        // 忽略转换失败的数据
-                        continue;
-                    }
-                }
-            }
-            
-            // 如果进行了status过滤，需要重新计算总数（简单处理：使用过滤后的数量）
-            if (status != null) {
-                total = (long) households.size();
-            }
-            
-            // 构建Page对象
-            Page<Household> page = new Page<>(current, size);
-            page.setTotal(total);
-            page.setRecords(households);
+            // 搜索服务返回的已是列表文档，直接作为分页记录
+            SearchPage<HouseholdDocument> data = searchResult.getData();
+            page.setTotal(data.getTotal());
+            page.setRecords(data.getHits());
+            page.setCursor(data.getCursor());
             return Result.success(page);
             
         } catch (Exception e) {
             log.error("搜索户籍信息失败", e);
             // 如果搜索服务异常，返回空结果
-            Page<Household> page = new Page<>(current, size);
+            CursorPage<HouseholdDocument> page = new CursorPage<>(current, size);
             page.setTotal(0);
             return Result.success(page);
         }
     }
     
-    /**
-     * 将Map转换为Household实体
-     */
-    private Household convertMapToHousehold(Map<String, Object> map) {
-        Household household = new Household();
-        if (map.get("id") != null) {
-            household.setId(Long.valueOf(map.get("id").toString()));
-        }
-        if (map.get("headId") != null) {
-            household.setHeadId(Long.valueOf(map.get("headId").toString()));
-        }
-        household.setHeadName((String) map.get("headName"));
-        household.setHeadIdCard((String) map.get("headIdCard"));
-        household.setHouseholdNo((String) map.get("householdNo"));
-        household.setAddress((String) map.get("address"));
-        if (map.get("householdType") != null) {
-            household.setHouseholdType(Integer.valueOf(map.get("householdType").toString()));
-        }
-        if (map.get("memberCount") != null) {
-            household.setMemberCount(Integer.valueOf(map.get("memberCount").toString()));
-        }
-        household.setContactPhone((String) map.get("contactPhone"));
-        
-        // 使用 DateTimeFormatter 指定日期格式 "yyyy-MM-dd HH:mm:ss"
-        java.time.format.DateTimeFormatter dateTimeFormatter = java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        
-        if (map.get("moveInDate") != null) {
-            try {
-                String moveInDateStr = map.get("moveInDate").toString();
-                household.setMoveInDate(java.time.LocalDateTime.parse(moveInDateStr, dateTimeFormatter));
-                log.debug("成功解析户籍 moveInDate: {}", moveInDateStr);
-            } catch (Exception e) {
-                log.warn("解析户籍 moveInDate 失败: {}, 错误: {}", map.get("moveInDate"), e.getMessage());
-                // 忽略日期解析错误，继续处理其他字段
-            }
-        }
-        if (map.get("moveOutDate") != null) {
-            try {
-                String moveOutDateStr = map.get("moveOutDate").toString();
-                household.setMoveOutDate(java.time.LocalDateTime.parse(moveOutDateStr, dateTimeFormatter));
-                log.debug("成功解析户籍 moveOutDate: {}", moveOutDateStr);
-            } catch (Exception e) {
-                log.warn("解析户籍 moveOutDate 失败: {}, 错误: {}", map.get("moveOutDate"), e.getMessage());
-                // 忽略日期解析错误，继续处理其他字段
-            }
-        }
-        household.setMoveInReason((String) map.get("moveInReason"));
-        household.setMoveOutReason((String) map.get("moveOutReason"));
-        if (map.get("status") != null) {
-            household.setStatus(Integer.valueOf(map.get("status").toString()));
-        }
-        household.setRemark((String) map.get("remark"));
-        if (map.get("createTime") != null) {
-            try {
-                String createTimeStr = map.get("createTime").toString();
-                household.setCreateTime(java.time.LocalDateTime.parse(createTimeStr, dateTimeFormatter));
-                log.debug("成功解析户籍 createTime: {}", createTimeStr);
-            } catch (Exception e) {
-                log.warn("解析户籍 createTime 失败: {}, 错误: {}", map.get("createTime"), e.getMessage());
-                // 忽略日期解析错误，继续处理其他字段
-            }
-        }
-        if (map.get("updateTime") != null) {
-            try {
-                String updateTimeStr = map.get("updateTime").toString();
-                household.setUpdateTime(java.time.LocalDateTime.parse(updateTimeStr, dateTimeFormatter));
-                log.debug("成功解析户籍 updateTime: {}", updateTimeStr);
-            } catch (Exception e) {
-                log.warn("解析户籍 updateTime 失败: {}, 错误: {}", map.get("updateTime"), e.getMessage());
-                // 忽略日期解析错误，继续处理其他字段
-            }
-        }
-        return household;
-    }
-
     /**
      * 根据ID获取户籍
      */
@@ -238,15 +147,30 @@ public class HouseholdController {
     }
 
     /**
-     * 获取所有户籍列表（用于统计服务）
+     * 按ID游标分页获取户籍列表（用于统计服务和搜索服务的批量同步）
+     * 调用方从 lastId=0 开始，每次以返回列表中最后一条记录的ID作为下一次的 lastId，返回数量小于 size 时表示已取完
      */
-    @ApiOperation(value = "获取所有户籍列表", notes = "获取所有户籍信息，用于统计服务")
-    @GetMapping("/all")
-    public Result<List<Household>> getAllHouseholds() {
-        List<Household> households = householdService.list();
+    @ApiOperation(value = "游标分页获取户籍列表", notes = "按ID升序返回 id > lastId 的户籍，用于统计服务和索引同步")
+    @GetMapping("/scroll")
+    public Result<List<Household>> scrollHouseholds(
+            @ApiParam(value = "上一页最后一条记录的ID，首页传0", example = "0") @RequestParam(defaultValue = "0") Long lastId,
+            @ApiParam(value = "每页数量，最大5000", example = "1000") @RequestParam(defaultValue = "1000") Integer size) {
+        if (size == null || size <= 0 || size > MAX_SCROLL_SIZE) {
+            size = MAX_SCROLL_SIZE;
+        }
+        List<Household> households = householdService.listAfterId(lastId, size);
         return Result.success(households);
     }
 
+    /**
+     * 按统计维度分组计数（用于统计服务对账，只返回各分组的数量）
+     */
+    @ApiOperation(value = "户籍统计分组计数", notes = "按户籍类型、迁入月份、迁出月份、创建月份分组计数，用于统计服务对账")
+    @GetMapping("/statistics/buckets")
+    public Result<Map<String, Map<String, Long>>> countStatisticsBuckets() {
+        return Result.success(householdService.countStatisticsBuckets());
+    }
+
     /**
      * 根据户籍编号查询
      */
@@ -290,16 +214,46 @@ public class HouseholdController {
     /**
      * 导出户籍列表（Excel）
      */
-    @ApiOperation(value = "导出户籍列表", notes = "导出户籍列表为Excel文件，支持筛选条件")
+    @ApiOperation(value = "导出户籍列表", notes = "导出户籍列表为Excel文件，筛选条件与列表查询相同（通过Elasticsearch检索）")
     @GetMapping("/export")
     public void exportHouseholds(
             @ApiParam(value = "户籍编号（模糊查询）") @RequestParam(required = false) String householdNo,
             @ApiParam(value = "户主姓名（模糊查询）") @RequestParam(required = false) String headName,
             @ApiParam(value = "户籍地址（模糊查询）") @RequestParam(required = false) String address,
             @ApiParam(value = "状态：0-迁出, 1-正常") @RequestParam(required = false) Integer status,
+            @ApiParam(value = "迁入日期起（yyyy-MM-dd）") @RequestParam(required = false) String moveInDateFrom,
+            @ApiParam(value = "迁入日期止（yyyy-MM-dd）") @RequestParam(required = false) String moveInDateTo,
             HttpServletResponse response) {
-        List<HouseholdExcelDTO> data = excelExportService.exportHouseholds(householdNo, headName, address, status);
-        ExcelUtil.export(response, "户籍列表", "户籍列表", data, HouseholdExcelDTO.class);
+        ExcelUtil.export(response, "户籍列表", "户籍列表", HouseholdExcelDTO.class,
+                excelExportService.exportHouseholds(householdNo, headName, address, status, moveInDateFrom, moveInDateTo));
     }
-}
 
+    /**
+     * 提交户籍导出任务（后台执行）
+     */
+    @ApiOperation(value = "提交户籍导出任务", notes = "在后台生成Excel并保存到文件服务，立即返回任务ID，通过 /household/jobs/{jobId} 查询进度和下载地址")
+    @PostMapping("/export/async")
+    public Result<JobInfo> submitExportJob(
+            @ApiParam(value = "户籍编号（模糊查询）") @RequestParam(required = false) String householdNo,
+            @ApiParam(value = "户主姓名（模糊查询）") @RequestParam(required = false) String headName,
+            @ApiParam(value = "户籍地址（模糊查询）") @RequestParam(required = false) String address,
+            @ApiParam(value = "状态：0-迁出, 1-正常") @RequestParam(required = false) Integer status,
+            @ApiParam(value = "迁入日期起（yyyy-MM-dd）") @RequestParam(required = false) String moveInDateFrom,
+            @ApiParam(value = "迁入日期止（yyyy-MM-dd）") @RequestParam(required = false) String moveInDateTo,
+            HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        JobInfo job = excelExportService.submitExportJob(householdNo, headName, address, status,
+                moveInDateFrom, moveInDateTo, userId);
+        return Result.success("导出任务已提交", job);
+    }
+
+    /**
+     * 查询导出任务
+     */
+    @ApiOperation(value = "查询导出任务", notes = "查询当前用户提交的导出任务的状态、进度和导出文件地址")
+    @GetMapping("/jobs/{jobId}")
+    public Result<JobInfo> getJob(@PathVariable String jobId, HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        return Result.success(jobManager.getJob(jobId, userId));
+    }
+}
@@ -0,0 +1,40 @@
+package com.wuzuhao.cpm.household.feign;
+
+import com.wuzuhao.cpm.common.Result;
+import com.wuzuhao.cpm.common.dto.HouseholdDocument;
+import com.wuzuhao.cpm.common.dto.SearchFilter;
+import com.wuzuhao.cpm.common.dto.SearchPage;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.cloud.openfeign.SpringQueryMap;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.Map;
+
+/**
+ * 搜索服务Feign客户端
+ */
+@FeignClient(name = "cpm-search-service", path = "/search")
+public interface SearchServiceClient {
+
+    /**
+     * 搜索户籍信息
+     * @param page 页码（从0开始）
+     * @param filter 过滤条件（状态、日期范围等），作为查询参数传递
+     */
+    @GetMapping("/household")
+    Result<SearchPage<HouseholdDocument>> searchHousehold(@RequestParam("keyword") String keyword,
+                                                          @RequestParam("page") Integer page,
+                                                          @RequestParam("size") Integer size,
+                                                          @SpringQueryMap SearchFilter filter);
+
+    /**
+     * 搜索户籍成员信息
+     * @param page 页码（从0开始）
+     */
+    @GetMapping("/household-member")
+    Result<Map<String, Object>> searchHouseholdMember(@RequestParam("keyword") String keyword,
+                                                      @RequestParam("page") Integer page,
+                                                      @RequestParam("size") Integer size,
+                                                      @RequestParam(value = "householdId", required = false) Long householdId);
+}
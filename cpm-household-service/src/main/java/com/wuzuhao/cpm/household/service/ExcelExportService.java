@@ -1,15 +1,20 @@
 package com.wuzuhao.cpm.household.service;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.wuzuhao.cpm.common.dto.HouseholdDocument;
+import com.wuzuhao.cpm.common.dto.JobInfo;
+import com.wuzuhao.cpm.common.dto.SearchFilter;
 import com.wuzuhao.cpm.household.dto.excel.HouseholdExcelDTO;
-import com.wuzuhao.cpm.household.entity.Household;
-import com.wuzuhao.cpm.household.service.impl.HouseholdServiceImpl;
+import com.wuzuhao.cpm.household.feign.SearchScanClient;
 import com.wuzuhao.cpm.util.ExcelUtil;
+import com.wuzuhao.cpm.util.ExportFileUploader;
+import com.wuzuhao.cpm.util.JobManager;
+import com.wuzuhao.cpm.util.ScrollUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.File;
+import java.nio.file.Files;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Excel导出服务（户籍服务专用）
@@ -17,47 +22,75 @@ import java.util.stream.Collectors;
 @Service
 public class ExcelExportService {
 
+    private static final int EXPORT_BATCH_SIZE = 1000; // 导出时每批从搜索服务拉取的行数
+
+    @Autowired
+    private ExportFileUploader exportFileUploader;
+
     @Autowired
-    private HouseholdServiceImpl householdService;
+    private SearchScanClient searchScanClient;
+
+    @Autowired
+    private JobManager jobManager;
 
     /**
      * 导出户籍列表
+     * 与列表页使用相同的 ES 查询（关键词 + 过滤条件），由搜索服务在 PIT 上逐批返回，每次只在内存中保留一批数据
      */
-    public List<HouseholdExcelDTO> exportHouseholds(String householdNo, String headName, String address, Integer status) {
-        LambdaQueryWrapper<Household> wrapper = new LambdaQueryWrapper<>();
-        if (householdNo != null && !householdNo.isEmpty()) {
-            wrapper.like(Household::getHouseholdNo, householdNo);
-        }
-        if (headName != null && !headName.isEmpty()) {
-            wrapper.like(Household::getHeadName, headName);
-        }
-        if (address != null && !address.isEmpty()) {
-            wrapper.like(Household::getAddress, address);
-        }
-        if (status != null) {
-            wrapper.eq(Household::getStatus, status);
-        }
-        wrapper.orderByDesc(Household::getCreateTime);
-        
-        List<Household> households = householdService.list(wrapper);
-        
-        // 转换为Excel DTO
-        return households.stream().map(household -> {
-            HouseholdExcelDTO dto = new HouseholdExcelDTO();
-            dto.setId(household.getId());
-            dto.setHouseholdNo(household.getHouseholdNo());
-            dto.setHeadName(household.getHeadName());
-            dto.setHeadIdCard(household.getHeadIdCard());
-            dto.setAddress(household.getAddress());
-            dto.setHouseholdType(household.getHouseholdType() != null && household.getHouseholdType() == 1 ? "家庭户" : "集体户");
-            dto.setMemberCount(household.getMemberCount());
-            dto.setContactPhone(household.getContactPhone());
-            dto.setStatus(household.getStatus() != null && household.getStatus() == 1 ? "正常" : "迁出");
-            dto.setMoveInDate(ExcelUtil.formatDateTime(household.getMoveInDate()));
-            dto.setMoveInReason(household.getMoveInReason());
-            dto.setCreateTime(ExcelUtil.formatDateTime(household.getCreateTime()));
-            return dto;
-        }).collect(Collectors.toList());
+    public ExcelUtil.ChunkLoader<HouseholdExcelDTO> exportHouseholds(String householdNo, String headName, String address, Integer status,
+                                                                    String moveInDateFrom, String moveInDateTo) {
+        String keyword = SearchFilter.keyword(householdNo, headName, address);
+        return ScrollUtil.searchLoader(cursor -> {
+            SearchFilter filter = new SearchFilter();
+            filter.setStatus(status);
+            if (moveInDateFrom != null || moveInDateTo != null) {
+                filter.setDateField("moveInDate");
+                filter.setDateFrom(moveInDateFrom);
+                filter.setDateTo(moveInDateTo);
+            }
+            filter.setCursor(cursor);
+            return searchScanClient.scanHousehold(keyword, EXPORT_BATCH_SIZE, filter);
+        }, this::toExcelDTO);
+    }
+
+    /**
+     * 转换为Excel DTO
+     */
+    private HouseholdExcelDTO toExcelDTO(HouseholdDocument household) {
+        HouseholdExcelDTO dto = new HouseholdExcelDTO();
+        dto.setId(household.getId());
+        dto.setHouseholdNo(household.getHouseholdNo());
+        dto.setHeadName(household.getHeadName());
+        dto.setHeadIdCard(household.getHeadIdCard());
+        dto.setAddress(household.getAddress());
+        dto.setHouseholdType(household.getHouseholdType() != null && household.getHouseholdType() == 1 ? "家庭户" : "集体户");
+        dto.setMemberCount(household.getMemberCount());
+        dto.setContactPhone(household.getContactPhone());
+        dto.setStatus(household.getStatus() != null && household.getStatus() == 1 ? "正常" : "迁出");
+        dto.setMoveInDate(ExcelUtil.formatDateTime(household.getMoveInDate()));
+        dto.setMoveInReason(household.getMoveInReason());
+        dto.setCreateTime(ExcelUtil.formatDateTime(household.getCreateTime()));
+        return dto;
     }
-}
 
+    /**
+     * 提交户籍导出任务，导出文件写入文件服务，任务完成后通过 fileUrl 下载
+     */
+    public JobInfo submitExportJob(String householdNo, String headName, String address, Integer status,
+                                   String moveInDateFrom, String moveInDateTo, Long userId) {
+        return jobManager.submit("household-export", userId, context -> {
+            ExcelUtil.ChunkLoader<HouseholdExcelDTO> loader = exportHouseholds(householdNo, headName, address, status,
+                    moveInDateFrom, moveInDateTo);
+            File file = ExcelUtil.exportToTempFile("户籍列表", HouseholdExcelDTO.class, () -> {
+                List<HouseholdExcelDTO> chunk = loader.next();
+                context.addSuccess(chunk.size());
+                return chunk;
+            });
+            try {
+                context.setFileUrl(exportFileUploader.upload(file, "户籍列表.xlsx"));
+            } finally {
+                Files.deleteIfExists(file.toPath());
+            }
+        });
+    }
+}
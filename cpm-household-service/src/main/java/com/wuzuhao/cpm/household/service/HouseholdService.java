@@ -3,6 +3,9 @@ package com.wuzuhao.cpm.household.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.wuzuhao.cpm.household.entity.Household;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * 户籍服务接口
  */
@@ -21,5 +24,18 @@ public interface HouseholdService extends IService<Household> {
      * 更新户籍成员数量
      */
     void updateMemberCount(Long householdId);
+
+    /**
+     * 按ID游标分页查询户籍（id > lastId，按ID升序），用于批量导出/同步
+     * @param lastId 上一页最后一条记录的ID，首页传0
+     * @param size 每页数量
+     */
+    List<Household> listAfterId(Long lastId, Integer size);
+
+    /**
+     * 按统计维度分组计数（在数据库中 GROUP BY，只返回各分组的数量），用于统计服务对账
+     * @return 维度 -> (分组 -> 户数)，维度为 type（family / collective）、move-in-month、move-out-month、create-month（yyyy-MM）
+     */
+    Map<String, Map<String, Long>> countStatisticsBuckets();
 }
 
@@ -86,8 +86,11 @@ public class HouseholdMemberServiceImpl extends ServiceImpl<HouseholdMemberMappe
     public boolean updateById(HouseholdMember member) {
         boolean result = super.updateById(member);
         if (result) {
-            // 发送 ES 同步消息
-            sendESSyncMessage(ESSyncMessage.update("household_member_index", member.getId(), convertToMap(member)));
+            // 发送 ES 同步消息（请求中的实体只包含要修改的字段，重新查询出完整记录再同步）
+            HouseholdMember stored = super.getById(member.getId());
+            if (stored != null) {
+                sendESSyncMessage(ESSyncMessage.update("household_member_index", stored.getId(), convertToMap(stored)));
+            }
         }
         return result;
     }
@@ -135,6 +138,7 @@ public class HouseholdMemberServiceImpl extends ServiceImpl<HouseholdMemberMappe
             map.put("householdId", member.getHouseholdId());
             map.put("residentId", member.getResidentId());
             map.put("relationship", member.getRelationship());
+            map.put("deleted", member.getDeleted() != null ? member.getDeleted() : 0);
             // 将 LocalDateTime 转换为字符串格式（yyyy-MM-dd HH:mm:ss），以便前端正确显示
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
             if (member.getCreateTime() != null) {
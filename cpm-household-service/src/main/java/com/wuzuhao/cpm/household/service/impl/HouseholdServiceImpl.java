@@ -1,6 +1,7 @@
 package com.wuzuhao.cpm.household.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.wuzuhao.cpm.household.entity.Household;
 import com.wuzuhao.cpm.household.entity.HouseholdMember;
@@ -17,6 +18,7 @@ import org.springframework.stereotype.Service;
 
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -33,6 +35,47 @@ public class HouseholdServiceImpl extends ServiceImpl<HouseholdMapper, Household
 
     private static final Logger log = LoggerFactory.getLogger(HouseholdServiceImpl.class);
 
+    @Override
+    public List<Household> listAfterId(Long lastId, Integer size) {
+        // 基于主键的游标分页，每页都走主键索引范围扫描，不会像 OFFSET 一样越翻越慢
+        LambdaQueryWrapper<Household> wrapper = new LambdaQueryWrapper<>();
+        wrapper.gt(Household::getId, lastId != null ? lastId : 0L)
+                .orderByAsc(Household::getId)
+                .last("LIMIT " + size);
+        return this.list(wrapper);
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> countStatisticsBuckets() {
+        // 分组口径与统计服务的计数器一致：householdType为1计为家庭户，其余计为集体户；
+        // 已迁出（status为0）的户籍按迁出时间计入迁出月份，没有迁出时间时以更新时间代替
+        Map<String, Map<String, Long>> result = new HashMap<>();
+        result.put("type", countByBucket(new QueryWrapper<Household>(),
+                "CASE WHEN household_type = 1 THEN 'family' ELSE 'collective' END"));
+        result.put("move-in-month", countByBucket(new QueryWrapper<Household>().isNotNull("move_in_date"),
+                "DATE_FORMAT(move_in_date, '%Y-%m')"));
+        result.put("move-out-month", countByBucket(new QueryWrapper<Household>().eq("status", 0)
+                        .apply("COALESCE(move_out_date, update_time) IS NOT NULL"),
+                "DATE_FORMAT(COALESCE(move_out_date, update_time), '%Y-%m')"));
+        result.put("create-month", countByBucket(new QueryWrapper<Household>().isNotNull("create_time"),
+                "DATE_FORMAT(create_time, '%Y-%m')"));
+        return result;
+    }
+
+    /**
+     * 按分组表达式计数
+     * @param wrapper 过滤条件
+     * @param bucketExpression 分组表达式
+     */
+    private Map<String, Long> countByBucket(QueryWrapper<Household> wrapper, String bucketExpression) {
+        wrapper.select(bucketExpression + " AS bucket", "COUNT(*) AS total").groupBy("bucket");
+        Map<String, Long> buckets = new HashMap<>();
+        for (Map<String, Object> row : this.listMaps(wrapper)) {
+            buckets.put(String.valueOf(row.get("bucket")), ((Number) row.get("total")).longValue());
+        }
+        return buckets;
+    }
+
     @Override
     public Household getByHouseholdNo(String householdNo) {
         LambdaQueryWrapper<Household> wrapper = new LambdaQueryWrapper<>();
@@ -60,10 +103,8 @@ public class HouseholdServiceImpl extends ServiceImpl<HouseholdMapper, Household
         Household household = this.getById(householdId);
         if (household != null) {
             household.setMemberCount((int) count);
-            // updateTime 由 MyBatis-Plus 自动填充
+            // updateTime 由 MyBatis-Plus 自动填充，ES 同步消息由 updateById 发送
             this.updateById(household);
-            // 发送 ES 同步消息
-            sendESSyncMessage(ESSyncMessage.update("household_index", household.getId(), convertToMap(household)));
         }
     }
     
@@ -71,8 +112,11 @@ public class HouseholdServiceImpl extends ServiceImpl<HouseholdMapper, Household
     public boolean updateById(Household household) {
         boolean result = super.updateById(household);
         if (result) {
-            // 发送 ES 同步消息
-            sendESSyncMessage(ESSyncMessage.update("household_index", household.getId(), convertToMap(household)));
+            // 发送 ES 同步消息（请求中的实体只包含要修改的字段，重新查询出完整记录再同步）
+            Household stored = super.getById(household.getId());
+            if (stored != null) {
+                sendESSyncMessage(ESSyncMessage.update("household_index", stored.getId(), convertToMap(stored)));
+            }
         }
         return result;
     }
@@ -137,6 +181,7 @@ public class HouseholdServiceImpl extends ServiceImpl<HouseholdMapper, Household
             map.put("moveOutReason", household.getMoveOutReason());
             map.put("status", household.getStatus());
             map.put("remark", household.getRemark());
+            map.put("deleted", household.getDeleted() != null ? household.getDeleted() : 0);
             if (household.getCreateTime() != null) {
                 map.put("createTime", household.getCreateTime().format(dateTimeFormatter));
             }
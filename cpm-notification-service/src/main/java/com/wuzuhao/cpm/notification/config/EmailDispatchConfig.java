@@ -0,0 +1,55 @@
+package com.wuzuhao.cpm.notification.config;
+
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+
+/**
+ * 邮件发送队列监听配置
+ *
+ * 邮件按批次消费：消费者攒满 batch-size 封或在 receive-timeout 内没有新邮件时交给监听器，
+ * 监听器通过一个 SMTP 连接依次发送整批邮件后手动确认。
+ * 每个消费者同一时刻只占用一个 SMTP 连接，消费者数量即同时打开的 SMTP 连接数上限。
+ */
+@Configuration
+public class EmailDispatchConfig {
+
+    /**
+     * 消费者数量
+     */
+    @Value("${cpm.mail.dispatch.concurrency:2}")
+    private int concurrency;
+
+    /**
+     * 单个批次的最大邮件数
+     */
+    @Value("${cpm.mail.dispatch.batch-size:20}")
+    private int batchSize;
+
+    /**
+     * 等待下一封邮件的超时时间（毫秒），超时后立即发送已攒到的邮件
+     */
+    @Value("${cpm.mail.dispatch.receive-timeout-ms:200}")
+    private long receiveTimeoutMs;
+
+    @Bean
+    @NonNull
+    public SimpleRabbitListenerContainerFactory emailDispatchContainerFactory(@NonNull ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setPrefetchCount(batchSize);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        factory.setConcurrentConsumers(Math.max(1, concurrency));
+        factory.setMaxConcurrentConsumers(Math.max(1, concurrency));
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+}
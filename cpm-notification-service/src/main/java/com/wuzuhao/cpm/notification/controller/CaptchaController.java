@@ -46,4 +46,13 @@ public class CaptchaController {
             return Result.error("验证码验证失败");
         }
     }
+
+    /**
+     * 查看验证码图片池状态
+     */
+    @ApiOperation(value = "查看验证码图片池状态", notes = "返回预生成图片池的当前数量、容量、累计生成/取出次数、池为空时同步生成的次数和补充速率")
+    @GetMapping("/pool/stats")
+    public Result<Map<String, Object>> getPoolStats() {
+        return Result.success(captchaService.getPoolStats());
+    }
 }
@@ -9,6 +9,8 @@ import io.swagger.annotations.ApiParam;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 /**
  * 通知服务控制器
  */
@@ -26,7 +28,7 @@ public class NotificationController {
     /**
      * 发送邮件
      */
-    @ApiOperation(value = "发送邮件", notes = "发送普通邮件")
+    @ApiOperation(value = "发送邮件", notes = "发送普通邮件，邮件写入发送队列后即返回，由后台批量发送")
     @PostMapping("/email/send")
     public Result<?> sendEmail(
             @ApiParam(value = "收件人邮箱", required = true) @RequestParam String to,
@@ -40,6 +42,15 @@ public class NotificationController {
         }
     }
 
+    /**
+     * 查看邮件发送状态
+     */
+    @ApiOperation(value = "查看邮件发送状态", notes = "返回SMTP连接池的空闲连接数、累计建立的连接数、发送成功/失败的邮件数和平均每个连接发送的邮件数")
+    @GetMapping("/email/stats")
+    public Result<Map<String, Object>> getEmailStats() {
+        return Result.success(emailService.getDispatchStats());
+    }
+
     /**
      * 发送邮箱验证码
      */
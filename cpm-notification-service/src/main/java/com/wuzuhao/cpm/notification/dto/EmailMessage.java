@@ -0,0 +1,63 @@
+package com.wuzuhao.cpm.notification.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 待发送的邮件
+ * 由 {@link com.wuzuhao.cpm.notification.service.impl.EmailServiceImpl} 写入邮件发送队列，
+ * 由 {@link com.wuzuhao.cpm.notification.listener.EmailDispatchListener} 批量取出发送
+ */
+@Data
+public class EmailMessage implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 收件人邮箱
+     */
+    private String to;
+
+    /**
+     * 邮件主题
+     */
+    private String subject;
+
+    /**
+     * 邮件内容
+     */
+    private String content;
+
+    /**
+     * 是否为HTML格式
+     */
+    private boolean html;
+
+    /**
+     * 已失败的发送次数
+     */
+    private int attempts;
+
+    /**
+     * 过期时间（毫秒时间戳），过期后不再发送，如验证码邮件在验证码失效后没有意义；为null时不过期
+     */
+    private Long expireTime;
+
+    public static EmailMessage of(String to, String subject, String content, boolean html) {
+        EmailMessage message = new EmailMessage();
+        message.setTo(to);
+        message.setSubject(subject);
+        message.setContent(content);
+        message.setHtml(html);
+        return message;
+    }
+
+    /**
+     * 是否已过期
+     */
+    @JsonIgnore
+    public boolean isExpired() {
+        return expireTime != null && System.currentTimeMillis() > expireTime;
+    }
+}
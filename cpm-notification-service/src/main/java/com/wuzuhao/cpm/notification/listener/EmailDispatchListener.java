@@ -0,0 +1,143 @@
+package com.wuzuhao.cpm.notification.listener;
+
+import com.rabbitmq.client.Channel;
+import com.wuzuhao.cpm.config.RabbitMQConfig;
+import com.wuzuhao.cpm.notification.dto.EmailMessage;
+import com.wuzuhao.cpm.notification.util.SmtpConnectionPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 邮件发送队列批量监听器
+ *
+ * 一个批次的邮件通过同一个 SMTP 连接（{@link SmtpConnectionPool}）依次发送，处理完成后手动确认整个批次。
+ * - 连接失败、服务器临时错误（4xx）：次数加一后写入重试队列，延迟 backoff（每次翻倍）后重新投递，次数用完转入死信队列
+ * - 无法解析的消息、地址格式错误或服务器永久拒绝（5xx，如收件人不存在）：直接转入死信队列
+ * - 已过期的邮件（如验证码已失效）：丢弃
+ * 批次处理中途异常时整批重新入队，已发出的邮件可能重复发送一次。
+ */
+@Component
+public class EmailDispatchListener {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailDispatchListener.class);
+
+    /**
+     * 死信消息头：进入死信队列的原因
+     */
+    private static final String DEAD_LETTER_REASON_HEADER = "x-dead-letter-reason";
+
+    @Autowired
+    private SmtpConnectionPool connectionPool;
+
+    @Autowired
+    private MessageConverter messageConverter;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    /**
+     * 最多发送次数（含首次），用完后转入死信队列
+     */
+    @Value("${cpm.mail.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    /**
+     * 首次重试的延迟时间（毫秒），之后每次翻倍
+     */
+    @Value("${cpm.mail.retry.backoff-ms:5000}")
+    private long backoffMs;
+
+    @RabbitListener(queues = RabbitMQConfig.EMAIL_SEND_QUEUE, containerFactory = "emailDispatchContainerFactory")
+    public void onMessages(List<Message> messages, Channel channel) throws IOException {
+        if (messages.isEmpty()) {
+            return;
+        }
+        long lastDeliveryTag = messages.get(messages.size() - 1).getMessageProperties().getDeliveryTag();
+        try {
+            List<EmailMessage> emails = new ArrayList<>(messages.size());
+            List<Message> sources = new ArrayList<>(messages.size());
+            for (Message message : messages) {
+                EmailMessage email = convert(message);
+                if (email == null) {
+                    continue;
+                }
+                if (email.isExpired()) {
+                    log.info("邮件已过期，不再发送: {}", email.getTo());
+                    continue;
+                }
+                emails.add(email);
+                sources.add(message);
+            }
+
+            Map<Integer, Exception> failures = emails.isEmpty()
+                    ? Collections.<Integer, Exception>emptyMap() : connectionPool.sendAll(emails);
+            for (Map.Entry<Integer, Exception> failure : failures.entrySet()) {
+                EmailMessage email = emails.get(failure.getKey());
+                Exception e = failure.getValue();
+                if (SmtpConnectionPool.isPermanentFailure(e)) {
+                    deadLetter(sources.get(failure.getKey()), "邮件无法投递: " + e.getMessage());
+                } else {
+                    retry(email, sources.get(failure.getKey()), e);
+                }
+            }
+            channel.basicAck(lastDeliveryTag, true);
+            log.debug("邮件批次处理完成，消息数: {}, 发送: {}, 失败: {}",
+                    messages.size(), emails.size() - failures.size(), failures.size());
+        } catch (Exception e) {
+            log.error("邮件批次处理失败，整批重新入队，消息数: {}", messages.size(), e);
+            channel.basicNack(lastDeliveryTag, true, true);
+        }
+    }
+
+    private EmailMessage convert(Message message) {
+        try {
+            Object converted = messageConverter.fromMessage(message);
+            if (converted instanceof EmailMessage) {
+                return (EmailMessage) converted;
+            }
+            deadLetter(message, "消息类型不正确");
+        } catch (Exception e) {
+            deadLetter(message, "消息解析失败: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 写入重试队列，消息过期后转回发送队列
+     * 重试队列中的消息按先后顺序过期，排在前面的消息延迟更长时会推迟后面消息的重试，但不会丢失
+     */
+    private void retry(EmailMessage email, Message source, Exception e) {
+        email.setAttempts(email.getAttempts() + 1);
+        if (email.getAttempts() >= maxAttempts) {
+            log.error("邮件发送失败，已尝试 {} 次: {}, 原因: {}", email.getAttempts(), email.getTo(), e.getMessage());
+            deadLetter(source, "重试次数已用完: " + e.getMessage());
+            return;
+        }
+        long delay = backoffMs << (email.getAttempts() - 1);
+        rabbitTemplate.convertAndSend(RabbitMQConfig.EMAIL_RETRY_EXCHANGE, RabbitMQConfig.EMAIL_RETRY_ROUTING_KEY, email,
+                message -> {
+                    message.getMessageProperties().setExpiration(String.valueOf(delay));
+                    return message;
+                });
+        log.warn("邮件发送失败，{}ms 后重试（第{}次）: {}, 原因: {}", delay, email.getAttempts(), email.getTo(), e.getMessage());
+    }
+
+    private void deadLetter(Message message, String reason) {
+        log.warn("邮件转入死信队列，原因: {}", reason);
+        message.getMessageProperties().setHeader(DEAD_LETTER_REASON_HEADER, reason);
+        rabbitTemplate.send(RabbitMQConfig.EMAIL_DEAD_LETTER_EXCHANGE, RabbitMQConfig.EMAIL_DEAD_LETTER_ROUTING_KEY, message);
+    }
+}
@@ -20,4 +20,10 @@ public interface CaptchaService {
      * @return 验证是否通过
      */
     boolean validateCaptcha(String key, String code);
+    
+    /**
+     * 获取验证码图片池状态
+     * @return 当前数量、容量、累计生成/取出/同步生成次数、补充速率（张/秒）
+     */
+    Map<String, Object> getPoolStats();
 }
@@ -1,7 +1,10 @@
 package com.wuzuhao.cpm.notification.service;
 
+import java.util.Map;
+
 /**
  * 邮件服务接口
+ * 默认异步发送，返回 true 表示邮件已写入发送队列（或在队列不可用时已直接发送成功）
  */
 public interface EmailService {
     
@@ -32,4 +35,9 @@ public interface EmailService {
      * @return 是否发送成功
      */
     boolean sendVerificationCode(String to, String code, String type, String baseUrl);
+
+    /**
+     * 邮件发送状态（SMTP 连接池的空闲连接数、累计建立的连接数、发送成功/失败的邮件数）
+     */
+    Map<String, Object> getDispatchStats();
 }
@@ -58,9 +58,10 @@ public class EmailCodeServiceImpl implements EmailCodeService {
         redisTemplate.opsForValue().set(lockKey, "1", SEND_INTERVAL_SECONDS, TimeUnit.SECONDS);
 
         // 发送邮件（baseUrl可以为空，用于生成自动验证链接，当前版本暂不使用）
+        // 邮件写入发送队列即返回成功，实际发送由后台完成
         boolean success = emailService.sendVerificationCode(email, code, type, "");
         if (success) {
-            log.info("邮箱验证码发送成功: {} (type: {}), 验证码: {}", email, type, code);
+            log.info("邮箱验证码已提交发送: {} (type: {}), 验证码: {}", email, type, code);
         } else {
             log.error("邮箱验证码发送失败: {} (type: {}), 验证码: {} (已保存到Redis，但邮件发送失败)", email, type, code);
             log.warn("【开发模式】验证码已生成并保存到Redis，验证码: {}，邮箱: {}，类型: {}", code, email, type);
@@ -1,59 +1,64 @@
 package com.wuzuhao.cpm.notification.service.impl;
 
+import com.wuzuhao.cpm.config.RabbitMQConfig;
+import com.wuzuhao.cpm.notification.dto.EmailMessage;
 import com.wuzuhao.cpm.notification.service.EmailService;
+import com.wuzuhao.cpm.notification.util.SmtpConnectionPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
-import javax.mail.internet.MimeMessage;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * 邮件服务实现类
+ * 默认异步发送：邮件写入 RabbitMQ 邮件发送队列即返回成功，由 {@link com.wuzuhao.cpm.notification.listener.EmailDispatchListener}
+ * 批量取出、复用 SMTP 连接发送，失败时延迟重试
  */
 @Service
 public class EmailServiceImpl implements EmailService {
 
     private static final Logger log = LoggerFactory.getLogger(EmailServiceImpl.class);
 
-    @Autowired(required = false)
-    private JavaMailSender mailSender;
+    /**
+     * 验证码有效期（毫秒），与 Redis 中验证码的过期时间一致，过期后验证码邮件不再发送
+     */
+    private static final long VERIFICATION_CODE_TTL_MS = 5 * 60 * 1000L;
+
+    @Autowired
+    private SmtpConnectionPool connectionPool;
 
-    @Value("${spring.mail.from:noreply@cpm.com}")
-    private String from;
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    /**
+     * 是否异步发送：邮件写入发送队列后立即返回，由后台批量发送
+     */
+    @Value("${cpm.mail.async:true}")
+    private boolean async;
+
+    /**
+     * 等待 RabbitMQ 确认消息已写入队列的超时时间（毫秒）
+     */
+    @Value("${cpm.mail.confirm-timeout-ms:3000}")
+    private long confirmTimeoutMs;
 
     @Override
     public boolean sendEmail(String to, String subject, String content) {
-        if (mailSender == null) {
-            log.warn("邮件服务未配置（JavaMailSender为null），无法发送邮件");
-            log.warn("请检查application.yml中的邮件配置");
-            return false;
-        }
-        
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(from);
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(content);
-            mailSender.send(message);
-            log.info("邮件发送成功: {} -> {}", from, to);
-            return true;
-        } catch (Exception e) {
-            log.error("邮件发送失败: {}", e.getMessage(), e);
-            return false;
-        }
+        return send(EmailMessage.of(to, subject, content, false));
     }
 
     @Override
     public boolean sendVerificationCode(String to, String code, String type, String baseUrl) {
         String subject = "验证码 - 社区人口管理系统";
         String htmlContent = buildVerificationCodeHtml(code, type, baseUrl);
-        return sendHtmlEmail(to, subject, htmlContent);
+        EmailMessage email = EmailMessage.of(to, subject, htmlContent, true);
+        email.setExpireTime(System.currentTimeMillis() + VERIFICATION_CODE_TTL_MS);
+        return send(email);
     }
 
     /**
@@ -133,25 +138,51 @@ public class EmailServiceImpl implements EmailService {
      */
     @Override
     public boolean sendHtmlEmail(String to, String subject, String htmlContent) {
-        if (mailSender == null) {
+        return send(EmailMessage.of(to, subject, htmlContent, true));
+    }
+
+    @Override
+    public Map<String, Object> getDispatchStats() {
+        return connectionPool.getStats();
+    }
+
+    /**
+     * 异步发送时写入发送队列，RabbitMQ 确认后即返回；队列不可用或关闭异步发送时直接发送
+     */
+    private boolean send(EmailMessage email) {
+        if (!connectionPool.isAvailable()) {
             log.warn("邮件服务未配置（JavaMailSender为null），无法发送邮件");
             log.warn("请检查application.yml中的邮件配置");
             return false;
         }
-        
+        if (async && enqueue(email)) {
+            return true;
+        }
+
+        Exception failure = connectionPool.sendAll(Collections.singletonList(email)).get(0);
+        if (failure != null) {
+            log.error("邮件发送失败: {}", failure.getMessage(), failure);
+            return false;
+        }
+        log.info("邮件发送成功: {}", email.getTo());
+        return true;
+    }
+
+    /**
+     * 写入邮件发送队列（持久化消息），等待 RabbitMQ 的发布确认
+     * @return 是否已写入队列
+     */
+    private boolean enqueue(EmailMessage email) {
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            helper.setFrom(from);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(htmlContent, true); // true表示HTML格式
-            
-            mailSender.send(message);
-            log.info("HTML邮件发送成功: {} -> {}", from, to);
+            rabbitTemplate.invoke(operations -> {
+                operations.convertAndSend(RabbitMQConfig.EMAIL_SEND_EXCHANGE, RabbitMQConfig.EMAIL_SEND_ROUTING_KEY, email);
+                operations.waitForConfirmsOrDie(confirmTimeoutMs);
+                return null;
+            });
+            log.info("邮件已加入发送队列: {}", email.getTo());
             return true;
         } catch (Exception e) {
-            log.error("HTML邮件发送失败: {}", e.getMessage(), e);
+            log.warn("邮件加入发送队列失败，改为直接发送: {}", e.getMessage());
             return false;
         }
     }
@@ -0,0 +1,264 @@
+package com.wuzuhao.cpm.notification.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 验证码图片池
+ * 后台线程预先生成验证码图片（已编码为 Base64 的 PNG），请求线程直接从池中取出，不在请求线程上绘图和编码。
+ * 池满时后台线程阻塞等待，取走多少补充多少；池为空（突发流量超过补充速度）时在请求线程上同步生成。
+ *
+ * 每个线程复用同一张画布、Graphics2D、PNG 编码器和输出缓冲区，字体和颜色为常量，随机数使用 ThreadLocalRandom。
+ */
+@Component
+public class CaptchaImagePool {
+
+    private static final Logger log = LoggerFactory.getLogger(CaptchaImagePool.class);
+
+    private static final String CHARS = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789"; // 排除容易混淆的字符
+    private static final int CAPTCHA_LENGTH = 4;
+    private static final int IMAGE_WIDTH = 120;
+    private static final int IMAGE_HEIGHT = 40;
+    private static final int LINE_COUNT = 5;
+    private static final String IMAGE_PREFIX = "data:image/png;base64,";
+
+    private static final Font FONT = new Font("Arial", Font.BOLD, 28);
+
+    /**
+     * 文字颜色（RGB 各分量 0~99 的深色），预先创建，绘制时随机选取
+     */
+    private static final Color[] TEXT_COLORS = new Color[64];
+
+    static {
+        for (int i = 0; i < TEXT_COLORS.length; i++) {
+            TEXT_COLORS[i] = new Color((i * 37) % 100, (i * 61) % 100, (i * 83) % 100);
+        }
+    }
+
+    /**
+     * 每个线程的绘图资源（后台补充线程一份，池为空时同步生成的请求线程各一份）
+     */
+    private static final ThreadLocal<Renderer> RENDERER = ThreadLocal.withInitial(Renderer::new);
+
+    /**
+     * 是否启用预生成，关闭后每次请求同步生成
+     */
+    @Value("${cpm.captcha.pool.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 池容量
+     */
+    @Value("${cpm.captcha.pool.capacity:200}")
+    private int capacity;
+
+    private BlockingQueue<CaptchaImage> pool;
+
+    private Thread refillThread;
+
+    private volatile boolean running;
+
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder served = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * 上次统计时的生成数和时间，用于计算补充速率
+     */
+    private long lastGenerated;
+    private long lastSampleTime = System.currentTimeMillis();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("验证码图片池未启用，验证码在请求线程上同步生成");
+            return;
+        }
+        pool = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        running = true;
+        refillThread = new Thread(this::refill, "captcha-pool-refill");
+        refillThread.setDaemon(true);
+        refillThread.start();
+        log.info("验证码图片池已启动，容量: {}", capacity);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        if (refillThread != null) {
+            refillThread.interrupt();
+        }
+    }
+
+    /**
+     * 取出一张验证码图片，池为空时同步生成
+     */
+    public CaptchaImage take() {
+        CaptchaImage captcha = pool != null ? pool.poll() : null;
+        if (captcha == null) {
+            misses.increment();
+            captcha = RENDERER.get().render();
+        }
+        served.increment();
+        return captcha;
+    }
+
+    /**
+     * 池状态：当前数量、容量、累计生成/取出/同步生成次数、最近一段时间的补充速率（张/秒）
+     */
+    public Map<String, Object> getStats() {
+        long totalGenerated = generated.sum();
+        long now = System.currentTimeMillis();
+        double refillPerSecond;
+        synchronized (this) {
+            long elapsed = now - lastSampleTime;
+            refillPerSecond = elapsed > 0 ? (totalGenerated - lastGenerated) * 1000.0 / elapsed : 0;
+            lastGenerated = totalGenerated;
+            lastSampleTime = now;
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", pool != null ? pool.size() : 0);
+        stats.put("capacity", pool != null ? capacity : 0);
+        stats.put("generated", totalGenerated);
+        stats.put("served", served.sum());
+        stats.put("misses", misses.sum());
+        stats.put("refillPerSecond", Math.round(refillPerSecond * 10) / 10.0);
+        return stats;
+    }
+
+    /**
+     * 后台补充：池满时阻塞在 put 上，取走后继续生成
+     */
+    private void refill() {
+        Renderer renderer = RENDERER.get();
+        while (running) {
+            try {
+                pool.put(renderer.render());
+                generated.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("预生成验证码图片失败", e);
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 预生成的验证码
+     */
+    public static class CaptchaImage {
+
+        private final String code;
+        private final String image;
+
+        private CaptchaImage(String code, String image) {
+            this.code = code;
+            this.image = image;
+        }
+
+        /**
+         * 验证码文字
+         */
+        public String getCode() {
+            return code;
+        }
+
+        /**
+         * 图片（data:image/png;base64,...）
+         */
+        public String getImage() {
+            return image;
+        }
+    }
+
+    /**
+     * 单个线程的绘图资源，每次绘制前重新填充背景，不再新建画布和编码器
+     */
+    private static class Renderer {
+
+        private final BufferedImage image = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        private final Graphics2D g = image.createGraphics();
+        private final ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(2048);
+        private final char[] code = new char[CAPTCHA_LENGTH];
+
+        private Renderer() {
+            // 设置抗锯齿
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setFont(FONT);
+        }
+
+        CaptchaImage render() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < CAPTCHA_LENGTH; i++) {
+                code[i] = CHARS.charAt(random.nextInt(CHARS.length()));
+            }
+
+            // 填充背景
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, IMAGE_WIDTH, IMAGE_HEIGHT);
+
+            // 绘制干扰线
+            g.setColor(Color.LIGHT_GRAY);
+            for (int i = 0; i < LINE_COUNT; i++) {
+                g.drawLine(random.nextInt(IMAGE_WIDTH), random.nextInt(IMAGE_HEIGHT),
+                        random.nextInt(IMAGE_WIDTH), random.nextInt(IMAGE_HEIGHT));
+            }
+
+            // 绘制验证码文字
+            for (int i = 0; i < CAPTCHA_LENGTH; i++) {
+                g.setColor(TEXT_COLORS[random.nextInt(TEXT_COLORS.length)]);
+                g.drawChars(code, i, 1, 20 + i * 25, 28 + random.nextInt(10));
+            }
+
+            return new CaptchaImage(new String(code), IMAGE_PREFIX + encode());
+        }
+
+        /**
+         * 编码为 PNG 并转换为 Base64（在内存中编码，不使用 ImageIO 的磁盘缓存）
+         */
+        private String encode() {
+            buffer.reset();
+            try (ImageOutputStream out = new MemoryCacheImageOutputStream(buffer)) {
+                writer.setOutput(out);
+                writer.write(image);
+            } catch (IOException e) {
+                throw new RuntimeException("生成验证码图片失败", e);
+            } finally {
+                writer.setOutput(null);
+            }
+            return Base64.getEncoder().encodeToString(buffer.toByteArray());
+        }
+    }
+}
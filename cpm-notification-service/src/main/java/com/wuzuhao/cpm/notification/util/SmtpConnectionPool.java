@@ -0,0 +1,289 @@
+package com.wuzuhao.cpm.notification.util;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import com.wuzuhao.cpm.notification.dto.EmailMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Transport;
+import javax.mail.internet.AddressException;
+import javax.mail.internet.MimeMessage;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SMTP 连接池
+ * JavaMailSender 每次 send 都会新建连接、完成握手（STARTTLS、AUTH）后再关闭，发送一封邮件要多出好几个往返。
+ * 这里保留已登录的连接，一批邮件通过同一个连接依次发送，发送完放回池中供下一批复用。
+ *
+ * 连接发送的邮件数达到上限或空闲超时（SMTP 服务器会主动断开长时间空闲的连接）后关闭并重新建立。
+ */
+@Component
+public class SmtpConnectionPool {
+
+    private static final Logger log = LoggerFactory.getLogger(SmtpConnectionPool.class);
+
+    @Autowired(required = false)
+    private JavaMailSender mailSender;
+
+    @Value("${spring.mail.from:noreply@cpm.com}")
+    private String from;
+
+    /**
+     * 最多保留的空闲连接数（与邮件发送队列的消费者数量一致）
+     */
+    @Value("${cpm.mail.dispatch.concurrency:2}")
+    private int maxIdle;
+
+    /**
+     * 单个连接最多发送的邮件数，达到后重新建立连接（部分邮件服务商限制单个连接的发送数量）
+     */
+    @Value("${cpm.mail.pool.max-messages-per-connection:50}")
+    private int maxMessagesPerConnection;
+
+    /**
+     * 连接最长空闲时间（毫秒），超过后不再复用
+     */
+    @Value("${cpm.mail.pool.idle-timeout-ms:30000}")
+    private long idleTimeoutMs;
+
+    private BlockingQueue<SmtpConnection> idle;
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        idle = new LinkedBlockingQueue<>(Math.max(1, maxIdle));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        SmtpConnection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    /**
+     * 邮件服务是否已配置
+     */
+    public boolean isAvailable() {
+        return mailSender instanceof JavaMailSenderImpl;
+    }
+
+    /**
+     * 通过同一个连接依次发送多封邮件
+     * 某封邮件发送时连接异常则关闭该连接，后续邮件使用新连接；无法建立连接时剩余邮件全部失败
+     * @return 发送失败的邮件（key 为邮件在列表中的下标）及原因
+     */
+    public Map<Integer, Exception> sendAll(List<EmailMessage> emails) {
+        Map<Integer, Exception> failures = new LinkedHashMap<>();
+        SmtpConnection connection = null;
+        try {
+            for (int i = 0; i < emails.size(); i++) {
+                MimeMessage message;
+                try {
+                    message = toMimeMessage(emails.get(i));
+                } catch (MessagingException e) {
+                    failures.put(i, e);
+                    continue;
+                }
+
+                if (connection != null && connection.sentCount >= maxMessagesPerConnection) {
+                    connection.close();
+                    connection = null;
+                }
+                if (connection == null) {
+                    try {
+                        connection = borrow();
+                    } catch (MessagingException e) {
+                        log.error("建立SMTP连接失败: {}", e.getMessage());
+                        for (int j = i; j < emails.size(); j++) {
+                            failures.put(j, e);
+                        }
+                        break;
+                    }
+                }
+
+                try {
+                    connection.send(message);
+                } catch (SendFailedException e) {
+                    // 收件人被服务器拒绝，连接仍然可用
+                    failures.put(i, e);
+                } catch (MessagingException e) {
+                    failures.put(i, e);
+                    connection.close();
+                    connection = null;
+                }
+            }
+        } finally {
+            if (connection != null) {
+                release(connection);
+            }
+        }
+        sent.add(emails.size() - failures.size());
+        failed.add(failures.size());
+        return failures;
+    }
+
+    /**
+     * 是否为重试也无法成功的失败：邮件地址格式错误，或服务器以 5xx 永久错误拒绝（如收件人不存在）
+     * 4xx 是临时错误（如收件箱已满、服务器限流、灰名单），以及没有返回码的失败，都按可重试处理
+     */
+    public static boolean isPermanentFailure(Exception e) {
+        if (e instanceof AddressException) {
+            return true;
+        }
+        int returnCode = smtpReturnCode(e);
+        return returnCode >= 500;
+    }
+
+    /**
+     * SMTP 服务器的返回码：收件人被拒绝时 SendFailedException 本身没有返回码，
+     * 每个被拒绝的收件人对应 getNextException 链上的一个 SMTPAddressFailedException
+     * @return 返回码，没有时返回-1
+     */
+    private static int smtpReturnCode(Exception e) {
+        Exception current = e;
+        while (current != null) {
+            if (current instanceof SMTPSendFailedException) {
+                return ((SMTPSendFailedException) current).getReturnCode();
+            }
+            if (current instanceof SMTPAddressFailedException) {
+                return ((SMTPAddressFailedException) current).getReturnCode();
+            }
+            Exception next = current instanceof MessagingException ? ((MessagingException) current).getNextException() : null;
+            current = next != current ? next : null;
+        }
+        return -1;
+    }
+
+    /**
+     * 连接池状态：空闲连接数、累计建立的连接数、发送成功/失败的邮件数
+     */
+    public Map<String, Object> getStats() {
+        long totalOpened = opened.sum();
+        long totalSent = sent.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("available", isAvailable());
+        stats.put("idle", idle.size());
+        stats.put("opened", totalOpened);
+        stats.put("sent", totalSent);
+        stats.put("failed", failed.sum());
+        stats.put("messagesPerConnection", totalOpened > 0 ? Math.round(totalSent * 10.0 / totalOpened) / 10.0 : 0);
+        return stats;
+    }
+
+    private MimeMessage toMimeMessage(EmailMessage email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, email.isHtml(), "UTF-8");
+        helper.setFrom(from);
+        helper.setTo(email.getTo());
+        helper.setSubject(email.getSubject());
+        helper.setText(email.getContent(), email.isHtml());
+        return message;
+    }
+
+    /**
+     * 取出一个可复用的空闲连接，没有时新建
+     */
+    private SmtpConnection borrow() throws MessagingException {
+        if (!isAvailable()) {
+            throw new MessagingException("邮件服务未配置（JavaMailSender为null）");
+        }
+        SmtpConnection connection;
+        while ((connection = idle.poll()) != null) {
+            if (connection.isReusable()) {
+                return connection;
+            }
+            connection.close();
+        }
+        return open();
+    }
+
+    private void release(SmtpConnection connection) {
+        connection.lastUsedTime = System.currentTimeMillis();
+        if (connection.sentCount >= maxMessagesPerConnection || !idle.offer(connection)) {
+            connection.close();
+        }
+    }
+
+    /**
+     * 按 spring.mail 配置建立并登录一个连接（与 JavaMailSenderImpl 发送时的连接方式相同）
+     */
+    private SmtpConnection open() throws MessagingException {
+        JavaMailSenderImpl sender = (JavaMailSenderImpl) mailSender;
+        Transport transport = sender.getSession().getTransport(sender.getProtocol());
+        String username = sender.getUsername();
+        String password = sender.getPassword();
+        if ("".equals(username)) {
+            username = null;
+            if ("".equals(password)) {
+                password = null;
+            }
+        }
+        transport.connect(sender.getHost(), sender.getPort(), username, password);
+        opened.increment();
+        log.debug("建立SMTP连接: {}:{}", sender.getHost(), sender.getPort());
+        return new SmtpConnection(transport);
+    }
+
+    /**
+     * 一个已登录的 SMTP 连接
+     */
+    private class SmtpConnection {
+
+        private final Transport transport;
+        private int sentCount;
+        private long lastUsedTime = System.currentTimeMillis();
+
+        private SmtpConnection(Transport transport) {
+            this.transport = transport;
+        }
+
+        void send(MimeMessage message) throws MessagingException {
+            if (message.getSentDate() == null) {
+                message.setSentDate(new Date());
+            }
+            message.saveChanges();
+            transport.sendMessage(message, message.getAllRecipients());
+            sentCount++;
+        }
+
+        /**
+         * 未超过空闲时间且服务器仍保持连接（isConnected 会发送一次 NOOP 确认）
+         */
+        boolean isReusable() {
+            return System.currentTimeMillis() - lastUsedTime < idleTimeoutMs
+                    && sentCount < maxMessagesPerConnection
+                    && transport.isConnected();
+        }
+
+        void close() {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("关闭SMTP连接失败: {}", e.getMessage());
+            }
+        }
+    }
+}
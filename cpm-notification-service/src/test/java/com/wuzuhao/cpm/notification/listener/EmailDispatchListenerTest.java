@@ -0,0 +1,161 @@
+package com.wuzuhao.cpm.notification.listener;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.rabbitmq.client.Channel;
+import com.wuzuhao.cpm.config.RabbitMQConfig;
+import com.wuzuhao.cpm.notification.dto.EmailMessage;
+import com.wuzuhao.cpm.notification.util.SmtpConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * 邮件发送队列批量监听器测试
+ * 邮件通过 GreenMail 内嵌 SMTP 服务器实际发送，RabbitMQ 的 Channel 和 RabbitTemplate 使用 mock
+ */
+public class EmailDispatchListenerTest {
+
+    private static final int MAX_MESSAGES_PER_CONNECTION = 50;
+
+    private final Jackson2JsonMessageConverter messageConverter = new Jackson2JsonMessageConverter();
+
+    private GreenMail greenMail;
+    private SmtpConnectionPool pool;
+    private RabbitTemplate rabbitTemplate;
+    private Channel channel;
+    private EmailDispatchListener listener;
+
+    @BeforeEach
+    public void setUp() {
+        greenMail = new GreenMail(ServerSetupTest.SMTP);
+        greenMail.start();
+        rabbitTemplate = mock(RabbitTemplate.class);
+        channel = mock(Channel.class);
+        pool = createPool(ServerSetupTest.SMTP.getPort());
+        listener = createListener(pool);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pool.destroy();
+        greenMail.stop();
+    }
+
+    /**
+     * 一个批次的邮件复用连接发送，处理完成后确认整个批次
+     */
+    @Test
+    public void batchIsSentOverPooledConnectionsAndAcked() throws Exception {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            messages.add(toMessage(EmailMessage.of("user" + i + "@cpm.com", "测试邮件 " + i, "邮件内容 " + i, false), i + 1));
+        }
+
+        listener.onMessages(messages, channel);
+
+        assertEquals(100, greenMail.getReceivedMessages().length);
+        Map<String, Object> stats = pool.getStats();
+        assertEquals(2L, stats.get("opened"));
+        assertEquals((double) MAX_MESSAGES_PER_CONNECTION, stats.get("messagesPerConnection"));
+        verify(channel).basicAck(100L, true);
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    /**
+     * 已过期的邮件丢弃，无法解析的消息转入死信队列，其余邮件正常发送
+     */
+    @Test
+    public void expiredAndInvalidMessagesAreNotSent() throws Exception {
+        EmailMessage expired = EmailMessage.of("expired@cpm.com", "验证码", "123456", false);
+        expired.setExpireTime(System.currentTimeMillis() - 1000);
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setDeliveryTag(3);
+        Message invalid = new Message("not json".getBytes(StandardCharsets.UTF_8), properties);
+
+        listener.onMessages(Arrays.asList(
+                toMessage(EmailMessage.of("user@cpm.com", "测试邮件", "邮件内容", false), 1),
+                toMessage(expired, 2),
+                invalid), channel);
+
+        assertEquals(1, greenMail.getReceivedMessages().length);
+        verify(rabbitTemplate).send(eq(RabbitMQConfig.EMAIL_DEAD_LETTER_EXCHANGE),
+                eq(RabbitMQConfig.EMAIL_DEAD_LETTER_ROUTING_KEY), same(invalid));
+        verify(channel).basicAck(3L, true);
+    }
+
+    /**
+     * 无法连接 SMTP 服务器时写入重试队列，不转入死信队列
+     */
+    @Test
+    public void connectionFailureIsRetried() throws Exception {
+        // 没有服务监听的端口
+        SmtpConnectionPool unreachable = createPool(ServerSetupTest.SMTP.getPort() + 1);
+        EmailDispatchListener unreachableListener = createListener(unreachable);
+
+        unreachableListener.onMessages(Arrays.asList(
+                toMessage(EmailMessage.of("user@cpm.com", "测试邮件", "邮件内容", false), 1)), channel);
+
+        verify(rabbitTemplate).convertAndSend(eq(RabbitMQConfig.EMAIL_RETRY_EXCHANGE),
+                eq(RabbitMQConfig.EMAIL_RETRY_ROUTING_KEY), any(EmailMessage.class), any(MessagePostProcessor.class));
+        verify(rabbitTemplate, never()).send(any(String.class), any(String.class), any(Message.class));
+        verify(channel).basicAck(1L, true);
+        unreachable.destroy();
+    }
+
+    private SmtpConnectionPool createPool(int port) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(port);
+        SmtpConnectionPool pool = new SmtpConnectionPool();
+        ReflectionTestUtils.setField(pool, "mailSender", mailSender);
+        ReflectionTestUtils.setField(pool, "from", "noreply@cpm.com");
+        ReflectionTestUtils.setField(pool, "maxIdle", 2);
+        ReflectionTestUtils.setField(pool, "maxMessagesPerConnection", MAX_MESSAGES_PER_CONNECTION);
+        ReflectionTestUtils.setField(pool, "idleTimeoutMs", 30000L);
+        pool.init();
+        return pool;
+    }
+
+    private EmailDispatchListener createListener(SmtpConnectionPool pool) {
+        EmailDispatchListener listener = new EmailDispatchListener();
+        ReflectionTestUtils.setField(listener, "connectionPool", pool);
+        ReflectionTestUtils.setField(listener, "messageConverter", messageConverter);
+        ReflectionTestUtils.setField(listener, "rabbitTemplate", rabbitTemplate);
+        ReflectionTestUtils.setField(listener, "maxAttempts", 3);
+        ReflectionTestUtils.setField(listener, "backoffMs", 5000L);
+        return listener;
+    }
+
+    private Message toMessage(EmailMessage email, long deliveryTag) {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(deliveryTag);
+        return messageConverter.toMessage(email, properties);
+    }
+}
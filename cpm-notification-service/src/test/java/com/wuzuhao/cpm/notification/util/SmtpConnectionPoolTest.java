@@ -0,0 +1,186 @@
+package com.wuzuhao.cpm.notification.util;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import com.wuzuhao.cpm.notification.dto.EmailMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Transport;
+import javax.mail.internet.AddressException;
+import javax.mail.internet.InternetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SMTP 连接池测试
+ * 使用 GreenMail 内嵌 SMTP 服务器，验证一批邮件复用同一个连接发送，
+ * 并与每封邮件单独建立连接的 JavaMailSender 对比建立的连接数
+ */
+public class SmtpConnectionPoolTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SmtpConnectionPoolTest.class);
+
+    private static final int MAX_MESSAGES_PER_CONNECTION = 50;
+    private static final int EMAIL_COUNT = 200;
+
+    private GreenMail greenMail;
+    private CountingMailSender mailSender;
+    private SmtpConnectionPool pool;
+
+    @BeforeEach
+    public void setUp() {
+        greenMail = new GreenMail(ServerSetupTest.SMTP);
+        greenMail.start();
+        mailSender = createMailSender(ServerSetupTest.SMTP.getPort());
+        pool = createPool(mailSender);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pool.destroy();
+        greenMail.stop();
+    }
+
+    /**
+     * 一批邮件按单个连接的发送上限分摊到最少的连接上
+     */
+    @Test
+    public void sendAllReusesConnection() {
+        Map<Integer, Exception> failures = pool.sendAll(emails(EMAIL_COUNT));
+
+        assertTrue(failures.isEmpty());
+        assertEquals(EMAIL_COUNT, greenMail.getReceivedMessages().length);
+        Map<String, Object> stats = pool.getStats();
+        assertEquals((long) EMAIL_COUNT / MAX_MESSAGES_PER_CONNECTION, stats.get("opened"));
+        assertEquals((long) EMAIL_COUNT, stats.get("sent"));
+        assertEquals(0L, stats.get("failed"));
+        assertEquals((double) MAX_MESSAGES_PER_CONNECTION, stats.get("messagesPerConnection"));
+    }
+
+    /**
+     * 未达到发送上限的连接放回池中，下一批直接复用
+     */
+    @Test
+    public void idleConnectionIsReusedByNextBatch() {
+        pool.sendAll(emails(10));
+        pool.sendAll(emails(10));
+
+        assertEquals(20, greenMail.getReceivedMessages().length);
+        Map<String, Object> stats = pool.getStats();
+        assertEquals(1L, stats.get("opened"));
+        assertEquals(1, stats.get("idle"));
+        assertEquals(20.0, stats.get("messagesPerConnection"));
+    }
+
+    /**
+     * 连接池建立的连接数远少于每封邮件单独建立连接（比较连接数而不是耗时，结果不受机器负载影响）
+     */
+    @Test
+    public void pooledSendingOpensFewerConnectionsThanConnectionPerMessage() {
+        List<EmailMessage> emails = emails(EMAIL_COUNT);
+        Map<Integer, Exception> failures = pool.sendAll(emails);
+        sendOneByOne(emails);
+
+        assertTrue(failures.isEmpty());
+        assertEquals(2 * EMAIL_COUNT, greenMail.getReceivedMessages().length);
+        long pooledConnections = (Long) pool.getStats().get("opened");
+        log.info("发送 {} 封邮件 - 连接池建立连接: {}, 每封新建连接: {}", EMAIL_COUNT, pooledConnections, mailSender.connections);
+        assertEquals((long) EMAIL_COUNT / MAX_MESSAGES_PER_CONNECTION, pooledConnections);
+        assertEquals(EMAIL_COUNT, mailSender.connections);
+    }
+
+    /**
+     * 只有地址格式错误和 5xx 返回码是永久失败，4xx 和没有返回码的失败可以重试
+     */
+    @Test
+    public void permanentFailureIsDecidedByReturnCode() throws AddressException {
+        InternetAddress address = new InternetAddress("user@cpm.com");
+        Address[] invalid = {address};
+
+        assertTrue(SmtpConnectionPool.isPermanentFailure(new AddressException("地址格式错误")));
+        assertTrue(SmtpConnectionPool.isPermanentFailure(new SendFailedException("Invalid Addresses",
+                new SMTPAddressFailedException(address, "RCPT TO", 550, "User unknown"), null, null, invalid)));
+        assertTrue(SmtpConnectionPool.isPermanentFailure(
+                new SMTPSendFailedException("DATA", 554, "Message rejected", null, null, null, null)));
+
+        assertFalse(SmtpConnectionPool.isPermanentFailure(new SendFailedException("Invalid Addresses",
+                new SMTPAddressFailedException(address, "RCPT TO", 452, "Mailbox full"), null, null, invalid)));
+        assertFalse(SmtpConnectionPool.isPermanentFailure(
+                new SMTPSendFailedException("MAIL FROM", 421, "Too many connections", null, null, null, null)));
+        assertFalse(SmtpConnectionPool.isPermanentFailure(new SendFailedException("No recipient addresses")));
+        assertFalse(SmtpConnectionPool.isPermanentFailure(new MessagingException("Connection reset")));
+    }
+
+    private static CountingMailSender createMailSender(int port) {
+        CountingMailSender mailSender = new CountingMailSender();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(port);
+        return mailSender;
+    }
+
+    private static SmtpConnectionPool createPool(JavaMailSender mailSender) {
+        SmtpConnectionPool pool = new SmtpConnectionPool();
+        ReflectionTestUtils.setField(pool, "mailSender", mailSender);
+        ReflectionTestUtils.setField(pool, "from", "noreply@cpm.com");
+        ReflectionTestUtils.setField(pool, "maxIdle", 2);
+        ReflectionTestUtils.setField(pool, "maxMessagesPerConnection", MAX_MESSAGES_PER_CONNECTION);
+        ReflectionTestUtils.setField(pool, "idleTimeoutMs", 30000L);
+        pool.init();
+        return pool;
+    }
+
+    private static List<EmailMessage> emails(int count) {
+        List<EmailMessage> emails = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            emails.add(EmailMessage.of("user" + i + "@cpm.com", "测试邮件 " + i, "邮件内容 " + i, false));
+        }
+        return emails;
+    }
+
+    /**
+     * JavaMailSender 逐封发送，每封邮件都新建连接
+     */
+    private void sendOneByOne(List<EmailMessage> emails) {
+        for (EmailMessage email : emails) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom("noreply@cpm.com");
+            message.setTo(email.getTo());
+            message.setSubject(email.getSubject());
+            message.setText(email.getContent());
+            mailSender.send(message);
+        }
+    }
+
+    /**
+     * 记录建立连接次数的 JavaMailSender：send 每次调用都通过 connectTransport 新建连接，
+     * 连接池直接从 Session 获取 Transport，不经过这里
+     */
+    private static class CountingMailSender extends JavaMailSenderImpl {
+
+        private int connections;
+
+        @Override
+        protected Transport connectTransport() throws MessagingException {
+            connections++;
+            return super.connectTransport();
+        }
+    }
+}
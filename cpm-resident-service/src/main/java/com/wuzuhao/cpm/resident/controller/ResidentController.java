@@ -1,7 +1,11 @@
 package com.wuzuhao.cpm.resident.controller;
 
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.wuzuhao.cpm.common.Result;
+import com.wuzuhao.cpm.common.dto.CursorPage;
+import com.wuzuhao.cpm.common.dto.JobInfo;
+import com.wuzuhao.cpm.common.dto.ResidentDocument;
+import com.wuzuhao.cpm.common.dto.SearchFilter;
+import com.wuzuhao.cpm.common.dto.SearchPage;
 import com.wuzuhao.cpm.resident.dto.excel.ResidentExcelDTO;
 import com.wuzuhao.cpm.resident.entity.Resident;
 import com.wuzuhao.cpm.resident.feign.SearchServiceClient;
@@ -9,6 +13,7 @@ import com.wuzuhao.cpm.resident.feign.UserServiceClient;
 import com.wuzuhao.cpm.resident.service.ExcelExportService;
 import com.wuzuhao.cpm.resident.service.ResidentService;
 import com.wuzuhao.cpm.util.ExcelUtil;
+import com.wuzuhao.cpm.util.JobManager;
 import com.wuzuhao.cpm.util.ValidationUtil;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -20,7 +25,6 @@ import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +38,11 @@ import java.util.Map;
 @RequestMapping("/resident")
 public class ResidentController {
 
+    /**
+     * 游标分页接口单页最大数量
+     */
+    private static final int MAX_SCROLL_SIZE = 5000;
+
     @Autowired
     private ResidentService residentService;
 
@@ -46,6 +55,9 @@ public class ResidentController {
     @Autowired
     private ExcelExportService excelExportService;
 
+    @Autowired
+    private JobManager jobManager;
+
     /**
      * 获取当前居民信息
      */
@@ -194,144 +206,58 @@ public class ResidentController {
      */
     @ApiOperation(value = "分页查询居民列表", notes = "使用Elasticsearch全文检索查询居民信息")
     @GetMapping("/list")
-    public Result<Page<Resident>> getResidentList(
+    public Result<CursorPage<ResidentDocument>> getResidentList(
             @ApiParam(value = "当前页码", example = "1") @RequestParam(defaultValue = "1") Integer current,
             @ApiParam(value = "每页数量", example = "10") @RequestParam(defaultValue = "10") Integer size,
+            @ApiParam(value = "分页游标（上一页返回的 cursor），按顺序翻到下一页时传入，跳页时不传") @RequestParam(required = false) String cursor,
             @ApiParam(value = "真实姓名（模糊查询）") @RequestParam(required = false) String realName,
             @ApiParam(value = "身份证号（模糊查询）") @RequestParam(required = false) String idCard,
-            @ApiParam(value = "现居住地址（模糊查询）") @RequestParam(required = false) String currentAddress) {
+            @ApiParam(value = "现居住地址（模糊查询）") @RequestParam(required = false) String currentAddress,
+            @ApiParam(value = "性别：0-女, 1-男") @RequestParam(required = false) Integer gender,
+            @ApiParam(value = "出生日期起（yyyy-MM-dd）") @RequestParam(required = false) String birthDateFrom,
+            @ApiParam(value = "出生日期止（yyyy-MM-dd）") @RequestParam(required = false) String birthDateTo) {
         try {
             // 合并查询参数为keyword
-            StringBuilder keywordBuilder = new StringBuilder();
-            if (realName != null && !realName.trim().isEmpty()) {
-                keywordBuilder.append(realName.trim());
-            }
-            if (idCard != null && !idCard.trim().isEmpty()) {
-                if (keywordBuilder.length() > 0) {
-                    keywordBuilder.append(" ");
-                }
-                keywordBuilder.append(idCard.trim());
-            }
-            if (currentAddress != null && !currentAddress.trim().isEmpty()) {
-                if (keywordBuilder.length() > 0) {
-                    keywordBuilder.append(" ");
-                }
-                keywordBuilder.append(currentAddress.trim());
-            }
+            String keyword = SearchFilter.keyword(realName, idCard, currentAddress);
             
-            String keyword = keywordBuilder.length() > 0 ? keywordBuilder.toString() : "*";
+            // 性别和出生日期范围交给搜索服务作为过滤条件
+            SearchFilter filter = new SearchFilter();
+            filter.setGender(gender);
+            if (birthDateFrom != null || birthDateTo != null) {
+                filter.setDateField("birthDate");
+                filter.setDateFrom(birthDateFrom);
+                filter.setDateTo(birthDateTo);
+            }
             
+            // 翻到下一页时从上一页的游标继续查询，没有游标（跳页）时搜索服务按页码定位
+            filter.setCursor(cursor);
+
             // 调用搜索服务（page参数从1开始，Elasticsearch从0开始，需要减1）
-            Result<Map<String, Object>> searchResult = searchServiceClient.searchResident(keyword, current - 1, size);
+            Result<SearchPage<ResidentDocument>> searchResult = searchServiceClient.searchResident(keyword, current - 1, size, filter);
             
+            CursorPage<ResidentDocument> page = new CursorPage<>(current, size);
             if (searchResult == null || searchResult.getCode() != 200 || searchResult.getData() == null) {
                 // 如果搜索服务失败，返回空结果
-                Page<Resident> page = new Page<>(current, size);
                 page.setTotal(0);
                 return Result.success(page);
             }
             
-            Map<String, Object> data = searchResult.getData();
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> hits = (List<Map<String, Object>>) data.get("hits");
-            Long total = ((Number) data.get("total")).longValue();
-            
-            // 转换为Resident实体列表
-            List<Resident> residents = new ArrayList<>();
-            if (hits != null) {
-                for (Map<String, Object> hit : hits) {
-                    try {
-                        Resident resident = convertMapToResident(hit);
-                        residents.add(resident);
-                    } catch (Exception e) {
-                        // 忽略转换失败的数据
-                        continue;
-                    }
-                }
-            }
-            
-            // 构建Page对象
-            Page<Resident> page = new Page<>(current, size);
-            page.setTotal(total);
-            page.setRecords(residents);
+            // 搜索服务返回的已是列表文档，直接作为分页记录
+            SearchPage<ResidentDocument> data = searchResult.getData();
+            page.setTotal(data.getTotal());
+            page.setRecords(data.getHits());
+            page.setCursor(data.getCursor());
             return Result.success(page);
             
         } catch (Exception e) {
             log.error("搜索居民信息失败", e);
             // 如果搜索服务异常，返回空结果
-            Page<Resident> page = new Page<>(current, size);
+            CursorPage<ResidentDocument> page = new CursorPage<>(current, size);
             page.setTotal(0);
             return Result.success(page);
         }
     }
     
-    /**
-     * 将Map转换为Resident实体
-     */
-    private Resident convertMapToResident(Map<String, Object> map) {
-        Resident resident = new Resident();
-        if (map.get("id") != null) {
-            resident.setId(Long.valueOf(map.get("id").toString()));
-        }
-        if (map.get("userId") != null) {
-            resident.setUserId(Long.valueOf(map.get("userId").toString()));
-        }
-        resident.setRealName((String) map.get("realName"));
-        resident.setIdCard((String) map.get("idCard"));
-        if (map.get("gender") != null) {
-            resident.setGender(Integer.valueOf(map.get("gender").toString()));
-        }
-        // 日期格式：birthDate 使用 "yyyy-MM-dd"，createTime/updateTime 使用 "yyyy-MM-dd HH:mm:ss"
-        java.time.format.DateTimeFormatter dateFormatter = java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        java.time.format.DateTimeFormatter dateTimeFormatter = java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        
-        if (map.get("birthDate") != null) {
-            try {
-                String birthDateStr = map.get("birthDate").toString();
-                resident.setBirthDate(java.time.LocalDate.parse(birthDateStr, dateFormatter));
-                log.debug("成功解析居民 birthDate: {}", birthDateStr);
-            } catch (Exception e) {
-                log.warn("解析居民 birthDate 失败: {}, 错误: {}", map.get("birthDate"), e.getMessage());
-                // 忽略日期解析错误，继续处理其他字段
-            }
-        }
-        resident.setNationality((String) map.get("nationality"));
-        resident.setRegisteredAddress((String) map.get("registeredAddress"));
-        resident.setCurrentAddress((String) map.get("currentAddress"));
-        resident.setOccupation((String) map.get("occupation"));
-        resident.setEducation((String) map.get("education"));
-        if (map.get("maritalStatus") != null) {
-            resident.setMaritalStatus(Integer.valueOf(map.get("maritalStatus").toString()));
-        }
-        resident.setContactPhone((String) map.get("contactPhone"));
-        resident.setEmergencyContact((String) map.get("emergencyContact"));
-        resident.setEmergencyPhone((String) map.get("emergencyPhone"));
-        resident.setRemark((String) map.get("remark"));
-        resident.setAvatar((String) map.get("avatar"));
-        resident.setIdCardPhoto((String) map.get("idCardPhoto"));
-        if (map.get("createTime") != null) {
-            try {
-                String createTimeStr = map.get("createTime").toString();
-                resident.setCreateTime(java.time.LocalDateTime.parse(createTimeStr, dateTimeFormatter));
-                log.debug("成功解析居民 createTime: {}", createTimeStr);
-            } catch (Exception e) {
-                log.warn("解析居民 createTime 失败: {}, 错误: {}", map.get("createTime"), e.getMessage());
-                // 忽略日期解析错误，继续处理其他字段
-            }
-        }
-        if (map.get("updateTime") != null) {
-            try {
-                String updateTimeStr = map.get("updateTime").toString();
-                resident.setUpdateTime(java.time.LocalDateTime.parse(updateTimeStr, dateTimeFormatter));
-                log.debug("成功解析居民 updateTime: {}", updateTimeStr);
-            } catch (Exception e) {
-                log.warn("解析居民 updateTime 失败: {}, 错误: {}", map.get("updateTime"), e.getMessage());
-                // 忽略日期解析错误，继续处理其他字段
-            }
-        }
-        return resident;
-    }
-
     /**
      * 根据ID获取居民
      */
@@ -343,15 +269,30 @@ public class ResidentController {
     }
 
     /**
-     * 获取所有居民列表（用于统计服务）
+     * 按ID游标分页获取居民列表（用于统计服务和搜索服务的批量同步）
+     * 调用方从 lastId=0 开始，每次以返回列表中最后一条记录的ID作为下一次的 lastId，返回数量小于 size 时表示已取完
      */
-    @ApiOperation(value = "获取所有居民列表", notes = "获取所有居民信息，用于统计服务")
-    @GetMapping("/all")
-    public Result<List<Resident>> getAllResidents() {
-        List<Resident> residents = residentService.list();
+    @ApiOperation(value = "游标分页获取居民列表", notes = "按ID升序返回 id > lastId 的居民，用于统计服务和索引同步")
+    @GetMapping("/scroll")
+    public Result<List<Resident>> scrollResidents(
+            @ApiParam(value = "上一页最后一条记录的ID，首页传0", example = "0") @RequestParam(defaultValue = "0") Long lastId,
+            @ApiParam(value = "每页数量，最大5000", example = "1000") @RequestParam(defaultValue = "1000") Integer size) {
+        if (size == null || size <= 0 || size > MAX_SCROLL_SIZE) {
+            size = MAX_SCROLL_SIZE;
+        }
+        List<Resident> residents = residentService.listAfterId(lastId, size);
         return Result.success(residents);
     }
 
+    /**
+     * 按统计维度分组计数（用于统计服务对账，只返回各分组的数量）
+     */
+    @ApiOperation(value = "居民统计分组计数", notes = "按出生日期、性别、创建月份分组计数，用于统计服务对账")
+    @GetMapping("/statistics/buckets")
+    public Result<Map<String, Map<String, Long>>> countStatisticsBuckets() {
+        return Result.success(residentService.countStatisticsBuckets());
+    }
+
     /**
      * 根据身份证号查询居民
      */
@@ -379,15 +320,37 @@ public class ResidentController {
     /**
      * 导出居民列表（Excel）
      */
-    @ApiOperation(value = "导出居民列表", notes = "导出居民列表为Excel文件，支持筛选条件")
+    @ApiOperation(value = "导出居民列表", notes = "导出居民列表为Excel文件，筛选条件与列表查询相同（通过Elasticsearch检索）")
     @GetMapping("/export")
     public void exportResidents(
             @ApiParam(value = "真实姓名（模糊查询）") @RequestParam(required = false) String realName,
             @ApiParam(value = "身份证号（模糊查询）") @RequestParam(required = false) String idCard,
             @ApiParam(value = "现居住地址（模糊查询）") @RequestParam(required = false) String currentAddress,
+            @ApiParam(value = "性别：0-女, 1-男") @RequestParam(required = false) Integer gender,
+            @ApiParam(value = "出生日期起（yyyy-MM-dd）") @RequestParam(required = false) String birthDateFrom,
+            @ApiParam(value = "出生日期止（yyyy-MM-dd）") @RequestParam(required = false) String birthDateTo,
             HttpServletResponse response) {
-        List<ResidentExcelDTO> data = excelExportService.exportResidents(realName, idCard, currentAddress);
-        ExcelUtil.export(response, "居民列表", "居民列表", data, ResidentExcelDTO.class);
+        ExcelUtil.export(response, "居民列表", "居民列表", ResidentExcelDTO.class,
+                excelExportService.exportResidents(realName, idCard, currentAddress, gender, birthDateFrom, birthDateTo));
+    }
+
+    /**
+     * 提交居民导出任务（后台执行）
+     */
+    @ApiOperation(value = "提交居民导出任务", notes = "在后台生成Excel并保存到文件服务，立即返回任务ID，通过 /resident/jobs/{jobId} 查询进度和下载地址")
+    @PostMapping("/export/async")
+    public Result<JobInfo> submitExportJob(
+            @ApiParam(value = "真实姓名（模糊查询）") @RequestParam(required = false) String realName,
+            @ApiParam(value = "身份证号（模糊查询）") @RequestParam(required = false) String idCard,
+            @ApiParam(value = "现居住地址（模糊查询）") @RequestParam(required = false) String currentAddress,
+            @ApiParam(value = "性别：0-女, 1-男") @RequestParam(required = false) Integer gender,
+            @ApiParam(value = "出生日期起（yyyy-MM-dd）") @RequestParam(required = false) String birthDateFrom,
+            @ApiParam(value = "出生日期止（yyyy-MM-dd）") @RequestParam(required = false) String birthDateTo,
+            HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        JobInfo job = excelExportService.submitExportJob(realName, idCard, currentAddress,
+                gender, birthDateFrom, birthDateTo, userId);
+        return Result.success("导出任务已提交", job);
     }
 
     /**
@@ -424,5 +387,28 @@ public class ResidentController {
         Map<String, Object> result = excelExportService.importResidents(file);
         return Result.success("导入完成", result);
     }
+
+    /**
+     * 提交居民导入任务（后台执行）
+     */
+    @ApiOperation(value = "提交居民导入任务", notes = "上传Excel后立即返回任务ID，通过 /resident/jobs/{jobId} 查询进度和失败行")
+    @PostMapping("/import/async")
+    public Result<JobInfo> submitImportJob(
+            @ApiParam(value = "Excel文件", required = true) @RequestParam("file") MultipartFile file,
+            HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        JobInfo job = excelExportService.submitImportJob(file, userId);
+        return Result.success("导入任务已提交", job);
+    }
+
+    /**
+     * 查询导入导出任务
+     */
+    @ApiOperation(value = "查询导入导出任务", notes = "查询当前用户提交的导入、导出任务的状态、进度、失败行和导出文件地址")
+    @GetMapping("/jobs/{jobId}")
+    public Result<JobInfo> getJob(@PathVariable String jobId, HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        return Result.success(jobManager.getJob(jobId, userId));
+    }
 }
 
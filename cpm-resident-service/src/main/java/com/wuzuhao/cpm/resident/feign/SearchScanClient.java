@@ -0,0 +1,28 @@
+package com.wuzuhao.cpm.resident.feign;
+
+import com.wuzuhao.cpm.common.Result;
+import com.wuzuhao.cpm.common.dto.ResidentDocument;
+import com.wuzuhao.cpm.common.dto.SearchFilter;
+import com.wuzuhao.cpm.common.dto.SearchPage;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.cloud.openfeign.SpringQueryMap;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * 搜索服务Feign客户端（导出遍历）
+ * 与列表检索的 {@link SearchServiceClient} 分开配置超时（contextId: cpm-search-scan），每批数据较多，不能按列表检索快速失败
+ */
+@FeignClient(name = "cpm-search-service", contextId = "cpm-search-scan", path = "/search")
+public interface SearchScanClient {
+
+    /**
+     * 逐批遍历居民搜索结果
+     * @param size 每批数量
+     * @param filter 过滤条件，cursor 为上一批返回的游标（第一批为空）
+     */
+    @GetMapping("/resident/scan")
+    Result<SearchPage<ResidentDocument>> scanResident(@RequestParam("keyword") String keyword,
+                                                      @RequestParam("size") Integer size,
+                                                      @SpringQueryMap SearchFilter filter);
+}
@@ -0,0 +1,28 @@
+package com.wuzuhao.cpm.resident.feign;
+
+import com.wuzuhao.cpm.common.Result;
+import com.wuzuhao.cpm.common.dto.ResidentDocument;
+import com.wuzuhao.cpm.common.dto.SearchFilter;
+import com.wuzuhao.cpm.common.dto.SearchPage;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.cloud.openfeign.SpringQueryMap;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * 搜索服务Feign客户端
+ */
+@FeignClient(name = "cpm-search-service", path = "/search")
+public interface SearchServiceClient {
+
+    /**
+     * 搜索居民信息
+     * @param page 页码（从0开始）
+     * @param filter 过滤条件（性别、日期范围等），作为查询参数传递
+     */
+    @GetMapping("/resident")
+    Result<SearchPage<ResidentDocument>> searchResident(@RequestParam("keyword") String keyword,
+                                                        @RequestParam("page") Integer page,
+                                                        @RequestParam("size") Integer size,
+                                                        @SpringQueryMap SearchFilter filter);
+}
@@ -4,6 +4,7 @@ import com.wuzuhao.cpm.common.Result;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -23,5 +24,16 @@ public interface UserServiceClient {
      */
     @PostMapping("/register")
     Result<Object> register(@RequestBody Map<String, Object> user);
-}
 
+    /**
+     * 批量注册用户，逐条返回结果（成功返回id，失败返回message），顺序与请求一致
+     */
+    @PostMapping("/register/batch")
+    Result<List<Map<String, Object>>> registerBatch(@RequestBody List<Map<String, Object>> users);
+
+    /**
+     * 撤销批量注册，物理删除居民写入失败的用户
+     */
+    @PostMapping("/register/batch/rollback")
+    Result<Integer> rollbackRegisterBatch(@RequestBody List<Long> ids);
+}
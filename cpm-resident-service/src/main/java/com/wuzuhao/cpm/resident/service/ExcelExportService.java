@@ -3,14 +3,21 @@ package com.wuzuhao.cpm.resident.service;
 import com.alibaba.excel.EasyExcel;
 import com.alibaba.excel.context.AnalysisContext;
 import com.alibaba.excel.read.listener.ReadListener;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.wuzuhao.cpm.common.Result;
+import com.wuzuhao.cpm.common.dto.JobInfo;
+import com.wuzuhao.cpm.common.dto.ResidentDocument;
+import com.wuzuhao.cpm.common.dto.SearchFilter;
 import com.wuzuhao.cpm.resident.dto.excel.ResidentExcelDTO;
 import com.wuzuhao.cpm.resident.dto.excel.ResidentImportDTO;
 import com.wuzuhao.cpm.resident.entity.Resident;
+import com.wuzuhao.cpm.resident.feign.SearchScanClient;
 import com.wuzuhao.cpm.resident.feign.UserServiceClient;
 import com.wuzuhao.cpm.resident.service.impl.ResidentServiceImpl;
 import com.wuzuhao.cpm.util.ExcelUtil;
+import com.wuzuhao.cpm.util.ExportFileUploader;
+import com.wuzuhao.cpm.util.JobContext;
+import com.wuzuhao.cpm.util.JobManager;
+import com.wuzuhao.cpm.util.ScrollUtil;
 import com.wuzuhao.cpm.util.ValidationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,16 +28,21 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * Excel导出服务（居民服务专用）
@@ -40,6 +52,9 @@ public class ExcelExportService {
 
     private static final Logger log = LoggerFactory.getLogger(ExcelExportService.class);
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final int IMPORT_BATCH_SIZE = 500; // 导入每批处理的行数
+    private static final int EXPORT_BATCH_SIZE = 1000; // 导出时每批从搜索服务拉取的行数
+    private static final String DEFAULT_PASSWORD = "12345678"; // 导入用户的默认密码（注册要求至少8位）
 
     @Autowired
     private ResidentServiceImpl residentService;
@@ -47,56 +62,68 @@ public class ExcelExportService {
     @Autowired
     private UserServiceClient userServiceClient;
 
+    @Autowired
+    private ExportFileUploader exportFileUploader;
+
+    @Autowired
+    private SearchScanClient searchScanClient;
+
+    @Autowired
+    private JobManager jobManager;
+
     /**
      * 导出居民列表
+     * 与列表页使用相同的 ES 查询（关键词 + 过滤条件），由搜索服务在 PIT 上逐批返回，每次只在内存中保留一批数据
      */
-    public List<ResidentExcelDTO> exportResidents(String realName, String idCard, String currentAddress) {
-        LambdaQueryWrapper<Resident> wrapper = new LambdaQueryWrapper<>();
-        if (realName != null && !realName.isEmpty()) {
-            wrapper.like(Resident::getRealName, realName);
-        }
-        if (idCard != null && !idCard.isEmpty()) {
-            wrapper.like(Resident::getIdCard, idCard);
-        }
-        if (currentAddress != null && !currentAddress.isEmpty()) {
-            wrapper.like(Resident::getCurrentAddress, currentAddress);
-        }
-        wrapper.orderByDesc(Resident::getCreateTime);
-        
-        List<Resident> residents = residentService.list(wrapper);
-        
-        // 转换为Excel DTO
-        return residents.stream().map(resident -> {
-            ResidentExcelDTO dto = new ResidentExcelDTO();
-            dto.setId(resident.getId());
-            dto.setRealName(resident.getRealName());
-            dto.setIdCard(resident.getIdCard());
-            dto.setGender(resident.getGender() != null && resident.getGender() == 1 ? "男" : "女");
-            dto.setBirthDate(ExcelUtil.formatDate(resident.getBirthDate()));
-            dto.setNationality(resident.getNationality());
-            dto.setRegisteredAddress(resident.getRegisteredAddress());
-            dto.setCurrentAddress(resident.getCurrentAddress());
-            dto.setOccupation(resident.getOccupation());
-            dto.setEducation(resident.getEducation());
-            
-            // 婚姻状况
-            String maritalStatus = "";
-            if (resident.getMaritalStatus() != null) {
-                switch (resident.getMaritalStatus()) {
-                    case 0: maritalStatus = "未婚"; break;
-                    case 1: maritalStatus = "已婚"; break;
-                    case 2: maritalStatus = "离异"; break;
-                    case 3: maritalStatus = "丧偶"; break;
-                }
+    public ExcelUtil.ChunkLoader<ResidentExcelDTO> exportResidents(String realName, String idCard, String currentAddress,
+                                                                  Integer gender, String birthDateFrom, String birthDateTo) {
+        String keyword = SearchFilter.keyword(realName, idCard, currentAddress);
+        return ScrollUtil.searchLoader(cursor -> {
+            SearchFilter filter = new SearchFilter();
+            filter.setGender(gender);
+            if (birthDateFrom != null || birthDateTo != null) {
+                filter.setDateField("birthDate");
+                filter.setDateFrom(birthDateFrom);
+                filter.setDateTo(birthDateTo);
             }
-            dto.setMaritalStatus(maritalStatus);
-            
-            dto.setContactPhone(resident.getContactPhone());
-            dto.setEmergencyContact(resident.getEmergencyContact());
-            dto.setEmergencyPhone(resident.getEmergencyPhone());
-            dto.setCreateTime(ExcelUtil.formatDateTime(resident.getCreateTime()));
-            return dto;
-        }).collect(Collectors.toList());
+            filter.setCursor(cursor);
+            return searchScanClient.scanResident(keyword, EXPORT_BATCH_SIZE, filter);
+        }, this::toExcelDTO);
+    }
+
+    /**
+     * 转换为Excel DTO
+     */
+    private ResidentExcelDTO toExcelDTO(ResidentDocument resident) {
+        ResidentExcelDTO dto = new ResidentExcelDTO();
+        dto.setId(resident.getId());
+        dto.setRealName(resident.getRealName());
+        dto.setIdCard(resident.getIdCard());
+        dto.setGender(resident.getGender() != null && resident.getGender() == 1 ? "男" : "女");
+        dto.setBirthDate(ExcelUtil.formatDate(resident.getBirthDate()));
+        dto.setNationality(resident.getNationality());
+        dto.setRegisteredAddress(resident.getRegisteredAddress());
+        dto.setCurrentAddress(resident.getCurrentAddress());
+        dto.setOccupation(resident.getOccupation());
+        dto.setEducation(resident.getEducation());
+
+        // 婚姻状况
+        String maritalStatus = "";
+        if (resident.getMaritalStatus() != null) {
+            switch (resident.getMaritalStatus()) {
+                case 0: maritalStatus = "未婚"; break;
+                case 1: maritalStatus = "已婚"; break;
+                case 2: maritalStatus = "离异"; break;
+                case 3: maritalStatus = "丧偶"; break;
+            }
+        }
+        dto.setMaritalStatus(maritalStatus);
+
+        dto.setContactPhone(resident.getContactPhone());
+        dto.setEmergencyContact(resident.getEmergencyContact());
+        dto.setEmergencyPhone(resident.getEmergencyPhone());
+        dto.setCreateTime(ExcelUtil.formatDateTime(resident.getCreateTime()));
+        return dto;
     }
 
     /**
@@ -140,153 +167,296 @@ public class ExcelExportService {
         }
     }
 
+    /**
+     * 提交居民导出任务，导出文件写入文件服务，任务完成后通过 fileUrl 下载
+     */
+    public JobInfo submitExportJob(String realName, String idCard, String currentAddress,
+                                   Integer gender, String birthDateFrom, String birthDateTo, Long userId) {
+        return jobManager.submit("resident-export", userId, context -> {
+            ExcelUtil.ChunkLoader<ResidentExcelDTO> loader = exportResidents(realName, idCard, currentAddress,
+                    gender, birthDateFrom, birthDateTo);
+            File file = ExcelUtil.exportToTempFile("居民列表", ResidentExcelDTO.class, () -> {
+                List<ResidentExcelDTO> chunk = loader.next();
+                context.addSuccess(chunk.size());
+                return chunk;
+            });
+            try {
+                context.setFileUrl(exportFileUploader.upload(file, "居民列表.xlsx"));
+            } finally {
+                Files.deleteIfExists(file.toPath());
+            }
+        });
+    }
+
+    /**
+     * 提交居民导入任务，进度和失败行通过任务状态查询
+     */
+    public JobInfo submitImportJob(MultipartFile file, Long userId) {
+        if (file == null || file.isEmpty()) {
+            throw new RuntimeException("文件不能为空");
+        }
+        // 请求结束后上传的临时文件会被删除，先转存一份供后台任务读取
+        File tempFile;
+        try {
+            tempFile = File.createTempFile("cpm-import-", ".xlsx");
+            file.transferTo(tempFile);
+        } catch (IOException e) {
+            throw new RuntimeException("保存上传文件失败：" + e.getMessage());
+        }
+        try {
+            return jobManager.submit("resident-import", userId, context -> {
+                try (InputStream inputStream = Files.newInputStream(tempFile.toPath())) {
+                    importResidents(inputStream, new ImportState(context));
+                } finally {
+                    Files.deleteIfExists(tempFile.toPath());
+                }
+            });
+        } catch (RuntimeException e) {
+            if (!tempFile.delete()) {
+                tempFile.deleteOnExit();
+            }
+            throw e;
+        }
+    }
+
     /**
      * 导入居民信息
      */
     public Map<String, Object> importResidents(MultipartFile file) {
+        ImportState state = new ImportState(null);
+        try (InputStream inputStream = file.getInputStream()) {
+            importResidents(inputStream, state);
+        } catch (IOException e) {
+            throw new RuntimeException("读取Excel文件失败：" + e.getMessage());
+        }
+
         Map<String, Object> result = new HashMap<>();
-        List<Map<String, Object>> errors = new ArrayList<>();
-        int successCount = 0;
-        int failCount = 0;
-        int rowNum = 2; // Excel行号从2开始（第1行是表头）
+        result.put("successCount", state.successCount);
+        result.put("failCount", state.failCount);
+        result.put("errors", state.errors);
+        return result;
+    }
 
+    /**
+     * 边读边处理：每读满 {@link #IMPORT_BATCH_SIZE} 行处理一批，查重、创建用户、写入居民都按批执行，不再逐行远程调用
+     */
+    private void importResidents(InputStream inputStream, ImportState state) {
         try {
-            List<ResidentImportDTO> importData = new ArrayList<>();
-            
-            // 读取Excel文件
-            EasyExcel.read(file.getInputStream(), ResidentImportDTO.class, new ReadListener<ResidentImportDTO>() {
+            EasyExcel.read(inputStream, ResidentImportDTO.class, new ReadListener<ResidentImportDTO>() {
+                private final List<ImportRow> chunk = new ArrayList<>(IMPORT_BATCH_SIZE);
+
                 @Override
                 public void invoke(ResidentImportDTO data, AnalysisContext context) {
-                    importData.add(data);
+                    if (state.job != null && !state.totalReported) {
+                        // 预估总行数（不含表头），用于显示进度
+                        Integer total = context.readSheetHolder().getApproximateTotalRowNumber();
+                        state.job.setTotal(total != null ? Math.max(total - 1, 0) : null);
+                        state.totalReported = true;
+                    }
+                    // Excel行号：行索引从0开始，第1行是表头
+                    chunk.add(new ImportRow(context.readRowHolder().getRowIndex() + 1, data));
+                    if (chunk.size() >= IMPORT_BATCH_SIZE) {
+                        importChunk(chunk, state);
+                        chunk.clear();
+                    }
                 }
 
                 @Override
                 public void doAfterAllAnalysed(AnalysisContext context) {
-                    // 读取完成
+                    if (!chunk.isEmpty()) {
+                        importChunk(chunk, state);
+                        chunk.clear();
+                    }
                 }
             }).sheet().doRead();
+        } catch (Exception e) {
+            log.error("读取Excel文件失败，已导入 {} 条", state.successCount, e);
+            throw new RuntimeException("读取Excel文件失败（已导入 " + state.successCount + " 条）：" + e.getMessage());
+        }
+    }
 
-            // 处理导入数据
-            for (ResidentImportDTO dto : importData) {
-                rowNum++;
-                try {
-                    // 数据验证
-                    String errorMsg = validateResidentImport(dto);
-                    if (errorMsg != null) {
-                        Map<String, Object> error = new HashMap<>();
-                        error.put("row", rowNum);
-                        error.put("message", errorMsg);
-                        errors.add(error);
-                        failCount++;
-                        continue;
-                    }
+    /**
+     * 导入一批数据，异常只影响本批中尚未处理完的行
+     */
+    private void importChunk(List<ImportRow> rows, ImportState state) {
+        List<ImportRow> pending = new ArrayList<>(rows.size());
+        // 格式校验、文件内查重
+        for (ImportRow row : rows) {
+            String errorMsg = validateResidentImport(row.data);
+            if (errorMsg == null && !state.idCards.add(row.data.getIdCard())) {
+                errorMsg = "身份证号在文件中重复：" + row.data.getIdCard();
+            }
+            if (errorMsg != null) {
+                state.fail(row.rowNum, errorMsg);
+            } else {
+                pending.add(row);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
 
-                    // 检查身份证号是否已存在
-                    Resident existResident = residentService.getByIdCard(dto.getIdCard());
-                    if (existResident != null) {
-                        Map<String, Object> error = new HashMap<>();
-                        error.put("row", rowNum);
-                        error.put("message", "身份证号已存在：" + dto.getIdCard());
-                        errors.add(error);
-                        failCount++;
-                        continue;
-                    }
+        try {
+            // 检查身份证号是否已存在（一次 IN 查询）
+            List<String> idCards = new ArrayList<>(pending.size());
+            for (ImportRow row : pending) {
+                idCards.add(row.data.getIdCard());
+            }
+            Set<String> existing = residentService.findExistingIdCards(idCards);
+            List<ImportRow> candidates = new ArrayList<>(pending.size());
+            for (ImportRow row : pending) {
+                if (existing.contains(row.data.getIdCard())) {
+                    state.fail(row.rowNum, "身份证号已存在：" + row.data.getIdCard());
+                } else {
+                    candidates.add(row);
+                }
+            }
+            pending = candidates;
+            if (pending.isEmpty()) {
+                return;
+            }
 
-                    // 通过Feign调用用户服务创建用户
-                    Map<String, Object> userParams = new HashMap<>();
-                    userParams.put("username", dto.getIdCard()); // 使用身份证号作为用户名
-                    userParams.put("password", "123456"); // 默认密码
-                    userParams.put("realName", dto.getRealName());
-                    userParams.put("role", "USER");
-                    userParams.put("status", 1);
-                    
-                    Result<Object> userResult = userServiceClient.register(userParams);
-                    if (userResult == null || userResult.getCode() != 200) {
-                        Map<String, Object> error = new HashMap<>();
-                        error.put("row", rowNum);
-                        error.put("message", "创建用户失败：" + (userResult != null ? userResult.getMessage() : "未知错误"));
-                        errors.add(error);
-                        failCount++;
-                        continue;
-                    }
-                    
-                    // 获取用户ID
-                    Long userId = null;
-                    if (userResult.getData() != null) {
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> userData = (Map<String, Object>) userResult.getData();
-                        if (userData.get("id") != null) {
-                            userId = Long.valueOf(userData.get("id").toString());
-                        }
-                    }
-                    
-                    if (userId == null) {
-                        Map<String, Object> error = new HashMap<>();
-                        error.put("row", rowNum);
-                        error.put("message", "无法获取用户ID");
-                        errors.add(error);
-                        failCount++;
-                        continue;
-                    }
+            // 通过Feign调用用户服务批量创建用户
+            List<Map<String, Object>> userParams = new ArrayList<>(pending.size());
+            for (ImportRow row : pending) {
+                Map<String, Object> params = new HashMap<>();
+                params.put("username", row.data.getIdCard()); // 使用身份证号作为用户名
+                params.put("password", DEFAULT_PASSWORD);
+                params.put("realName", row.data.getRealName());
+                params.put("role", "USER");
+                params.put("status", 1);
+                userParams.add(params);
+            }
+            Result<List<Map<String, Object>>> userResult = userServiceClient.registerBatch(userParams);
+            if (userResult == null || userResult.getCode() != 200 || userResult.getData() == null
+                    || userResult.getData().size() != pending.size()) {
+                String message = "创建用户失败：" + (userResult != null ? userResult.getMessage() : "未知错误");
+                for (ImportRow row : pending) {
+                    state.fail(row.rowNum, message);
+                }
+                return;
+            }
 
-                    // 创建居民信息
-                    Resident resident = new Resident();
-                    resident.setUserId(userId);
-                    resident.setRealName(dto.getRealName());
-                    resident.setIdCard(dto.getIdCard());
-                    resident.setGender("男".equals(dto.getGender()) || "1".equals(dto.getGender()) ? 1 : 0);
-                    
-                    // 解析出生日期
-                    if (dto.getBirthDate() != null && !dto.getBirthDate().isEmpty()) {
-                        try {
-                            resident.setBirthDate(LocalDate.parse(dto.getBirthDate(), DATE_FORMATTER));
-                        } catch (Exception e) {
-                            resident.setBirthDate(null);
-                        }
-                    }
-                    
-                    resident.setNationality(dto.getNationality());
-                    resident.setRegisteredAddress(dto.getRegisteredAddress());
-                    resident.setCurrentAddress(dto.getCurrentAddress());
-                    resident.setOccupation(dto.getOccupation());
-                    resident.setEducation(dto.getEducation());
-                    
-                    // 解析婚姻状况
-                    if (dto.getMaritalStatus() != null) {
-                        switch (dto.getMaritalStatus()) {
-                            case "未婚": resident.setMaritalStatus(0); break;
-                            case "已婚": resident.setMaritalStatus(1); break;
-                            case "离异": resident.setMaritalStatus(2); break;
-                            case "丧偶": resident.setMaritalStatus(3); break;
-                            default: resident.setMaritalStatus(0);
-                        }
-                    }
-                    
-                    resident.setContactPhone(dto.getContactPhone());
-                    resident.setEmergencyContact(dto.getEmergencyContact());
-                    resident.setEmergencyPhone(dto.getEmergencyPhone());
-
-                    residentService.createResident(userId, resident);
-                    successCount++;
-                } catch (Exception e) {
-                    log.error("导入居民信息失败，行号：{}", rowNum, e);
-                    Map<String, Object> error = new HashMap<>();
-                    error.put("row", rowNum);
-                    error.put("message", "导入失败：" + e.getMessage());
-                    errors.add(error);
-                    failCount++;
+            List<ImportRow> created = new ArrayList<>(pending.size());
+            List<Resident> residents = new ArrayList<>(pending.size());
+            for (int i = 0; i < pending.size(); i++) {
+                ImportRow row = pending.get(i);
+                Map<String, Object> userData = userResult.getData().get(i);
+                if (userData == null || userData.get("id") == null) {
+                    state.fail(row.rowNum, "创建用户失败：" + (userData != null ? userData.get("message") : "未知错误"));
+                    continue;
                 }
+                created.add(row);
+                residents.add(toResident(row.data, Long.valueOf(userData.get("id").toString())));
+            }
+            pending = created;
+            if (pending.isEmpty()) {
+                return;
             }
 
-            result.put("successCount", successCount);
-            result.put("failCount", failCount);
-            result.put("errors", errors);
+            // 批量创建居民信息，整批写入失败时逐条补写，写不进去的行撤销对应的用户
+            try {
+                residentService.createResidentsBatch(residents);
+                state.success(residents.size());
+            } catch (Exception e) {
+                log.warn("批量写入居民失败，改为逐条写入，行号：{}-{}：{}",
+                        pending.get(0).rowNum, pending.get(pending.size() - 1).rowNum, e.getMessage());
+                saveOneByOne(pending, residents, state);
+            }
         } catch (Exception e) {
-            log.error("读取Excel文件失败", e);
-            throw new RuntimeException("读取Excel文件失败：" + e.getMessage());
+            log.error("导入居民信息失败，行号：{}-{}", rows.get(0).rowNum, rows.get(rows.size() - 1).rowNum, e);
+            for (ImportRow row : pending) {
+                state.fail(row.rowNum, "导入失败：" + e.getMessage());
+            }
         }
+    }
 
-        return result;
+    /**
+     * 批量写入失败后逐条写入居民，失败的行标记为失败并撤销为其创建的用户，避免留下没有居民信息的账号
+     */
+    private void saveOneByOne(List<ImportRow> rows, List<Resident> residents, ImportState state) {
+        // 批量写入可能已提交、只是后续步骤出错，已写入的不再重复写
+        List<String> idCards = new ArrayList<>(residents.size());
+        for (Resident resident : residents) {
+            idCards.add(resident.getIdCard());
+        }
+        Set<String> saved = residentService.findExistingIdCards(idCards);
+        List<Long> orphanUserIds = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Resident resident = residents.get(i);
+            if (saved.contains(resident.getIdCard())) {
+                state.success(1);
+                continue;
+            }
+            resident.setId(null);
+            try {
+                residentService.createResidentsBatch(Collections.singletonList(resident));
+                state.success(1);
+            } catch (Exception e) {
+                orphanUserIds.add(resident.getUserId());
+                state.fail(rows.get(i).rowNum, "导入失败：" + e.getMessage());
+            }
+        }
+        rollbackUsers(orphanUserIds);
+    }
+
+    /**
+     * 撤销居民写入失败的用户，撤销失败时记录用户id，需要人工清理
+     */
+    private void rollbackUsers(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        try {
+            Result<Integer> result = userServiceClient.rollbackRegisterBatch(userIds);
+            if (result == null || result.getCode() != 200) {
+                log.error("撤销导入创建的用户失败：{}，用户id：{}", result != null ? result.getMessage() : "未知错误", userIds);
+            }
+        } catch (Exception e) {
+            log.error("撤销导入创建的用户失败，用户id：{}", userIds, e);
+        }
+    }
+
+    /**
+     * 导入数据转换为居民信息
+     */
+    private Resident toResident(ResidentImportDTO dto, Long userId) {
+        Resident resident = new Resident();
+        resident.setUserId(userId);
+        resident.setRealName(dto.getRealName());
+        resident.setIdCard(dto.getIdCard());
+        resident.setGender("男".equals(dto.getGender()) || "1".equals(dto.getGender()) ? 1 : 0);
+
+        // 解析出生日期
+        if (dto.getBirthDate() != null && !dto.getBirthDate().isEmpty()) {
+            try {
+                resident.setBirthDate(LocalDate.parse(dto.getBirthDate(), DATE_FORMATTER));
+            } catch (Exception e) {
+                resident.setBirthDate(null);
+            }
+        }
+
+        resident.setNationality(dto.getNationality());
+        resident.setRegisteredAddress(dto.getRegisteredAddress());
+        resident.setCurrentAddress(dto.getCurrentAddress());
+        resident.setOccupation(dto.getOccupation());
+        resident.setEducation(dto.getEducation());
+
+        // 解析婚姻状况
+        if (dto.getMaritalStatus() != null) {
+            switch (dto.getMaritalStatus()) {
+                case "未婚": resident.setMaritalStatus(0); break;
+                case "已婚": resident.setMaritalStatus(1); break;
+                case "离异": resident.setMaritalStatus(2); break;
+                case "丧偶": resident.setMaritalStatus(3); break;
+                default: resident.setMaritalStatus(0);
+            }
+        }
+
+        resident.setContactPhone(dto.getContactPhone());
+        resident.setEmergencyContact(dto.getEmergencyContact());
+        resident.setEmergencyPhone(dto.getEmergencyPhone());
+        return resident;
     }
 
     /**
@@ -317,5 +487,58 @@ public class ExcelExportService {
         }
         return null;
     }
-}
 
+    /**
+     * 导入的一行数据
+     */
+    private static class ImportRow {
+
+        private final int rowNum;
+        private final ResidentImportDTO data;
+
+        private ImportRow(int rowNum, ResidentImportDTO data) {
+            this.rowNum = rowNum;
+            this.data = data;
+        }
+    }
+
+    /**
+     * 一次导入的累计结果
+     * 后台任务导入时失败行记录到任务状态中，同步导入时记录在这里
+     */
+    private static class ImportState {
+
+        private final JobContext job;
+        private boolean totalReported;
+        private int successCount;
+        private int failCount;
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+        /**
+         * 文件中已出现的身份证号，用于文件内查重
+         */
+        private final Set<String> idCards = new HashSet<>();
+
+        private ImportState(JobContext job) {
+            this.job = job;
+        }
+
+        private void success(int count) {
+            successCount += count;
+            if (job != null) {
+                job.addSuccess(count);
+            }
+        }
+
+        private void fail(int rowNum, String message) {
+            failCount++;
+            if (job != null) {
+                job.addError(rowNum, message);
+                return;
+            }
+            Map<String, Object> error = new HashMap<>();
+            error.put("row", rowNum);
+            error.put("message", message);
+            errors.add(error);
+        }
+    }
+}
@@ -4,6 +4,11 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.wuzuhao.cpm.resident.entity.Resident;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * 居民服务接口
  */
@@ -23,6 +28,33 @@ public interface ResidentService extends IService<Resident> {
      */
     Resident createResident(Long userId, Resident resident);
 
+    /**
+     * 批量创建居民（用于批量导入），调用方需已完成格式校验和身份证号查重
+     * 批量写入数据库后，布隆过滤器、缓存失效通知和 ES 同步消息也按批发送
+     * @param residents 居民信息（需已设置 userId）
+     */
+    void createResidentsBatch(List<Resident> residents);
+
+    /**
+     * 查询已存在的身份证号（分批 IN 查询）
+     * @param idCards 身份证号
+     * @return 其中已存在的身份证号
+     */
+    Set<String> findExistingIdCards(Collection<String> idCards);
+
+    /**
+     * 按ID游标分页查询居民（id > lastId，按ID升序），用于批量导出/同步
+     * @param lastId 上一页最后一条记录的ID，首页传0
+     * @param size 每页数量
+     */
+    List<Resident> listAfterId(Long lastId, Integer size);
+
+    /**
+     * 按统计维度分组计数（在数据库中 GROUP BY，只返回各分组的数量），用于统计服务对账
+     * @return 维度 -> (分组 -> 人数)，维度为 birth-date（yyyy-MM-dd）、gender（male / female）、create-month（yyyy-MM）
+     */
+    Map<String, Map<String, Long>> countStatisticsBuckets();
+
     /**
      * 使用 MyBatis-Plus 进行模糊查询（仅用于性能测试）
      * @param keyword 搜索关键词
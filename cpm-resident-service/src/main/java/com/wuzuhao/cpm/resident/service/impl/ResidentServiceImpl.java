@@ -1,6 +1,7 @@
 package com.wuzuhao.cpm.resident.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.wuzuhao.cpm.common.Result;
@@ -11,18 +12,26 @@ import com.wuzuhao.cpm.resident.feign.FileServiceClient;
 import com.wuzuhao.cpm.common.dto.ESSyncMessage;
 import com.wuzuhao.cpm.config.RabbitMQConfig;
 import com.wuzuhao.cpm.resident.service.ResidentService;
-import com.wuzuhao.cpm.util.RedisUtil;
+import com.wuzuhao.cpm.util.NearCache;
+import com.wuzuhao.cpm.util.RedisBloomFilter;
 import com.wuzuhao.cpm.util.ValidationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 居民服务实现类
@@ -35,12 +44,18 @@ public class ResidentServiceImpl extends ServiceImpl<ResidentMapper, Resident> i
     private static final String CACHE_BY_USER_ID = CACHE_PREFIX + "userId:";
     private static final String CACHE_BY_ID_CARD = CACHE_PREFIX + "idCard:";
     private static final long CACHE_EXPIRE_TIME = 3600; // 缓存过期时间：1小时
+    private static final String BLOOM_ID_CARD = "resident:id-card";
+    private static final int BLOOM_BUILD_PAGE_SIZE = 1000;
+    private static final int IMPORT_BATCH_SIZE = 500;
 
     @Autowired
     private UserServiceClient userServiceClient;
 
     @Autowired
-    private RedisUtil redisUtil;
+    private NearCache nearCache;
+
+    @Autowired
+    private RedisBloomFilter redisBloomFilter;
 
     @Autowired
     @Lazy
@@ -55,16 +70,7 @@ public class ResidentServiceImpl extends ServiceImpl<ResidentMapper, Resident> i
         if (id == null) {
             return null;
         }
-        String cacheKey = CACHE_BY_ID + id;
-        Resident resident = (Resident) redisUtil.get(cacheKey);
-        if (resident != null) {
-            return resident;
-        }
-        resident = super.getById(id);
-        if (resident != null) {
-            redisUtil.set(cacheKey, resident, CACHE_EXPIRE_TIME);
-        }
-        return resident;
+        return nearCache.getOrLoad(CACHE_BY_ID + id, CACHE_EXPIRE_TIME, () -> super.getById(id));
     }
 
     @Override
@@ -72,20 +78,16 @@ public class ResidentServiceImpl extends ServiceImpl<ResidentMapper, Resident> i
         if (userId == null) {
             return null;
         }
-        String cacheKey = CACHE_BY_USER_ID + userId;
-        Resident resident = (Resident) redisUtil.get(cacheKey);
-        if (resident != null) {
+        return nearCache.getOrLoad(CACHE_BY_USER_ID + userId, CACHE_EXPIRE_TIME, () -> {
+            LambdaQueryWrapper<Resident> wrapper = new LambdaQueryWrapper<>();
+            wrapper.eq(Resident::getUserId, userId);
+            Resident resident = this.getOne(wrapper);
+            if (resident != null) {
+                // 同时缓存按ID查询的结果
+                nearCache.set(CACHE_BY_ID + resident.getId(), resident, CACHE_EXPIRE_TIME);
+            }
             return resident;
-        }
-        LambdaQueryWrapper<Resident> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Resident::getUserId, userId);
-        resident = this.getOne(wrapper);
-        if (resident != null) {
-            redisUtil.set(cacheKey, resident, CACHE_EXPIRE_TIME);
-            // 同时缓存按ID查询的结果
-            redisUtil.set(CACHE_BY_ID + resident.getId(), resident, CACHE_EXPIRE_TIME);
-        }
-        return resident;
+        });
     }
 
     @Override
@@ -93,23 +95,48 @@ public class ResidentServiceImpl extends ServiceImpl<ResidentMapper, Resident> i
         if (idCard == null || idCard.trim().isEmpty()) {
             return null;
         }
-        String cacheKey = CACHE_BY_ID_CARD + idCard;
-        Resident resident = (Resident) redisUtil.get(cacheKey);
-        if (resident != null) {
-            return resident;
+        // 布隆过滤器判定不存在的身份证号（新增居民、导入查重）直接返回，不访问缓存和数据库
+        if (!redisBloomFilter.mightContain(BLOOM_ID_CARD, idCard)) {
+            return null;
         }
-        LambdaQueryWrapper<Resident> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Resident::getIdCard, idCard);
-        resident = this.getOne(wrapper);
-        if (resident != null) {
-            redisUtil.set(cacheKey, resident, CACHE_EXPIRE_TIME);
-            // 同时缓存按ID和userId查询的结果
-            redisUtil.set(CACHE_BY_ID + resident.getId(), resident, CACHE_EXPIRE_TIME);
-            if (resident.getUserId() != null) {
-                redisUtil.set(CACHE_BY_USER_ID + resident.getUserId(), resident, CACHE_EXPIRE_TIME);
+        return nearCache.getOrLoad(CACHE_BY_ID_CARD + idCard, CACHE_EXPIRE_TIME, () -> {
+            LambdaQueryWrapper<Resident> wrapper = new LambdaQueryWrapper<>();
+            wrapper.eq(Resident::getIdCard, idCard);
+            Resident resident = this.getOne(wrapper);
+            if (resident != null) {
+                // 同时缓存按ID和userId查询的结果
+                nearCache.set(CACHE_BY_ID + resident.getId(), resident, CACHE_EXPIRE_TIME);
+                if (resident.getUserId() != null) {
+                    nearCache.set(CACHE_BY_USER_ID + resident.getUserId(), resident, CACHE_EXPIRE_TIME);
+                }
             }
-        }
-        return resident;
+            return resident;
+        });
+    }
+
+    /**
+     * 启动后构建身份证号布隆过滤器（已构建时跳过）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initIdCardBloomFilter() {
+        redisBloomFilter.buildIfAbsent(BLOOM_ID_CARD, sink -> {
+            long lastId = 0L;
+            while (true) {
+                LambdaQueryWrapper<Resident> wrapper = new LambdaQueryWrapper<>();
+                wrapper.select(Resident::getId, Resident::getIdCard)
+                        .gt(Resident::getId, lastId)
+                        .orderByAsc(Resident::getId)
+                        .last("LIMIT " + BLOOM_BUILD_PAGE_SIZE);
+                List<Resident> residents = this.list(wrapper);
+                for (Resident resident : residents) {
+                    sink.accept(resident.getIdCard());
+                }
+                if (residents.size() < BLOOM_BUILD_PAGE_SIZE) {
+                    return;
+                }
+                lastId = residents.get(residents.size() - 1).getId();
+            }
+        });
     }
 
     /**
@@ -117,16 +144,17 @@ public class ResidentServiceImpl extends ServiceImpl<ResidentMapper, Resident> i
      */
     private void clearResidentCache(Resident resident) {
         if (resident != null) {
-            redisUtil.del(CACHE_BY_ID + resident.getId());
+            // 一次性失效所有相关键，只发送一条跨节点失效通知
+            List<String> keys = new ArrayList<>();
+            keys.add(CACHE_BY_ID + resident.getId());
             if (resident.getUserId() != null) {
-                redisUtil.del(CACHE_BY_USER_ID + resident.getUserId());
+                keys.add(CACHE_BY_USER_ID + resident.getUserId());
             }
             if (resident.getIdCard() != null) {
-                redisUtil.del(CACHE_BY_ID_CARD + resident.getIdCard());
+                keys.add(CACHE_BY_ID_CARD + resident.getIdCard());
             }
+            nearCache.evict(keys.toArray(new String[0]));
         }
-        // 清除统计缓存（统计数据会因居民数据变化而失效）
-        redisUtil.deleteByPattern("statistics:*");
     }
 
     @Override
@@ -174,6 +202,7 @@ public class ResidentServiceImpl extends ServiceImpl<ResidentMapper, Resident> i
         resident.setUserId(userId);
         // createTime 和 updateTime 由 MyBatis-Plus 自动填充
         this.save(resident);
+        redisBloomFilter.put(BLOOM_ID_CARD, resident.getIdCard());
         // 保存后清除相关缓存（虽然新数据可能不在缓存中，但为了保持一致性）
         clearResidentCache(resident);
         // 发送 ES 同步消息
@@ -181,6 +210,57 @@ public class ResidentServiceImpl extends ServiceImpl<ResidentMapper, Resident> i
         return resident;
     }
 
+    @Override
+    public void createResidentsBatch(List<Resident> residents) {
+        if (residents.isEmpty()) {
+            return;
+        }
+        // 批量写入（JDBC batch），createTime 和 updateTime 由 MyBatis-Plus 自动填充
+        this.saveBatch(residents, IMPORT_BATCH_SIZE);
+        List<String> idCards = new ArrayList<>(residents.size());
+        List<String> cacheKeys = new ArrayList<>();
+        List<ESSyncMessage> messages = new ArrayList<>(residents.size());
+        for (Resident resident : residents) {
+            idCards.add(resident.getIdCard());
+            // 之前按身份证号、userId 查询时可能缓存了空值，一并失效
+            cacheKeys.add(CACHE_BY_ID_CARD + resident.getIdCard());
+            if (resident.getUserId() != null) {
+                cacheKeys.add(CACHE_BY_USER_ID + resident.getUserId());
+            }
+            messages.add(ESSyncMessage.create("resident_index", resident.getId(), convertToMap(resident)));
+        }
+        redisBloomFilter.putAll(BLOOM_ID_CARD, idCards);
+        nearCache.evict(cacheKeys.toArray(new String[0]));
+        sendESSyncMessages(messages);
+    }
+
+    @Override
+    public Set<String> findExistingIdCards(Collection<String> idCards) {
+        Set<String> existing = new HashSet<>();
+        List<String> batch = new ArrayList<>();
+        for (String idCard : idCards) {
+            batch.add(idCard);
+            if (batch.size() >= IMPORT_BATCH_SIZE) {
+                existing.addAll(selectExistingIdCards(batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            existing.addAll(selectExistingIdCards(batch));
+        }
+        return existing;
+    }
+
+    private Set<String> selectExistingIdCards(List<String> idCards) {
+        LambdaQueryWrapper<Resident> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(Resident::getIdCard).in(Resident::getIdCard, idCards);
+        Set<String> existing = new HashSet<>();
+        for (Resident resident : this.list(wrapper)) {
+            existing.add(resident.getIdCard());
+        }
+        return existing;
+    }
+
     @Override
     public boolean updateById(Resident resident) {
         // 更新前获取旧数据，用于清除缓存和删除旧图片
@@ -205,11 +285,17 @@ public class ResidentServiceImpl extends ServiceImpl<ResidentMapper, Resident> i
         
         boolean result = super.updateById(resident);
         if (result) {
+            if (resident.getIdCard() != null) {
+                redisBloomFilter.put(BLOOM_ID_CARD, resident.getIdCard());
+            }
             // 清除相关缓存
             clearResidentCache(oldResident);
             clearResidentCache(resident);
-            // 发送 ES 同步消息
-            sendESSyncMessage(ESSyncMessage.update("resident_index", resident.getId(), convertToMap(resident)));
+            // 发送 ES 同步消息（请求中的实体只包含要修改的字段，重新查询出完整记录再同步）
+            Resident stored = super.getById(resident.getId());
+            if (stored != null) {
+                sendESSyncMessage(ESSyncMessage.update("resident_index", stored.getId(), convertToMap(stored)));
+            }
         }
         return result;
     }
@@ -238,6 +324,23 @@ public class ResidentServiceImpl extends ServiceImpl<ResidentMapper, Resident> i
         return result;
     }
     
+    /**
+     * 批量发送 ES 同步消息：在同一个 Channel 上连续发送，不必每条消息都获取一次 Channel
+     */
+    private void sendESSyncMessages(List<ESSyncMessage> messages) {
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (ESSyncMessage message : messages) {
+                    operations.convertAndSend(RabbitMQConfig.RESIDENT_SYNC_EXCHANGE, RabbitMQConfig.RESIDENT_SYNC_ROUTING_KEY, message);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            // 消息发送失败不影响主流程，只记录日志
+            log.warn("批量发送 ES 同步消息失败: {}", e.getMessage(), e);
+        }
+    }
+
     /**
      * 发送 ES 同步消息
      */
@@ -283,6 +386,7 @@ public class ResidentServiceImpl extends ServiceImpl<ResidentMapper, Resident> i
             map.put("avatar", resident.getAvatar());
             map.put("idCardPhoto", resident.getIdCardPhoto());
             map.put("remark", resident.getRemark());
+            map.put("deleted", resident.getDeleted() != null ? resident.getDeleted() : 0);
             // 将 LocalDateTime 转换为字符串格式（yyyy-MM-dd HH:mm:ss），以便前端正确显示
             DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
             if (resident.getCreateTime() != null) {
@@ -295,6 +399,45 @@ public class ResidentServiceImpl extends ServiceImpl<ResidentMapper, Resident> i
         return map;
     }
 
+    @Override
+    public List<Resident> listAfterId(Long lastId, Integer size) {
+        // 基于主键的游标分页，每页都走主键索引范围扫描，不会像 OFFSET 一样越翻越慢
+        LambdaQueryWrapper<Resident> wrapper = new LambdaQueryWrapper<>();
+        wrapper.gt(Resident::getId, lastId != null ? lastId : 0L)
+                .orderByAsc(Resident::getId)
+                .last("LIMIT " + size);
+        return this.list(wrapper);
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> countStatisticsBuckets() {
+        // 分组口径与统计服务的计数器一致：gender为1计为男性，其余计为女性；日期为空的记录不计入对应维度
+        Map<String, Map<String, Long>> result = new HashMap<>();
+        result.put("birth-date", countByBucket("DATE_FORMAT(birth_date, '%Y-%m-%d')", "birth_date"));
+        result.put("gender", countByBucket("CASE WHEN gender = 1 THEN 'male' ELSE 'female' END", null));
+        result.put("create-month", countByBucket("DATE_FORMAT(create_time, '%Y-%m')", "create_time"));
+        return result;
+    }
+
+    /**
+     * 按分组表达式计数
+     * @param bucketExpression 分组表达式
+     * @param notNullColumn 为空时不参与计数的列，可为null
+     */
+    private Map<String, Long> countByBucket(String bucketExpression, String notNullColumn) {
+        QueryWrapper<Resident> wrapper = new QueryWrapper<>();
+        wrapper.select(bucketExpression + " AS bucket", "COUNT(*) AS total");
+        if (notNullColumn != null) {
+            wrapper.isNotNull(notNullColumn);
+        }
+        wrapper.groupBy("bucket");
+        Map<String, Long> buckets = new HashMap<>();
+        for (Map<String, Object> row : this.listMaps(wrapper)) {
+            buckets.put(String.valueOf(row.get("bucket")), ((Number) row.get("total")).longValue());
+        }
+        return buckets;
+    }
+
     /**
      * 使用 MyBatis-Plus 进行模糊查询（仅用于性能测试）
      * 模拟原来的 MyBatis-Plus 查询逻辑
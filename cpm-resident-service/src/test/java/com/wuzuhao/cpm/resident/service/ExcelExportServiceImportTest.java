@@ -0,0 +1,138 @@
+package com.wuzuhao.cpm.resident.service;
+
+import com.alibaba.excel.EasyExcel;
+import com.wuzuhao.cpm.common.Result;
+import com.wuzuhao.cpm.resident.dto.excel.ResidentImportDTO;
+import com.wuzuhao.cpm.resident.entity.Resident;
+import com.wuzuhao.cpm.resident.feign.UserServiceClient;
+import com.wuzuhao.cpm.resident.service.impl.ResidentServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 居民导入测试
+ * 用户服务和居民写入使用 mock，验证居民写入失败时撤销已创建的用户
+ */
+public class ExcelExportServiceImportTest {
+
+    private static final List<String> ID_CARDS = Arrays.asList(
+            "110101199001010011", "110101199001010022", "110101199001010033");
+    private static final List<Long> USER_IDS = Arrays.asList(101L, 102L, 103L);
+
+    private ResidentServiceImpl residentService;
+    private UserServiceClient userServiceClient;
+    private ExcelExportService excelExportService;
+
+    @BeforeEach
+    public void setUp() {
+        residentService = mock(ResidentServiceImpl.class);
+        userServiceClient = mock(UserServiceClient.class);
+        when(residentService.findExistingIdCards(anyCollection())).thenReturn(new HashSet<>());
+        when(userServiceClient.registerBatch(anyList())).thenReturn(Result.success(registered()));
+        when(userServiceClient.rollbackRegisterBatch(anyList())).thenReturn(Result.success(1));
+
+        excelExportService = new ExcelExportService();
+        ReflectionTestUtils.setField(excelExportService, "residentService", residentService);
+        ReflectionTestUtils.setField(excelExportService, "userServiceClient", userServiceClient);
+    }
+
+    /**
+     * 整批写入失败后逐条写入，只撤销写不进去的那一行的用户
+     */
+    @Test
+    public void failedResidentRollsBackItsUser() {
+        doAnswer(invocation -> {
+            List<Resident> residents = invocation.getArgument(0);
+            if (residents.size() > 1 || residents.get(0).getUserId().equals(102L)) {
+                throw new RuntimeException("写入居民失败");
+            }
+            return null;
+        }).when(residentService).createResidentsBatch(anyList());
+
+        Map<String, Object> result = excelExportService.importResidents(file());
+
+        assertEquals(2, result.get("successCount"));
+        assertEquals(1, result.get("failCount"));
+        verify(userServiceClient).rollbackRegisterBatch(Collections.singletonList(102L));
+    }
+
+    /**
+     * 所有居民都写入失败时撤销本批创建的全部用户
+     */
+    @Test
+    public void allResidentsFailedRollsBackAllUsers() {
+        doAnswer(invocation -> {
+            throw new RuntimeException("数据库不可用");
+        }).when(residentService).createResidentsBatch(anyList());
+
+        Map<String, Object> result = excelExportService.importResidents(file());
+
+        assertEquals(0, result.get("successCount"));
+        assertEquals(3, result.get("failCount"));
+        verify(userServiceClient).rollbackRegisterBatch(USER_IDS);
+    }
+
+    /**
+     * 批量写入已提交、只是后续步骤出错时，不重复写入，也不撤销用户
+     */
+    @Test
+    public void committedBatchIsNotRolledBack() {
+        when(residentService.findExistingIdCards(anyCollection()))
+                .thenReturn(new HashSet<>(), new HashSet<>(ID_CARDS));
+        doAnswer(invocation -> {
+            throw new RuntimeException("发送同步消息失败");
+        }).when(residentService).createResidentsBatch(anyList());
+
+        Map<String, Object> result = excelExportService.importResidents(file());
+
+        assertEquals(3, result.get("successCount"));
+        assertEquals(0, result.get("failCount"));
+        verify(userServiceClient, never()).rollbackRegisterBatch(anyList());
+    }
+
+    private static MockMultipartFile file() {
+        List<ResidentImportDTO> rows = new ArrayList<>();
+        for (int i = 0; i < ID_CARDS.size(); i++) {
+            ResidentImportDTO row = new ResidentImportDTO();
+            row.setRealName("居民" + i);
+            row.setIdCard(ID_CARDS.get(i));
+            row.setGender("男");
+            rows.add(row);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EasyExcel.write(out, ResidentImportDTO.class).sheet("居民").doWrite(rows);
+        return new MockMultipartFile("file", "residents.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", out.toByteArray());
+    }
+
+    private static List<Map<String, Object>> registered() {
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int i = 0; i < ID_CARDS.size(); i++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("username", ID_CARDS.get(i));
+            item.put("id", USER_IDS.get(i));
+            results.add(item);
+        }
+        return results;
+    }
+}
@@ -48,8 +48,11 @@ public class SearchServiceApplication implements CommandLineRunner {
                 try {
                     // 延迟几秒，确保其他服务已经启动完成
                     Thread.sleep(5000);
-                    searchService.rebuildIndex();
-                    log.info("启动时数据同步完成");
+                    if (searchService.rebuildIndex()) {
+                        log.info("启动时数据同步完成");
+                    } else {
+                        log.info("其他实例正在重建索引，跳过启动时数据同步");
+                    }
                 } catch (Exception e) {
                     log.error("启动时数据同步失败，您可以稍后通过 /search/index/rebuild 接口手动重建索引。错误信息: {}", e.getMessage(), e);
                     // 不抛出异常，允许应用继续启动
@@ -43,15 +43,20 @@ public class ElasticsearchConfig {
     public ObjectMapper objectMapper() {
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.disable(com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper.registerModule(javaTimeModule());
+        return objectMapper;
+    }
 
+    /**
+     * 日期格式与各业务服务及索引中的文档一致（yyyy-MM-dd HH:mm:ss / yyyy-MM-dd）
+     */
+    private static JavaTimeModule javaTimeModule() {
         JavaTimeModule javaTimeModule = new JavaTimeModule();
         javaTimeModule.addSerializer(LocalDateTime.class, new LocalDateTimeSerializer(DATE_TIME_FORMATTER));
         javaTimeModule.addDeserializer(LocalDateTime.class, new LocalDateTimeDeserializer(DATE_TIME_FORMATTER));
         javaTimeModule.addSerializer(LocalDate.class, new LocalDateSerializer(DATE_FORMATTER));
         javaTimeModule.addDeserializer(LocalDate.class, new LocalDateDeserializer(DATE_FORMATTER));
-
-        objectMapper.registerModule(javaTimeModule);
-        return objectMapper;
+        return javaTimeModule;
     }
 
     @Bean
@@ -77,8 +82,11 @@ public class ElasticsearchConfig {
 
     @Bean
     public ElasticsearchTransport elasticsearchTransport(RestClient restClient) {
-        // 使用Jackson作为JSON映射器
-        return new RestClientTransport(restClient, new JacksonJsonpMapper(new ObjectMapper()));
+        // 使用Jackson作为JSON映射器；注册日期模块，搜索结果可直接反序列化为带日期字段的文档类型
+        // 使用独立的 ObjectMapper，避免 JacksonJsonpMapper 修改 Spring MVC 使用的实例
+        ObjectMapper esObjectMapper = new ObjectMapper();
+        esObjectMapper.registerModule(javaTimeModule());
+        return new RestClientTransport(restClient, new JacksonJsonpMapper(esObjectMapper));
     }
 
     @Bean
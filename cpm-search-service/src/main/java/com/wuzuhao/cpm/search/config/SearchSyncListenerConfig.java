@@ -0,0 +1,55 @@
+package com.wuzuhao.cpm.search.config;
+
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+
+/**
+ * 搜索同步消息监听配置
+ *
+ * 同步消息按批次消费：消费者连续拉取消息，攒满 batch-size 条或在 receive-timeout 内没有新消息时交给监听器处理，
+ * 监听器把一个批次合并为一次 _bulk 请求后手动确认。
+ * 每个实例使用一个消费者；部署多个搜索服务实例时各实例并行消费同一队列，不保证同一文档的多次变更按发送顺序写入。
+ */
+@Configuration
+public class SearchSyncListenerConfig {
+
+    /**
+     * 单个批次的最大消息数
+     */
+    @Value("${elasticsearch.sync.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * 等待下一条消息的超时时间（毫秒），超时后立即处理已攒到的消息
+     */
+    @Value("${elasticsearch.sync.receive-timeout-ms:100}")
+    private long receiveTimeoutMs;
+
+    /**
+     * 预取数量，需不小于批次大小，否则批次永远攒不满
+     */
+    @Value("${elasticsearch.sync.prefetch:500}")
+    private int prefetch;
+
+    @Bean
+    @NonNull
+    public SimpleRabbitListenerContainerFactory searchSyncBatchContainerFactory(@NonNull ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+}
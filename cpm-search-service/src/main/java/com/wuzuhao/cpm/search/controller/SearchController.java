@@ -1,6 +1,10 @@
 package com.wuzuhao.cpm.search.controller;
 
 import com.wuzuhao.cpm.common.Result;
+import com.wuzuhao.cpm.common.dto.HouseholdDocument;
+import com.wuzuhao.cpm.common.dto.ResidentDocument;
+import com.wuzuhao.cpm.common.dto.SearchFilter;
+import com.wuzuhao.cpm.common.dto.SearchPage;
 import com.wuzuhao.cpm.search.service.SearchService;
 import com.wuzuhao.cpm.search.wrapper.ESQueryWrapper;
 import io.swagger.annotations.Api;
@@ -24,31 +28,52 @@ public class SearchController {
 
     @ApiOperation("搜索居民信息")
     @GetMapping("/resident")
-    public Result<Map<String, Object>> searchResident(
+    public Result<SearchPage<ResidentDocument>> searchResident(
             @RequestParam String keyword,
             @RequestParam(defaultValue = "0") Integer page,
-            @RequestParam(defaultValue = "10") Integer size) {
-        Map<String, Object> result = searchService.searchResident(keyword, page, size);
+            @RequestParam(defaultValue = "10") Integer size,
+            SearchFilter filter) {
+        SearchPage<ResidentDocument> result = searchService.searchResident(keyword, page, size, filter);
         return Result.success(result);
     }
 
     @ApiOperation("搜索户籍信息")
     @GetMapping("/household")
-    public Result<Map<String, Object>> searchHousehold(
+    public Result<SearchPage<HouseholdDocument>> searchHousehold(
             @RequestParam String keyword,
             @RequestParam(defaultValue = "0") Integer page,
-            @RequestParam(defaultValue = "10") Integer size) {
-        Map<String, Object> result = searchService.searchHousehold(keyword, page, size);
+            @RequestParam(defaultValue = "10") Integer size,
+            SearchFilter filter) {
+        SearchPage<HouseholdDocument> result = searchService.searchHousehold(keyword, page, size, filter);
         return Result.success(result);
     }
 
+    @ApiOperation("逐批遍历居民搜索结果（导出）")
+    @GetMapping("/resident/scan")
+    public Result<SearchPage<ResidentDocument>> scanResident(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "1000") Integer size,
+            SearchFilter filter) {
+        return Result.success(searchService.scanResident(keyword, size, filter));
+    }
+
+    @ApiOperation("逐批遍历户籍搜索结果（导出）")
+    @GetMapping("/household/scan")
+    public Result<SearchPage<HouseholdDocument>> scanHousehold(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "1000") Integer size,
+            SearchFilter filter) {
+        return Result.success(searchService.scanHousehold(keyword, size, filter));
+    }
+
     @ApiOperation("搜索用户信息")
     @GetMapping("/user")
     public Result<Map<String, Object>> searchUser(
             @RequestParam String keyword,
             @RequestParam(defaultValue = "0") Integer page,
-            @RequestParam(defaultValue = "10") Integer size) {
-        Map<String, Object> result = searchService.searchUser(keyword, page, size);
+            @RequestParam(defaultValue = "10") Integer size,
+            SearchFilter filter) {
+        Map<String, Object> result = searchService.searchUser(keyword, page, size, filter);
         return Result.success(result);
     }
 
@@ -57,8 +82,9 @@ public class SearchController {
     public Result<Map<String, Object>> searchAdmin(
             @RequestParam String keyword,
             @RequestParam(defaultValue = "0") Integer page,
-            @RequestParam(defaultValue = "10") Integer size) {
-        Map<String, Object> result = searchService.searchAdmin(keyword, page, size);
+            @RequestParam(defaultValue = "10") Integer size,
+            SearchFilter filter) {
+        Map<String, Object> result = searchService.searchAdmin(keyword, page, size, filter);
         return Result.success(result);
     }
 
@@ -68,17 +94,26 @@ public class SearchController {
             @RequestParam String keyword,
             @RequestParam(defaultValue = "0") Integer page,
             @RequestParam(defaultValue = "10") Integer size,
-            @RequestParam(required = false) Long householdId) {
-        Map<String, Object> result = searchService.searchHouseholdMember(keyword, page, size, householdId);
+            @RequestParam(required = false) Long householdId,
+            SearchFilter filter) {
+        Map<String, Object> result = searchService.searchHouseholdMember(keyword, page, size, householdId, filter);
         return Result.success(result);
     }
 
     @ApiOperation("重建搜索索引")
     @PostMapping("/index/rebuild")
     public Result<Void> rebuildIndex() {
-        searchService.rebuildIndex();
+        if (!searchService.rebuildIndex()) {
+            return Result.error("索引正在重建中，请稍后再试");
+        }
         return Result.success();
     }
+
+    @ApiOperation("查看索引重建吞吐统计")
+    @GetMapping("/index/stats")
+    public Result<Map<String, Map<String, Object>>> getBulkIndexStats() {
+        return Result.success(searchService.getBulkIndexStats());
+    }
     
     // ========== 查询操作接口 ==========
     
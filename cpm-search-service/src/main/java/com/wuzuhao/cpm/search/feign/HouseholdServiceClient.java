@@ -3,6 +3,7 @@ package com.wuzuhao.cpm.search.feign;
 import com.wuzuhao.cpm.common.Result;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 /**
  * 户籍服务Feign客户端
@@ -11,8 +12,10 @@ import org.springframework.web.bind.annotation.GetMapping;
 public interface HouseholdServiceClient {
     
     /**
-     * 获取所有户籍列表（用于索引同步）
+     * 按ID游标分页获取户籍列表（用于索引同步）
+     * @param lastId 上一页最后一条记录的ID，首页传0
+     * @param size 每页数量
      */
-    @GetMapping("/all")
-    Result<?> getAllHouseholds();
+    @GetMapping("/scroll")
+    Result<?> scrollHouseholds(@RequestParam("lastId") Long lastId, @RequestParam("size") Integer size);
 }
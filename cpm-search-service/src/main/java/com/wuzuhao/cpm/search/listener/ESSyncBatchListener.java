@@ -0,0 +1,309 @@
+package com.wuzuhao.cpm.search.listener;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.DeleteOperation;
+import co.elastic.clients.elasticsearch.core.bulk.IndexOperation;
+import com.rabbitmq.client.Channel;
+import com.wuzuhao.cpm.common.dto.ESSyncMessage;
+import com.wuzuhao.cpm.config.RabbitMQConfig;
+import com.wuzuhao.cpm.search.util.ESDocumentUtil;
+import com.wuzuhao.cpm.search.util.ElasticsearchIndexUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ES 同步消息批量监听器
+ *
+ * 消费各业务服务发布的 {@link ESSyncMessage}，一个批次内对同一文档（索引 + ID）的多次变更只保留最后一次，
+ * 合并为一次 _bulk 请求写入 ES，全部处理完成后手动确认整个批次。
+ * - ES 不可用或条目被拒绝(429/5xx)：退避重试，仍失败则整批重新入队，由下一次投递重试
+ * - 无法解析的消息或被 ES 拒绝的文档（如字段映射错误）：转发到死信队列后确认，避免阻塞后续消息
+ *
+ * 索引重建期间变更同时写入未发布的新版本（每个批次都从 ES 的 {别名}_building 别名查询，重建由哪个实例发起都能看到）。灌数以 create 方式写入（见 {@link com.wuzuhao.cpm.search.util.BulkIndexer}），
+ * 遇到已存在的文档会跳过，所以增量写入不会被灌数拉取的旧快照覆盖；删除在新版本中写成 deleted=1 的墓碑文档，
+ * 防止灌数随后把已删除的数据重新写入，墓碑在发布新版本时清理。
+ */
+@Slf4j
+@Component
+public class ESSyncBatchListener {
+
+    /**
+     * 死信消息头：进入死信队列的原因
+     */
+    private static final String DEAD_LETTER_REASON_HEADER = "x-dead-letter-reason";
+
+    /**
+     * 死信消息头：消息原本所在的队列
+     */
+    private static final String ORIGINAL_QUEUE_HEADER = "x-original-queue";
+
+    @Autowired
+    private ElasticsearchClient elasticsearchClient;
+
+    @Autowired
+    private ElasticsearchIndexUtil indexUtil;
+
+    @Autowired
+    private MessageConverter messageConverter;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    /**
+     * 写入失败时的最大重试次数
+     */
+    @Value("${elasticsearch.sync.max-retries:3}")
+    private int maxRetries;
+
+    /**
+     * 首次重试的退避时间（毫秒），之后每次翻倍
+     */
+    @Value("${elasticsearch.sync.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+
+    @RabbitListener(queues = {
+            RabbitMQConfig.RESIDENT_SYNC_QUEUE,
+            RabbitMQConfig.HOUSEHOLD_SYNC_QUEUE,
+            RabbitMQConfig.USER_SYNC_QUEUE,
+            RabbitMQConfig.ADMIN_SYNC_QUEUE,
+            RabbitMQConfig.HOUSEHOLD_MEMBER_SYNC_QUEUE
+    }, containerFactory = "searchSyncBatchContainerFactory")
+    public void onMessages(List<Message> messages, Channel channel) throws IOException {
+        if (messages.isEmpty()) {
+            return;
+        }
+        long lastDeliveryTag = messages.get(messages.size() - 1).getMessageProperties().getDeliveryTag();
+        try {
+            List<Message> deadLetters = new ArrayList<>();
+            Map<String, PendingDocument> documents = coalesce(messages, deadLetters);
+            if (!documents.isEmpty() && !write(documents, deadLetters)) {
+                requeue(channel, lastDeliveryTag, messages.size());
+                return;
+            }
+            for (Message deadLetter : deadLetters) {
+                rabbitTemplate.send(RabbitMQConfig.SEARCH_SYNC_DEAD_LETTER_EXCHANGE,
+                        RabbitMQConfig.SEARCH_SYNC_DEAD_LETTER_ROUTING_KEY, deadLetter);
+            }
+            channel.basicAck(lastDeliveryTag, true);
+            log.debug("ES同步批次处理完成，消息数: {}, 文档数: {}, 死信数: {}",
+                    messages.size(), documents.size(), deadLetters.size());
+        } catch (Exception e) {
+            log.error("ES同步批次处理失败，消息数: {}", messages.size(), e);
+            requeue(channel, lastDeliveryTag, messages.size());
+        }
+    }
+
+    /**
+     * 解析消息并按（索引, ID）合并，同一文档只保留最后一次变更
+     */
+    private Map<String, PendingDocument> coalesce(List<Message> messages, List<Message> deadLetters) {
+        Map<String, PendingDocument> documents = new LinkedHashMap<>();
+        for (Message message : messages) {
+            ESSyncMessage syncMessage;
+            try {
+                Object converted = messageConverter.fromMessage(message);
+                if (!(converted instanceof ESSyncMessage)) {
+                    deadLetters.add(markDeadLetter(message, "消息类型不正确"));
+                    continue;
+                }
+                syncMessage = (ESSyncMessage) converted;
+            } catch (Exception e) {
+                deadLetters.add(markDeadLetter(message, "消息解析失败: " + e.getMessage()));
+                continue;
+            }
+            if (syncMessage.getIndex() == null || syncMessage.getId() == null) {
+                deadLetters.add(markDeadLetter(message, "消息缺少索引或ID"));
+                continue;
+            }
+            if (!isDelete(syncMessage) && syncMessage.getData() == null) {
+                deadLetters.add(markDeadLetter(message, "新增/更新消息缺少数据"));
+                continue;
+            }
+
+            String key = syncMessage.getIndex() + "/" + syncMessage.getId();
+            PendingDocument document = documents.remove(key);
+            if (document == null) {
+                document = new PendingDocument(syncMessage.getIndex(), syncMessage.getId().toString());
+            }
+            document.latest = syncMessage;
+            document.sources.add(message);
+            documents.put(key, document);
+        }
+        return documents;
+    }
+
+    /**
+     * 把合并后的变更写入 ES；重建进行中时同时写入未发布的新版本
+     * @return 是否处理完成（false 表示需要整批重新入队）
+     */
+    private boolean write(Map<String, PendingDocument> documents, List<Message> deadLetters)
+            throws IOException, InterruptedException {
+        // 一个批次内每个索引只查询一次正在重建的版本
+        Map<String, String> buildingVersions = new HashMap<>();
+        for (PendingDocument document : documents.values()) {
+            if (!buildingVersions.containsKey(document.index)) {
+                buildingVersions.put(document.index, indexUtil.getBuildingVersion(document.index));
+            }
+        }
+
+        List<BulkOperation> operations = new ArrayList<>();
+        List<PendingDocument> owners = new ArrayList<>();
+        for (PendingDocument document : documents.values()) {
+            operations.add(toOperation(document.index, document, false));
+            owners.add(document);
+            String buildingVersion = buildingVersions.get(document.index);
+            if (buildingVersion != null) {
+                operations.add(toOperation(buildingVersion, document, true));
+                owners.add(document);
+            }
+        }
+
+        Set<PendingDocument> rejected = new LinkedHashSet<>();
+        for (int attempt = 0; ; attempt++) {
+            List<BulkOperation> toSend = operations;
+            BulkResponse response;
+            try {
+                response = elasticsearchClient.bulk(BulkRequest.of(r -> r.operations(toSend)));
+            } catch (IOException e) {
+                if (attempt >= maxRetries) {
+                    log.error("ES同步写入失败，已重试 {} 次: {}", maxRetries, e.getMessage());
+                    return false;
+                }
+                log.warn("ES同步写入请求失败，{}ms 后重试（第{}次）: {}", backoff(attempt), attempt + 1, e.getMessage());
+                Thread.sleep(backoff(attempt));
+                continue;
+            }
+
+            List<BulkOperation> retryOperations = new ArrayList<>();
+            List<PendingDocument> retryOwners = new ArrayList<>();
+            if (response.errors()) {
+                List<BulkResponseItem> items = response.items();
+                for (int i = 0; i < items.size(); i++) {
+                    BulkResponseItem item = items.get(i);
+                    if (item.error() == null) {
+                        continue;
+                    }
+                    if (item.status() == 429 || item.status() >= 500) {
+                        retryOperations.add(operations.get(i));
+                        retryOwners.add(owners.get(i));
+                    } else {
+                        log.error("ES同步文档被拒绝 - 索引: {}, ID: {}, 错误类型: {}, 错误原因: {}",
+                                item.index(), item.id(), item.error().type(), item.error().reason());
+                        rejected.add(owners.get(i));
+                    }
+                }
+            }
+            if (retryOperations.isEmpty()) {
+                break;
+            }
+            if (attempt >= maxRetries) {
+                log.error("ES同步有 {} 条在重试 {} 次后仍失败，整批重新入队", retryOperations.size(), maxRetries);
+                return false;
+            }
+            Thread.sleep(backoff(attempt));
+            operations = retryOperations;
+            owners = retryOwners;
+        }
+
+        for (PendingDocument document : rejected) {
+            for (Message source : document.sources) {
+                deadLetters.add(markDeadLetter(source, "ES拒绝写入文档"));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param building 是否写入正在重建的新版本（删除写成墓碑文档）
+     */
+    private BulkOperation toOperation(String index, PendingDocument document, boolean building) {
+        Map<String, Object> data;
+        if (isDelete(document.latest)) {
+            if (!building) {
+                return BulkOperation.of(o -> o
+                    .delete(DeleteOperation.of(d -> d
+                        .index(index)
+                        .id(document.id)
+                    ))
+                );
+            }
+            data = new LinkedHashMap<>();
+            data.put("id", document.latest.getId());
+            data.put("deleted", 1);
+        } else {
+            // 业务服务发送的是数据库中的完整记录（含 deleted、createTime），整体覆盖写入，与索引重建保持一致
+            data = new LinkedHashMap<>(document.latest.getData());
+            ESDocumentUtil.convertDateFields(data);
+        }
+        return BulkOperation.of(o -> o
+            .index(IndexOperation.of(i -> i
+                .index(index)
+                .id(document.id)
+                .document(data)
+            ))
+        );
+    }
+
+    private boolean isDelete(ESSyncMessage message) {
+        return "DELETE".equalsIgnoreCase(String.valueOf(message.getOperation()));
+    }
+
+    private Message markDeadLetter(Message message, String reason) {
+        log.warn("ES同步消息转入死信队列，队列: {}, 原因: {}", message.getMessageProperties().getConsumerQueue(), reason);
+        message.getMessageProperties().setHeader(DEAD_LETTER_REASON_HEADER, reason);
+        message.getMessageProperties().setHeader(ORIGINAL_QUEUE_HEADER, message.getMessageProperties().getConsumerQueue());
+        return message;
+    }
+
+    /**
+     * 整批重新入队；先退避一段时间，避免 ES 不可用时消息被立即重新投递形成空转
+     */
+    private void requeue(Channel channel, long lastDeliveryTag, int count) throws IOException {
+        try {
+            Thread.sleep(retryBackoffMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.basicNack(lastDeliveryTag, true, true);
+        log.warn("ES同步批次已重新入队，消息数: {}", count);
+    }
+
+    private long backoff(int attempt) {
+        return retryBackoffMs << attempt;
+    }
+
+    /**
+     * 一个批次内合并后的单个文档变更
+     */
+    private static class PendingDocument {
+
+        private final String index;
+        private final String id;
+        private ESSyncMessage latest;
+        private final List<Message> sources = new ArrayList<>();
+
+        private PendingDocument(String index, String id) {
+            this.index = index;
+            this.id = id;
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.wuzuhao.cpm.search.service;
 
+import com.wuzuhao.cpm.common.dto.HouseholdDocument;
+import com.wuzuhao.cpm.common.dto.ResidentDocument;
+import com.wuzuhao.cpm.common.dto.SearchFilter;
+import com.wuzuhao.cpm.common.dto.SearchPage;
 import com.wuzuhao.cpm.search.wrapper.ESQueryWrapper;
 
 import java.util.List;
@@ -12,33 +16,66 @@ public interface SearchService {
     
     /**
      * 搜索居民信息
+     * @param filter 过滤条件与分页游标，可为null
+     * @return 搜索结果（total, hits, cursor），hits 为只包含列表字段的文档
      */
-    Map<String, Object> searchResident(String keyword, Integer page, Integer size);
+    SearchPage<ResidentDocument> searchResident(String keyword, Integer page, Integer size, SearchFilter filter);
     
     /**
      * 搜索户籍信息
+     * @param filter 过滤条件与分页游标，可为null
+     * @return 搜索结果（total, hits, cursor），hits 为只包含列表字段的文档
      */
-    Map<String, Object> searchHousehold(String keyword, Integer page, Integer size);
+    SearchPage<HouseholdDocument> searchHousehold(String keyword, Integer page, Integer size, SearchFilter filter);
+    
+    /**
+     * 逐批遍历居民搜索结果（导出使用），查询条件与 {@link #searchResident} 相同
+     * @param size 每批数量
+     * @param filter 过滤条件，cursor 为上一批返回的游标，为空表示从头开始
+     * @return 本批结果（total 只在第一批返回），cursor 为空表示已遍历完
+     */
+    SearchPage<ResidentDocument> scanResident(String keyword, Integer size, SearchFilter filter);
+    
+    /**
+     * 逐批遍历户籍搜索结果（导出使用），查询条件与 {@link #searchHousehold} 相同
+     * @param size 每批数量
+     * @param filter 过滤条件，cursor 为上一批返回的游标，为空表示从头开始
+     * @return 本批结果（total 只在第一批返回），cursor 为空表示已遍历完
+     */
+    SearchPage<HouseholdDocument> scanHousehold(String keyword, Integer size, SearchFilter filter);
     
     /**
      * 搜索用户信息
+     * @param filter 过滤条件与分页游标，可为null
+     * @return 搜索结果（total, hits, cursor）
      */
-    Map<String, Object> searchUser(String keyword, Integer page, Integer size);
+    Map<String, Object> searchUser(String keyword, Integer page, Integer size, SearchFilter filter);
     
     /**
      * 搜索管理员信息
+     * @param filter 过滤条件与分页游标，可为null
+     * @return 搜索结果（total, hits, cursor）
      */
-    Map<String, Object> searchAdmin(String keyword, Integer page, Integer size);
+    Map<String, Object> searchAdmin(String keyword, Integer page, Integer size, SearchFilter filter);
     
     /**
      * 搜索户籍成员信息
+     * @param filter 过滤条件与分页游标，可为null
+     * @return 搜索结果（total, hits, cursor）
      */
-    Map<String, Object> searchHouseholdMember(String keyword, Integer page, Integer size, Long householdId);
+    Map<String, Object> searchHouseholdMember(String keyword, Integer page, Integer size, Long householdId, SearchFilter filter);
     
     /**
      * 重建搜索索引
+     * @return 是否执行了重建（其他实例正在重建时跳过并返回 false）
+     */
+    boolean rebuildIndex();
+
+    /**
+     * 获取最近一次批量写入（索引重建）的吞吐统计
+     * @return 数据名称 -> 统计信息（成功数、失败数、重试数、批次数、字节数、耗时、每秒文档数等）
      */
-    void rebuildIndex();
+    Map<String, Map<String, Object>> getBulkIndexStats();
     
     // ========== 查询操作 ==========
     
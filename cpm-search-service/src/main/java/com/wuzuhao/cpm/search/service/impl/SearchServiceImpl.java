@@ -1,8 +1,6 @@
 package com.wuzuhao.cpm.search.service.impl;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import co.elastic.clients.elasticsearch._types.SortOptions;
-import co.elastic.clients.elasticsearch._types.SortOrder;
 import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
 import co.elastic.clients.elasticsearch._types.query_dsl.MultiMatchQuery;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
@@ -19,9 +17,15 @@ import co.elastic.clients.elasticsearch.core.IndexResponse;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.HitsMetadata;
 import co.elastic.clients.elasticsearch.core.search.TotalHits;
+import co.elastic.clients.json.JsonData;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wuzuhao.cpm.common.Result;
+import com.wuzuhao.cpm.common.dto.HouseholdDocument;
+import com.wuzuhao.cpm.common.dto.ResidentDocument;
+import com.wuzuhao.cpm.common.dto.SearchFilter;
+import com.wuzuhao.cpm.common.dto.SearchPage;
 import com.wuzuhao.cpm.search.feign.AdminServiceClient;
 import com.wuzuhao.cpm.search.feign.HouseholdMemberServiceClient;
 import com.wuzuhao.cpm.search.feign.HouseholdServiceClient;
@@ -29,19 +33,31 @@ import com.wuzuhao.cpm.search.feign.ResidentServiceClient;
 import com.wuzuhao.cpm.search.feign.UserServiceClient;
 import com.wuzuhao.cpm.search.service.ESDocumentSyncService;
 import com.wuzuhao.cpm.search.service.SearchService;
+import com.wuzuhao.cpm.search.util.BulkIndexer;
+import com.wuzuhao.cpm.search.util.ESDocumentUtil;
 import com.wuzuhao.cpm.search.util.ElasticsearchIndexUtil;
+import com.wuzuhao.cpm.search.util.SearchAfterPager;
 import com.wuzuhao.cpm.search.wrapper.ESQueryWrapper;
+import com.wuzuhao.cpm.util.RedisUtil;
+import com.wuzuhao.cpm.util.ScrollUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -53,6 +69,38 @@ import java.util.stream.Collectors;
 @Service
 public class SearchServiceImpl implements SearchService, ESDocumentSyncService {
 
+    /**
+     * 各索引允许按范围过滤的日期字段
+     */
+    private static final Map<String, Set<String>> DATE_FILTER_FIELDS = new HashMap<>();
+
+    static {
+        DATE_FILTER_FIELDS.put(ElasticsearchIndexUtil.RESIDENT_INDEX,
+                new HashSet<>(Arrays.asList("birthDate", "createTime", "updateTime")));
+        DATE_FILTER_FIELDS.put(ElasticsearchIndexUtil.HOUSEHOLD_INDEX,
+                new HashSet<>(Arrays.asList("moveInDate", "moveOutDate", "createTime", "updateTime")));
+        DATE_FILTER_FIELDS.put(ElasticsearchIndexUtil.USER_INDEX,
+                new HashSet<>(Arrays.asList("createTime", "updateTime")));
+        DATE_FILTER_FIELDS.put(ElasticsearchIndexUtil.ADMIN_INDEX,
+                new HashSet<>(Arrays.asList("createTime", "updateTime")));
+        DATE_FILTER_FIELDS.put(ElasticsearchIndexUtil.HOUSEHOLD_MEMBER_INDEX,
+                new HashSet<>(Arrays.asList("createTime", "updateTime")));
+    }
+
+    /**
+     * 居民、户籍检索时优先完全匹配的字段
+     */
+    private static final String[] RESIDENT_EXACT_MATCH_FIELDS = {"idCard", "realName.keyword", "contactPhone"};
+    private static final String[] HOUSEHOLD_EXACT_MATCH_FIELDS = {"headIdCard", "headName.keyword", "householdNo", "contactPhone"};
+
+    /**
+     * 导出时每批读取的最大数量
+     */
+    private static final int MAX_SCAN_SIZE = 5000;
+
+    private static final String REBUILD_LOCK_KEY = "search:lock:rebuild";
+    private static final long REBUILD_LOCK_TIME = 3600; // 重建锁过期时间：1小时（实例在重建中宕机时自动释放）
+
     @Autowired
     private ElasticsearchClient elasticsearchClient;
 
@@ -77,247 +125,124 @@ public class SearchServiceImpl implements SearchService, ESDocumentSyncService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private BulkIndexer bulkIndexer;
+
+    @Autowired
+    private SearchAfterPager searchAfterPager;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
     @Override
-    public Map<String, Object> searchResident(String keyword, Integer page, Integer size) {
+    public SearchPage<ResidentDocument> searchResident(String keyword, Integer page, Integer size, SearchFilter filter) {
+        String index = ElasticsearchIndexUtil.RESIDENT_INDEX;
+        // 结构化过滤条件作为 filter 子句，参数不合法时直接抛出
+        List<Query> filters = buildFilters(index, filter);
         try {
-            // 如果 keyword 为 "*" 或为空，使用 match_all 查询所有数据
-            if (keyword == null || keyword.trim().isEmpty() || "*".equals(keyword.trim())) {
-                // 构建查询：必须 deleted=0（未删除）
-                BoolQuery.Builder boolQueryBuilder = new BoolQuery.Builder();
-                boolQueryBuilder.must(Query.of(q -> q.matchAll(co.elastic.clients.elasticsearch._types.query_dsl.MatchAllQuery.of(m -> m))));
-                boolQueryBuilder.must(Query.of(q -> q.term(t -> t
-                    .field("deleted")
-                    .value(0)
-                )));
-                Query query = Query.of(q -> q.bool(boolQueryBuilder.build()));
-                // 按 id 升序排序
-                SortOptions sortOptions = SortOptions.of(s -> s
-                    .field(f -> f
-                        .field("id")
-                        .order(SortOrder.Asc)
-                    )
-                );
-                @SuppressWarnings("rawtypes")
-                SearchResponse<Map> response = elasticsearchClient.search(
-                    SearchRequest.of(s -> s
-                        .index(ElasticsearchIndexUtil.RESIDENT_INDEX)
-                        .query(query)
-                        .from(page * size)
-                        .size(size)
-                        .sort(sortOptions)
-                    ),
-                    Map.class
-                );
-                return buildSearchResult(response);
-            }
-            
-            // 先尝试完全匹配查询（优先级最高）
-            String[] exactMatchFields = {"idCard", "realName.keyword", "contactPhone"};
-            Map<String, Object> exactMatchResult = checkExactMatch(
-                ElasticsearchIndexUtil.RESIDENT_INDEX, 
-                exactMatchFields, 
-                keyword
-            );
-            
-            // 如果找到完全匹配的结果，只返回那一条
-            if (exactMatchResult != null) {
-                return exactMatchResult;
+            // 如果 keyword 为 "*" 或为空，查询所有数据
+            if (isMatchAll(keyword)) {
+                return documentSearch(index, signature(keyword, filter), boolQuery(null, filters), null, page, size, filter, ResidentDocument.class, ResidentDocument.SOURCE_FIELDS);
             }
             
-            // 如果没有完全匹配，进行模糊匹配查询
-            // 构建 BoolQuery：模糊匹配 + deleted=0
-            BoolQuery.Builder boolQueryBuilder = new BoolQuery.Builder();
-            boolQueryBuilder.must(Query.of(q -> q
-                .multiMatch(MultiMatchQuery.of(m -> m
-                    .query(keyword.trim())
-                    .fields("realName^3.0", "idCard^2.5", "registeredAddress^1.5", 
-                           "currentAddress^1.5", "contactPhone^1.0")
-                    .type(co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType.BestFields)
-                    .fuzziness("AUTO")
-                ))
-            ));
-            boolQueryBuilder.must(Query.of(q -> q.term(t -> t
-                .field("deleted")
-                .value(0)
-            )));
-            Query fuzzyQuery = Query.of(q -> q.bool(boolQueryBuilder.build()));
-
-            // 按 id 升序排序
-            SortOptions sortOptions = SortOptions.of(s -> s
-                .field(f -> f
-                    .field("id")
-                    .order(SortOrder.Asc)
-                )
-            );
-
-            @SuppressWarnings("rawtypes")
-            SearchResponse<Map> response = elasticsearchClient.search(
-                SearchRequest.of(s -> s
-                    .index(ElasticsearchIndexUtil.RESIDENT_INDEX)
-                    .query(fuzzyQuery)
-                    .from(page * size)
-                    .size(size)
-                    .sort(sortOptions)
-                ),
-                Map.class
-            );
-
-            return buildSearchResult(response);
+            // 完全匹配优先：与模糊查询一起发送，命中完全匹配时只返回那一条
+            Query exactQuery = exactMatchQuery(RESIDENT_EXACT_MATCH_FIELDS, keyword, filters);
+            return documentSearch(index, signature(keyword, filter), residentQuery(keyword, filters), exactQuery, page, size, filter, ResidentDocument.class, ResidentDocument.SOURCE_FIELDS);
         } catch (Exception e) {
             log.error("搜索居民信息失败", e);
-            Map<String, Object> result = new HashMap<>();
-            result.put("total", 0L);
-            result.put("hits", new ArrayList<>());
-            return result;
+            return new SearchPage<>();
         }
     }
 
     @Override
-    public Map<String, Object> searchHousehold(String keyword, Integer page, Integer size) {
+    public SearchPage<HouseholdDocument> searchHousehold(String keyword, Integer page, Integer size, SearchFilter filter) {
+        String index = ElasticsearchIndexUtil.HOUSEHOLD_INDEX;
+        // 结构化过滤条件作为 filter 子句，参数不合法时直接抛出
+        List<Query> filters = buildFilters(index, filter);
         try {
-            // 如果 keyword 为 "*" 或为空，使用 match_all 查询所有数据
-            if (keyword == null || keyword.trim().isEmpty() || "*".equals(keyword.trim())) {
-                // 构建查询：必须 deleted=0（未删除）
-                BoolQuery.Builder boolQueryBuilder = new BoolQuery.Builder();
-                boolQueryBuilder.must(Query.of(q -> q.matchAll(co.elastic.clients.elasticsearch._types.query_dsl.MatchAllQuery.of(m -> m))));
-                boolQueryBuilder.must(Query.of(q -> q.term(t -> t
-                    .field("deleted")
-                    .value(0)
-                )));
-                Query query = Query.of(q -> q.bool(boolQueryBuilder.build()));
-                // 按 id 升序排序
-                SortOptions sortOptions = SortOptions.of(s -> s
-                    .field(f -> f
-                        .field("id")
-                        .order(SortOrder.Asc)
-                    )
-                );
-                @SuppressWarnings("rawtypes")
-                SearchResponse<Map> response = elasticsearchClient.search(
-                    SearchRequest.of(s -> s
-                        .index(ElasticsearchIndexUtil.HOUSEHOLD_INDEX)
-                        .query(query)
-                        .from(page * size)
-                        .size(size)
-                        .sort(sortOptions)
-                    ),
-                    Map.class
-                );
-                return buildSearchResult(response);
-            }
-            
-            // 先尝试完全匹配查询（优先级最高）
-            String[] exactMatchFields = {"headIdCard", "headName.keyword", "householdNo", "contactPhone"};
-            Map<String, Object> exactMatchResult = checkExactMatch(
-                ElasticsearchIndexUtil.HOUSEHOLD_INDEX, 
-                exactMatchFields, 
-                keyword
-            );
-            
-            // 如果找到完全匹配的结果，只返回那一条
-            if (exactMatchResult != null) {
-                return exactMatchResult;
+            // 如果 keyword 为 "*" 或为空，查询所有数据
+            if (isMatchAll(keyword)) {
+                return documentSearch(index, signature(keyword, filter), boolQuery(null, filters), null, page, size, filter, HouseholdDocument.class, HouseholdDocument.SOURCE_FIELDS);
             }
             
-            // 如果没有完全匹配，进行模糊匹配查询
-            // 构建 BoolQuery：模糊匹配 + deleted=0
-            BoolQuery.Builder boolQueryBuilder = new BoolQuery.Builder();
-            boolQueryBuilder.must(Query.of(q -> q
-                .multiMatch(MultiMatchQuery.of(m -> m
-                    .query(keyword.trim())
-                    .fields("headName^3.0", "headIdCard^2.5", "householdNo^2.5", 
-                           "address^1.5", "contactPhone^1.0")
-                    .type(co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType.BestFields)
-                    .fuzziness("AUTO")
-                ))
-            ));
-            boolQueryBuilder.must(Query.of(q -> q.term(t -> t
-                .field("deleted")
-                .value(0)
-            )));
-            Query fuzzyQuery = Query.of(q -> q.bool(boolQueryBuilder.build()));
-
-            // 按 id 升序排序
-            SortOptions sortOptions = SortOptions.of(s -> s
-                .field(f -> f
-                    .field("id")
-                    .order(SortOrder.Asc)
-                )
-            );
-
-            @SuppressWarnings("rawtypes")
-            SearchResponse<Map> response = elasticsearchClient.search(
-                SearchRequest.of(s -> s
-                    .index(ElasticsearchIndexUtil.HOUSEHOLD_INDEX)
-                    .query(fuzzyQuery)
-                    .from(page * size)
-                    .size(size)
-                    .sort(sortOptions)
-                ),
-                Map.class
-            );
-
-            return buildSearchResult(response);
+            // 完全匹配优先：与模糊查询一起发送，命中完全匹配时只返回那一条
+            Query exactQuery = exactMatchQuery(HOUSEHOLD_EXACT_MATCH_FIELDS, keyword, filters);
+            return documentSearch(index, signature(keyword, filter), householdQuery(keyword, filters), exactQuery, page, size, filter, HouseholdDocument.class, HouseholdDocument.SOURCE_FIELDS);
         } catch (Exception e) {
             log.error("搜索户籍信息失败", e);
-            Map<String, Object> result = new HashMap<>();
-            result.put("total", 0L);
-            result.put("hits", new ArrayList<>());
-            return result;
+            return new SearchPage<>();
+        }
+    }
+
+    @Override
+    public SearchPage<ResidentDocument> scanResident(String keyword, Integer size, SearchFilter filter) {
+        String index = ElasticsearchIndexUtil.RESIDENT_INDEX;
+        List<Query> filters = buildFilters(index, filter);
+        if (isMatchAll(keyword)) {
+            return documentScan(index, boolQuery(null, filters), null, size, filter, ResidentDocument.class, ResidentDocument.EXPORT_FIELDS);
         }
+        Query exactQuery = exactMatchQuery(RESIDENT_EXACT_MATCH_FIELDS, keyword, filters);
+        return documentScan(index, residentQuery(keyword, filters), exactQuery, size, filter, ResidentDocument.class, ResidentDocument.EXPORT_FIELDS);
     }
 
     @Override
-    public Map<String, Object> searchUser(String keyword, Integer page, Integer size) {
+    public SearchPage<HouseholdDocument> scanHousehold(String keyword, Integer size, SearchFilter filter) {
+        String index = ElasticsearchIndexUtil.HOUSEHOLD_INDEX;
+        List<Query> filters = buildFilters(index, filter);
+        if (isMatchAll(keyword)) {
+            return documentScan(index, boolQuery(null, filters), null, size, filter, HouseholdDocument.class, HouseholdDocument.EXPORT_FIELDS);
+        }
+        Query exactQuery = exactMatchQuery(HOUSEHOLD_EXACT_MATCH_FIELDS, keyword, filters);
+        return documentScan(index, householdQuery(keyword, filters), exactQuery, size, filter, HouseholdDocument.class, HouseholdDocument.EXPORT_FIELDS);
+    }
+
+    /**
+     * 居民模糊匹配查询
+     */
+    private Query residentQuery(String keyword, List<Query> filters) {
+        return boolQuery(Query.of(q -> q
+            .multiMatch(MultiMatchQuery.of(m -> m
+                .query(keyword.trim())
+                .fields("realName^3.0", "idCard^2.5", "registeredAddress^1.5", 
+                       "currentAddress^1.5", "contactPhone^1.0")
+                .type(co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType.BestFields)
+                .fuzziness("AUTO")
+            ))
+        ), filters);
+    }
+
+    /**
+     * 户籍模糊匹配查询
+     */
+    private Query householdQuery(String keyword, List<Query> filters) {
+        return boolQuery(Query.of(q -> q
+            .multiMatch(MultiMatchQuery.of(m -> m
+                .query(keyword.trim())
+                .fields("headName^3.0", "headIdCard^2.5", "householdNo^2.5", 
+                       "address^1.5", "contactPhone^1.0")
+                .type(co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType.BestFields)
+                .fuzziness("AUTO")
+            ))
+        ), filters);
+    }
+
+    @Override
+    public Map<String, Object> searchUser(String keyword, Integer page, Integer size, SearchFilter filter) {
+        String index = ElasticsearchIndexUtil.USER_INDEX;
+        // 结构化过滤条件作为 filter 子句，参数不合法时直接抛出
+        List<Query> filters = buildFilters(index, filter);
         try {
-            // 如果 keyword 为 "*" 或为空，使用 match_all 查询所有数据
-            if (keyword == null || keyword.trim().isEmpty() || "*".equals(keyword.trim())) {
-                // 构建查询：必须 deleted=0（未删除）
-                BoolQuery.Builder boolQueryBuilder = new BoolQuery.Builder();
-                boolQueryBuilder.must(Query.of(q -> q.matchAll(co.elastic.clients.elasticsearch._types.query_dsl.MatchAllQuery.of(m -> m))));
-                boolQueryBuilder.must(Query.of(q -> q.term(t -> t
-                    .field("deleted")
-                    .value(0)
-                )));
-                Query query = Query.of(q -> q.bool(boolQueryBuilder.build()));
-                // 按 id 升序排序
-                SortOptions sortOptions = SortOptions.of(s -> s
-                    .field(f -> f
-                        .field("id")
-                        .order(SortOrder.Asc)
-                    )
-                );
-                @SuppressWarnings("rawtypes")
-                SearchResponse<Map> response = elasticsearchClient.search(
-                    SearchRequest.of(s -> s
-                        .index(ElasticsearchIndexUtil.USER_INDEX)
-                        .query(query)
-                        .from(page * size)
-                        .size(size)
-                        .sort(sortOptions)
-                    ),
-                    Map.class
-                );
-                return buildSearchResult(response);
+            // 如果 keyword 为 "*" 或为空，查询所有数据
+            if (isMatchAll(keyword)) {
+                return pagedSearch(index, signature(keyword, filter), boolQuery(null, filters), null, page, size, filter);
             }
             
-            // 先尝试完全匹配查询（优先级最高）
+            // 完全匹配优先：与模糊查询一起发送，命中完全匹配时只返回那一条
             String[] exactMatchFields = {"username", "realName.keyword", "phone", "email"};
-            Map<String, Object> exactMatchResult = checkExactMatch(
-                ElasticsearchIndexUtil.USER_INDEX, 
-                exactMatchFields, 
-                keyword
-            );
-            
-            // 如果找到完全匹配的结果，只返回那一条
-            if (exactMatchResult != null) {
-                return exactMatchResult;
-            }
+            Query exactQuery = exactMatchQuery(exactMatchFields, keyword, filters);
             
-            // 如果没有完全匹配，进行模糊匹配查询
-            // 构建 BoolQuery：模糊匹配 + deleted=0
-            BoolQuery.Builder boolQueryBuilder = new BoolQuery.Builder();
-            boolQueryBuilder.must(Query.of(q -> q
+            // 模糊匹配查询
+            Query fuzzyQuery = boolQuery(Query.of(q -> q
                 .multiMatch(MultiMatchQuery.of(m -> m
                     .query(keyword.trim())
                     .fields("username^3.0", "realName^2.5", "phone^1.5", 
@@ -325,1027 +250,462 @@ public class SearchServiceImpl implements SearchService, ESDocumentSyncService {
                     .type(co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType.BestFields)
                     .fuzziness("AUTO")
                 ))
-            ));
-            boolQueryBuilder.must(Query.of(q -> q.term(t -> t
-                .field("deleted")
-                .value(0)
-            )));
-            Query fuzzyQuery = Query.of(q -> q.bool(boolQueryBuilder.build()));
-            
-            // 按 id 升序排序
-            SortOptions sortOptions = SortOptions.of(s -> s
-                .field(f -> f
-                    .field("id")
-                    .order(SortOrder.Asc)
-                )
-            );
-            
-            @SuppressWarnings("rawtypes")
-            SearchResponse<Map> response = elasticsearchClient.search(
-                SearchRequest.of(s -> s
-                    .index(ElasticsearchIndexUtil.USER_INDEX)
-                    .query(fuzzyQuery)
-                    .from(page * size)
-                    .size(size)
-                    .sort(sortOptions)
-                ),
-                Map.class
-            );
-            
-            return buildSearchResult(response);
+            ), filters);
+            return pagedSearch(index, signature(keyword, filter), fuzzyQuery, exactQuery, page, size, filter);
         } catch (Exception e) {
             log.error("搜索用户信息失败", e);
-            Map<String, Object> result = new HashMap<>();
-            result.put("total", 0L);
-            result.put("hits", new ArrayList<>());
-            return result;
+            return emptyResult();
         }
     }
 
     @Override
-    public Map<String, Object> searchAdmin(String keyword, Integer page, Integer size) {
+    public Map<String, Object> searchAdmin(String keyword, Integer page, Integer size, SearchFilter filter) {
+        String index = ElasticsearchIndexUtil.ADMIN_INDEX;
+        // 结构化过滤条件作为 filter 子句，参数不合法时直接抛出
+        List<Query> filters = buildFilters(index, filter);
         try {
-            // 如果 keyword 为 "*" 或为空，使用 match_all 查询所有数据
-            if (keyword == null || keyword.trim().isEmpty() || "*".equals(keyword.trim())) {
-                // 构建查询：必须 deleted=0（未删除）
-                BoolQuery.Builder boolQueryBuilder = new BoolQuery.Builder();
-                boolQueryBuilder.must(Query.of(q -> q.matchAll(co.elastic.clients.elasticsearch._types.query_dsl.MatchAllQuery.of(m -> m))));
-                boolQueryBuilder.must(Query.of(q -> q.term(t -> t
-                    .field("deleted")
-                    .value(0)
-                )));
-                Query query = Query.of(q -> q.bool(boolQueryBuilder.build()));
-                // 按 id 升序排序
-                SortOptions sortOptions = SortOptions.of(s -> s
-                    .field(f -> f
-                        .field("id")
-                        .order(SortOrder.Asc)
-                    )
-                );
-                @SuppressWarnings("rawtypes")
-                SearchResponse<Map> response = elasticsearchClient.search(
-                    SearchRequest.of(s -> s
-                        .index(ElasticsearchIndexUtil.ADMIN_INDEX)
-                        .query(query)
-                        .from(page * size)
-                        .size(size)
-                        .sort(sortOptions)
-                    ),
-                    Map.class
-                );
-                return buildSearchResult(response);
+            // 如果 keyword 为 "*" 或为空，查询所有数据
+            if (isMatchAll(keyword)) {
+                return pagedSearch(index, signature(keyword, filter), boolQuery(null, filters), null, page, size, filter);
             }
             
-            // 先尝试完全匹配查询（优先级最高）
+            // 完全匹配优先：与模糊查询一起发送，命中完全匹配时只返回那一条
             String[] exactMatchFields = {"adminNo.keyword", "department.keyword", "position"};
-            Map<String, Object> exactMatchResult = checkExactMatch(
-                ElasticsearchIndexUtil.ADMIN_INDEX, 
-                exactMatchFields, 
-                keyword
-            );
+            Query exactQuery = exactMatchQuery(exactMatchFields, keyword, filters);
             
-            // 如果找到完全匹配的结果，只返回那一条
-            if (exactMatchResult != null) {
-                return exactMatchResult;
-            }
-            
-            // 如果没有完全匹配，进行模糊匹配查询
-            // 构建 BoolQuery：模糊匹配 + deleted=0
-            BoolQuery.Builder boolQueryBuilder = new BoolQuery.Builder();
-            boolQueryBuilder.must(Query.of(q -> q
+            // 模糊匹配查询
+            Query fuzzyQuery = boolQuery(Query.of(q -> q
                 .multiMatch(MultiMatchQuery.of(m -> m
                     .query(keyword.trim())
                     .fields("adminNo^3.0", "department^2.5", "position^1.5")
                     .type(co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType.BestFields)
                     .fuzziness("AUTO")
                 ))
-            ));
-            boolQueryBuilder.must(Query.of(q -> q.term(t -> t
-                .field("deleted")
-                .value(0)
-            )));
-            Query fuzzyQuery = Query.of(q -> q.bool(boolQueryBuilder.build()));
-
-            // 按 id 升序排序
-            SortOptions sortOptions = SortOptions.of(s -> s
-                .field(f -> f
-                    .field("id")
-                    .order(SortOrder.Asc)
-                )
-            );
-            
-            @SuppressWarnings("rawtypes")
-            SearchResponse<Map> response = elasticsearchClient.search(
-                SearchRequest.of(s -> s
-                    .index(ElasticsearchIndexUtil.ADMIN_INDEX)
-                    .query(fuzzyQuery)
-                    .from(page * size)
-                    .size(size)
-                    .sort(sortOptions)
-                ),
-                Map.class
-            );
-            
-            return buildSearchResult(response);
+            ), filters);
+            return pagedSearch(index, signature(keyword, filter), fuzzyQuery, exactQuery, page, size, filter);
         } catch (Exception e) {
             log.error("搜索管理员信息失败", e);
-            Map<String, Object> result = new HashMap<>();
-            result.put("total", 0L);
-            result.put("hits", new ArrayList<>());
-            return result;
+            return emptyResult();
         }
     }
 
     @Override
-    public Map<String, Object> searchHouseholdMember(String keyword, Integer page, Integer size, Long householdId) {
+    public Map<String, Object> searchHouseholdMember(String keyword, Integer page, Integer size, Long householdId, SearchFilter filter) {
+        String index = ElasticsearchIndexUtil.HOUSEHOLD_MEMBER_INDEX;
+        // 结构化过滤条件作为 filter 子句，参数不合法时直接抛出
+        List<Query> filters = buildFilters(index, filter);
+        // 如果指定了 householdId，添加精确匹配条件
+        if (householdId != null) {
+            filters.add(Query.of(q -> q
+                .term(TermQuery.of(t -> t
+                    .field("householdId")
+                    .value(householdId)
+                ))
+            ));
+        }
+        String signature = householdId + "|" + signature(keyword, filter);
         try {
-            // 构建查询条件
-            BoolQuery.Builder boolQueryBuilder = new BoolQuery.Builder();
-            
-            // 如果指定了 householdId，添加精确匹配条件
-            if (householdId != null) {
-                boolQueryBuilder.must(Query.of(q -> q
-                    .term(TermQuery.of(t -> t
-                        .field("householdId")
-                        .value(householdId)
-                    ))
-                ));
-            }
-            
-            // 如果 keyword 为 "*" 或为空，使用 match_all 查询所有数据
-            if (keyword == null || keyword.trim().isEmpty() || "*".equals(keyword.trim())) {
-                boolQueryBuilder.must(Query.of(q -> q.matchAll(co.elastic.clients.elasticsearch._types.query_dsl.MatchAllQuery.of(m -> m))));
-                Query query = Query.of(q -> q.bool(boolQueryBuilder.build()));
-                @SuppressWarnings("rawtypes")
-                SearchResponse<Map> response = elasticsearchClient.search(
-                    SearchRequest.of(s -> s
-                        .index(ElasticsearchIndexUtil.HOUSEHOLD_MEMBER_INDEX)
-                        .query(query)
-                        .from(page * size)
-                        .size(size)
-                    ),
-                    Map.class
-                );
-                return buildSearchResult(response);
+            // 如果 keyword 为 "*" 或为空，查询所有数据
+            if (isMatchAll(keyword)) {
+                return pagedSearch(index, signature, boolQuery(null, filters), null, page, size, filter);
             }
             
-            // 先尝试完全匹配查询（优先级最高）
-            // 注意：户籍成员的完全匹配需要考虑householdId条件
-            String trimmedKeyword = keyword.trim();
-            BoolQuery.Builder exactMatchBuilder = new BoolQuery.Builder();
+            // 完全匹配优先：与模糊查询一起发送，命中完全匹配时只返回那一条，完全匹配同样限定在指定户籍内
+            String[] exactMatchFields = {"relationship"};
+            Query exactQuery = exactMatchQuery(exactMatchFields, keyword, filters);
             
-            // 如果指定了 householdId，添加精确匹配条件
-            if (householdId != null) {
-                exactMatchBuilder.must(Query.of(q -> q
-                    .term(TermQuery.of(t -> t
-                        .field("householdId")
-                        .value(householdId)
-                    ))
-                ));
-            }
-            
-            // 添加完全匹配字段
-            exactMatchBuilder.must(Query.of(q -> q.term(t -> t
-                .field("relationship")
-                .value(trimmedKeyword)
-            )));
-            
-            Query exactMatchQuery = Query.of(q -> q.bool(exactMatchBuilder.build()));
-            
-            @SuppressWarnings("rawtypes")
-            SearchResponse<Map> exactResponse = elasticsearchClient.search(
-                SearchRequest.of(s -> s
-                    .index(ElasticsearchIndexUtil.HOUSEHOLD_MEMBER_INDEX)
-                    .query(exactMatchQuery)
-                    .size(1)  // 只取第一条完全匹配的结果
-                ),
-                Map.class
-            );
-            
-            // 如果找到完全匹配的结果，只返回那一条
-            if (exactResponse.hits().hits() != null && !exactResponse.hits().hits().isEmpty()) {
-                Map<String, Object> result = new HashMap<>();
-                List<Map<String, Object>> hits = new ArrayList<>();
-                
-                @SuppressWarnings("rawtypes")
-                Hit<Map> hit = exactResponse.hits().hits().get(0);
-                Map<String, Object> source = new HashMap<>();
-                if (hit.source() != null) {
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> sourceMap = (Map<String, Object>) hit.source();
-                    source.putAll(sourceMap);
-                }
-                source.put("_id", hit.id());
-                if (hit.score() != null) {
-                    source.put("_score", hit.score());
-                }
-                hits.add(source);
-                
-                result.put("total", 1L);
-                result.put("hits", hits);
-                return result;
-            }
-            
-            // 如果没有完全匹配，进行模糊匹配查询
-            boolQueryBuilder.must(Query.of(q -> q
+            // 模糊匹配查询
+            Query fuzzyQuery = boolQuery(Query.of(q -> q
                 .multiMatch(MultiMatchQuery.of(m -> m
-                    .query(trimmedKeyword)
+                    .query(keyword.trim())
                     .fields("relationship^2.0")
                     .type(co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType.BestFields)
                     .fuzziness("AUTO")
                 ))
-            ));
-            
-            Query fuzzyQuery = Query.of(q -> q.bool(boolQueryBuilder.build()));
-
-            // 构建搜索请求
-            @SuppressWarnings("rawtypes")
-            SearchResponse<Map> response = elasticsearchClient.search(
-                SearchRequest.of(s -> s
-                    .index(ElasticsearchIndexUtil.HOUSEHOLD_MEMBER_INDEX)
-                    .query(fuzzyQuery)
-                    .from(page * size)
-                    .size(size)
-                ),
-                Map.class
-            );
-
-            return buildSearchResult(response);
+            ), filters);
+            return pagedSearch(index, signature, fuzzyQuery, exactQuery, page, size, filter);
         } catch (Exception e) {
             log.error("搜索户籍成员信息失败", e);
-            Map<String, Object> result = new HashMap<>();
-            result.put("total", 0L);
-            result.put("hits", new ArrayList<>());
-            return result;
+            return emptyResult();
         }
     }
 
-    @Override
-    public void rebuildIndex() {
-        try {
-            log.info("开始重建索引");
-            // 重建索引结构
-            indexUtil.recreateResidentIndex();
-            indexUtil.recreateHouseholdIndex();
-            indexUtil.recreateUserIndex();
-            indexUtil.recreateAdminIndex();
-            indexUtil.recreateHouseholdMemberIndex();
-            log.info("索引重建完成，开始同步数据");
-
-            // 同步居民数据
-            try {
-            syncResidentData();
-            } catch (Exception e) {
-                log.error("同步居民数据失败，继续执行其他同步", e);
-            }
-
-            // 同步户籍数据
-            try {
-            syncHouseholdData();
-            } catch (Exception e) {
-                log.error("同步户籍数据失败，继续执行其他同步", e);
-            }
-
-            // 同步用户数据
-            try {
-                syncUserData();
-            } catch (Exception e) {
-                log.error("同步用户数据失败，继续执行其他同步", e);
-            }
-
-            // 同步管理员数据
-            try {
-                syncAdminData();
-            } catch (Exception e) {
-                log.error("同步管理员数据失败，继续执行其他同步", e);
-            }
-
-            // 同步户籍成员数据
-            try {
-                syncHouseholdMemberData();
-            } catch (Exception e) {
-                log.error("同步户籍成员数据失败，继续执行其他同步", e);
-            }
+    /**
+     * 关键词为空或为 "*" 时查询全部数据
+     */
+    private boolean isMatchAll(String keyword) {
+        return keyword == null || keyword.trim().isEmpty() || "*".equals(keyword.trim());
+    }
 
-            log.info("索引重建和数据同步完成");
-        } catch (Exception e) {
-            log.error("重建索引失败", e);
-            throw new RuntimeException("重建索引失败", e);
+    /**
+     * 组合查询：must 为关键词检索（为空时匹配全部），过滤条件放入 filter（不参与评分，可被 ES 缓存）
+     */
+    private Query boolQuery(Query must, List<Query> filters) {
+        BoolQuery.Builder boolQueryBuilder = new BoolQuery.Builder();
+        if (must != null) {
+            boolQueryBuilder.must(must);
+        } else {
+            boolQueryBuilder.must(Query.of(q -> q.matchAll(co.elastic.clients.elasticsearch._types.query_dsl.MatchAllQuery.of(m -> m))));
         }
+        boolQueryBuilder.filter(filters);
+        return Query.of(q -> q.bool(boolQueryBuilder.build()));
     }
 
     /**
-     * 同步居民数据到 Elasticsearch
+     * 构建过滤条件：未删除 + 状态、性别、日期范围
+     * @throws RuntimeException 日期过滤字段不属于该索引时
      */
-    private void syncResidentData() {
-        try {
-            log.info("开始同步居民数据");
-            Result<?> result = residentServiceClient.getAllResidents();
-            
-            if (result == null) {
-                log.error("获取居民数据失败：Feign调用返回null");
-                throw new RuntimeException("获取居民数据失败：Feign调用返回null");
-            }
-            
-            if (result.getCode() != 200) {
-                log.error("获取居民数据失败，code: {}, message: {}", result.getCode(), result.getMessage());
-                throw new RuntimeException("获取居民数据失败，code: " + result.getCode() + ", message: " + result.getMessage());
-            }
-            
-            if (result.getData() == null) {
-                log.warn("获取居民数据为空，可能数据库中没有居民数据");
-                return;
-            }
-
-            // 将 List<Resident> 转换为 List<Map>
-            // Feign 返回的数据可能是 List<Resident> 对象，需要转换为 Map
-            Object data = result.getData();
-            List<Map<String, Object>> residents = new ArrayList<>();
-            
-            if (data instanceof List) {
-                @SuppressWarnings("unchecked")
-                List<Object> dataList = (List<Object>) data;
-                
-                for (Object item : dataList) {
-                    try {
-                        // 使用 ObjectMapper 将对象转换为 Map
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> residentMap = objectMapper.convertValue(item, Map.class);
-                        residents.add(residentMap);
-                    } catch (Exception e) {
-                        log.warn("转换居民对象失败，跳过: {}", e.getMessage());
-                        continue;
-                    }
+    private List<Query> buildFilters(String index, SearchFilter filter) {
+        List<Query> filters = new ArrayList<>();
+        // 户籍成员索引早期同步的文档没有逻辑删除字段，只排除 deleted=1（含重建期间写入的删除墓碑）
+        if (ElasticsearchIndexUtil.HOUSEHOLD_MEMBER_INDEX.equals(index)) {
+            filters.add(Query.of(q -> q.bool(b -> b.mustNot(m -> m.term(t -> t
+                .field("deleted")
+                .value(1)
+            )))));
+        } else {
+            filters.add(Query.of(q -> q.term(t -> t
+                .field("deleted")
+                .value(0)
+            )));
+        }
+        if (filter == null) {
+            return filters;
+        }
+        if (filter.getStatus() != null) {
+            filters.add(Query.of(q -> q.term(t -> t
+                .field("status")
+                .value(filter.getStatus())
+            )));
+        }
+        if (filter.getGender() != null) {
+            filters.add(Query.of(q -> q.term(t -> t
+                .field("gender")
+                .value(filter.getGender())
+            )));
+        }
+        String dateFrom = trimToNull(filter.getDateFrom());
+        String dateTo = trimToNull(filter.getDateTo());
+        if (filter.getDateField() != null && (dateFrom != null || dateTo != null)) {
+            String dateField = filter.getDateField().trim();
+            if (!DATE_FILTER_FIELDS.getOrDefault(index, Collections.emptySet()).contains(dateField)) {
+                throw new RuntimeException("不支持按该字段过滤日期: " + dateField);
+            }
+            filters.add(Query.of(q -> q.range(r -> {
+                r.field(dateField);
+                if (dateFrom != null) {
+                    r.gte(JsonData.of(dateFrom));
                 }
-            } else {
-                log.warn("获取到的居民数据格式不正确，期望 List，实际: {}", 
-                    data != null ? data.getClass().getName() : "null");
-                return;
-            }
-            
-            if (residents.isEmpty()) {
-                log.info("没有居民数据需要同步");
-                return;
-            }
-
-            log.info("获取到 {} 条居民数据，开始批量索引", residents.size());
-
-            // 批量索引文档
-            List<BulkOperation> bulkOperations = new ArrayList<>();
-            for (Map<String, Object> resident : residents) {
-                // 转换日期格式
-                convertDateFields(resident);
-                
-                String id = resident.get("id") != null ? resident.get("id").toString() : null;
-                if (id == null) {
-                    log.warn("居民数据缺少ID，跳过: {}", resident);
-                    continue;
+                if (dateTo != null) {
+                    r.lte(JsonData.of(dateTo));
                 }
+                return r;
+            })));
+        }
+        return filters;
+    }
 
-                BulkOperation op = BulkOperation.of(o -> o
-                    .index(IndexOperation.of(i -> i
-                        .index(ElasticsearchIndexUtil.RESIDENT_INDEX)
-                        .id(id)
-                        .document(resident)
-                    ))
-                );
-                bulkOperations.add(op);
-            }
-
-            // 分批处理，每批1000条
-            int batchSize = 1000;
-            int successCount = 0;
-            int failCount = 0;
-            for (int i = 0; i < bulkOperations.size(); i += batchSize) {
-                int end = Math.min(i + batchSize, bulkOperations.size());
-                List<BulkOperation> batch = bulkOperations.subList(i, end);
-                int batchNum = i / batchSize + 1;
-                
-                BulkRequest bulkRequest = BulkRequest.of(r -> r.operations(batch));
-                BulkResponse bulkResponse = elasticsearchClient.bulk(bulkRequest);
-                
-                if (bulkResponse.errors()) {
-                    // 详细记录错误信息
-                    log.error("批量索引居民数据时出现错误，批次: {}", batchNum);
-                    if (bulkResponse.items() != null) {
-                        for (BulkResponseItem item : bulkResponse.items()) {
-                            if (item.error() != null) {
-                                log.error("索引失败 - ID: {}, 错误类型: {}, 错误原因: {}", 
-                                    item.id(), item.error().type(), item.error().reason());
-                                failCount++;
-                            } else if (item.index() != null) {
-                                successCount++;
-                            }
-                        }
-                    }
-                } else {
-                    successCount += batch.size();
-                    log.info("成功索引居民数据批次: {}，共 {} 条", batchNum, batch.size());
-                }
-            }
+    private String trimToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
 
-            // 刷新索引，使数据立即可搜索
-            try {
-                elasticsearchClient.indices().refresh(r -> r.index(ElasticsearchIndexUtil.RESIDENT_INDEX));
-                log.info("已刷新居民索引");
-            } catch (Exception e) {
-                log.warn("刷新居民索引失败", e);
-            }
+    /**
+     * 查询条件签名（不含游标），用于区分不同查询缓存的分页游标
+     */
+    private String signature(String keyword, SearchFilter filter) {
+        String base = keyword == null ? "" : keyword.trim();
+        if (filter == null) {
+            return base;
+        }
+        return base + "|" + filter.getStatus() + "|" + filter.getGender() + "|" + filter.getDateField()
+                + "|" + filter.getDateFrom() + "|" + filter.getDateTo();
+    }
 
-            log.info("居民数据同步完成，成功: {} 条，失败: {} 条，总计: {} 条", 
-                successCount, failCount, residents.size());
-        } catch (Exception e) {
-            log.error("同步居民数据失败", e);
-            throw new RuntimeException("同步居民数据失败", e);
+    /**
+     * 分页查询（按 id 升序），深分页由 {@link SearchAfterPager} 使用 search_after 完成
+     * @param exactQuery 完全匹配查询，可为null；与分页查询在同一次请求中执行，命中时只返回那一条
+     * @return 搜索结果，cursor 为下一页游标（最后一页为 null）
+     */
+    @SuppressWarnings("rawtypes")
+    private Map<String, Object> pagedSearch(String index, String signature, Query query, Query exactQuery,
+                                            Integer page, Integer size, SearchFilter filter) throws IOException {
+        String cursor = filter != null ? filter.getCursor() : null;
+        SearchAfterPager.PageResult<Map> pageResult = searchAfterPager.search(index, signature, query, exactQuery,
+                page, size, cursor, Map.class, null);
+        Map<String, Object> result = buildSearchResult(pageResult.getHits());
+        if (pageResult.isExactMatch()) {
+            result.put("total", 1L);
         }
+        result.put("cursor", pageResult.getNextCursor());
+        return result;
     }
 
     /**
-     * 同步户籍数据到 Elasticsearch
+     * 分页查询，结果由 ES 客户端直接反序列化为文档类型，只读取文档类型需要的字段
+     * @param exactQuery 完全匹配查询，可为null；与分页查询在同一次请求中执行，命中时只返回那一条
+     * @param documentClass 文档类型
+     * @param sourceFields 从 _source 读取的字段
+     */
+    private <T> SearchPage<T> documentSearch(String index, String signature, Query query, Query exactQuery,
+                                             Integer page, Integer size, SearchFilter filter,
+                                             Class<T> documentClass, List<String> sourceFields) throws IOException {
+        String cursor = filter != null ? filter.getCursor() : null;
+        SearchAfterPager.PageResult<T> pageResult = searchAfterPager.search(index, signature, query, exactQuery,
+                page, size, cursor, documentClass, sourceFields);
+        return toSearchPage(pageResult);
+    }
+
+    /**
+     * 逐批遍历查询结果（导出使用），由 {@link SearchAfterPager#scan} 在同一个 PIT 上按 search_after 继续
+     * @param exactQuery 完全匹配查询，可为null；命中时只返回那一条
+     * @throws RuntimeException 查询失败时，避免导出不完整的文件
      */
-    private void syncHouseholdData() {
+    private <T> SearchPage<T> documentScan(String index, Query query, Query exactQuery, Integer size, SearchFilter filter,
+                                           Class<T> documentClass, List<String> sourceFields) {
+        String cursor = filter != null ? filter.getCursor() : null;
+        int batchSize = Math.max(1, Math.min(size != null ? size : MAX_SCAN_SIZE, MAX_SCAN_SIZE));
         try {
-            log.info("开始同步户籍数据");
-            Result<?> result = householdServiceClient.getAllHouseholds();
-            
-            if (result == null) {
-                log.error("获取户籍数据失败：Feign调用返回null");
-                throw new RuntimeException("获取户籍数据失败：Feign调用返回null");
-            }
-            
-            if (result.getCode() != 200) {
-                log.error("获取户籍数据失败，code: {}, message: {}", result.getCode(), result.getMessage());
-                throw new RuntimeException("获取户籍数据失败，code: " + result.getCode() + ", message: " + result.getMessage());
-            }
-            
-            if (result.getData() == null) {
-                log.warn("获取户籍数据为空，可能数据库中没有户籍数据");
-                return;
-            }
+            return toSearchPage(searchAfterPager.scan(index, query, exactQuery, batchSize, cursor, documentClass, sourceFields));
+        } catch (IOException e) {
+            throw new RuntimeException("导出查询失败: " + e.getMessage(), e);
+        }
+    }
 
-            // 将 List<Household> 转换为 List<Map>
-            // Feign 返回的数据可能是 List<Household> 对象，需要转换为 Map
-            Object data = result.getData();
-            List<Map<String, Object>> households = new ArrayList<>();
-            
-            if (data instanceof List) {
-                @SuppressWarnings("unchecked")
-                List<Object> dataList = (List<Object>) data;
-                
-                for (Object item : dataList) {
-                    try {
-                        // 使用 ObjectMapper 将对象转换为 Map
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> householdMap = objectMapper.convertValue(item, Map.class);
-                        households.add(householdMap);
-                    } catch (Exception e) {
-                        log.warn("转换户籍对象失败，跳过: {}", e.getMessage());
-                        continue;
-                    }
+    private <T> SearchPage<T> toSearchPage(SearchAfterPager.PageResult<T> pageResult) {
+        HitsMetadata<T> hits = pageResult.getHits();
+        SearchPage<T> result = new SearchPage<>();
+        if (hits.hits() != null) {
+            List<T> documents = new ArrayList<>(hits.hits().size());
+            for (Hit<T> hit : hits.hits()) {
+                if (hit.source() != null) {
+                    documents.add(hit.source());
                 }
-            } else {
-                log.warn("获取到的户籍数据格式不正确，期望 List，实际: {}", 
-                    data != null ? data.getClass().getName() : "null");
-                return;
-            }
-            
-            if (households.isEmpty()) {
-                log.info("没有户籍数据需要同步");
-                return;
             }
+            result.setHits(documents);
+        }
+        if (pageResult.isExactMatch()) {
+            result.setTotal(1L);
+        } else if (hits.total() != null) {
+            result.setTotal(hits.total().value());
+        }
+        result.setCursor(pageResult.getNextCursor());
+        return result;
+    }
 
-            log.info("获取到 {} 条户籍数据，开始批量索引", households.size());
-
-            // 批量索引文档
-            List<BulkOperation> bulkOperations = new ArrayList<>();
-            for (Map<String, Object> household : households) {
-                // 转换日期格式
-                convertDateFields(household);
-                
-                String id = household.get("id") != null ? household.get("id").toString() : null;
-                if (id == null) {
-                    log.warn("户籍数据缺少ID，跳过: {}", household);
-                    continue;
-                }
+    private Map<String, Object> emptyResult() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("total", 0L);
+        result.put("hits", new ArrayList<>());
+        return result;
+    }
 
-                BulkOperation op = BulkOperation.of(o -> o
-                    .index(IndexOperation.of(i -> i
-                        .index(ElasticsearchIndexUtil.HOUSEHOLD_INDEX)
-                        .id(id)
-                        .document(household)
-                    ))
-                );
-                bulkOperations.add(op);
+    @Override
+    public boolean rebuildIndex() {
+        // 多实例部署时只允许一个实例重建，同时重建会互相删除对方创建的新版本
+        String lockOwner = UUID.randomUUID().toString();
+        if (!redisUtil.setIfAbsent(REBUILD_LOCK_KEY, lockOwner, REBUILD_LOCK_TIME)) {
+            log.info("索引正在重建中，跳过本次重建");
+            return false;
+        }
+        try {
+            rebuildAllIndices();
+        } finally {
+            // 锁已过期并被其他实例取得时不删除
+            if (lockOwner.equals(redisUtil.get(REBUILD_LOCK_KEY))) {
+                redisUtil.del(REBUILD_LOCK_KEY);
             }
+        }
+        return true;
+    }
 
-            // 分批处理，每批1000条
-            int batchSize = 1000;
-            int successCount = 0;
-            int failCount = 0;
-            for (int i = 0; i < bulkOperations.size(); i += batchSize) {
-                int end = Math.min(i + batchSize, bulkOperations.size());
-                List<BulkOperation> batch = bulkOperations.subList(i, end);
-                int batchNum = i / batchSize + 1;
-                
-                BulkRequest bulkRequest = BulkRequest.of(r -> r.operations(batch));
-                BulkResponse bulkResponse = elasticsearchClient.bulk(bulkRequest);
-                
-                if (bulkResponse.errors()) {
-                    // 详细记录错误信息
-                    log.error("批量索引户籍数据时出现错误，批次: {}", batchNum);
-                    if (bulkResponse.items() != null) {
-                        for (BulkResponseItem item : bulkResponse.items()) {
-                            if (item.error() != null) {
-                                log.error("索引失败 - ID: {}, 错误类型: {}, 错误原因: {}", 
-                                    item.id(), item.error().type(), item.error().reason());
-                                failCount++;
-                            } else if (item.index() != null) {
-                                successCount++;
-                            }
-                        }
-                    }
-                } else {
-                    successCount += batch.size();
-                    log.info("成功索引户籍数据批次: {}，共 {} 条", batchNum, batch.size());
-                }
-            }
+    private void rebuildAllIndices() {
+        log.info("开始重建索引");
+        long start = System.currentTimeMillis();
+        // 每个索引都先灌数到新版本，完成后再切换别名，重建期间搜索仍使用旧版本
+        // 五类数据并行同步，共享 BulkIndexer 的在途请求上限
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> rebuildIndex(ElasticsearchIndexUtil.RESIDENT_INDEX, "居民", this::syncResidentData), executor),
+                CompletableFuture.runAsync(() -> rebuildIndex(ElasticsearchIndexUtil.HOUSEHOLD_INDEX, "户籍", this::syncHouseholdData), executor),
+                CompletableFuture.runAsync(() -> rebuildIndex(ElasticsearchIndexUtil.USER_INDEX, "用户", this::syncUserData), executor),
+                CompletableFuture.runAsync(() -> rebuildIndex(ElasticsearchIndexUtil.ADMIN_INDEX, "管理员", this::syncAdminData), executor),
+                CompletableFuture.runAsync(() -> rebuildIndex(ElasticsearchIndexUtil.HOUSEHOLD_MEMBER_INDEX, "户籍成员", this::syncHouseholdMemberData), executor)
+            ).join();
+        } finally {
+            executor.shutdown();
+        }
+        log.info("索引重建和数据同步完成，耗时: {}ms", System.currentTimeMillis() - start);
+    }
 
-            // 刷新索引，使数据立即可搜索
-            try {
-                elasticsearchClient.indices().refresh(r -> r.index(ElasticsearchIndexUtil.HOUSEHOLD_INDEX));
-                log.info("已刷新户籍索引");
-            } catch (Exception e) {
-                log.warn("刷新户籍索引失败", e);
-            }
+    @Override
+    public Map<String, Map<String, Object>> getBulkIndexStats() {
+        return bulkIndexer.getLastStats();
+    }
 
-            log.info("户籍数据同步完成，成功: {} 条，失败: {} 条，总计: {} 条", 
-                successCount, failCount, households.size());
+    /**
+     * 蓝绿重建单个索引：创建新版本 -> 同步数据 -> 切换别名并删除旧版本 -> 清除分页游标缓存
+     * 同步失败（包括有文档写入失败）时删除新版本，别名继续指向旧版本
+     * @param alias 别名（对外使用的索引名）
+     * @param syncer 数据同步函数，参数为新版本的物理索引名
+     */
+    private void rebuildIndex(String alias, String label, Consumer<String> syncer) {
+        String indexName;
+        try {
+            indexName = indexUtil.createNextVersion(alias);
         } catch (Exception e) {
-            log.error("同步户籍数据失败", e);
-            throw new RuntimeException("同步户籍数据失败", e);
+            log.error("创建{}索引新版本失败，继续执行其他同步", label, e);
+            return;
         }
+        try {
+            syncer.accept(indexName);
+            indexUtil.publishVersion(alias, indexName);
+        } catch (Exception e) {
+            log.error("重建{}索引失败，保留旧版本，继续执行其他同步", label, e);
+            indexUtil.discardVersion(indexName);
+            return;
+        }
+        // 旧版本已删除，按页码缓存的游标中的 PIT 不再可用
+        searchAfterPager.invalidateCursors(alias);
     }
 
     /**
-     * 同步用户数据到 Elasticsearch
+     * 同步居民数据到 Elasticsearch
+     * 按ID游标分页从居民服务拉取，拉取、转换与批量写入并行进行，内存中只保留少量批次
+     * @param index 目标物理索引
      */
-    private void syncUserData() {
-        try {
-            log.info("开始同步用户数据");
-            Result<?> result = userServiceClient.getAllUsers();
-            
-            if (result == null) {
-                log.error("获取用户数据失败：Feign调用返回null");
-                throw new RuntimeException("获取用户数据失败：Feign调用返回null");
-            }
-            
-            if (result.getCode() != 200) {
-                log.error("获取用户数据失败，code: {}, message: {}", result.getCode(), result.getMessage());
-                throw new RuntimeException("获取用户数据失败，code: " + result.getCode() + ", message: " + result.getMessage());
-            }
-            
-            if (result.getData() == null) {
-                log.warn("获取用户数据为空，可能数据库中没有用户数据");
-                return;
-            }
-
-            // 将 List<User> 转换为 List<Map>
-            Object data = result.getData();
-            List<Map<String, Object>> users = new ArrayList<>();
-            
-            if (data instanceof List) {
-                @SuppressWarnings("unchecked")
-                List<Object> dataList = (List<Object>) data;
-                
-                for (Object item : dataList) {
-                    try {
-                        // 使用 ObjectMapper 将对象转换为 Map
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> userMap = objectMapper.convertValue(item, Map.class);
-                        // 移除密码字段，不索引密码
-                        userMap.remove("password");
-                        users.add(userMap);
-                    } catch (Exception e) {
-                        log.warn("转换用户对象失败，跳过: {}", e.getMessage());
-                        continue;
-                    }
-                }
-            } else {
-                log.warn("获取到的用户数据格式不正确，期望 List，实际: {}", 
-                    data != null ? data.getClass().getName() : "null");
-                return;
-            }
-            
-            if (users.isEmpty()) {
-                log.info("没有用户数据需要同步");
-                return;
-            }
-
-            log.info("获取到 {} 条用户数据，开始批量索引", users.size());
-
-            // 批量索引文档
-            List<BulkOperation> bulkOperations = new ArrayList<>();
-            for (Map<String, Object> user : users) {
-                // 转换日期格式
-                convertDateFields(user);
-                
-                String id = user.get("id") != null ? user.get("id").toString() : null;
-                if (id == null) {
-                    log.warn("用户数据缺少ID，跳过: {}", user);
-                    continue;
-                }
-
-                BulkOperation op = BulkOperation.of(o -> o
-                    .index(IndexOperation.of(i -> i
-                        .index(ElasticsearchIndexUtil.USER_INDEX)
-                        .id(id)
-                        .document(user)
-                    ))
-                );
-                bulkOperations.add(op);
-            }
+    private void syncResidentData(String index) {
+        log.info("开始同步居民数据");
+        BulkIndexer.Session session = bulkIndexer.open(index, "居民");
+        ScrollUtil.forEachPage(residentServiceClient::scrollResidents, ScrollUtil.DEFAULT_PAGE_SIZE,
+                page -> page.forEach(resident -> addDocument(session, resident, "居民")));
+        session.finish();
+    }
 
-            // 分批处理，每批1000条
-            int batchSize = 1000;
-            int successCount = 0;
-            int failCount = 0;
-            for (int i = 0; i < bulkOperations.size(); i += batchSize) {
-                int end = Math.min(i + batchSize, bulkOperations.size());
-                List<BulkOperation> batch = bulkOperations.subList(i, end);
-                int batchNum = i / batchSize + 1;
-                
-                BulkRequest bulkRequest = BulkRequest.of(r -> r.operations(batch));
-                BulkResponse bulkResponse = elasticsearchClient.bulk(bulkRequest);
-                
-                if (bulkResponse.errors()) {
-                    // 详细记录错误信息
-                    log.error("批量索引用户数据时出现错误，批次: {}", batchNum);
-                    if (bulkResponse.items() != null) {
-                        for (BulkResponseItem item : bulkResponse.items()) {
-                            if (item.error() != null) {
-                                log.error("索引失败 - ID: {}, 错误类型: {}, 错误原因: {}", 
-                                    item.id(), item.error().type(), item.error().reason());
-                                failCount++;
-                            } else if (item.index() != null) {
-                                successCount++;
-                            }
-                        }
-                    }
-                } else {
-                    successCount += batch.size();
-                    log.info("成功索引用户数据批次: {}，共 {} 条", batchNum, batch.size());
-                }
-            }
+    /**
+     * 同步户籍数据到 Elasticsearch
+     * 按ID游标分页从户籍服务拉取，拉取、转换与批量写入并行进行，内存中只保留少量批次
+     * @param index 目标物理索引
+     */
+    private void syncHouseholdData(String index) {
+        log.info("开始同步户籍数据");
+        BulkIndexer.Session session = bulkIndexer.open(index, "户籍");
+        ScrollUtil.forEachPage(householdServiceClient::scrollHouseholds, ScrollUtil.DEFAULT_PAGE_SIZE,
+                page -> page.forEach(household -> addDocument(session, household, "户籍")));
+        session.finish();
+    }
 
-            // 刷新索引，使数据立即可搜索
-            try {
-                elasticsearchClient.indices().refresh(r -> r.index(ElasticsearchIndexUtil.USER_INDEX));
-                log.info("已刷新用户索引");
-            } catch (Exception e) {
-                log.warn("刷新用户索引失败", e);
+    /**
+     * 同步用户数据到 Elasticsearch
+     * @param index 目标物理索引
+     */
+    private void syncUserData(String index) {
+        log.info("开始同步用户数据");
+        BulkIndexer.Session session = bulkIndexer.open(index, "用户");
+        for (Object item : getDataList(userServiceClient.getAllUsers(), "用户")) {
+            Map<String, Object> user = convertToMap(item, "用户");
+            if (user != null) {
+                // 移除密码字段，不索引密码
+                user.remove("password");
+                addDocument(session, user, "用户");
             }
-
-            log.info("用户数据同步完成，成功: {} 条，失败: {} 条，总计: {} 条", 
-                successCount, failCount, users.size());
-        } catch (Exception e) {
-            log.error("同步用户数据失败", e);
-            throw new RuntimeException("同步用户数据失败", e);
         }
+        session.finish();
     }
 
     /**
      * 同步管理员数据到 Elasticsearch
+     * @param index 目标物理索引
      */
-    private void syncAdminData() {
-        try {
-            log.info("开始同步管理员数据");
-            Result<?> result = adminServiceClient.getAllAdmins();
-            
-            if (result == null) {
-                log.error("获取管理员数据失败：Feign调用返回null");
-                throw new RuntimeException("获取管理员数据失败：Feign调用返回null");
-            }
-            
-            if (result.getCode() != 200) {
-                log.error("获取管理员数据失败，code: {}, message: {}", result.getCode(), result.getMessage());
-                throw new RuntimeException("获取管理员数据失败，code: " + result.getCode() + ", message: " + result.getMessage());
+    private void syncAdminData(String index) {
+        log.info("开始同步管理员数据");
+        BulkIndexer.Session session = bulkIndexer.open(index, "管理员");
+        for (Object item : getDataList(adminServiceClient.getAllAdmins(), "管理员")) {
+            Map<String, Object> admin = convertToMap(item, "管理员");
+            if (admin != null) {
+                addDocument(session, admin, "管理员");
             }
-            
-            if (result.getData() == null) {
-                log.warn("获取管理员数据为空，可能数据库中没有管理员数据");
-                return;
-            }
-
-            // 将 List<Admin> 转换为 List<Map>
-            Object data = result.getData();
-            List<Map<String, Object>> admins = new ArrayList<>();
-            
-            if (data instanceof List) {
-                @SuppressWarnings("unchecked")
-                List<Object> dataList = (List<Object>) data;
-                
-                for (Object item : dataList) {
-                    try {
-                        // 使用 ObjectMapper 将对象转换为 Map
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> adminMap = objectMapper.convertValue(item, Map.class);
-                        admins.add(adminMap);
-                    } catch (Exception e) {
-                        log.warn("转换管理员对象失败，跳过: {}", e.getMessage());
-                        continue;
-                    }
-                }
-            } else {
-                log.warn("获取到的管理员数据格式不正确，期望 List，实际: {}", 
-                    data != null ? data.getClass().getName() : "null");
-                return;
-            }
-            
-            if (admins.isEmpty()) {
-                log.info("没有管理员数据需要同步");
-                return;
-            }
-
-            log.info("获取到 {} 条管理员数据，开始批量索引", admins.size());
-
-            // 批量索引文档
-            List<BulkOperation> bulkOperations = new ArrayList<>();
-            for (Map<String, Object> admin : admins) {
-                // 转换日期格式
-                convertDateFields(admin);
-                
-                String id = admin.get("id") != null ? admin.get("id").toString() : null;
-                if (id == null) {
-                    log.warn("管理员数据缺少ID，跳过: {}", admin);
-                    continue;
-                }
-
-                BulkOperation op = BulkOperation.of(o -> o
-                    .index(IndexOperation.of(i -> i
-                        .index(ElasticsearchIndexUtil.ADMIN_INDEX)
-                        .id(id)
-                        .document(admin)
-                    ))
-                );
-                bulkOperations.add(op);
-            }
-
-            // 分批处理，每批1000条
-            int batchSize = 1000;
-            int successCount = 0;
-            int failCount = 0;
-            for (int i = 0; i < bulkOperations.size(); i += batchSize) {
-                int end = Math.min(i + batchSize, bulkOperations.size());
-                List<BulkOperation> batch = bulkOperations.subList(i, end);
-                int batchNum = i / batchSize + 1;
-                
-                BulkRequest bulkRequest = BulkRequest.of(r -> r.operations(batch));
-                BulkResponse bulkResponse = elasticsearchClient.bulk(bulkRequest);
-                
-                if (bulkResponse.errors()) {
-                    // 详细记录错误信息
-                    log.error("批量索引管理员数据时出现错误，批次: {}", batchNum);
-                    if (bulkResponse.items() != null) {
-                        for (BulkResponseItem item : bulkResponse.items()) {
-                            if (item.error() != null) {
-                                log.error("索引失败 - ID: {}, 错误类型: {}, 错误原因: {}", 
-                                    item.id(), item.error().type(), item.error().reason());
-                                failCount++;
-                            } else if (item.index() != null) {
-                                successCount++;
-                            }
-                        }
-                    }
-                } else {
-                    successCount += batch.size();
-                    log.info("成功索引管理员数据批次: {}，共 {} 条", batchNum, batch.size());
-                }
-            }
-
-            // 刷新索引，使数据立即可搜索
-            try {
-                elasticsearchClient.indices().refresh(r -> r.index(ElasticsearchIndexUtil.ADMIN_INDEX));
-                log.info("已刷新管理员索引");
-            } catch (Exception e) {
-                log.warn("刷新管理员索引失败", e);
-            }
-
-            log.info("管理员数据同步完成，成功: {} 条，失败: {} 条，总计: {} 条", 
-                successCount, failCount, admins.size());
-        } catch (Exception e) {
-            log.error("同步管理员数据失败", e);
-            throw new RuntimeException("同步管理员数据失败", e);
         }
+        session.finish();
     }
 
     /**
      * 同步户籍成员数据到 Elasticsearch
+     * @param index 目标物理索引
      */
-    private void syncHouseholdMemberData() {
-        try {
-            log.info("开始同步户籍成员数据");
-            Result<?> result = householdMemberServiceClient.getAllHouseholdMembers();
-            
-            if (result == null) {
-                log.error("获取户籍成员数据失败：Feign调用返回null");
-                throw new RuntimeException("获取户籍成员数据失败：Feign调用返回null");
-            }
-            
-            if (result.getCode() != 200) {
-                log.error("获取户籍成员数据失败，code: {}, message: {}", result.getCode(), result.getMessage());
-                throw new RuntimeException("获取户籍成员数据失败，code: " + result.getCode() + ", message: " + result.getMessage());
-            }
-            
-            if (result.getData() == null) {
-                log.warn("获取户籍成员数据为空，可能数据库中没有户籍成员数据");
-                return;
-            }
-
-            // 将 List<HouseholdMember> 转换为 List<Map>
-            Object data = result.getData();
-            List<Map<String, Object>> members = new ArrayList<>();
-            
-            if (data instanceof List) {
-                @SuppressWarnings("unchecked")
-                List<Object> dataList = (List<Object>) data;
-                
-                for (Object item : dataList) {
-                    try {
-                        // 使用 ObjectMapper 将对象转换为 Map
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> memberMap = objectMapper.convertValue(item, Map.class);
-                        members.add(memberMap);
-                    } catch (Exception e) {
-                        log.warn("转换户籍成员对象失败，跳过: {}", e.getMessage());
-                        continue;
-                    }
-                }
-            } else {
-                log.warn("获取到的户籍成员数据格式不正确，期望 List，实际: {}", 
-                    data != null ? data.getClass().getName() : "null");
-                return;
-            }
-            
-            if (members.isEmpty()) {
-                log.info("没有户籍成员数据需要同步");
-                return;
-            }
-
-            log.info("获取到 {} 条户籍成员数据，开始批量索引", members.size());
-
-            // 批量索引文档
-            List<BulkOperation> bulkOperations = new ArrayList<>();
-            for (Map<String, Object> member : members) {
-                // 转换日期格式
-                convertDateFields(member);
-                
-                String id = member.get("id") != null ? member.get("id").toString() : null;
-                if (id == null) {
-                    log.warn("户籍成员数据缺少ID，跳过: {}", member);
-                    continue;
-                }
-
-                BulkOperation op = BulkOperation.of(o -> o
-                    .index(IndexOperation.of(i -> i
-                        .index(ElasticsearchIndexUtil.HOUSEHOLD_MEMBER_INDEX)
-                        .id(id)
-                        .document(member)
-                    ))
-                );
-                bulkOperations.add(op);
+    private void syncHouseholdMemberData(String index) {
+        log.info("开始同步户籍成员数据");
+        BulkIndexer.Session session = bulkIndexer.open(index, "户籍成员");
+        for (Object item : getDataList(householdMemberServiceClient.getAllHouseholdMembers(), "户籍成员")) {
+            Map<String, Object> member = convertToMap(item, "户籍成员");
+            if (member != null) {
+                addDocument(session, member, "户籍成员");
             }
+        }
+        session.finish();
+    }
 
-            // 分批处理，每批1000条
-            int batchSize = 1000;
-            int successCount = 0;
-            int failCount = 0;
-            for (int i = 0; i < bulkOperations.size(); i += batchSize) {
-                int end = Math.min(i + batchSize, bulkOperations.size());
-                List<BulkOperation> batch = bulkOperations.subList(i, end);
-                int batchNum = i / batchSize + 1;
-                
-                BulkRequest bulkRequest = BulkRequest.of(r -> r.operations(batch));
-                BulkResponse bulkResponse = elasticsearchClient.bulk(bulkRequest);
-                
-                if (bulkResponse.errors()) {
-                    // 详细记录错误信息
-                    log.error("批量索引户籍成员数据时出现错误，批次: {}", batchNum);
-                    if (bulkResponse.items() != null) {
-                        for (BulkResponseItem item : bulkResponse.items()) {
-                            if (item.error() != null) {
-                                log.error("索引失败 - ID: {}, 错误类型: {}, 错误原因: {}", 
-                                    item.id(), item.error().type(), item.error().reason());
-                                failCount++;
-                            } else if (item.index() != null) {
-                                successCount++;
-                            }
-                        }
-                    }
-                } else {
-                    successCount += batch.size();
-                    log.info("成功索引户籍成员数据批次: {}，共 {} 条", batchNum, batch.size());
-                }
-            }
+    /**
+     * 转换日期格式后提交到批量写入会话
+     */
+    private void addDocument(BulkIndexer.Session session, Map<String, Object> document, String label) {
+        String id = document.get("id") != null ? document.get("id").toString() : null;
+        if (id == null) {
+            log.warn("{}数据缺少ID，跳过: {}", label, document);
+            return;
+        }
+        ESDocumentUtil.convertDateFields(document);
+        session.add(id, document);
+    }
 
-            // 刷新索引，使数据立即可搜索
-            try {
-                elasticsearchClient.indices().refresh(r -> r.index(ElasticsearchIndexUtil.HOUSEHOLD_MEMBER_INDEX));
-                log.info("已刷新户籍成员索引");
-            } catch (Exception e) {
-                log.warn("刷新户籍成员索引失败", e);
-            }
+    /**
+     * 校验 Feign 返回结果并取出数据列表
+     */
+    private List<?> getDataList(Result<?> result, String label) {
+        if (result == null) {
+            throw new RuntimeException("获取" + label + "数据失败：Feign调用返回null");
+        }
+        if (result.getCode() != 200) {
+            throw new RuntimeException("获取" + label + "数据失败，code: " + result.getCode() + ", message: " + result.getMessage());
+        }
+        if (!(result.getData() instanceof List)) {
+            log.warn("获取{}数据为空或格式不正确，可能数据库中没有{}数据", label, label);
+            return new ArrayList<>();
+        }
+        return (List<?>) result.getData();
+    }
 
-            log.info("户籍成员数据同步完成，成功: {} 条，失败: {} 条，总计: {} 条", 
-                successCount, failCount, members.size());
+    /**
+     * 使用 ObjectMapper 将 Feign 返回的对象转换为 Map，转换失败返回 null
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> convertToMap(Object item, String label) {
+        try {
+            return objectMapper.convertValue(item, Map.class);
         } catch (Exception e) {
-            log.error("同步户籍成员数据失败", e);
-            throw new RuntimeException("同步户籍成员数据失败", e);
+            log.warn("转换{}对象失败，跳过: {}", label, e.getMessage());
+            return null;
         }
     }
 
     /**
-     * 转换日期字段格式（将 LocalDate、LocalDateTime 转换为字符串）
+     * 构建搜索结果
      */
-    private void convertDateFields(Map<String, Object> map) {
-        // 日期时间格式，用于解析带时间的字符串
-        DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        
-        for (Map.Entry<String, Object> entry : map.entrySet()) {
-            Object value = entry.getValue();
-            if (value != null) {
-                String className = value.getClass().getName();
-                if (className.startsWith("java.time.")) {
-                    // 处理 Java 8 时间类型
-                    if (value instanceof LocalDateTime) {
-                        LocalDateTime dateTime = (LocalDateTime) value;
-                        // 转换为包含时间的格式，以便前端正确显示
-                        entry.setValue(dateTime.format(dateTimeFormatter));
-                    } else if (value instanceof LocalDate) {
-                        LocalDate date = (LocalDate) value;
-                        // LocalDate 只包含日期，使用日期格式
-                        entry.setValue(date.format(dateFormatter));
-                    } else {
-                        // 其他时间类型，转换为字符串
-                        entry.setValue(value.toString());
-                    }
-                } else if (value instanceof String) {
-                    // 处理字符串格式的日期（如 "2022-11-13 00:00:00"）
-                    String strValue = (String) value;
-                    String fieldName = entry.getKey();
-                    // 检查是否是日期字段
-                    if (fieldName.contains("Date") || fieldName.contains("Time")) {
-                        try {
-                            // birthDate 字段特殊处理：只保留日期部分，不包含时间
-                            if ("birthDate".equals(fieldName)) {
-                                if (strValue.contains(" ")) {
-                                    // 如果包含时间部分，只提取日期部分
-                                    String datePart = strValue.substring(0, 10);
-                                    if (datePart.matches("\\d{4}-\\d{2}-\\d{2}")) {
-                                        entry.setValue(datePart);
-                                    }
-                                } else if (strValue.matches("\\d{4}-\\d{2}-\\d{2}")) {
-                                    // 已经是日期格式，保持不变
-                                    // entry.setValue 保持不变
-                                }
-                            } else {
-                                // 其他日期时间字段（createTime、updateTime 等）
-                                // 如果已经包含时间部分（"yyyy-MM-dd HH:mm:ss"），保持原值
-                                if (strValue.contains(" ") && strValue.matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}")) {
-                                    // 已经是完整的时间格式，保持不变，以便前端正确显示
-                                    // entry.setValue 保持不变
-                                } else if (strValue.matches("\\d{4}-\\d{2}-\\d{2}")) {
-                                    // 只有日期格式（"yyyy-MM-dd"），转换为完整时间格式（"yyyy-MM-dd 00:00:00"）
-                                    // 以便与前端期望的格式保持一致
-                                    LocalDate date = LocalDate.parse(strValue, dateFormatter);
-                                    entry.setValue(date.atStartOfDay().format(dateTimeFormatter));
-                                }
-                            }
-                        } catch (Exception e) {
-                            // 解析失败，保持原值
-                            log.debug("日期字段 {} 解析失败，保持原值: {}", fieldName, strValue);
-                        }
-                    }
-                } else if (value instanceof Map) {
-                    // 递归处理嵌套的 Map
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> nestedMap = (Map<String, Object>) value;
-                    convertDateFields(nestedMap);
-                }
-            }
-        }
+    @SuppressWarnings("rawtypes")
+    private Map<String, Object> buildSearchResult(SearchResponse<Map> response) {
+        return buildSearchResult(response.hits());
     }
 
     /**
      * 构建搜索结果
      */
     @SuppressWarnings({"rawtypes", "unchecked"})
-    private Map<String, Object> buildSearchResult(SearchResponse<Map> response) {
+    private Map<String, Object> buildSearchResult(HitsMetadata<Map> searchHits) {
         Map<String, Object> result = new HashMap<>();
         List<Map<String, Object>> hits = new ArrayList<>();
 
-        if (response.hits().hits() != null) {
-            hits = response.hits().hits().stream()
+        if (searchHits.hits() != null) {
+            hits = searchHits.hits().stream()
                 .map(hit -> {
                     Map<String, Object> source = new HashMap<>();
                     if (hit.source() != null) {
@@ -1356,14 +716,14 @@ public class SearchServiceImpl implements SearchService, ESDocumentSyncService {
                         source.put("_score", hit.score());
                     }
                     // 统一转换日期格式为 "yyyy-MM-dd HH:mm:ss"，确保前端正确显示
-                    convertDateFields(source);
+                    ESDocumentUtil.convertDateFields(source);
                     return source;
                 })
                 .collect(Collectors.toList());
         }
 
         long total = 0L;
-        TotalHits totalHits = response.hits().total();
+        TotalHits totalHits = searchHits.total();
         if (totalHits != null) {
             total = totalHits.value();
         }
@@ -1374,85 +734,27 @@ public class SearchServiceImpl implements SearchService, ESDocumentSyncService {
     }
 
     /**
-     * 检查完全匹配并返回结果（如果存在）
-     * @param index 索引名称
+     * 构建完全匹配查询：任一字段与关键词完全相同，且满足过滤条件
      * @param exactMatchFields 完全匹配的字段列表（字段名数组）
      * @param keyword 搜索关键词
-     * @return 如果找到完全匹配，返回结果；否则返回null
+     * @param filters 过滤条件（与列表查询相同，完全匹配的结果也必须满足）
      */
-    @SuppressWarnings({"rawtypes", "unchecked"})
-    private Map<String, Object> checkExactMatch(String index, String[] exactMatchFields, String keyword) {
-        try {
-            if (keyword == null || keyword.trim().isEmpty()) {
-                return null;
-            }
-            
-            String trimmedKeyword = keyword.trim();
-            BoolQuery.Builder exactMatchBuilder = new BoolQuery.Builder();
-            
-            // 为每个字段添加完全匹配查询
-            for (String field : exactMatchFields) {
-                exactMatchBuilder.should(Query.of(q -> q.term(t -> t
-                    .field(field)
-                    .value(trimmedKeyword)
-                )));
-            }
-            
-            // 添加 deleted=0 的过滤条件（仅对用户索引）
-            if (ElasticsearchIndexUtil.USER_INDEX.equals(index) || 
-                ElasticsearchIndexUtil.RESIDENT_INDEX.equals(index) ||
-                ElasticsearchIndexUtil.HOUSEHOLD_INDEX.equals(index)) {
-                exactMatchBuilder.must(Query.of(q -> q.term(t -> t
-                    .field("deleted")
-                    .value(0)
-                )));
-            }
-            
-            Query exactMatchQuery = Query.of(q -> q.bool(exactMatchBuilder.build()));
-            
-            // 按 id 升序排序，确保返回 id 最小的完全匹配结果
-            SortOptions sortOptions = SortOptions.of(s -> s
-                .field(f -> f
-                    .field("id")
-                    .order(SortOrder.Asc)
-                )
-            );
-            
-            SearchResponse<Map> exactResponse = elasticsearchClient.search(
-                SearchRequest.of(s -> s
-                    .index(index)
-                    .query(exactMatchQuery)
-                    .size(1)  // 只取第一条完全匹配的结果
-                    .sort(sortOptions)
-                ),
-                Map.class
-            );
-            
-            // 如果找到完全匹配的结果，只返回那一条
-            if (exactResponse.hits().hits() != null && !exactResponse.hits().hits().isEmpty()) {
-                Map<String, Object> result = new HashMap<>();
-                List<Map<String, Object>> hits = new ArrayList<>();
-                
-                Hit<Map> hit = exactResponse.hits().hits().get(0);
-                Map<String, Object> source = new HashMap<>();
-                if (hit.source() != null) {
-                    source.putAll((Map<? extends String, ?>) hit.source());
-                }
-                source.put("_id", hit.id());
-                if (hit.score() != null) {
-                    source.put("_score", hit.score());
-                }
-                hits.add(source);
-                
-                result.put("total", 1L);
-                result.put("hits", hits);
-                return result;
-            }
-        } catch (Exception e) {
-            log.debug("完全匹配查询失败，继续使用模糊匹配: {}", e.getMessage());
+    private Query exactMatchQuery(String[] exactMatchFields, String keyword, List<Query> filters) {
+        String trimmedKeyword = keyword.trim();
+        BoolQuery.Builder exactMatchBuilder = new BoolQuery.Builder();
+        
+        // 为每个字段添加完全匹配查询
+        for (String field : exactMatchFields) {
+            exactMatchBuilder.should(Query.of(q -> q.term(t -> t
+                .field(field)
+                .value(trimmedKeyword)
+            )));
         }
         
-        return null;
+        // 至少命中一个完全匹配字段，并满足过滤条件
+        exactMatchBuilder.minimumShouldMatch("1");
+        exactMatchBuilder.filter(filters);
+        return Query.of(q -> q.bool(exactMatchBuilder.build()));
     }
     
     // ========== 查询操作实现 ==========
@@ -1487,7 +789,7 @@ public class SearchServiceImpl implements SearchService, ESDocumentSyncService {
     public String saveDocument(String index, Map<String, Object> document) {
         try {
             // 转换日期字段格式
-            convertDateFields(document);
+            ESDocumentUtil.convertDateFields(document);
             
             Object idObj = document.get("id");
             String id = idObj != null ? idObj.toString() : null;
@@ -1518,7 +820,7 @@ public class SearchServiceImpl implements SearchService, ESDocumentSyncService {
     public boolean updateDocument(String index, Long id, Map<String, Object> document) {
         try {
             // 转换日期字段格式
-            convertDateFields(document);
+            ESDocumentUtil.convertDateFields(document);
             
             elasticsearchClient.update(u -> u
                 .index(index)
@@ -1563,7 +865,7 @@ public class SearchServiceImpl implements SearchService, ESDocumentSyncService {
             List<BulkOperation> bulkOperations = new ArrayList<>();
             for (Map<String, Object> doc : documents) {
                 // 转换日期字段格式
-                convertDateFields(doc);
+                ESDocumentUtil.convertDateFields(doc);
                 
                 Object idObj = doc.get("id");
                 String id = idObj != null ? idObj.toString() : null;
@@ -1619,7 +921,7 @@ public class SearchServiceImpl implements SearchService, ESDocumentSyncService {
             List<BulkOperation> bulkOperations = new ArrayList<>();
             for (Map<String, Object> doc : documents) {
                 // 转换日期字段格式
-                convertDateFields(doc);
+                ESDocumentUtil.convertDateFields(doc);
                 
                 Object idObj = doc.get("id");
                 if (idObj == null) {
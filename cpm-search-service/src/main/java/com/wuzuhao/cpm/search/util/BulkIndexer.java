@@ -0,0 +1,320 @@
+package com.wuzuhao.cpm.search.util;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.CreateOperation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Elasticsearch 批量写入管道
+ *
+ * 调用方（通常是分页拉取数据的同步线程）通过 {@link Session#add} 逐条提交文档，文档按字节数攒成批次后
+ * 交给发送线程池异步执行 _bulk，调用方随即继续拉取和转换下一页数据。
+ * 所有会话共享同一个在途请求上限，达到上限时 add 会阻塞（背压），避免压垮 ES 集群或撑爆内存。
+ * 被 ES 以 429（队列已满）拒绝的条目会单独退避重试，其他错误直接计为失败。
+ * 只要有条目失败，{@link Session#finish} 就会抛出异常，调用方据此放弃新版本，避免缺少文档的索引被发布。
+ *
+ * 文档以 create（op_type=create）写入：重建期间增量同步会同时写入新版本，增量写入的数据比灌数拉取的快照更新，
+ * 已存在的文档返回 409 冲突，计为跳过，保留增量写入的版本。
+ */
+@Slf4j
+@Component
+public class BulkIndexer {
+
+    @Autowired
+    private ElasticsearchClient elasticsearchClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 单个批次的最大字节数（按文档JSON大小估算）
+     */
+    @Value("${elasticsearch.bulk.max-batch-bytes:5242880}")
+    private long maxBatchBytes;
+
+    /**
+     * 单个批次的最大文档数
+     */
+    @Value("${elasticsearch.bulk.max-batch-actions:5000}")
+    private int maxBatchActions;
+
+    /**
+     * 同时在途的 bulk 请求数（所有会话共享），同时也是发送线程数
+     */
+    @Value("${elasticsearch.bulk.max-in-flight:4}")
+    private int maxInFlight;
+
+    /**
+     * 429 拒绝或请求异常时的最大重试次数
+     */
+    @Value("${elasticsearch.bulk.max-retries:3}")
+    private int maxRetries;
+
+    /**
+     * 首次重试的退避时间（毫秒），之后每次翻倍
+     */
+    @Value("${elasticsearch.bulk.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
+    private ExecutorService sender;
+
+    private Semaphore inFlight;
+
+    /**
+     * 每类数据最近一次写入的统计信息（key 为数据名称）
+     */
+    private final Map<String, Map<String, Object>> lastStats = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        sender = new ThreadPoolExecutor(maxInFlight, maxInFlight, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "es-bulk-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        inFlight = new Semaphore(maxInFlight);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        sender.shutdown();
+    }
+
+    /**
+     * 打开一个写入会话
+     * @param index 目标索引
+     * @param label 数据名称（用于日志）
+     */
+    public Session open(String index, String label) {
+        return new Session(index, label);
+    }
+
+    /**
+     * 获取每类数据最近一次写入的统计信息
+     */
+    public Map<String, Map<String, Object>> getLastStats() {
+        return new LinkedHashMap<>(lastStats);
+    }
+
+    /**
+     * 写入会话，单个会话只应由一个线程调用 add / finish
+     */
+    public class Session {
+
+        private final String index;
+        private final String label;
+        private final long startTime = System.currentTimeMillis();
+
+        private List<BulkOperation> batch = new ArrayList<>();
+        private long batchBytes = 0;
+        private final List<Future<?>> pending = new ArrayList<>();
+
+        private final AtomicLong succeeded = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong retried = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicInteger batches = new AtomicInteger();
+        private volatile Exception fatal;
+
+        private Session(String index, String label) {
+            this.index = index;
+            this.label = label;
+        }
+
+        /**
+         * 提交一条文档，批次写满时异步发送；在途请求达到上限时阻塞
+         */
+        public void add(String id, Map<String, Object> document) {
+            long size;
+            try {
+                size = objectMapper.writeValueAsBytes(document).length;
+            } catch (IOException e) {
+                log.warn("{}文档序列化失败，跳过，ID: {}", label, id);
+                failed.incrementAndGet();
+                return;
+            }
+            batch.add(BulkOperation.of(o -> o
+                .create(CreateOperation.of(c -> c
+                    .index(index)
+                    .id(id)
+                    .document(document)
+                ))
+            ));
+            batchBytes += size;
+            if (batchBytes >= maxBatchBytes || batch.size() >= maxBatchActions) {
+                flush();
+            }
+        }
+
+        /**
+         * 发送剩余批次并等待所有在途请求完成
+         * @return 本次写入的统计信息
+         * @throws RuntimeException 请求失败或有文档写入失败（包括重试后仍被 429 拒绝）时抛出
+         */
+        public Map<String, Object> finish() {
+            flush();
+            for (Future<?> future : pending) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("等待批量写入完成时被中断", e);
+                } catch (ExecutionException e) {
+                    fatal = e;
+                }
+            }
+            Map<String, Object> stats = buildStats();
+            lastStats.put(label, stats);
+            log.info("{}数据批量写入完成: {}", label, stats);
+            if (fatal != null) {
+                throw new RuntimeException("批量写入" + label + "数据失败", fatal);
+            }
+            if (failed.get() > 0) {
+                throw new RuntimeException("批量写入" + label + "数据失败，失败文档数: " + failed.get());
+            }
+            return stats;
+        }
+
+        private void flush() {
+            if (fatal != null) {
+                throw new RuntimeException("批量写入" + label + "数据失败", fatal);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<BulkOperation> operations = batch;
+            long operationBytes = batchBytes;
+            batch = new ArrayList<>();
+            batchBytes = 0;
+            try {
+                // 背压：在途请求达到上限时阻塞调用方，直到有请求完成
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("等待批量写入时被中断", e);
+            }
+            try {
+                pending.add(sender.submit(() -> {
+                    try {
+                        send(operations);
+                        bytes.addAndGet(operationBytes);
+                        batches.incrementAndGet();
+                    } catch (Exception e) {
+                        fatal = e;
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            } catch (RuntimeException e) {
+                inFlight.release();
+                throw e;
+            }
+        }
+
+        /**
+         * 发送一个批次，只重试被 429 拒绝的条目
+         */
+        private void send(List<BulkOperation> operations) throws IOException, InterruptedException {
+            List<BulkOperation> remaining = operations;
+            for (int attempt = 0; ; attempt++) {
+                List<BulkOperation> toSend = remaining;
+                BulkResponse response;
+                try {
+                    response = elasticsearchClient.bulk(BulkRequest.of(r -> r.operations(toSend)));
+                } catch (IOException e) {
+                    if (attempt >= maxRetries) {
+                        throw e;
+                    }
+                    log.warn("{}数据批量写入请求失败，{}ms 后重试（第{}次）: {}",
+                            label, backoff(attempt), attempt + 1, e.getMessage());
+                    Thread.sleep(backoff(attempt));
+                    continue;
+                }
+
+                if (!response.errors()) {
+                    succeeded.addAndGet(toSend.size());
+                    return;
+                }
+
+                List<BulkOperation> rejected = new ArrayList<>();
+                List<BulkResponseItem> items = response.items();
+                for (int i = 0; i < items.size(); i++) {
+                    BulkResponseItem item = items.get(i);
+                    if (item.error() == null) {
+                        succeeded.incrementAndGet();
+                    } else if (item.status() == 409) {
+                        // 增量同步已写入更新的版本
+                        skipped.incrementAndGet();
+                    } else if (item.status() == 429) {
+                        rejected.add(toSend.get(i));
+                    } else {
+                        failed.incrementAndGet();
+                        log.error("索引失败 - ID: {}, 错误类型: {}, 错误原因: {}",
+                                item.id(), item.error().type(), item.error().reason());
+                    }
+                }
+                if (rejected.isEmpty()) {
+                    return;
+                }
+                if (attempt >= maxRetries) {
+                    failed.addAndGet(rejected.size());
+                    log.error("{}数据有 {} 条在重试 {} 次后仍被拒绝(429)", label, rejected.size(), maxRetries);
+                    return;
+                }
+                retried.addAndGet(rejected.size());
+                Thread.sleep(backoff(attempt));
+                remaining = rejected;
+            }
+        }
+
+        private long backoff(int attempt) {
+            return retryBackoffMs << attempt;
+        }
+
+        private Map<String, Object> buildStats() {
+            long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("index", index);
+            stats.put("succeeded", succeeded.get());
+            stats.put("failed", failed.get());
+            stats.put("skipped", skipped.get());
+            stats.put("retried", retried.get());
+            stats.put("batches", batches.get());
+            stats.put("bytes", bytes.get());
+            stats.put("elapsedMs", elapsed);
+            stats.put("docsPerSecond", succeeded.get() * 1000 / elapsed);
+            stats.put("bytesPerSecond", bytes.get() * 1000 / elapsed);
+            stats.put("finishedAt", System.currentTimeMillis());
+            return stats;
+        }
+    }
+}
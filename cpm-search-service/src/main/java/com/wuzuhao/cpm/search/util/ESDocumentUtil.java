@@ -0,0 +1,89 @@
+package com.wuzuhao.cpm.search.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+/**
+ * ES文档处理工具类
+ * 索引重建和增量同步写入文档前共用的字段格式转换
+ */
+@Slf4j
+public class ESDocumentUtil {
+
+    /**
+     * 转换日期字段格式（将 LocalDate、LocalDateTime 转换为字符串）
+     */
+    public static void convertDateFields(Map<String, Object> map) {
+        // 日期时间格式，用于解析带时间的字符串
+        DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            Object value = entry.getValue();
+            if (value != null) {
+                String className = value.getClass().getName();
+                if (className.startsWith("java.time.")) {
+                    // 处理 Java 8 时间类型
+                    if (value instanceof LocalDateTime) {
+                        LocalDateTime dateTime = (LocalDateTime) value;
+                        // 转换为包含时间的格式，以便前端正确显示
+                        entry.setValue(dateTime.format(dateTimeFormatter));
+                    } else if (value instanceof LocalDate) {
+                        LocalDate date = (LocalDate) value;
+                        // LocalDate 只包含日期，使用日期格式
+                        entry.setValue(date.format(dateFormatter));
+                    } else {
+                        // 其他时间类型，转换为字符串
+                        entry.setValue(value.toString());
+                    }
+                } else if (value instanceof String) {
+                    // 处理字符串格式的日期（如 "2022-11-13 00:00:00"）
+                    String strValue = (String) value;
+                    String fieldName = entry.getKey();
+                    // 检查是否是日期字段
+                    if (fieldName.contains("Date") || fieldName.contains("Time")) {
+                        try {
+                            // birthDate 字段特殊处理：只保留日期部分，不包含时间
+                            if ("birthDate".equals(fieldName)) {
+                                if (strValue.contains(" ")) {
+                                    // 如果包含时间部分，只提取日期部分
+                                    String datePart = strValue.substring(0, 10);
+                                    if (datePart.matches("\\d{4}-\\d{2}-\\d{2}")) {
+                                        entry.setValue(datePart);
+                                    }
+                                } else if (strValue.matches("\\d{4}-\\d{2}-\\d{2}")) {
+                                    // 已经是日期格式，保持不变
+                                    // entry.setValue 保持不变
+                                }
+                            } else {
+                                // 其他日期时间字段（createTime、updateTime 等）
+                                // 如果已经包含时间部分（"yyyy-MM-dd HH:mm:ss"），保持原值
+                                if (strValue.contains(" ") && strValue.matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}")) {
+                                    // 已经是完整的时间格式，保持不变，以便前端正确显示
+                                    // entry.setValue 保持不变
+                                } else if (strValue.matches("\\d{4}-\\d{2}-\\d{2}")) {
+                                    // 只有日期格式（"yyyy-MM-dd"），转换为完整时间格式（"yyyy-MM-dd 00:00:00"）
+                                    // 以便与前端期望的格式保持一致
+                                    LocalDate date = LocalDate.parse(strValue, dateFormatter);
+                                    entry.setValue(date.atStartOfDay().format(dateTimeFormatter));
+                                }
+                            }
+                        } catch (Exception e) {
+                            // 解析失败，保持原值
+                            log.debug("日期字段 {} 解析失败，保持原值: {}", fieldName, strValue);
+                        }
+                    }
+                } else if (value instanceof Map) {
+                    // 递归处理嵌套的 Map
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> nestedMap = (Map<String, Object>) value;
+                    convertDateFields(nestedMap);
+                }
+            }
+        }
+    }
+}
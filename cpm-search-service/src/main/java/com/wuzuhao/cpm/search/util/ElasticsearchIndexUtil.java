@@ -1,19 +1,38 @@
 package com.wuzuhao.cpm.search.util;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryRequest;
 import co.elastic.clients.elasticsearch.indices.CreateIndexRequest;
 import co.elastic.clients.elasticsearch.indices.ElasticsearchIndicesClient;
+import co.elastic.clients.elasticsearch.indices.ExistsAliasRequest;
 import co.elastic.clients.elasticsearch.indices.ExistsRequest;
+import co.elastic.clients.elasticsearch.indices.GetAliasRequest;
+import co.elastic.clients.elasticsearch.indices.GetIndexRequest;
+import co.elastic.clients.elasticsearch.indices.IndexState;
+import co.elastic.clients.elasticsearch.indices.PutIndicesSettingsRequest;
+import co.elastic.clients.elasticsearch.indices.UpdateAliasesRequest;
+import co.elastic.clients.elasticsearch.indices.update_aliases.Action;
 import co.elastic.clients.transport.endpoints.BooleanResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Elasticsearch索引工具类
  * 用于创建和管理索引映射配置
+ *
+ * 对外使用的索引名（如 resident_index）都是别名，实际数据存放在带版本号的物理索引中（如 resident_index_v3）。
+ * 重建索引时先在后台创建并灌入新版本，完成后原子切换别名并删除旧版本，重建期间搜索不受影响。
+ * 正在灌数的新版本挂在 {别名}_building 别名上，所有搜索服务实例的增量同步都据此把变更同时写入新版本。
  */
 @Slf4j
 @Component
@@ -29,532 +48,592 @@ public class ElasticsearchIndexUtil {
     public static final String HOUSEHOLD_MEMBER_INDEX = "household_member_index";
 
     /**
-     * 创建居民索引
+     * 物理索引版本号分隔符：{别名}_v{版本号}
      */
-    public void createResidentIndex() {
-        try {
-            ElasticsearchIndicesClient indicesClient = elasticsearchClient.indices();
-            
-            // 检查索引是否存在
-            BooleanResponse exists = indicesClient.exists(
-                ExistsRequest.of(e -> e.index(RESIDENT_INDEX))
-            );
-            
-            if (exists.value()) {
-                log.info("居民索引 {} 已存在", RESIDENT_INDEX);
-                return;
-            }
+    private static final String VERSION_SEPARATOR = "_v";
 
-            // 定义索引映射
-            String mappingJson = "{\n" +
-                "  \"mappings\": {\n" +
-                "    \"properties\": {\n" +
-                "      \"id\": {\n" +
-                "        \"type\": \"long\"\n" +
-                "      },\n" +
-                "      \"userId\": {\n" +
-                "        \"type\": \"long\"\n" +
-                "      },\n" +
-                "      \"realName\": {\n" +
-                "        \"type\": \"text\",\n" +
-                "        \"analyzer\": \"standard\",\n" +
-                "        \"fields\": {\n" +
-                "          \"keyword\": {\n" +
-                "            \"type\": \"keyword\"\n" +
-                "          }\n" +
-                "        }\n" +
-                "      },\n" +
-                "      \"idCard\": {\n" +
-                "        \"type\": \"keyword\"\n" +
-                "      },\n" +
-                "      \"gender\": {\n" +
-                "        \"type\": \"integer\"\n" +
-                "      },\n" +
-                "      \"birthDate\": {\n" +
-                "        \"type\": \"date\",\n" +
-                "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
-                "      },\n" +
-                "      \"nationality\": {\n" +
-                "        \"type\": \"keyword\"\n" +
-                "      },\n" +
-                "      \"registeredAddress\": {\n" +
-                "        \"type\": \"text\",\n" +
-                "        \"analyzer\": \"standard\"\n" +
-                "      },\n" +
-                "      \"currentAddress\": {\n" +
-                "        \"type\": \"text\",\n" +
-                "        \"analyzer\": \"standard\"\n" +
-                "      },\n" +
-                "      \"occupation\": {\n" +
-                "        \"type\": \"keyword\"\n" +
-                "      },\n" +
-                "      \"education\": {\n" +
-                "        \"type\": \"keyword\"\n" +
-                "      },\n" +
-                "      \"maritalStatus\": {\n" +
-                "        \"type\": \"integer\"\n" +
-                "      },\n" +
-                "      \"contactPhone\": {\n" +
-                "        \"type\": \"keyword\"\n" +
-                "      },\n" +
-                "      \"emergencyContact\": {\n" +
-                "        \"type\": \"text\"\n" +
-                "      },\n" +
-                "      \"emergencyPhone\": {\n" +
-                "        \"type\": \"keyword\"\n" +
-                "      },\n" +
-                "      \"remark\": {\n" +
-                "        \"type\": \"text\"\n" +
-                "      },\n" +
-                "      \"createTime\": {\n" +
-                "        \"type\": \"date\",\n" +
-                "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
-                "      },\n" +
-                "      \"updateTime\": {\n" +
-                "        \"type\": \"date\",\n" +
-                "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
-                "      }\n" +
-                "    }\n" +
-                "  }\n" +
-                "}";
-
-            // 创建索引
-            indicesClient.create(CreateIndexRequest.of(c -> c
-                .index(RESIDENT_INDEX)
-                .withJson(new StringReader(mappingJson))
-            ));
+    /**
+     * 正在重建的新版本别名后缀：{别名}_building
+     */
+    private static final String BUILDING_SUFFIX = "_building";
 
-            log.info("成功创建居民索引: {}", RESIDENT_INDEX);
-        } catch (Exception e) {
-            log.error("创建居民索引失败", e);
-            throw new RuntimeException("创建居民索引失败", e);
-        }
+    /**
+     * 批量灌数完成后恢复的副本数
+     */
+    @Value("${elasticsearch.index.number-of-replicas:1}")
+    private String numberOfReplicas;
+
+    /**
+     * 批量灌数完成后恢复的刷新间隔
+     */
+    @Value("${elasticsearch.index.refresh-interval:1s}")
+    private String refreshInterval;
+
+    /**
+     * 居民索引映射
+     */
+    private static final String RESIDENT_MAPPING = "{\n" +
+        "  \"mappings\": {\n" +
+        "    \"properties\": {\n" +
+        "      \"id\": {\n" +
+        "        \"type\": \"long\"\n" +
+        "      },\n" +
+        "      \"deleted\": {\n" +
+        "        \"type\": \"integer\"\n" +
+        "      },\n" +
+        "      \"userId\": {\n" +
+        "        \"type\": \"long\"\n" +
+        "      },\n" +
+        "      \"realName\": {\n" +
+        "        \"type\": \"text\",\n" +
+        "        \"analyzer\": \"standard\",\n" +
+        "        \"fields\": {\n" +
+        "          \"keyword\": {\n" +
+        "            \"type\": \"keyword\"\n" +
+        "          }\n" +
+        "        }\n" +
+        "      },\n" +
+        "      \"idCard\": {\n" +
+        "        \"type\": \"keyword\"\n" +
+        "      },\n" +
+        "      \"gender\": {\n" +
+        "        \"type\": \"integer\"\n" +
+        "      },\n" +
+        "      \"birthDate\": {\n" +
+        "        \"type\": \"date\",\n" +
+        "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
+        "      },\n" +
+        "      \"nationality\": {\n" +
+        "        \"type\": \"keyword\"\n" +
+        "      },\n" +
+        "      \"registeredAddress\": {\n" +
+        "        \"type\": \"text\",\n" +
+        "        \"analyzer\": \"standard\"\n" +
+        "      },\n" +
+        "      \"currentAddress\": {\n" +
+        "        \"type\": \"text\",\n" +
+        "        \"analyzer\": \"standard\"\n" +
+        "      },\n" +
+        "      \"occupation\": {\n" +
+        "        \"type\": \"keyword\"\n" +
+        "      },\n" +
+        "      \"education\": {\n" +
+        "        \"type\": \"keyword\"\n" +
+        "      },\n" +
+        "      \"maritalStatus\": {\n" +
+        "        \"type\": \"integer\"\n" +
+        "      },\n" +
+        "      \"contactPhone\": {\n" +
+        "        \"type\": \"keyword\"\n" +
+        "      },\n" +
+        "      \"emergencyContact\": {\n" +
+        "        \"type\": \"text\"\n" +
+        "      },\n" +
+        "      \"emergencyPhone\": {\n" +
+        "        \"type\": \"keyword\"\n" +
+        "      },\n" +
+        "      \"remark\": {\n" +
+        "        \"type\": \"text\"\n" +
+        "      },\n" +
+        "      \"createTime\": {\n" +
+        "        \"type\": \"date\",\n" +
+        "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
+        "      },\n" +
+        "      \"updateTime\": {\n" +
+        "        \"type\": \"date\",\n" +
+        "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
+        "      }\n" +
+        "    }\n" +
+        "  }\n" +
+        "}";
+
+    /**
+     * 户籍索引映射
+     */
+    private static final String HOUSEHOLD_MAPPING = "{\n" +
+        "  \"mappings\": {\n" +
+        "    \"properties\": {\n" +
+        "      \"id\": {\n" +
+        "        \"type\": \"long\"\n" +
+        "      },\n" +
+        "      \"deleted\": {\n" +
+        "        \"type\": \"integer\"\n" +
+        "      },\n" +
+        "      \"headId\": {\n" +
+        "        \"type\": \"long\"\n" +
+        "      },\n" +
+        "      \"headName\": {\n" +
+        "        \"type\": \"text\",\n" +
+        "        \"analyzer\": \"standard\",\n" +
+        "        \"fields\": {\n" +
+        "          \"keyword\": {\n" +
+        "            \"type\": \"keyword\"\n" +
+        "          }\n" +
+        "        }\n" +
+        "      },\n" +
+        "      \"headIdCard\": {\n" +
+        "        \"type\": \"keyword\"\n" +
+        "      },\n" +
+        "      \"householdNo\": {\n" +
+        "        \"type\": \"keyword\"\n" +
+        "      },\n" +
+        "      \"address\": {\n" +
+        "        \"type\": \"text\",\n" +
+        "        \"analyzer\": \"standard\"\n" +
+        "      },\n" +
+        "      \"householdType\": {\n" +
+        "        \"type\": \"integer\"\n" +
+        "      },\n" +
+        "      \"memberCount\": {\n" +
+        "        \"type\": \"integer\"\n" +
+        "      },\n" +
+        "      \"contactPhone\": {\n" +
+        "        \"type\": \"keyword\"\n" +
+        "      },\n" +
+        "      \"moveInDate\": {\n" +
+        "        \"type\": \"date\",\n" +
+        "        \"format\": \"yyyy-MM-dd||yyyy-MM-dd HH:mm:ss||strict_date_optional_time||epoch_millis\"\n" +
+        "      },\n" +
+        "      \"moveOutDate\": {\n" +
+        "        \"type\": \"date\",\n" +
+        "        \"format\": \"yyyy-MM-dd||yyyy-MM-dd HH:mm:ss||strict_date_optional_time||epoch_millis\"\n" +
+        "      },\n" +
+        "      \"moveInReason\": {\n" +
+        "        \"type\": \"text\"\n" +
+        "      },\n" +
+        "      \"moveOutReason\": {\n" +
+        "        \"type\": \"text\"\n" +
+        "      },\n" +
+        "      \"status\": {\n" +
+        "        \"type\": \"integer\"\n" +
+        "      },\n" +
+        "      \"remark\": {\n" +
+        "        \"type\": \"text\"\n" +
+        "      },\n" +
+        "      \"createTime\": {\n" +
+        "        \"type\": \"date\",\n" +
+        "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
+        "      },\n" +
+        "      \"updateTime\": {\n" +
+        "        \"type\": \"date\",\n" +
+        "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
+        "      }\n" +
+        "    }\n" +
+        "  }\n" +
+        "}";
+
+    /**
+     * 用户索引映射
+     */
+    private static final String USER_MAPPING = "{\n" +
+        "  \"mappings\": {\n" +
+        "    \"properties\": {\n" +
+        "      \"id\": {\n" +
+        "        \"type\": \"long\"\n" +
+        "      },\n" +
+        "      \"deleted\": {\n" +
+        "        \"type\": \"integer\"\n" +
+        "      },\n" +
+        "      \"username\": {\n" +
+        "        \"type\": \"text\",\n" +
+        "        \"analyzer\": \"standard\",\n" +
+        "        \"fields\": {\n" +
+        "          \"keyword\": {\n" +
+        "            \"type\": \"keyword\"\n" +
+        "          }\n" +
+        "        }\n" +
+        "      },\n" +
+        "      \"realName\": {\n" +
+        "        \"type\": \"text\",\n" +
+        "        \"analyzer\": \"standard\",\n" +
+        "        \"fields\": {\n" +
+        "          \"keyword\": {\n" +
+        "            \"type\": \"keyword\"\n" +
+        "          }\n" +
+        "        }\n" +
+        "      },\n" +
+        "      \"phone\": {\n" +
+        "        \"type\": \"keyword\"\n" +
+        "      },\n" +
+        "      \"email\": {\n" +
+        "        \"type\": \"keyword\"\n" +
+        "      },\n" +
+        "      \"avatar\": {\n" +
+        "        \"type\": \"keyword\"\n" +
+        "      },\n" +
+        "      \"role\": {\n" +
+        "        \"type\": \"keyword\"\n" +
+        "      },\n" +
+        "      \"status\": {\n" +
+        "        \"type\": \"integer\"\n" +
+        "      },\n" +
+        "      \"createTime\": {\n" +
+        "        \"type\": \"date\",\n" +
+        "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
+        "      },\n" +
+        "      \"updateTime\": {\n" +
+        "        \"type\": \"date\",\n" +
+        "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
+        "      }\n" +
+        "    }\n" +
+        "  }\n" +
+        "}";
+
+    /**
+     * 管理员索引映射
+     */
+    private static final String ADMIN_MAPPING = "{\n" +
+        "  \"mappings\": {\n" +
+        "    \"properties\": {\n" +
+        "      \"id\": {\n" +
+        "        \"type\": \"long\"\n" +
+        "      },\n" +
+        "      \"deleted\": {\n" +
+        "        \"type\": \"integer\"\n" +
+        "      },\n" +
+        "      \"userId\": {\n" +
+        "        \"type\": \"long\"\n" +
+        "      },\n" +
+        "      \"adminNo\": {\n" +
+        "        \"type\": \"text\",\n" +
+        "        \"analyzer\": \"standard\",\n" +
+        "        \"fields\": {\n" +
+        "          \"keyword\": {\n" +
+        "            \"type\": \"keyword\"\n" +
+        "          }\n" +
+        "        }\n" +
+        "      },\n" +
+        "      \"department\": {\n" +
+        "        \"type\": \"text\",\n" +
+        "        \"analyzer\": \"standard\",\n" +
+        "        \"fields\": {\n" +
+        "          \"keyword\": {\n" +
+        "            \"type\": \"keyword\"\n" +
+        "          }\n" +
+        "        }\n" +
+        "      },\n" +
+        "      \"position\": {\n" +
+        "        \"type\": \"keyword\"\n" +
+        "      },\n" +
+        "      \"remark\": {\n" +
+        "        \"type\": \"text\"\n" +
+        "      },\n" +
+        "      \"createTime\": {\n" +
+        "        \"type\": \"date\",\n" +
+        "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
+        "      },\n" +
+        "      \"updateTime\": {\n" +
+        "        \"type\": \"date\",\n" +
+        "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
+        "      }\n" +
+        "    }\n" +
+        "  }\n" +
+        "}";
+
+    /**
+     * 户籍成员索引映射
+     */
+    private static final String HOUSEHOLD_MEMBER_MAPPING = "{\n" +
+        "  \"mappings\": {\n" +
+        "    \"properties\": {\n" +
+        "      \"id\": {\n" +
+        "        \"type\": \"long\"\n" +
+        "      },\n" +
+        "      \"deleted\": {\n" +
+        "        \"type\": \"integer\"\n" +
+        "      },\n" +
+        "      \"householdId\": {\n" +
+        "        \"type\": \"long\"\n" +
+        "      },\n" +
+        "      \"residentId\": {\n" +
+        "        \"type\": \"long\"\n" +
+        "      },\n" +
+        "      \"relationship\": {\n" +
+        "        \"type\": \"keyword\"\n" +
+        "      },\n" +
+        "      \"createTime\": {\n" +
+        "        \"type\": \"date\",\n" +
+        "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
+        "      },\n" +
+        "      \"updateTime\": {\n" +
+        "        \"type\": \"date\",\n" +
+        "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
+        "      }\n" +
+        "    }\n" +
+        "  }\n" +
+        "}";
+
+    /**
+     * 创建居民索引
+     */
+    public void createResidentIndex() {
+        createIndexIfAbsent(RESIDENT_INDEX, "居民");
     }
 
     /**
      * 创建户籍索引
      */
     public void createHouseholdIndex() {
-        try {
-            ElasticsearchIndicesClient indicesClient = elasticsearchClient.indices();
-            
-            // 检查索引是否存在
-            BooleanResponse exists = indicesClient.exists(
-                ExistsRequest.of(e -> e.index(HOUSEHOLD_INDEX))
-            );
-            
-            if (exists.value()) {
-                log.info("户籍索引 {} 已存在", HOUSEHOLD_INDEX);
-                return;
-            }
-
-            // 定义索引映射
-            String mappingJson = "{\n" +
-                "  \"mappings\": {\n" +
-                "    \"properties\": {\n" +
-                "      \"id\": {\n" +
-                "        \"type\": \"long\"\n" +
-                "      },\n" +
-                "      \"headId\": {\n" +
-                "        \"type\": \"long\"\n" +
-                "      },\n" +
-                "      \"headName\": {\n" +
-                "        \"type\": \"text\",\n" +
-                "        \"analyzer\": \"standard\",\n" +
-                "        \"fields\": {\n" +
-                "          \"keyword\": {\n" +
-                "            \"type\": \"keyword\"\n" +
-                "          }\n" +
-                "        }\n" +
-                "      },\n" +
-                "      \"headIdCard\": {\n" +
-                "        \"type\": \"keyword\"\n" +
-                "      },\n" +
-                "      \"householdNo\": {\n" +
-                "        \"type\": \"keyword\"\n" +
-                "      },\n" +
-                "      \"address\": {\n" +
-                "        \"type\": \"text\",\n" +
-                "        \"analyzer\": \"standard\"\n" +
-                "      },\n" +
-                "      \"householdType\": {\n" +
-                "        \"type\": \"integer\"\n" +
-                "      },\n" +
-                "      \"memberCount\": {\n" +
-                "        \"type\": \"integer\"\n" +
-                "      },\n" +
-                "      \"contactPhone\": {\n" +
-                "        \"type\": \"keyword\"\n" +
-                "      },\n" +
-                "      \"moveInDate\": {\n" +
-                "        \"type\": \"date\",\n" +
-                "        \"format\": \"yyyy-MM-dd||yyyy-MM-dd HH:mm:ss||strict_date_optional_time||epoch_millis\"\n" +
-                "      },\n" +
-                "      \"moveOutDate\": {\n" +
-                "        \"type\": \"date\",\n" +
-                "        \"format\": \"yyyy-MM-dd||yyyy-MM-dd HH:mm:ss||strict_date_optional_time||epoch_millis\"\n" +
-                "      },\n" +
-                "      \"moveInReason\": {\n" +
-                "        \"type\": \"text\"\n" +
-                "      },\n" +
-                "      \"moveOutReason\": {\n" +
-                "        \"type\": \"text\"\n" +
-                "      },\n" +
-                "      \"status\": {\n" +
-                "        \"type\": \"integer\"\n" +
-                "      },\n" +
-                "      \"remark\": {\n" +
-                "        \"type\": \"text\"\n" +
-                "      },\n" +
-                "      \"createTime\": {\n" +
-                "        \"type\": \"date\",\n" +
-                "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
-                "      },\n" +
-                "      \"updateTime\": {\n" +
-                "        \"type\": \"date\",\n" +
-                "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
-                "      }\n" +
-                "    }\n" +
-                "  }\n" +
-                "}";
-
-            // 创建索引
-            indicesClient.create(CreateIndexRequest.of(c -> c
-                .index(HOUSEHOLD_INDEX)
-                .withJson(new StringReader(mappingJson))
-            ));
-
-            log.info("成功创建户籍索引: {}", HOUSEHOLD_INDEX);
-        } catch (Exception e) {
-            log.error("创建户籍索引失败", e);
-            throw new RuntimeException("创建户籍索引失败", e);
-        }
+        createIndexIfAbsent(HOUSEHOLD_INDEX, "户籍");
     }
 
     /**
      * 创建用户索引
      */
     public void createUserIndex() {
-        try {
-            ElasticsearchIndicesClient indicesClient = elasticsearchClient.indices();
-            
-            // 检查索引是否存在
-            BooleanResponse exists = indicesClient.exists(
-                ExistsRequest.of(e -> e.index(USER_INDEX))
-            );
-            
-            if (exists.value()) {
-                log.info("用户索引 {} 已存在", USER_INDEX);
-                return;
-            }
+        createIndexIfAbsent(USER_INDEX, "用户");
+    }
 
-            // 定义索引映射
-            String mappingJson = "{\n" +
-                "  \"mappings\": {\n" +
-                "    \"properties\": {\n" +
-                "      \"id\": {\n" +
-                "        \"type\": \"long\"\n" +
-                "      },\n" +
-                "      \"username\": {\n" +
-                "        \"type\": \"text\",\n" +
-                "        \"analyzer\": \"standard\",\n" +
-                "        \"fields\": {\n" +
-                "          \"keyword\": {\n" +
-                "            \"type\": \"keyword\"\n" +
-                "          }\n" +
-                "        }\n" +
-                "      },\n" +
-                "      \"realName\": {\n" +
-                "        \"type\": \"text\",\n" +
-                "        \"analyzer\": \"standard\",\n" +
-                "        \"fields\": {\n" +
-                "          \"keyword\": {\n" +
-                "            \"type\": \"keyword\"\n" +
-                "          }\n" +
-                "        }\n" +
-                "      },\n" +
-                "      \"phone\": {\n" +
-                "        \"type\": \"keyword\"\n" +
-                "      },\n" +
-                "      \"email\": {\n" +
-                "        \"type\": \"keyword\"\n" +
-                "      },\n" +
-                "      \"avatar\": {\n" +
-                "        \"type\": \"keyword\"\n" +
-                "      },\n" +
-                "      \"role\": {\n" +
-                "        \"type\": \"keyword\"\n" +
-                "      },\n" +
-                "      \"status\": {\n" +
-                "        \"type\": \"integer\"\n" +
-                "      },\n" +
-                "      \"createTime\": {\n" +
-                "        \"type\": \"date\",\n" +
-                "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
-                "      },\n" +
-                "      \"updateTime\": {\n" +
-                "        \"type\": \"date\",\n" +
-                "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
-                "      }\n" +
-                "    }\n" +
-                "  }\n" +
-                "}";
-
-            // 创建索引
-            indicesClient.create(CreateIndexRequest.of(c -> c
-                .index(USER_INDEX)
-                .withJson(new StringReader(mappingJson))
-            ));
+    /**
+     * 创建管理员索引
+     */
+    public void createAdminIndex() {
+        createIndexIfAbsent(ADMIN_INDEX, "管理员");
+    }
 
-            log.info("成功创建用户索引: {}", USER_INDEX);
-        } catch (Exception e) {
-            log.error("创建用户索引失败", e);
-            throw new RuntimeException("创建用户索引失败", e);
+    /**
+     * 创建户籍成员索引
+     */
+    public void createHouseholdMemberIndex() {
+        createIndexIfAbsent(HOUSEHOLD_MEMBER_INDEX, "户籍成员");
+    }
+
+    /**
+     * 初始化所有索引
+     */
+    public void initIndices() {
+        createResidentIndex();
+        createHouseholdIndex();
+        createUserIndex();
+        createAdminIndex();
+        createHouseholdMemberIndex();
+    }
+
+    /**
+     * 获取索引（别名）对应的映射配置
+     */
+    public String getMappingJson(String alias) {
+        switch (alias) {
+            case RESIDENT_INDEX:
+                return RESIDENT_MAPPING;
+            case HOUSEHOLD_INDEX:
+                return HOUSEHOLD_MAPPING;
+            case USER_INDEX:
+                return USER_MAPPING;
+            case ADMIN_INDEX:
+                return ADMIN_MAPPING;
+            case HOUSEHOLD_MEMBER_INDEX:
+                return HOUSEHOLD_MEMBER_MAPPING;
+            default:
+                throw new RuntimeException("未知的索引: " + alias);
         }
     }
 
     /**
-     * 创建管理员索引
+     * 索引不存在时创建第一个版本（{别名}_v1）并挂上别名
+     * 别名或同名物理索引（旧版本部署遗留）已存在时不做处理，遗留的物理索引会在下一次重建时被替换为别名
      */
-    public void createAdminIndex() {
+    private void createIndexIfAbsent(String alias, String label) {
         try {
             ElasticsearchIndicesClient indicesClient = elasticsearchClient.indices();
-            
-            // 检查索引是否存在
+
+            // 检查索引是否存在（别名同样适用）
             BooleanResponse exists = indicesClient.exists(
-                ExistsRequest.of(e -> e.index(ADMIN_INDEX))
+                ExistsRequest.of(e -> e.index(alias))
             );
-            
+
             if (exists.value()) {
-                log.info("管理员索引 {} 已存在", ADMIN_INDEX);
+                log.info("{}索引 {} 已存在", label, alias);
                 return;
             }
 
-            // 定义索引映射
-            String mappingJson = "{\n" +
-                "  \"mappings\": {\n" +
-                "    \"properties\": {\n" +
-                "      \"id\": {\n" +
-                "        \"type\": \"long\"\n" +
-                "      },\n" +
-                "      \"userId\": {\n" +
-                "        \"type\": \"long\"\n" +
-                "      },\n" +
-                "      \"adminNo\": {\n" +
-                "        \"type\": \"text\",\n" +
-                "        \"analyzer\": \"standard\",\n" +
-                "        \"fields\": {\n" +
-                "          \"keyword\": {\n" +
-                "            \"type\": \"keyword\"\n" +
-                "          }\n" +
-                "        }\n" +
-                "      },\n" +
-                "      \"department\": {\n" +
-                "        \"type\": \"text\",\n" +
-                "        \"analyzer\": \"standard\",\n" +
-                "        \"fields\": {\n" +
-                "          \"keyword\": {\n" +
-                "            \"type\": \"keyword\"\n" +
-                "          }\n" +
-                "        }\n" +
-                "      },\n" +
-                "      \"position\": {\n" +
-                "        \"type\": \"keyword\"\n" +
-                "      },\n" +
-                "      \"remark\": {\n" +
-                "        \"type\": \"text\"\n" +
-                "      },\n" +
-                "      \"createTime\": {\n" +
-                "        \"type\": \"date\",\n" +
-                "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
-                "      },\n" +
-                "      \"updateTime\": {\n" +
-                "        \"type\": \"date\",\n" +
-                "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
-                "      }\n" +
-                "    }\n" +
-                "  }\n" +
-                "}";
-
-            // 创建索引
+            String indexName = alias + VERSION_SEPARATOR + 1;
             indicesClient.create(CreateIndexRequest.of(c -> c
-                .index(ADMIN_INDEX)
-                .withJson(new StringReader(mappingJson))
+                .withJson(new StringReader(getMappingJson(alias)))
+                .index(indexName)
+                .aliases(alias, a -> a.isWriteIndex(true))
             ));
 
-            log.info("成功创建管理员索引: {}", ADMIN_INDEX);
+            log.info("成功创建{}索引: {} -> {}", label, alias, indexName);
         } catch (Exception e) {
-            log.error("创建管理员索引失败", e);
-            throw new RuntimeException("创建管理员索引失败", e);
+            log.error("创建{}索引失败", label, e);
+            throw new RuntimeException("创建" + label + "索引失败", e);
         }
     }
 
     /**
-     * 创建户籍成员索引
+     * 创建下一个版本的物理索引，用于后台全量灌数
+     * 新索引关闭自动刷新（refresh_interval=-1）并且不分配副本，灌数完成后通过 {@link #publishVersion} 恢复并切换别名。
+     * 新索引创建时即挂上 {别名}_building 别名，增量同步从创建的那一刻起就会写入新版本
+     * @param alias 别名（对外使用的索引名）
+     * @return 新物理索引名
      */
-    public void createHouseholdMemberIndex() {
+    public String createNextVersion(String alias) {
         try {
             ElasticsearchIndicesClient indicesClient = elasticsearchClient.indices();
-            
-            // 检查索引是否存在
-            BooleanResponse exists = indicesClient.exists(
-                ExistsRequest.of(e -> e.index(HOUSEHOLD_MEMBER_INDEX))
-            );
-            
-            if (exists.value()) {
-                log.info("户籍成员索引 {} 已存在", HOUSEHOLD_MEMBER_INDEX);
-                return;
+            int maxVersion = 0;
+            for (Map.Entry<String, IndexState> entry : getVersionIndices(alias).entrySet()) {
+                maxVersion = Math.max(maxVersion, parseVersion(alias, entry.getKey()));
+                // 清理上一次失败重建遗留的、未挂别名的版本
+                IndexState state = entry.getValue();
+                if (state.aliases() == null || !state.aliases().containsKey(alias)) {
+                    indicesClient.delete(d -> d.index(entry.getKey()));
+                    log.info("已清理遗留的索引版本: {}", entry.getKey());
+                }
             }
 
-            // 定义索引映射
-            String mappingJson = "{\n" +
-                "  \"mappings\": {\n" +
-                "    \"properties\": {\n" +
-                "      \"id\": {\n" +
-                "        \"type\": \"long\"\n" +
-                "      },\n" +
-                "      \"householdId\": {\n" +
-                "        \"type\": \"long\"\n" +
-                "      },\n" +
-                "      \"residentId\": {\n" +
-                "        \"type\": \"long\"\n" +
-                "      },\n" +
-                "      \"relationship\": {\n" +
-                "        \"type\": \"keyword\"\n" +
-                "      },\n" +
-                "      \"createTime\": {\n" +
-                "        \"type\": \"date\",\n" +
-                "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
-                "      },\n" +
-                "      \"updateTime\": {\n" +
-                "        \"type\": \"date\",\n" +
-                "        \"format\": \"yyyy-MM-dd HH:mm:ss||yyyy-MM-dd||strict_date_optional_time||epoch_millis\"\n" +
-                "      }\n" +
-                "    }\n" +
-                "  }\n" +
-                "}";
-
-            // 创建索引
+            String indexName = alias + VERSION_SEPARATOR + (maxVersion + 1);
             indicesClient.create(CreateIndexRequest.of(c -> c
-                .index(HOUSEHOLD_MEMBER_INDEX)
-                .withJson(new StringReader(mappingJson))
+                .withJson(new StringReader(getMappingJson(alias)))
+                .index(indexName)
+                .settings(s -> s
+                    .refreshInterval(t -> t.time("-1"))
+                    .numberOfReplicas("0")
+                )
+                .aliases(alias + BUILDING_SUFFIX, a -> a)
             ));
-
-            log.info("成功创建户籍成员索引: {}", HOUSEHOLD_MEMBER_INDEX);
-        } catch (Exception e) {
-            log.error("创建户籍成员索引失败", e);
-            throw new RuntimeException("创建户籍成员索引失败", e);
+            log.info("已创建新版本索引: {}", indexName);
+            return indexName;
+        } catch (IOException e) {
+            log.error("创建新版本索引失败，别名: {}", alias, e);
+            throw new RuntimeException("创建新版本索引失败: " + alias, e);
         }
     }
 
     /**
-     * 初始化所有索引
+     * 发布新版本：恢复刷新间隔和副本数，然后原子地把别名切换到新版本，最后删除旧版本并清理重建期间写入的删除墓碑
+     * @param alias 别名（对外使用的索引名）
+     * @param indexName 通过 {@link #createNextVersion} 创建并灌数完成的物理索引
      */
-    public void initIndices() {
-        createResidentIndex();
-        createHouseholdIndex();
-        createUserIndex();
-        createAdminIndex();
-        createHouseholdMemberIndex();
+    public void publishVersion(String alias, String indexName) {
+        try {
+            ElasticsearchIndicesClient indicesClient = elasticsearchClient.indices();
+
+            indicesClient.putSettings(PutIndicesSettingsRequest.of(p -> p
+                .index(indexName)
+                .settings(s -> s
+                    .refreshInterval(t -> t.time(refreshInterval))
+                    .numberOfReplicas(numberOfReplicas)
+                )
+            ));
+            indicesClient.refresh(r -> r.index(indexName));
+
+            List<Action> actions = new ArrayList<>();
+            List<String> oldIndices = new ArrayList<>();
+            BooleanResponse aliasExists = indicesClient.existsAlias(ExistsAliasRequest.of(e -> e.name(alias)));
+            if (aliasExists.value()) {
+                oldIndices.addAll(indicesClient.getAlias(GetAliasRequest.of(g -> g.name(alias))).result().keySet());
+                for (String oldIndex : oldIndices) {
+                    actions.add(Action.of(a -> a.remove(r -> r.index(oldIndex).alias(alias))));
+                }
+            } else if (indicesClient.exists(ExistsRequest.of(e -> e.index(alias))).value()) {
+                // 旧版本部署遗留的同名物理索引：在同一个请求中删除它并挂上别名
+                actions.add(Action.of(a -> a.removeIndex(r -> r.index(alias))));
+            }
+            actions.add(Action.of(a -> a.add(ad -> ad.index(indexName).alias(alias).isWriteIndex(true))));
+            actions.add(Action.of(a -> a.remove(r -> r.index(indexName).alias(alias + BUILDING_SUFFIX))));
+            indicesClient.updateAliases(UpdateAliasesRequest.of(u -> u.actions(actions)));
+            log.info("索引别名已切换: {} -> {}", alias, indexName);
+
+            purgeTombstones(indexName);
+
+            for (String oldIndex : oldIndices) {
+                if (!oldIndex.equals(indexName)) {
+                    indicesClient.delete(d -> d.index(oldIndex));
+                    log.info("已删除旧版本索引: {}", oldIndex);
+                }
+            }
+        } catch (IOException e) {
+            log.error("发布新版本索引失败，别名: {}, 索引: {}", alias, indexName, e);
+            throw new RuntimeException("发布新版本索引失败: " + indexName, e);
+        }
     }
 
     /**
-     * 删除并重建索引（用于索引重建功能）
+     * 删除重建期间增量同步写入的删除墓碑（deleted=1 的文档）
+     * 在切换别名之后执行，此后的删除直接作用于新版本；清理失败不影响发布，搜索本身会过滤 deleted=1 的文档
      */
-    public void recreateResidentIndex() {
+    private void purgeTombstones(String indexName) {
         try {
-            ElasticsearchIndicesClient indicesClient = elasticsearchClient.indices();
-            BooleanResponse exists = indicesClient.exists(
-                ExistsRequest.of(e -> e.index(RESIDENT_INDEX))
-            );
-            if (exists.value()) {
-                indicesClient.delete(d -> d.index(RESIDENT_INDEX));
-                log.info("已删除居民索引: {}", RESIDENT_INDEX);
+            elasticsearchClient.indices().refresh(r -> r.index(indexName));
+            Long deleted = elasticsearchClient.deleteByQuery(DeleteByQueryRequest.of(d -> d
+                .index(indexName)
+                .query(q -> q.term(t -> t.field("deleted").value(1)))
+                .conflicts(co.elastic.clients.elasticsearch._types.Conflicts.Proceed)
+                .refresh(true)
+            )).deleted();
+            if (deleted != null && deleted > 0) {
+                log.info("已清理索引 {} 中的删除墓碑: {} 条", indexName, deleted);
             }
-            createResidentIndex();
         } catch (Exception e) {
-            log.error("重建居民索引失败", e);
-            throw new RuntimeException("重建居民索引失败", e);
+            log.warn("清理删除墓碑失败: {}", indexName, e);
         }
     }
 
     /**
-     * 删除并重建索引（用于索引重建功能）
+     * 放弃新版本（灌数失败时调用），别名仍指向旧版本；{别名}_building 别名随索引一起删除
      */
-    public void recreateHouseholdIndex() {
+    public void discardVersion(String indexName) {
         try {
-            ElasticsearchIndicesClient indicesClient = elasticsearchClient.indices();
-            BooleanResponse exists = indicesClient.exists(
-                ExistsRequest.of(e -> e.index(HOUSEHOLD_INDEX))
-            );
-            if (exists.value()) {
-                indicesClient.delete(d -> d.index(HOUSEHOLD_INDEX));
-                log.info("已删除户籍索引: {}", HOUSEHOLD_INDEX);
-            }
-            createHouseholdIndex();
+            elasticsearchClient.indices().delete(d -> d.index(indexName));
+            log.info("已删除未发布的索引版本: {}", indexName);
         } catch (Exception e) {
-            log.error("重建户籍索引失败", e);
-            throw new RuntimeException("重建户籍索引失败", e);
+            log.warn("删除未发布的索引版本失败: {}", indexName, e);
         }
     }
 
     /**
-     * 删除并重建用户索引（用于索引重建功能）
+     * 获取别名下正在灌数、尚未发布的新版本物理索引
+     * 增量同步在重建期间同时写入该索引，避免灌数期间发生的变更在切换别名后丢失。
+     * 重建可能由任意一个实例发起，所以每次都从 ES 的 {别名}_building 别名查询，不在本地缓存
+     * @return 物理索引名，没有进行中的重建时返回 null
      */
-    public void recreateUserIndex() {
+    public String getBuildingVersion(String alias) throws IOException {
+        String buildingAlias = alias + BUILDING_SUFFIX;
+        ElasticsearchIndicesClient indicesClient = elasticsearchClient.indices();
+        if (!indicesClient.existsAlias(ExistsAliasRequest.of(e -> e.name(buildingAlias))).value()) {
+            return null;
+        }
         try {
-            ElasticsearchIndicesClient indicesClient = elasticsearchClient.indices();
-            BooleanResponse exists = indicesClient.exists(
-                ExistsRequest.of(e -> e.index(USER_INDEX))
-            );
-            if (exists.value()) {
-                indicesClient.delete(d -> d.index(USER_INDEX));
-                log.info("已删除用户索引: {}", USER_INDEX);
+            Map<String, ?> indices = indicesClient.getAlias(GetAliasRequest.of(g -> g.name(buildingAlias))).result();
+            return indices.isEmpty() ? null : indices.keySet().iterator().next();
+        } catch (ElasticsearchException e) {
+            if (e.status() == 404) {
+                // 查询期间重建已经发布或放弃
+                return null;
             }
-            createUserIndex();
-        } catch (Exception e) {
-            log.error("重建用户索引失败", e);
-            throw new RuntimeException("重建用户索引失败", e);
+            throw e;
         }
     }
 
     /**
-     * 删除并重建管理员索引（用于索引重建功能）
+     * 获取别名下所有带版本号的物理索引
      */
-    public void recreateAdminIndex() {
-        try {
-            ElasticsearchIndicesClient indicesClient = elasticsearchClient.indices();
-            BooleanResponse exists = indicesClient.exists(
-                ExistsRequest.of(e -> e.index(ADMIN_INDEX))
-            );
-            if (exists.value()) {
-                indicesClient.delete(d -> d.index(ADMIN_INDEX));
-                log.info("已删除管理员索引: {}", ADMIN_INDEX);
+    private Map<String, IndexState> getVersionIndices(String alias) throws IOException {
+        Map<String, IndexState> result = new HashMap<>();
+        Map<String, IndexState> indices = elasticsearchClient.indices()
+            .get(GetIndexRequest.of(g -> g.index(alias + VERSION_SEPARATOR + "*")))
+            .result();
+        for (Map.Entry<String, IndexState> entry : indices.entrySet()) {
+            if (parseVersion(alias, entry.getKey()) > 0) {
+                result.put(entry.getKey(), entry.getValue());
             }
-            createAdminIndex();
-        } catch (Exception e) {
-            log.error("重建管理员索引失败", e);
-            throw new RuntimeException("重建管理员索引失败", e);
         }
+        return result;
     }
 
     /**
-     * 删除并重建户籍成员索引（用于索引重建功能）
+     * 解析物理索引的版本号，不符合 {别名}_v{版本号} 格式时返回0
      */
-    public void recreateHouseholdMemberIndex() {
+    private int parseVersion(String alias, String indexName) {
+        String prefix = alias + VERSION_SEPARATOR;
+        if (!indexName.startsWith(prefix)) {
+            return 0;
+        }
         try {
-            ElasticsearchIndicesClient indicesClient = elasticsearchClient.indices();
-            BooleanResponse exists = indicesClient.exists(
-                ExistsRequest.of(e -> e.index(HOUSEHOLD_MEMBER_INDEX))
-            );
-            if (exists.value()) {
-                indicesClient.delete(d -> d.index(HOUSEHOLD_MEMBER_INDEX));
-                log.info("已删除户籍成员索引: {}", HOUSEHOLD_MEMBER_INDEX);
-            }
-            createHouseholdMemberIndex();
-        } catch (Exception e) {
-            log.error("重建户籍成员索引失败", e);
-            throw new RuntimeException("重建户籍成员索引失败", e);
+            return Integer.parseInt(indexName.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return 0;
         }
     }
 }
@@ -0,0 +1,443 @@
+package com.wuzuhao.cpm.search.util;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.MsearchResponse;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeRequest;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.HitsMetadata;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wuzuhao.cpm.util.RedisUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 深分页工具类
+ *
+ * 列表查询统一按 id 升序排序，id 唯一，因此可以用 search_after 从上一页最后一条记录继续查询，
+ * 查询代价与页码无关，也不受 index.max_result_window（默认 10000）限制。
+ * - 调用方传入上一页返回的游标时，直接在游标记录的时间点（PIT）上继续查询，翻页期间看到的是同一份数据快照
+ * - 按页码查询时，先查找顺序翻页时缓存的该页游标（Redis，按索引命名空间和查询条件区分）；没有缓存且在窗口内时使用 from/size
+ * - 超出窗口且没有游标时，在 PIT 上只取排序值逐批跳到目标位置，避免直接报错
+ * 每次查询都会返回下一页的游标（最后一页为 null），并缓存起来供下一次按页码查询使用。
+ * 导出时通过 {@link #scan} 在同一个 PIT 上逐批遍历全部结果，不再使用页码。
+ *
+ * 关键词检索需要"完全匹配优先"时，完全匹配查询与分页查询通过一次 _msearch 发送，命中完全匹配则只返回那一条。
+ *
+ * 结果由 ES 客户端直接反序列化为调用方指定的文档类型，并可只读取 _source 中的部分字段。
+ */
+@Slf4j
+@Component
+public class SearchAfterPager {
+
+    /**
+     * ES 默认的 index.max_result_window
+     */
+    private static final int MAX_RESULT_WINDOW = 10000;
+
+    /**
+     * 跳页时每批读取的排序值个数
+     */
+    private static final int SKIP_BATCH_SIZE = 1000;
+
+    private static final String CURSOR_CACHE_PREFIX = "search:cursor:";
+
+    private static final SortOptions ID_ASC = SortOptions.of(s -> s
+        .field(f -> f
+            .field("id")
+            .order(SortOrder.Asc)
+        )
+    );
+
+    @Autowired
+    private ElasticsearchClient elasticsearchClient;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * PIT 保持时间，每次使用 PIT 查询都会续期
+     */
+    @Value("${elasticsearch.search.pit-keep-alive:1m}")
+    private String pitKeepAlive;
+
+    /**
+     * 按页码缓存的游标过期时间（秒），应不超过 PIT 保持时间
+     */
+    @Value("${elasticsearch.search.cursor-ttl:60}")
+    private long cursorTtl;
+
+    /**
+     * 分页查询
+     * @param index 索引名称（别名）
+     * @param signature 查询条件签名（关键词、过滤条件等），用于区分不同查询缓存的游标
+     * @param query 查询条件
+     * @param exactQuery 完全匹配查询，为空表示不检查；命中时只返回 id 最小的一条完全匹配结果
+     * @param page 页码（从0开始）
+     * @param size 每页数量
+     * @param cursor 上一页返回的游标，为空时按页码查询
+     * @param documentClass 文档类型
+     * @param sourceFields 只读取的 _source 字段，为空时读取全部字段
+     * @return 查询结果和下一页游标
+     */
+    public <T> PageResult<T> search(@NonNull String index, @NonNull String signature, @NonNull Query query,
+                                    @Nullable Query exactQuery, int page, int size, @Nullable String cursor,
+                                    @NonNull Class<T> documentClass, @Nullable List<String> sourceFields) throws IOException {
+        String cacheKey = redisUtil.namespacedKey(CURSOR_CACHE_PREFIX + index, DigestUtils.md5DigestAsHex(
+                (size + "|" + signature).getBytes(StandardCharsets.UTF_8))) + ":";
+
+        Cursor after = decode(cursor);
+        if (after == null && page > 0) {
+            Object cached = redisUtil.get(cacheKey + page);
+            after = cached != null ? decode(cached.toString()) : null;
+        }
+        // 游标只会出现在没有完全匹配的查询结果中，按游标翻页时不再检查完全匹配
+        Query exact = after == null ? exactQuery : null;
+        if (after == null && page > 0 && (long) (page + 1) * size > MAX_RESULT_WINDOW) {
+            if (exact != null) {
+                HitsMetadata<T> exactHits = doSearch(index, null, exact, 0, 1, null, documentClass, sourceFields).hits();
+                if (hasHits(exactHits)) {
+                    return new PageResult<>(exactHits, null, true);
+                }
+            }
+            after = skipTo(index, query, (long) page * size);
+        }
+
+        HitsMetadata<T> hits;
+        String pitId = null;
+        if (after == null && exact != null) {
+            // 完全匹配和分页查询合并为一次 _msearch，ES 并行执行，只需一次往返
+            MsearchResponse<T> response = elasticsearchClient.msearch(MsearchRequest.of(m -> m
+                .searches(r -> r
+                    .header(h -> h.index(index))
+                    .body(b -> {
+                        b.query(exact).size(1).sort(ID_ASC);
+                        if (sourceFields != null) {
+                            b.source(src -> src.filter(f -> f.includes(sourceFields)));
+                        }
+                        return b;
+                    })
+                )
+                .searches(r -> r
+                    .header(h -> h.index(index))
+                    .body(b -> {
+                        b.query(query).from(page * size).size(size).sort(ID_ASC).trackTotalHits(t -> t.enabled(true));
+                        if (sourceFields != null) {
+                            b.source(src -> src.filter(f -> f.includes(sourceFields)));
+                        }
+                        return b;
+                    })
+                )
+            ), documentClass);
+            MultiSearchResponseItem<T> exactItem = response.responses().get(0);
+            MultiSearchResponseItem<T> pageItem = response.responses().get(1);
+            if (exactItem.isResult() && hasHits(exactItem.result().hits())) {
+                return new PageResult<>(exactItem.result().hits(), null, true);
+            }
+            if (exactItem.isFailure()) {
+                log.debug("完全匹配查询失败，继续使用模糊匹配: {}", exactItem.failure().error().reason());
+            }
+            if (pageItem.isFailure()) {
+                throw new RuntimeException("分页查询失败: " + pageItem.failure().error().reason());
+            }
+            hits = pageItem.result().hits();
+        } else if (after == null) {
+            hits = doSearch(index, null, query, page * size, size, null, documentClass, sourceFields).hits();
+        } else {
+            pitId = after.pit != null ? after.pit : openPit(index);
+            SearchResponse<T> response;
+            try {
+                response = doSearch(index, pitId, query, null, size, after.sort, documentClass, sourceFields);
+            } catch (ElasticsearchException e) {
+                if (e.status() != 404) {
+                    throw e;
+                }
+                // PIT 已过期或索引重建后旧版本已删除，重新打开后继续
+                log.debug("PIT 已失效，重新打开，index: {}", index);
+                pitId = openPit(index);
+                response = doSearch(index, pitId, query, null, size, after.sort, documentClass, sourceFields);
+            }
+            if (response.pitId() != null) {
+                pitId = response.pitId();
+            }
+            hits = response.hits();
+        }
+
+        String nextCursor = null;
+        List<Hit<T>> hitList = hits.hits();
+        if (hitList != null && hitList.size() == size) {
+            Cursor next = new Cursor();
+            next.pit = pitId;
+            next.sort = hitList.get(hitList.size() - 1).sort();
+            nextCursor = encode(next);
+            try {
+                redisUtil.set(cacheKey + (page + 1), nextCursor, cursorTtl);
+            } catch (Exception e) {
+                log.debug("缓存分页游标失败: {}", e.getMessage());
+            }
+        }
+        return new PageResult<>(hits, nextCursor, false);
+    }
+
+    /**
+     * 使索引缓存的所有分页游标失效：递增该索引的游标命名空间版本号
+     * 重建索引切换别名后调用，旧游标中的 PIT 指向已删除的旧版本；失效失败时旧游标会在 cursor-ttl 后自然过期
+     * @param index 索引名称（别名）
+     */
+    public void invalidateCursors(@NonNull String index) {
+        try {
+            redisUtil.invalidateNamespace(CURSOR_CACHE_PREFIX + index);
+        } catch (Exception e) {
+            log.warn("清除分页游标缓存失败，索引: {}, 错误: {}", index, e.getMessage());
+        }
+    }
+
+    /**
+     * 顺序遍历全部查询结果（导出使用），每次返回一批和下一批的游标
+     * 与 {@link #search} 使用相同的查询和排序，结果集与列表页一致：完全匹配命中时只返回那一条。
+     * 第一批打开 PIT，之后都在同一个 PIT 上用 search_after 继续，遍历期间看到的是同一份数据快照；
+     * 只有第一批统计命中总数，遍历结束后关闭 PIT。不按页码缓存游标，不影响列表页的翻页。
+     * @param index 索引名称（别名）
+     * @param query 查询条件
+     * @param exactQuery 完全匹配查询，为空表示不检查
+     * @param size 每批数量
+     * @param cursor 上一批返回的游标，为空表示从头开始
+     * @param documentClass 文档类型
+     * @param sourceFields 只读取的 _source 字段，为空时读取全部字段
+     * @return 本批结果和下一批游标（已遍历完时为 null）
+     * @throws RuntimeException 游标格式不正确时
+     */
+    public <T> PageResult<T> scan(@NonNull String index, @NonNull Query query, @Nullable Query exactQuery, int size,
+                                  @Nullable String cursor, @NonNull Class<T> documentClass,
+                                  @Nullable List<String> sourceFields) throws IOException {
+        Cursor after = decode(cursor);
+        if (cursor != null && !cursor.isEmpty() && after == null) {
+            throw new RuntimeException("导出游标无效，请重新导出");
+        }
+        if (after == null && exactQuery != null) {
+            HitsMetadata<T> exactHits = doSearch(index, null, exactQuery, 0, 1, null, documentClass, sourceFields).hits();
+            if (hasHits(exactHits)) {
+                return new PageResult<>(exactHits, null, true);
+            }
+        }
+
+        String pitId = after != null && after.pit != null ? after.pit : openPit(index);
+        List<String> searchAfter = after != null ? after.sort : null;
+        boolean first = after == null;
+        SearchResponse<T> response;
+        try {
+            response = doSearch(index, pitId, query, null, size, searchAfter, first, documentClass, sourceFields);
+        } catch (ElasticsearchException e) {
+            if (e.status() != 404) {
+                throw e;
+            }
+            // PIT 已过期（两批之间间隔超过保持时间），重新打开后按排序值继续
+            log.debug("PIT 已失效，重新打开，index: {}", index);
+            pitId = openPit(index);
+            response = doSearch(index, pitId, query, null, size, searchAfter, first, documentClass, sourceFields);
+        }
+        if (response.pitId() != null) {
+            pitId = response.pitId();
+        }
+
+        String nextCursor = null;
+        List<Hit<T>> hitList = response.hits().hits();
+        if (hitList != null && hitList.size() == size) {
+            Cursor next = new Cursor();
+            next.pit = pitId;
+            next.sort = hitList.get(hitList.size() - 1).sort();
+            nextCursor = encode(next);
+        } else {
+            closePit(pitId);
+        }
+        return new PageResult<>(response.hits(), nextCursor, false);
+    }
+
+    private boolean hasHits(HitsMetadata<?> hits) {
+        return hits.hits() != null && !hits.hits().isEmpty();
+    }
+
+    /**
+     * 在 PIT 上只读取排序值，逐批跳过 offset 条记录
+     * @return 定位到第 offset 条记录之后的游标
+     */
+    @SuppressWarnings("rawtypes")
+    private Cursor skipTo(String index, Query query, long offset) throws IOException {
+        Cursor cursor = new Cursor();
+        cursor.pit = openPit(index);
+        long skipped = 0;
+        while (skipped < offset) {
+            int batch = (int) Math.min(SKIP_BATCH_SIZE, offset - skipped);
+            List<String> searchAfter = cursor.sort;
+            String pitId = cursor.pit;
+            SearchResponse<Map> response = elasticsearchClient.search(SearchRequest.of(s -> {
+                s.pit(p -> p.id(pitId).keepAlive(t -> t.time(pitKeepAlive)))
+                    .query(query)
+                    .size(batch)
+                    .sort(ID_ASC)
+                    .source(src -> src.fetch(false))
+                    .trackTotalHits(t -> t.enabled(false));
+                if (searchAfter != null) {
+                    s.searchAfter(searchAfter);
+                }
+                return s;
+            }), Map.class);
+            List<Hit<Map>> hits = response.hits().hits();
+            if (response.pitId() != null) {
+                cursor.pit = response.pitId();
+            }
+            if (hits == null || hits.isEmpty()) {
+                break;
+            }
+            cursor.sort = hits.get(hits.size() - 1).sort();
+            skipped += hits.size();
+            if (hits.size() < batch) {
+                break;
+            }
+        }
+        log.debug("深分页跳转完成，index: {}, offset: {}, 实际跳过: {}", index, offset, skipped);
+        return cursor;
+    }
+
+    private <T> SearchResponse<T> doSearch(String index, @Nullable String pitId, Query query,
+                                           @Nullable Integer from, int size, @Nullable List<String> searchAfter,
+                                           Class<T> documentClass, @Nullable List<String> sourceFields) throws IOException {
+        return doSearch(index, pitId, query, from, size, searchAfter, true, documentClass, sourceFields);
+    }
+
+    private <T> SearchResponse<T> doSearch(String index, @Nullable String pitId, Query query,
+                                           @Nullable Integer from, int size, @Nullable List<String> searchAfter,
+                                           boolean trackTotalHits, Class<T> documentClass,
+                                           @Nullable List<String> sourceFields) throws IOException {
+        return elasticsearchClient.search(SearchRequest.of(s -> {
+            if (pitId != null) {
+                // 使用 PIT 时不能再指定索引
+                s.pit(p -> p.id(pitId).keepAlive(t -> t.time(pitKeepAlive)));
+            } else {
+                s.index(index);
+            }
+            s.query(query)
+                .size(size)
+                .sort(ID_ASC)
+                .trackTotalHits(t -> t.enabled(trackTotalHits));
+            if (from != null) {
+                s.from(from);
+            }
+            if (searchAfter != null && !searchAfter.isEmpty()) {
+                s.searchAfter(searchAfter);
+            }
+            if (sourceFields != null) {
+                s.source(src -> src.filter(f -> f.includes(sourceFields)));
+            }
+            return s;
+        }), documentClass);
+    }
+
+    private String openPit(String index) throws IOException {
+        return elasticsearchClient.openPointInTime(OpenPointInTimeRequest.of(o -> o
+            .index(index)
+            .keepAlive(t -> t.time(pitKeepAlive))
+        )).id();
+    }
+
+    /**
+     * 关闭 PIT，失败时忽略（PIT 到期后 ES 会自动释放）
+     */
+    private void closePit(String pitId) {
+        try {
+            elasticsearchClient.closePointInTime(c -> c.id(pitId));
+        } catch (Exception e) {
+            log.debug("关闭 PIT 失败: {}", e.getMessage());
+        }
+    }
+
+    private String encode(Cursor cursor) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(cursor));
+        } catch (IOException e) {
+            throw new RuntimeException("分页游标生成失败", e);
+        }
+    }
+
+    /**
+     * 解析游标，格式不正确时按没有游标处理
+     */
+    @Nullable
+    private Cursor decode(@Nullable String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            Cursor decoded = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), Cursor.class);
+            return decoded.sort != null && !decoded.sort.isEmpty() ? decoded : null;
+        } catch (Exception e) {
+            log.debug("分页游标无效，按页码查询: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 分页游标：PIT 与上一页最后一条记录的排序值
+     */
+    public static class Cursor {
+        public String pit;
+        public List<String> sort;
+    }
+
+    /**
+     * 分页查询结果
+     * @param <T> 文档类型
+     */
+    public static class PageResult<T> {
+
+        private final HitsMetadata<T> hits;
+        private final String nextCursor;
+        private final boolean exactMatch;
+
+        private PageResult(HitsMetadata<T> hits, String nextCursor, boolean exactMatch) {
+            this.hits = hits;
+            this.nextCursor = nextCursor;
+            this.exactMatch = exactMatch;
+        }
+
+        public HitsMetadata<T> getHits() {
+            return hits;
+        }
+
+        /**
+         * 下一页游标，已是最后一页（或为完全匹配结果）时为 null
+         */
+        @Nullable
+        public String getNextCursor() {
+            return nextCursor;
+        }
+
+        /**
+         * 是否为完全匹配结果（只包含一条）
+         */
+        public boolean isExactMatch() {
+            return exactMatch;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.wuzuhao.cpm.search.service.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ErrorCause;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wuzuhao.cpm.search.util.BulkIndexer;
+import com.wuzuhao.cpm.search.util.ElasticsearchIndexUtil;
+import com.wuzuhao.cpm.search.util.SearchAfterPager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 索引蓝绿重建测试
+ * ES 客户端使用 mock 返回 _bulk 响应，验证有文档写入失败时不切换别名
+ */
+public class SearchServiceImplRebuildTest {
+
+    private static final String ALIAS = ElasticsearchIndexUtil.RESIDENT_INDEX;
+    private static final String NEW_VERSION = ALIAS + "_v2";
+
+    private ElasticsearchClient elasticsearchClient;
+    private ElasticsearchIndexUtil indexUtil;
+    private SearchAfterPager searchAfterPager;
+    private BulkIndexer bulkIndexer;
+    private SearchServiceImpl searchService;
+
+    @BeforeEach
+    public void setUp() {
+        elasticsearchClient = mock(ElasticsearchClient.class);
+        indexUtil = mock(ElasticsearchIndexUtil.class);
+        searchAfterPager = mock(SearchAfterPager.class);
+        when(indexUtil.createNextVersion(ALIAS)).thenReturn(NEW_VERSION);
+
+        bulkIndexer = new BulkIndexer();
+        ReflectionTestUtils.setField(bulkIndexer, "elasticsearchClient", elasticsearchClient);
+        ReflectionTestUtils.setField(bulkIndexer, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(bulkIndexer, "maxBatchBytes", 5242880L);
+        ReflectionTestUtils.setField(bulkIndexer, "maxBatchActions", 5000);
+        ReflectionTestUtils.setField(bulkIndexer, "maxInFlight", 2);
+        ReflectionTestUtils.setField(bulkIndexer, "maxRetries", 1);
+        ReflectionTestUtils.setField(bulkIndexer, "retryBackoffMs", 1L);
+        bulkIndexer.init();
+
+        searchService = new SearchServiceImpl();
+        ReflectionTestUtils.setField(searchService, "indexUtil", indexUtil);
+        ReflectionTestUtils.setField(searchService, "bulkIndexer", bulkIndexer);
+        ReflectionTestUtils.setField(searchService, "searchAfterPager", searchAfterPager);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        bulkIndexer.destroy();
+    }
+
+    /**
+     * 有文档被 ES 拒绝（非 429）时放弃新版本，别名继续指向旧版本
+     */
+    @Test
+    public void failedItemKeepsOldVersionLive() throws Exception {
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenReturn(bulkResponse(201, 400, 201));
+
+        rebuild(3);
+
+        verify(indexUtil, never()).publishVersion(anyString(), anyString());
+        verify(indexUtil).discardVersion(NEW_VERSION);
+        verify(searchAfterPager, never()).invalidateCursors(anyString());
+        assertEquals(1L, bulkIndexer.getLastStats().get("居民").get("failed"));
+    }
+
+    /**
+     * 重试后仍被 429 拒绝的文档同样计为失败，不发布新版本
+     */
+    @Test
+    public void itemStillRejectedAfterRetriesKeepsOldVersionLive() throws Exception {
+        when(elasticsearchClient.bulk(any(BulkRequest.class)))
+                .thenReturn(bulkResponse(201, 429))
+                .thenReturn(bulkResponse(429));
+
+        rebuild(2);
+
+        verify(indexUtil, never()).publishVersion(anyString(), anyString());
+        verify(indexUtil).discardVersion(NEW_VERSION);
+    }
+
+    /**
+     * 409（增量同步已写入更新的版本）计为跳过，不影响发布
+     */
+    @Test
+    public void conflictIsSkippedAndVersionIsPublished() throws Exception {
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenReturn(bulkResponse(201, 409, 201));
+
+        rebuild(3);
+
+        verify(indexUtil).publishVersion(ALIAS, NEW_VERSION);
+        verify(indexUtil, never()).discardVersion(anyString());
+        verify(searchAfterPager).invalidateCursors(ALIAS);
+        assertEquals(1L, bulkIndexer.getLastStats().get("居民").get("skipped"));
+    }
+
+    /**
+     * 以一个写入 count 条文档的同步函数重建居民索引
+     */
+    private void rebuild(int count) {
+        Consumer<String> syncer = index -> {
+            BulkIndexer.Session session = bulkIndexer.open(index, "居民");
+            for (int i = 1; i <= count; i++) {
+                Map<String, Object> document = new HashMap<>();
+                document.put("id", (long) i);
+                document.put("realName", "居民" + i);
+                session.add(String.valueOf(i), document);
+            }
+            session.finish();
+        };
+        ReflectionTestUtils.invokeMethod(searchService, "rebuildIndex", ALIAS, "居民", syncer);
+    }
+
+    /**
+     * 按状态码依次构造 _bulk 响应条目
+     */
+    private static BulkResponse bulkResponse(int... statuses) {
+        List<BulkResponseItem> items = new ArrayList<>();
+        boolean errors = false;
+        for (int i = 0; i < statuses.length; i++) {
+            int status = statuses[i];
+            String id = String.valueOf(i + 1);
+            if (status < 300) {
+                items.add(BulkResponseItem.of(b -> b
+                    .operationType(OperationType.Create)
+                    .index(NEW_VERSION)
+                    .id(id)
+                    .status(status)
+                    .result("created")));
+            } else {
+                errors = true;
+                items.add(BulkResponseItem.of(b -> b
+                    .operationType(OperationType.Create)
+                    .index(NEW_VERSION)
+                    .id(id)
+                    .status(status)
+                    .error(ErrorCause.of(e -> e.type(errorType(status)).reason("测试错误")))));
+            }
+        }
+        boolean hasErrors = errors;
+        return BulkResponse.of(b -> b.took(1).errors(hasErrors).items(items));
+    }
+
+    private static String errorType(int status) {
+        switch (status) {
+            case 409:
+                return "version_conflict_engine_exception";
+            case 429:
+                return "es_rejected_execution_exception";
+            default:
+                return "mapper_parsing_exception";
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * 统计服务启动类
@@ -13,6 +14,7 @@ import org.springframework.context.annotation.ComponentScan;
 @EnableDiscoveryClient
 @EnableFeignClients(basePackages = "com.wuzuhao.cpm.statistics.feign")
 @ComponentScan(basePackages = "com.wuzuhao.cpm")
+@EnableScheduling
 public class StatisticsServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(StatisticsServiceApplication.class, args);
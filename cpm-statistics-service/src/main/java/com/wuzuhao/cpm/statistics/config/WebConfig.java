@@ -3,6 +3,7 @@ package com.wuzuhao.cpm.statistics.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wuzuhao.cpm.config.RateLimitProperties;
 import com.wuzuhao.cpm.interceptor.RateLimitInterceptor;
+import com.wuzuhao.cpm.interceptor.UserHeaderInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.converter.HttpMessageConverter;
@@ -22,6 +23,9 @@ public class WebConfig implements WebMvcConfigurer {
     @Autowired
     private RateLimitInterceptor rateLimitInterceptor;
 
+    @Autowired
+    private UserHeaderInterceptor userHeaderInterceptor;
+
     @Autowired
     private RateLimitProperties rateLimitProperties;
 
@@ -43,6 +47,11 @@ public class WebConfig implements WebMvcConfigurer {
      */
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        // 用户信息请求头拦截器（最先执行）- 请求头信任模式下识别网关签名的用户信息
+        registry.addInterceptor(userHeaderInterceptor)
+                .addPathPatterns("/**")
+                .order(0);
+
         // 限流拦截器 - 根据配置决定是否启用
         if (rateLimitProperties.isEnabled()) {
             registry.addInterceptor(rateLimitInterceptor)
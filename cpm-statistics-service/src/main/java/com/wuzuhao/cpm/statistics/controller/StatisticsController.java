@@ -82,5 +82,14 @@ public class StatisticsController {
         Map<String, Object> data = statisticsService.getYearlyStatistics();
         return Result.success(data);
     }
-}
 
+    /**
+     * 获取数据大屏统计
+     */
+    @ApiOperation(value = "获取数据大屏统计", notes = "一次返回大屏的全部图表数据，结果短时缓存")
+    @GetMapping("/dashboard")
+    public Result<Map<String, Object>> getDashboard() {
+        Map<String, Object> data = statisticsService.getDashboard();
+        return Result.success(data);
+    }
+}
@@ -3,6 +3,9 @@ package com.wuzuhao.cpm.statistics.feign;
 import com.wuzuhao.cpm.common.Result;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.Map;
 
 /**
  * 户籍服务Feign客户端
@@ -11,9 +14,16 @@ import org.springframework.web.bind.annotation.GetMapping;
 public interface HouseholdServiceClient {
     
     /**
-     * 获取所有户籍列表（用于统计）
+     * 按ID游标分页获取户籍列表（用于统计对账）
+     * @param lastId 上一页最后一条记录的ID，首页传0
+     * @param size 每页数量
      */
-    @GetMapping("/all")
-    Result<Object> getAllHouseholds();
-}
+    @GetMapping("/scroll")
+    Result<Object> scrollHouseholds(@RequestParam("lastId") Long lastId, @RequestParam("size") Integer size);
 
+    /**
+     * 按统计维度（户籍类型、迁入月份、迁出月份、创建月份）分组计数，只返回各分组的数量（用于统计对账）
+     */
+    @GetMapping("/statistics/buckets")
+    Result<Map<String, Map<String, Long>>> countStatisticsBuckets();
+}
@@ -3,6 +3,9 @@ package com.wuzuhao.cpm.statistics.feign;
 import com.wuzuhao.cpm.common.Result;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.Map;
 
 /**
  * 居民服务Feign客户端
@@ -11,9 +14,16 @@ import org.springframework.web.bind.annotation.GetMapping;
 public interface ResidentServiceClient {
     
     /**
-     * 获取所有居民列表（用于统计）
+     * 按ID游标分页获取居民列表（用于统计对账）
+     * @param lastId 上一页最后一条记录的ID，首页传0
+     * @param size 每页数量
      */
-    @GetMapping("/all")
-    Result<Object> getAllResidents();
-}
+    @GetMapping("/scroll")
+    Result<Object> scrollResidents(@RequestParam("lastId") Long lastId, @RequestParam("size") Integer size);
 
+    /**
+     * 按统计维度（出生日期、性别、创建月份）分组计数，只返回各分组的数量（用于统计对账）
+     */
+    @GetMapping("/statistics/buckets")
+    Result<Map<String, Map<String, Long>>> countStatisticsBuckets();
+}
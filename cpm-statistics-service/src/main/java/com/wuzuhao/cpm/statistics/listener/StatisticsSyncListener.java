@@ -0,0 +1,48 @@
+package com.wuzuhao.cpm.statistics.listener;
+
+import com.wuzuhao.cpm.common.dto.ESSyncMessage;
+import com.wuzuhao.cpm.config.RabbitMQConfig;
+import com.wuzuhao.cpm.statistics.service.StatisticsCounterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 统计数据变更监听器
+ * 消费居民/户籍服务发布的同步消息，增量更新统计计数器
+ */
+@Component
+public class StatisticsSyncListener {
+
+    private static final Logger log = LoggerFactory.getLogger(StatisticsSyncListener.class);
+
+    @Autowired
+    private StatisticsCounterService statisticsCounterService;
+
+    /**
+     * 居民数据变更
+     */
+    @RabbitListener(queues = RabbitMQConfig.STATISTICS_RESIDENT_SYNC_QUEUE)
+    public void onResidentChanged(ESSyncMessage message) {
+        try {
+            statisticsCounterService.applyResidentEvent(message);
+        } catch (Exception e) {
+            // 不重新入队，避免异常消息反复投递；产生的偏差由定时对账修正
+            log.error("处理居民统计事件失败，id: {}", message != null ? message.getId() : null, e);
+        }
+    }
+
+    /**
+     * 户籍数据变更
+     */
+    @RabbitListener(queues = RabbitMQConfig.STATISTICS_HOUSEHOLD_SYNC_QUEUE)
+    public void onHouseholdChanged(ESSyncMessage message) {
+        try {
+            statisticsCounterService.applyHouseholdEvent(message);
+        } catch (Exception e) {
+            log.error("处理户籍统计事件失败，id: {}", message != null ? message.getId() : null, e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.wuzuhao.cpm.statistics.service;
+
+import com.wuzuhao.cpm.common.dto.ESSyncMessage;
+
+import java.util.Map;
+
+/**
+ * 统计计数器服务接口
+ * 根据居民/户籍的变更事件增量维护统计计数器，全量重建只在定时对账时进行
+ */
+public interface StatisticsCounterService {
+
+    /**
+     * 居民出生日期计数（yyyy-MM-dd -> 人数），年龄段在查询时按当天日期换算
+     */
+    String RESIDENT_BIRTH_DATE = "resident:birth-date";
+
+    /**
+     * 居民性别计数（male / female -> 人数）
+     */
+    String RESIDENT_GENDER = "resident:gender";
+
+    /**
+     * 居民按创建月份计数（yyyy-MM -> 人数）
+     */
+    String RESIDENT_CREATE_MONTH = "resident:create-month";
+
+    /**
+     * 户籍类型计数（family / collective -> 户数）
+     */
+    String HOUSEHOLD_TYPE = "household:type";
+
+    /**
+     * 户籍按迁入月份计数（yyyy-MM -> 户数）
+     */
+    String HOUSEHOLD_MOVE_IN_MONTH = "household:move-in-month";
+
+    /**
+     * 户籍按迁出月份计数（yyyy-MM -> 户数）
+     */
+    String HOUSEHOLD_MOVE_OUT_MONTH = "household:move-out-month";
+
+    /**
+     * 户籍按创建月份计数（yyyy-MM -> 户数）
+     */
+    String HOUSEHOLD_CREATE_MONTH = "household:create-month";
+
+    /**
+     * 处理居民变更事件（新增/更新/删除）
+     */
+    void applyResidentEvent(ESSyncMessage message);
+
+    /**
+     * 处理户籍变更事件（新增/更新/删除）
+     */
+    void applyHouseholdEvent(ESSyncMessage message);
+
+    /**
+     * 获取计数器当前值（已过滤计数为0的项）
+     * @param counter 计数器名称，取值为本接口中定义的常量
+     */
+    Map<String, Long> getCounter(String counter);
+
+    /**
+     * 批量获取多个计数器当前值（一次 Redis 往返，已过滤计数为0的项）
+     * @param counters 计数器名称，取值为本接口中定义的常量
+     * @return 计数器名称 -> 计数器值
+     */
+    Map<String, Map<String, Long>> getCounters(String... counters);
+
+    /**
+     * 计数器是否已完成过初始化（至少完成过一次全量对账）
+     */
+    boolean isInitialized();
+
+    /**
+     * 全量对账：先用居民/户籍服务在数据库中的分组计数校验计数器，一致时跳过；
+     * 不一致（或尚未初始化）时逐条拉取全部居民/户籍数据重建计数器和记录快照
+     */
+    void reconcile();
+}
@@ -36,5 +36,10 @@ public interface StatisticsService {
      * 获取年度数据统计
      */
     Map<String, Object> getYearlyStatistics();
+
+    /**
+     * 获取数据大屏的全部统计（年龄分布、性别、户籍类型、迁入迁出趋势、月度和年度新增），一次计算、短时缓存
+     */
+    Map<String, Object> getDashboard();
 }
 
@@ -0,0 +1,530 @@
+package com.wuzuhao.cpm.statistics.service.impl;
+
+import com.wuzuhao.cpm.common.Result;
+import com.wuzuhao.cpm.common.dto.ESSyncMessage;
+import com.wuzuhao.cpm.statistics.feign.HouseholdServiceClient;
+import com.wuzuhao.cpm.statistics.feign.ResidentServiceClient;
+import com.wuzuhao.cpm.statistics.service.StatisticsCounterService;
+import com.wuzuhao.cpm.util.RedisUtil;
+import com.wuzuhao.cpm.util.ScrollUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 统计计数器服务实现类
+ *
+ * 计数器保存在 Redis Hash 中（statistics:counter:*），不设置过期时间。
+ * 为了在更新/删除事件中计算增量（删除事件不携带数据），每条记录参与统计的字段会以快照形式
+ * 保存在 statistics:state:* 中：处理事件时先减去旧快照的贡献，再加上新快照的贡献，
+ * 因此重复投递的事件是幂等的。事件中缺少的字段沿用旧快照中的值，不会把已有记录从对应分组中移除。
+ *
+ * 事件队列开启了单活跃消费者，事件的读改写在同一时刻只会由一个实例执行。
+ * 对账由 Redis 锁保证同一时刻只有一个实例执行，但它与事件处理只在本实例内互斥（{@link #counterLock}）：
+ * 对账实例不是当前活跃消费者时，对账期间处理的事件可能被随后替换的计数器覆盖。
+ * 这类偏差以及进程崩溃等极端情况下的偏差由下一次定时对账修正。
+ */
+@Service
+public class StatisticsCounterServiceImpl implements StatisticsCounterService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatisticsCounterServiceImpl.class);
+
+    private static final String COUNTER_PREFIX = "statistics:counter:";
+    private static final String STATE_RESIDENT = "statistics:state:resident";
+    private static final String STATE_HOUSEHOLD = "statistics:state:household";
+    private static final String INITIALIZED_KEY = "statistics:counter-initialized";
+    private static final String RECONCILE_LOCK_KEY = "statistics:lock:reconcile";
+    private static final long RECONCILE_LOCK_TIME = 1800; // 对账锁过期时间：30分钟
+    private static final String TMP_SUFFIX = ":rebuilding";
+    private static final int HASH_WRITE_BATCH_SIZE = 1000;
+
+    private static final String SEPARATOR = "|";
+    private static final String MALE = "male";
+    private static final String FEMALE = "female";
+    private static final String FAMILY = "family";
+    private static final String COLLECTIVE = "collective";
+
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String[] RESIDENT_COUNTERS = {RESIDENT_BIRTH_DATE, RESIDENT_GENDER, RESIDENT_CREATE_MONTH};
+    private static final String[] HOUSEHOLD_COUNTERS = {HOUSEHOLD_TYPE, HOUSEHOLD_MOVE_IN_MONTH, HOUSEHOLD_MOVE_OUT_MONTH, HOUSEHOLD_CREATE_MONTH};
+
+    @Autowired
+    private ResidentServiceClient residentServiceClient;
+
+    @Autowired
+    private HouseholdServiceClient householdServiceClient;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    /**
+     * 本实例内事件处理与全量对账互斥，对账期间本实例收到的事件在队列中等待；不与其他实例互斥
+     */
+    private final Object counterLock = new Object();
+
+    /**
+     * 对账时是否跳过分组计数校验、总是逐条拉取数据重建
+     */
+    @Value("${statistics.reconcile.always-rebuild:false}")
+    private boolean alwaysRebuild;
+
+    /**
+     * 对账线程池：居民、户籍计数器各占一个线程并行重建
+     */
+    private final ExecutorService reconcileExecutor = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "statistics-reconcile");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Override
+    public void applyResidentEvent(ESSyncMessage message) {
+        if (message == null || message.getId() == null) {
+            return;
+        }
+        String id = String.valueOf(message.getId());
+        boolean delete = isDelete(message);
+        if (!delete && message.getData() == null) {
+            log.warn("居民变更事件缺少数据，忽略，id: {}", id);
+            return;
+        }
+        synchronized (counterLock) {
+            String oldSnapshot = (String) redisUtil.hget(STATE_RESIDENT, id);
+            String newSnapshot = delete ? null : mergeResidentSnapshot(oldSnapshot, message.getData());
+            if (Objects.equals(oldSnapshot, newSnapshot)) {
+                return;
+            }
+            if (oldSnapshot != null) {
+                applyResidentSnapshot(oldSnapshot, -1);
+            }
+            if (newSnapshot != null) {
+                applyResidentSnapshot(newSnapshot, 1);
+            }
+            if (newSnapshot != null) {
+                redisUtil.hset(STATE_RESIDENT, id, newSnapshot);
+            } else {
+                redisUtil.hdel(STATE_RESIDENT, id);
+            }
+        }
+    }
+
+    @Override
+    public void applyHouseholdEvent(ESSyncMessage message) {
+        if (message == null || message.getId() == null) {
+            return;
+        }
+        String id = String.valueOf(message.getId());
+        boolean delete = isDelete(message);
+        if (!delete && message.getData() == null) {
+            log.warn("户籍变更事件缺少数据，忽略，id: {}", id);
+            return;
+        }
+        synchronized (counterLock) {
+            String oldSnapshot = (String) redisUtil.hget(STATE_HOUSEHOLD, id);
+            String newSnapshot = delete ? null : mergeHouseholdSnapshot(oldSnapshot, message.getData());
+            if (Objects.equals(oldSnapshot, newSnapshot)) {
+                return;
+            }
+            if (oldSnapshot != null) {
+                applyHouseholdSnapshot(oldSnapshot, -1);
+            }
+            if (newSnapshot != null) {
+                applyHouseholdSnapshot(newSnapshot, 1);
+            }
+            if (newSnapshot != null) {
+                redisUtil.hset(STATE_HOUSEHOLD, id, newSnapshot);
+            } else {
+                redisUtil.hdel(STATE_HOUSEHOLD, id);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Long> getCounter(String counter) {
+        return toCounter(redisUtil.hmget(COUNTER_PREFIX + counter));
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> getCounters(String... counters) {
+        List<String> keys = new ArrayList<>(counters.length);
+        for (String counter : counters) {
+            keys.add(COUNTER_PREFIX + counter);
+        }
+        List<Map<Object, Object>> entries = redisUtil.hmgetAll(keys);
+        Map<String, Map<String, Long>> result = new HashMap<>();
+        for (int i = 0; i < counters.length; i++) {
+            result.put(counters[i], toCounter(entries.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * 将 Redis Hash 转为计数器，过滤计数为0的项
+     */
+    private Map<String, Long> toCounter(Map<Object, Object> entries) {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            long count = entry.getValue() instanceof Number
+                    ? ((Number) entry.getValue()).longValue()
+                    : Long.parseLong(String.valueOf(entry.getValue()));
+            if (count > 0) {
+                result.put(String.valueOf(entry.getKey()), count);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return redisUtil.hasKey(INITIALIZED_KEY);
+    }
+
+    @Override
+    public void reconcile() {
+        // 多实例部署时只允许一个实例执行对账
+        String lockOwner = UUID.randomUUID().toString();
+        if (!redisUtil.setIfAbsent(RECONCILE_LOCK_KEY, lockOwner, RECONCILE_LOCK_TIME)) {
+            log.info("统计计数器对账正在其他实例执行，跳过本次对账");
+            return;
+        }
+        try {
+            synchronized (counterLock) {
+                long start = System.currentTimeMillis();
+                boolean verifyFirst = isInitialized() && !alwaysRebuild;
+                // 居民和户籍分别拉取自不同服务、写入不同的key，并行对账，耗时取两者中较长的一个
+                CompletableFuture<Long> residentFuture = CompletableFuture.supplyAsync(() -> verifyFirst
+                        && matchesDatabase(residentServiceClient.countStatisticsBuckets(), "resident:", RESIDENT_COUNTERS)
+                        ? -1L : rebuildResidentCounters(), reconcileExecutor);
+                CompletableFuture<Long> householdFuture = CompletableFuture.supplyAsync(() -> verifyFirst
+                        && matchesDatabase(householdServiceClient.countStatisticsBuckets(), "household:", HOUSEHOLD_COUNTERS)
+                        ? -1L : rebuildHouseholdCounters(), reconcileExecutor);
+                // 两个重建都结束后再释放对账锁，其中一个失败不影响另一个完成
+                CompletableFuture.allOf(residentFuture, householdFuture).exceptionally(e -> null).join();
+                long residentCount = join(residentFuture);
+                long householdCount = join(householdFuture);
+                redisUtil.set(INITIALIZED_KEY, System.currentTimeMillis());
+                log.info("统计计数器对账完成，居民: {}，户籍: {}，耗时: {}ms", describe(residentCount),
+                        describe(householdCount), System.currentTimeMillis() - start);
+            }
+        } finally {
+            // 对账超过锁过期时间、锁已被其他实例取得时不删除
+            if (!redisUtil.releaseLock(RECONCILE_LOCK_KEY, lockOwner)) {
+                log.warn("统计计数器对账锁已过期，未释放");
+            }
+        }
+    }
+
+    /**
+     * 用数据库分组计数校验计数器：各服务在数据库中按统计维度 GROUP BY，只有各分组的数量经过网络传输。
+     * 全部一致时说明增量维护没有偏差，无需逐条拉取数据重建；获取分组计数失败时按不一致处理
+     * @param result 分组计数（维度 -> 分组 -> 数量），维度名加上前缀即为计数器名称
+     * @param prefix 计数器名称前缀
+     * @param counters 需要校验的计数器
+     */
+    private boolean matchesDatabase(Result<Map<String, Map<String, Long>>> result, String prefix, String[] counters) {
+        if (result == null || result.getCode() == null || result.getCode() != 200 || result.getData() == null) {
+            log.warn("获取{}统计分组计数失败，执行全量重建", prefix);
+            return false;
+        }
+        Map<String, Map<String, Long>> current = getCounters(counters);
+        for (String counter : counters) {
+            Map<String, Long> expected = result.getData().get(counter.substring(prefix.length()));
+            if (expected == null || !expected.equals(current.get(counter))) {
+                log.warn("统计计数器 {} 与数据库不一致，执行全量重建", counter);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String describe(long count) {
+        return count < 0 ? "与数据库一致" : "重建 " + count + " 条";
+    }
+
+    /**
+     * 获取重建结果，重建失败时抛出其原始异常
+     */
+    private long join(CompletableFuture<Long> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        reconcileExecutor.shutdownNow();
+    }
+
+    /**
+     * 全量重建居民相关计数器（按ID游标分页拉取，内存中只保留当前页和计数结果）
+     */
+    private long rebuildResidentCounters() {
+        Map<String, Long> birthDateCounter = new HashMap<>();
+        Map<String, Long> genderCounter = new HashMap<>();
+        Map<String, Long> createMonthCounter = new HashMap<>();
+        String stateTmpKey = STATE_RESIDENT + TMP_SUFFIX;
+        redisUtil.del(stateTmpKey);
+        long total = ScrollUtil.forEachPage(residentServiceClient::scrollResidents, ScrollUtil.DEFAULT_PAGE_SIZE, page -> {
+            Map<String, Object> state = new HashMap<>();
+            for (Map<String, Object> resident : page) {
+                Object id = resident.get("id");
+                if (id == null) {
+                    continue;
+                }
+                String snapshot = toResidentSnapshot(resident);
+                state.put(String.valueOf(id), snapshot);
+                String[] parts = splitSnapshot(snapshot, 3);
+                increment(birthDateCounter, parts[0]);
+                increment(genderCounter, parts[1]);
+                increment(createMonthCounter, parts[2]);
+            }
+            if (!state.isEmpty()) {
+                redisUtil.hmset(stateTmpKey, state);
+            }
+        });
+        replaceHash(COUNTER_PREFIX + RESIDENT_BIRTH_DATE, new HashMap<String, Object>(birthDateCounter));
+        replaceHash(COUNTER_PREFIX + RESIDENT_GENDER, new HashMap<String, Object>(genderCounter));
+        replaceHash(COUNTER_PREFIX + RESIDENT_CREATE_MONTH, new HashMap<String, Object>(createMonthCounter));
+        commitHash(stateTmpKey, STATE_RESIDENT);
+        return total;
+    }
+
+    /**
+     * 全量重建户籍相关计数器（按ID游标分页拉取，内存中只保留当前页和计数结果）
+     */
+    private long rebuildHouseholdCounters() {
+        Map<String, Long> typeCounter = new HashMap<>();
+        Map<String, Long> moveInCounter = new HashMap<>();
+        Map<String, Long> moveOutCounter = new HashMap<>();
+        Map<String, Long> createMonthCounter = new HashMap<>();
+        String stateTmpKey = STATE_HOUSEHOLD + TMP_SUFFIX;
+        redisUtil.del(stateTmpKey);
+        long total = ScrollUtil.forEachPage(householdServiceClient::scrollHouseholds, ScrollUtil.DEFAULT_PAGE_SIZE, page -> {
+            Map<String, Object> state = new HashMap<>();
+            for (Map<String, Object> household : page) {
+                Object id = household.get("id");
+                if (id == null) {
+                    continue;
+                }
+                String snapshot = toHouseholdSnapshot(household);
+                state.put(String.valueOf(id), snapshot);
+                String[] parts = splitSnapshot(snapshot, 4);
+                increment(typeCounter, parts[0]);
+                increment(moveInCounter, parts[1]);
+                increment(moveOutCounter, parts[2]);
+                increment(createMonthCounter, parts[3]);
+            }
+            if (!state.isEmpty()) {
+                redisUtil.hmset(stateTmpKey, state);
+            }
+        });
+        replaceHash(COUNTER_PREFIX + HOUSEHOLD_TYPE, new HashMap<String, Object>(typeCounter));
+        replaceHash(COUNTER_PREFIX + HOUSEHOLD_MOVE_IN_MONTH, new HashMap<String, Object>(moveInCounter));
+        replaceHash(COUNTER_PREFIX + HOUSEHOLD_MOVE_OUT_MONTH, new HashMap<String, Object>(moveOutCounter));
+        replaceHash(COUNTER_PREFIX + HOUSEHOLD_CREATE_MONTH, new HashMap<String, Object>(createMonthCounter));
+        commitHash(stateTmpKey, STATE_HOUSEHOLD);
+        return total;
+    }
+
+    /**
+     * 先写入临时key，再通过 RENAME 原子替换，避免读请求看到写了一半的计数器
+     */
+    private void replaceHash(String key, Map<String, Object> values) {
+        String tmpKey = key + TMP_SUFFIX;
+        redisUtil.del(tmpKey);
+        Map<String, Object> batch = new HashMap<>();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() >= HASH_WRITE_BATCH_SIZE) {
+                redisUtil.hmset(tmpKey, batch);
+                batch = new HashMap<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            redisUtil.hmset(tmpKey, batch);
+        }
+        commitHash(tmpKey, key);
+    }
+
+    /**
+     * 用临时key替换正式key，临时key不存在（没有任何数据）时直接删除正式key
+     */
+    private void commitHash(String tmpKey, String key) {
+        if (redisUtil.hasKey(tmpKey)) {
+            redisUtil.rename(tmpKey, key);
+        } else {
+            redisUtil.del(key);
+        }
+    }
+
+    /**
+     * 居民快照：出生日期|性别|创建月份
+     */
+    private String toResidentSnapshot(Map<String, Object> resident) {
+        LocalDate birthDate = parseDate(resident.get("birthDate"));
+        Object gender = resident.get("gender");
+        // 与原有统计口径一致：gender为1计为男性，其余计为女性
+        String genderKey = gender != null && "1".equals(gender.toString()) ? MALE : FEMALE;
+        LocalDateTime createTime = parseDateTime(resident.get("createTime"));
+        return (birthDate != null ? birthDate.toString() : "") + SEPARATOR
+                + genderKey + SEPARATOR
+                + (createTime != null ? createTime.format(MONTH_FORMATTER) : "");
+    }
+
+    /**
+     * 户籍快照：户籍类型|迁入月份|迁出月份|创建月份
+     */
+    private String toHouseholdSnapshot(Map<String, Object> household) {
+        Object type = household.get("householdType");
+        // 与原有统计口径一致：householdType为1计为家庭户，其余计为集体户
+        String typeKey = type != null && "1".equals(type.toString()) ? FAMILY : COLLECTIVE;
+        LocalDateTime moveInDate = parseDateTime(household.get("moveInDate"));
+        LocalDateTime moveOutDate = null;
+        Object status = household.get("status");
+        if (status != null && "0".equals(status.toString())) {
+            // 已迁出：优先取迁出时间，没有则以更新时间代替
+            moveOutDate = household.get("moveOutDate") != null
+                    ? parseDateTime(household.get("moveOutDate"))
+                    : parseDateTime(household.get("updateTime"));
+        }
+        LocalDateTime createTime = parseDateTime(household.get("createTime"));
+        return typeKey + SEPARATOR
+                + (moveInDate != null ? moveInDate.format(MONTH_FORMATTER) : "") + SEPARATOR
+                + (moveOutDate != null ? moveOutDate.format(MONTH_FORMATTER) : "") + SEPARATOR
+                + (createTime != null ? createTime.format(MONTH_FORMATTER) : "");
+    }
+
+    /**
+     * 用事件数据更新居民快照：事件中缺少（或为null）的字段沿用旧快照中的值
+     */
+    private String mergeResidentSnapshot(String oldSnapshot, Map<String, Object> resident) {
+        String[] parts = splitSnapshot(toResidentSnapshot(resident), 3);
+        if (oldSnapshot != null) {
+            String[] oldParts = splitSnapshot(oldSnapshot, 3);
+            if (resident.get("birthDate") == null) {
+                parts[0] = oldParts[0];
+            }
+            if (resident.get("gender") == null) {
+                parts[1] = oldParts[1];
+            }
+            if (resident.get("createTime") == null) {
+                parts[2] = oldParts[2];
+            }
+        }
+        return String.join(SEPARATOR, parts);
+    }
+
+    /**
+     * 用事件数据更新户籍快照：事件中缺少（或为null）的字段沿用旧快照中的值，缺少状态时沿用旧的迁出月份
+     */
+    private String mergeHouseholdSnapshot(String oldSnapshot, Map<String, Object> household) {
+        String[] parts = splitSnapshot(toHouseholdSnapshot(household), 4);
+        if (oldSnapshot != null) {
+            String[] oldParts = splitSnapshot(oldSnapshot, 4);
+            if (household.get("householdType") == null) {
+                parts[0] = oldParts[0];
+            }
+            if (household.get("moveInDate") == null) {
+                parts[1] = oldParts[1];
+            }
+            if (household.get("status") == null) {
+                parts[2] = oldParts[2];
+            }
+            if (household.get("createTime") == null) {
+                parts[3] = oldParts[3];
+            }
+        }
+        return String.join(SEPARATOR, parts);
+    }
+
+    private void applyResidentSnapshot(String snapshot, long delta) {
+        String[] parts = splitSnapshot(snapshot, 3);
+        incrementCounter(RESIDENT_BIRTH_DATE, parts[0], delta);
+        incrementCounter(RESIDENT_GENDER, parts[1], delta);
+        incrementCounter(RESIDENT_CREATE_MONTH, parts[2], delta);
+    }
+
+    private void applyHouseholdSnapshot(String snapshot, long delta) {
+        String[] parts = splitSnapshot(snapshot, 4);
+        incrementCounter(HOUSEHOLD_TYPE, parts[0], delta);
+        incrementCounter(HOUSEHOLD_MOVE_IN_MONTH, parts[1], delta);
+        incrementCounter(HOUSEHOLD_MOVE_OUT_MONTH, parts[2], delta);
+        incrementCounter(HOUSEHOLD_CREATE_MONTH, parts[3], delta);
+    }
+
+    private void incrementCounter(String counter, String item, long delta) {
+        if (item.isEmpty()) {
+            return;
+        }
+        redisUtil.hincr(COUNTER_PREFIX + counter, item, delta);
+    }
+
+    private static void increment(Map<String, Long> counter, String item) {
+        if (!item.isEmpty()) {
+            counter.merge(item, 1L, Long::sum);
+        }
+    }
+
+    private static String[] splitSnapshot(String snapshot, int size) {
+        String[] parts = snapshot.split("\\" + SEPARATOR, -1);
+        if (parts.length == size) {
+            return parts;
+        }
+        String[] resized = Arrays.copyOf(parts, size);
+        for (int i = parts.length; i < size; i++) {
+            resized[i] = "";
+        }
+        return resized;
+    }
+
+    private static boolean isDelete(ESSyncMessage message) {
+        return "DELETE".equalsIgnoreCase(String.valueOf(message.getOperation()));
+    }
+
+    private LocalDate parseDate(Object value) {
+        if (value instanceof LocalDate) {
+            return (LocalDate) value;
+        }
+        if (value instanceof String && !((String) value).isEmpty()) {
+            try {
+                return LocalDate.parse(((String) value).substring(0, Math.min(10, ((String) value).length())));
+            } catch (Exception e) {
+                log.debug("日期格式不正确: {}", value);
+            }
+        }
+        return null;
+    }
+
+    private LocalDateTime parseDateTime(Object value) {
+        if (value instanceof LocalDateTime) {
+            return (LocalDateTime) value;
+        }
+        if (value instanceof String && !((String) value).isEmpty()) {
+            try {
+                return LocalDateTime.parse((String) value, DATE_TIME_FORMATTER);
+            } catch (Exception e) {
+                log.debug("日期时间格式不正确: {}", value);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.wuzuhao.cpm.statistics.task;
+
+import com.wuzuhao.cpm.statistics.service.StatisticsCounterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 统计计数器对账任务
+ * 计数器平时由变更事件增量维护，这里定时全量重建一次以修正可能的偏差
+ */
+@Component
+public class StatisticsReconcileTask {
+
+    private static final Logger log = LoggerFactory.getLogger(StatisticsReconcileTask.class);
+
+    @Autowired
+    private StatisticsCounterService statisticsCounterService;
+
+    /**
+     * 定时对账，默认每天凌晨3点执行
+     */
+    @Scheduled(cron = "${statistics.reconcile.cron:0 0 3 * * ?}")
+    public void reconcile() {
+        try {
+            statisticsCounterService.reconcile();
+        } catch (Exception e) {
+            log.error("统计计数器对账失败", e);
+        }
+    }
+
+    /**
+     * 首次部署时计数器为空，启动后在后台执行一次对账进行初始化
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeIfNecessary() {
+        Thread thread = new Thread(() -> {
+            try {
+                if (!statisticsCounterService.isInitialized()) {
+                    statisticsCounterService.reconcile();
+                }
+            } catch (Exception e) {
+                log.error("统计计数器初始化失败", e);
+            }
+        }, "statistics-counter-init");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
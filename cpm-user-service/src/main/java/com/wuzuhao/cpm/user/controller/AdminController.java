@@ -2,6 +2,7 @@ package com.wuzuhao.cpm.user.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.wuzuhao.cpm.common.Result;
+import com.wuzuhao.cpm.common.dto.JobInfo;
 import com.wuzuhao.cpm.user.dto.excel.AdminExcelDTO;
 import com.wuzuhao.cpm.user.entity.Admin;
 import com.wuzuhao.cpm.user.entity.User;
@@ -11,6 +12,7 @@ import com.wuzuhao.cpm.user.service.ExcelExportService;
 import com.wuzuhao.cpm.user.service.UserService;
 import lombok.extern.slf4j.Slf4j;
 import com.wuzuhao.cpm.util.ExcelUtil;
+import com.wuzuhao.cpm.util.JobManager;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -42,6 +44,9 @@ public class AdminController {
     @Autowired
     private ExcelExportService excelExportService;
 
+    @Autowired
+    private JobManager jobManager;
+
     @Autowired
     private SearchServiceClient searchServiceClient;
 
@@ -248,8 +253,32 @@ public class AdminController {
             @ApiParam(value = "管理员编号（模糊查询）") @RequestParam(required = false) String adminNo,
             @ApiParam(value = "部门（模糊查询）") @RequestParam(required = false) String department,
             HttpServletResponse response) {
-        List<AdminExcelDTO> data = excelExportService.exportAdmins(adminNo, department);
-        ExcelUtil.export(response, "管理员列表", "管理员列表", data, AdminExcelDTO.class);
+        ExcelUtil.export(response, "管理员列表", "管理员列表", AdminExcelDTO.class,
+                excelExportService.exportAdmins(adminNo, department));
+    }
+
+    /**
+     * 提交管理员导出任务（后台执行）
+     */
+    @ApiOperation(value = "提交管理员导出任务", notes = "管理员功能，在后台生成Excel并保存到文件服务，立即返回任务ID，通过 /admin/jobs/{jobId} 查询进度和下载地址")
+    @PostMapping("/export/async")
+    public Result<JobInfo> submitExportJob(
+            @ApiParam(value = "管理员编号（模糊查询）") @RequestParam(required = false) String adminNo,
+            @ApiParam(value = "部门（模糊查询）") @RequestParam(required = false) String department,
+            HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        JobInfo job = excelExportService.submitAdminExportJob(adminNo, department, userId);
+        return Result.success("导出任务已提交", job);
+    }
+
+    /**
+     * 查询导出任务
+     */
+    @ApiOperation(value = "查询导出任务", notes = "查询当前用户提交的导出任务的状态、进度和导出文件地址")
+    @GetMapping("/jobs/{jobId}")
+    public Result<JobInfo> getJob(@PathVariable String jobId, HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        return Result.success(jobManager.getJob(jobId, userId));
     }
 }
 
@@ -1,9 +1,11 @@
 package com.wuzuhao.cpm.user.controller;
 
 import com.wuzuhao.cpm.common.Result;
+import com.wuzuhao.cpm.user.util.RegionIndex;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpMethod;
@@ -16,7 +18,7 @@ import java.util.Map;
 
 /**
  * 行政区划控制器
- * 代理regions_data的API服务
+ * 区划数据从内存映射的索引文件（{@link RegionIndex}）中查询；索引文件未生成时代理regions_data的API服务
  */
 @Api(tags = "行政区划管理")
 @RestController
@@ -28,12 +30,18 @@ public class RegionController {
 
     private final RestTemplate restTemplate = new RestTemplate();
 
+    @Autowired
+    private RegionIndex regionIndex;
+
     /**
      * 获取所有省级行政区划
      */
     @ApiOperation(value = "获取所有省份", notes = "获取所有省级行政区划（省、直辖市、自治区、特别行政区）")
     @GetMapping("/provinces")
     public Result<List<Map<String, Object>>> getProvinces() {
+        if (regionIndex.isLoaded()) {
+            return Result.success(regionIndex.getProvinces());
+        }
         try {
             String url = regionsApiBaseUrl + "/api/provinces";
             ResponseEntity<List<Map<String, Object>>> response = restTemplate.exchange(
@@ -58,6 +66,9 @@ public class RegionController {
     @GetMapping("/children/{parentCode}")
     public Result<Map<String, Object>> getChildren(
             @ApiParam(value = "父级区划代码", required = true) @PathVariable String parentCode) {
+        if (regionIndex.isLoaded()) {
+            return Result.success(regionIndex.getChildren(parentCode));
+        }
         try {
             String url = regionsApiBaseUrl + "/api/children/" + parentCode;
             ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
@@ -81,6 +92,9 @@ public class RegionController {
     @ApiOperation(value = "获取数据统计", notes = "获取行政区划数据统计信息")
     @GetMapping("/stats")
     public Result<Map<String, Object>> getStats() {
+        if (regionIndex.isLoaded()) {
+            return Result.success(regionIndex.getStats());
+        }
         try {
             String url = regionsApiBaseUrl + "/api/stats";
             ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
@@ -2,6 +2,7 @@ package com.wuzuhao.cpm.user.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.wuzuhao.cpm.common.Result;
+import com.wuzuhao.cpm.common.dto.JobInfo;
 import com.wuzuhao.cpm.user.dto.excel.UserExcelDTO;
 import com.wuzuhao.cpm.user.entity.User;
 import com.wuzuhao.cpm.user.service.ExcelExportService;
@@ -9,6 +10,7 @@ import com.wuzuhao.cpm.user.feign.NotificationServiceClient;
 import com.wuzuhao.cpm.user.feign.SearchServiceClient;
 import com.wuzuhao.cpm.user.service.UserService;
 import com.wuzuhao.cpm.util.ExcelUtil;
+import com.wuzuhao.cpm.util.JobManager;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -32,12 +34,20 @@ import java.util.Map;
 @RequestMapping("/user")
 public class UserController {
 
+    /**
+     * 批量注册单次最大数量
+     */
+    private static final int MAX_REGISTER_BATCH_SIZE = 1000;
+
     @Autowired
     private UserService userService;
 
     @Autowired
     private ExcelExportService excelExportService;
 
+    @Autowired
+    private JobManager jobManager;
+
     @Autowired
     @Lazy
     private NotificationServiceClient notificationServiceClient;
@@ -57,6 +67,36 @@ public class UserController {
         return Result.success("注册成功", result);
     }
 
+    /**
+     * 批量注册用户（用于居民批量导入，需要登录）
+     */
+    @ApiOperation(value = "批量注册用户", notes = "批量创建用户，逐条返回结果（成功返回id，失败返回message），单次最多" + MAX_REGISTER_BATCH_SIZE + "个")
+    @PostMapping("/register/batch")
+    public Result<List<Map<String, Object>>> registerBatch(@RequestBody List<User> users) {
+        if (users == null || users.isEmpty()) {
+            return Result.success(new ArrayList<>());
+        }
+        if (users.size() > MAX_REGISTER_BATCH_SIZE) {
+            throw new RuntimeException("单次最多批量注册" + MAX_REGISTER_BATCH_SIZE + "个用户");
+        }
+        return Result.success(userService.registerBatch(users));
+    }
+
+    /**
+     * 撤销批量注册（用于居民批量导入失败时删除已创建的用户，需要登录）
+     */
+    @ApiOperation(value = "撤销批量注册", notes = "物理删除批量注册创建的普通用户，单次最多" + MAX_REGISTER_BATCH_SIZE + "个")
+    @PostMapping("/register/batch/rollback")
+    public Result<Integer> rollbackRegisterBatch(@RequestBody List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Result.success(0);
+        }
+        if (ids.size() > MAX_REGISTER_BATCH_SIZE) {
+            throw new RuntimeException("单次最多撤销" + MAX_REGISTER_BATCH_SIZE + "个用户");
+        }
+        return Result.success(userService.rollbackRegisterBatch(ids));
+    }
+
     /**
      * 获取当前用户信息
      */
@@ -404,8 +444,32 @@ public class UserController {
             @ApiParam(value = "用户名（模糊查询）") @RequestParam(required = false) String username,
             @ApiParam(value = "角色") @RequestParam(required = false) String role,
             HttpServletResponse response) {
-        List<UserExcelDTO> data = excelExportService.exportUsers(username, role);
-        ExcelUtil.export(response, "用户列表", "用户列表", data, UserExcelDTO.class);
+        ExcelUtil.export(response, "用户列表", "用户列表", UserExcelDTO.class,
+                excelExportService.exportUsers(username, role));
+    }
+
+    /**
+     * 提交用户导出任务（后台执行）
+     */
+    @ApiOperation(value = "提交用户导出任务", notes = "管理员功能，在后台生成Excel并保存到文件服务，立即返回任务ID，通过 /user/jobs/{jobId} 查询进度和下载地址")
+    @PostMapping("/export/async")
+    public Result<JobInfo> submitExportJob(
+            @ApiParam(value = "用户名（模糊查询）") @RequestParam(required = false) String username,
+            @ApiParam(value = "角色") @RequestParam(required = false) String role,
+            HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        JobInfo job = excelExportService.submitUserExportJob(username, role, userId);
+        return Result.success("导出任务已提交", job);
+    }
+
+    /**
+     * 查询导出任务
+     */
+    @ApiOperation(value = "查询导出任务", notes = "查询当前用户提交的导出任务的状态、进度和导出文件地址")
+    @GetMapping("/jobs/{jobId}")
+    public Result<JobInfo> getJob(@PathVariable String jobId, HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        return Result.success(jobManager.getJob(jobId, userId));
     }
 
     /**
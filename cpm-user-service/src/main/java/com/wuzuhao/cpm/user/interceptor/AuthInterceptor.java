@@ -1,7 +1,7 @@
 package com.wuzuhao.cpm.user.interceptor;
 
+import com.wuzuhao.cpm.common.dto.TokenClaims;
 import com.wuzuhao.cpm.user.service.AuthService;
-import com.wuzuhao.cpm.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
@@ -18,9 +18,6 @@ public class AuthInterceptor implements HandlerInterceptor {
     @Autowired
     private AuthService authService;
 
-    @Autowired
-    private JwtUtil jwtUtil;
-
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
         // 放行OPTIONS请求
@@ -28,14 +25,20 @@ public class AuthInterceptor implements HandlerInterceptor {
             return true;
         }
 
+        // 请求头信任模式下网关已校验过 Token（UserHeaderInterceptor 已写入用户信息）
+        if (request.getAttribute("claims") instanceof TokenClaims) {
+            return true;
+        }
+
         // 获取Token
         String token = request.getHeader("Authorization");
         if (token != null && token.startsWith("Bearer ")) {
             token = token.substring(7);
         }
 
-        // 验证Token
-        if (token == null || !authService.validateToken(token)) {
+        // 验证Token（校验结果有本地缓存，同一个 Token 只在首次请求时解析）
+        TokenClaims claims = token != null ? authService.verifyToken(token) : null;
+        if (claims == null) {
             response.setStatus(401);
             response.setContentType("application/json;charset=UTF-8");
             response.getWriter().write("{\"code\":401,\"message\":\"未授权或Token已过期\"}");
@@ -43,17 +46,9 @@ public class AuthInterceptor implements HandlerInterceptor {
         }
 
         // 将用户信息存入request
-        try {
-            Long userId = jwtUtil.getUserIdFromToken(token);
-            String role = jwtUtil.getRoleFromToken(token);
-            request.setAttribute("userId", userId);
-            request.setAttribute("role", role);
-        } catch (Exception e) {
-            response.setStatus(401);
-            response.setContentType("application/json;charset=UTF-8");
-            response.getWriter().write("{\"code\":401,\"message\":\"Token解析失败\"}");
-            return false;
-        }
+        request.setAttribute("claims", claims);
+        request.setAttribute("userId", claims.getUserId());
+        request.setAttribute("role", claims.getRole());
 
         return true;
     }
@@ -2,12 +2,23 @@ package com.wuzuhao.cpm.user.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.wuzuhao.cpm.user.entity.User;
+import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
 
 /**
  * 用户Mapper接口
  */
 @Mapper
 public interface UserMapper extends BaseMapper<User> {
-}
 
+    /**
+     * 物理删除普通用户（不走逻辑删除）
+     * 只用于撤销批量注册：逻辑删除的记录仍占用用户名唯一索引，会导致重新导入失败
+     */
+    @Delete("<script>DELETE FROM sys_user WHERE role = 'USER' AND id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int deletePhysicallyByIds(@Param("ids") Collection<Long> ids);
+}
@@ -1,5 +1,6 @@
 package com.wuzuhao.cpm.user.service;
 
+import com.wuzuhao.cpm.common.dto.TokenClaims;
 import com.wuzuhao.cpm.user.dto.LoginDTO;
 import com.wuzuhao.cpm.user.dto.LoginResultDTO;
 
@@ -21,5 +22,11 @@ public interface AuthService {
      * 验证Token
      */
     boolean validateToken(String token);
+
+    /**
+     * 验证Token并返回其中的用户信息
+     * @return 用户信息，Token 无效、已过期或已被登出/顶替时返回null
+     */
+    TokenClaims verifyToken(String token);
 }
 
@@ -1,6 +1,7 @@
 package com.wuzuhao.cpm.user.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.wuzuhao.cpm.common.dto.JobInfo;
 import com.wuzuhao.cpm.user.dto.excel.AdminExcelDTO;
 import com.wuzuhao.cpm.user.dto.excel.UserExcelDTO;
 import com.wuzuhao.cpm.user.entity.Admin;
@@ -8,10 +9,21 @@ import com.wuzuhao.cpm.user.entity.User;
 import com.wuzuhao.cpm.user.service.impl.AdminServiceImpl;
 import com.wuzuhao.cpm.user.service.impl.UserServiceImpl;
 import com.wuzuhao.cpm.util.ExcelUtil;
+import com.wuzuhao.cpm.util.ExportFileUploader;
+import com.wuzuhao.cpm.util.JobManager;
+import com.wuzuhao.cpm.util.ScrollUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -20,60 +32,82 @@ import java.util.stream.Collectors;
 @Service
 public class ExcelExportService {
 
+    private static final int EXPORT_BATCH_SIZE = 1000; // 导出每批查询的行数
+
     @Autowired
     private UserServiceImpl userService;
 
     @Autowired
     private AdminServiceImpl adminService;
 
+    @Autowired
+    private ExportFileUploader exportFileUploader;
+
+    @Autowired
+    private JobManager jobManager;
+
     /**
-     * 导出用户列表
+     * 导出用户列表（按主键游标分批查询，每次只在内存中保留一批数据）
      */
-    public List<UserExcelDTO> exportUsers(String username, String role) {
-        // 查询所有符合条件的用户（不分页）
-        LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
-        if (username != null && !username.isEmpty()) {
-            wrapper.like(User::getUsername, username);
-        }
-        if (role != null && !role.isEmpty()) {
-            wrapper.eq(User::getRole, role);
-        }
-        wrapper.orderByDesc(User::getCreateTime);
-        
-        List<User> users = userService.list(wrapper);
-        
-        // 转换为Excel DTO
-        return users.stream().map(user -> {
-            UserExcelDTO dto = new UserExcelDTO();
-            dto.setId(user.getId());
-            dto.setUsername(user.getUsername());
-            dto.setRealName(user.getRealName());
-            dto.setPhone(user.getPhone());
-            dto.setEmail(user.getEmail());
-            dto.setRole(user.getRole() != null && user.getRole().equals("ADMIN") ? "管理员" : "普通用户");
-            dto.setStatus(user.getStatus() != null && user.getStatus() == 1 ? "启用" : "禁用");
-            dto.setCreateTime(ExcelUtil.formatDateTime(user.getCreateTime()));
-            return dto;
-        }).collect(Collectors.toList());
+    public ExcelUtil.ChunkLoader<UserExcelDTO> exportUsers(String username, String role) {
+        return ScrollUtil.keysetLoader(() -> {
+            LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
+            if (username != null && !username.isEmpty()) {
+                wrapper.like(User::getUsername, username);
+            }
+            if (role != null && !role.isEmpty()) {
+                wrapper.eq(User::getRole, role);
+            }
+            return wrapper;
+        }, User::getId, userService::list, EXPORT_BATCH_SIZE,
+                users -> users.stream().map(this::toExcelDTO).collect(Collectors.toList()));
     }
 
     /**
-     * 导出管理员列表
+     * 导出管理员列表（按主键游标分批查询，每次只在内存中保留一批数据）
      */
-    public List<AdminExcelDTO> exportAdmins(String adminNo, String department) {
-        LambdaQueryWrapper<Admin> wrapper = new LambdaQueryWrapper<>();
-        if (adminNo != null && !adminNo.isEmpty()) {
-            wrapper.like(Admin::getAdminNo, adminNo);
-        }
-        if (department != null && !department.isEmpty()) {
-            wrapper.like(Admin::getDepartment, department);
-        }
-        wrapper.orderByDesc(Admin::getCreateTime);
-        
-        List<Admin> admins = adminService.list(wrapper);
-        
-        // 转换为Excel DTO，需要关联用户信息
-        return admins.stream().map(admin -> {
+    public ExcelUtil.ChunkLoader<AdminExcelDTO> exportAdmins(String adminNo, String department) {
+        return ScrollUtil.keysetLoader(() -> {
+            LambdaQueryWrapper<Admin> wrapper = new LambdaQueryWrapper<>();
+            if (adminNo != null && !adminNo.isEmpty()) {
+                wrapper.like(Admin::getAdminNo, adminNo);
+            }
+            if (department != null && !department.isEmpty()) {
+                wrapper.like(Admin::getDepartment, department);
+            }
+            return wrapper;
+        }, Admin::getId, adminService::list, EXPORT_BATCH_SIZE, this::toAdminExcelDTOs);
+    }
+
+    /**
+     * 转换为Excel DTO
+     */
+    private UserExcelDTO toExcelDTO(User user) {
+        UserExcelDTO dto = new UserExcelDTO();
+        dto.setId(user.getId());
+        dto.setUsername(user.getUsername());
+        dto.setRealName(user.getRealName());
+        dto.setPhone(user.getPhone());
+        dto.setEmail(user.getEmail());
+        dto.setRole(user.getRole() != null && user.getRole().equals("ADMIN") ? "管理员" : "普通用户");
+        dto.setStatus(user.getStatus() != null && user.getStatus() == 1 ? "启用" : "禁用");
+        dto.setCreateTime(ExcelUtil.formatDateTime(user.getCreateTime()));
+        return dto;
+    }
+
+    /**
+     * 转换为Excel DTO，关联的用户信息每批一次查出
+     */
+    private List<AdminExcelDTO> toAdminExcelDTOs(List<Admin> admins) {
+        Set<Long> userIds = admins.stream()
+                .map(Admin::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, User> users = userIds.isEmpty() ? Collections.emptyMap()
+                : userService.listByIds(userIds).stream().collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<AdminExcelDTO> data = new ArrayList<>(admins.size());
+        for (Admin admin : admins) {
             AdminExcelDTO dto = new AdminExcelDTO();
             dto.setId(admin.getId());
             dto.setAdminNo(admin.getAdminNo());
@@ -81,20 +115,55 @@ public class ExcelExportService {
             dto.setPosition(admin.getPosition());
             dto.setRemark(admin.getRemark());
             dto.setCreateTime(ExcelUtil.formatDateTime(admin.getCreateTime()));
-            
-            // 获取关联的用户信息
-            if (admin.getUserId() != null) {
-                User user = userService.getById(admin.getUserId());
-                if (user != null) {
-                    dto.setUsername(user.getUsername());
-                    dto.setRealName(user.getRealName());
-                    dto.setPhone(user.getPhone());
-                    dto.setEmail(user.getEmail());
-                }
+
+            // 关联的用户信息
+            User user = admin.getUserId() != null ? users.get(admin.getUserId()) : null;
+            if (user != null) {
+                dto.setUsername(user.getUsername());
+                dto.setRealName(user.getRealName());
+                dto.setPhone(user.getPhone());
+                dto.setEmail(user.getEmail());
             }
-            
-            return dto;
-        }).collect(Collectors.toList());
+            data.add(dto);
+        }
+        return data;
     }
-}
 
+    /**
+     * 提交用户导出任务，导出文件写入文件服务，任务完成后通过 fileUrl 下载
+     */
+    public JobInfo submitUserExportJob(String username, String role, Long userId) {
+        return jobManager.submit("user-export", userId, context -> {
+            ExcelUtil.ChunkLoader<UserExcelDTO> loader = exportUsers(username, role);
+            File file = ExcelUtil.exportToTempFile("用户列表", UserExcelDTO.class, () -> {
+                List<UserExcelDTO> chunk = loader.next();
+                context.addSuccess(chunk.size());
+                return chunk;
+            });
+            try {
+                context.setFileUrl(exportFileUploader.upload(file, "用户列表.xlsx"));
+            } finally {
+                Files.deleteIfExists(file.toPath());
+            }
+        });
+    }
+
+    /**
+     * 提交管理员导出任务，导出文件写入文件服务，任务完成后通过 fileUrl 下载
+     */
+    public JobInfo submitAdminExportJob(String adminNo, String department, Long userId) {
+        return jobManager.submit("admin-export", userId, context -> {
+            ExcelUtil.ChunkLoader<AdminExcelDTO> loader = exportAdmins(adminNo, department);
+            File file = ExcelUtil.exportToTempFile("管理员列表", AdminExcelDTO.class, () -> {
+                List<AdminExcelDTO> chunk = loader.next();
+                context.addSuccess(chunk.size());
+                return chunk;
+            });
+            try {
+                context.setFileUrl(exportFileUploader.upload(file, "管理员列表.xlsx"));
+            } finally {
+                Files.deleteIfExists(file.toPath());
+            }
+        });
+    }
+}
@@ -3,6 +3,9 @@ package com.wuzuhao.cpm.user.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.wuzuhao.cpm.user.entity.User;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * 用户服务接口
  */
@@ -22,6 +25,22 @@ public interface UserService extends IService<User> {
      */
     User register(User user);
 
+    /**
+     * 批量注册用户（用于居民批量导入）
+     * 格式校验与单个注册相同，用户名、手机号、邮箱的查重各用一次 IN 查询，通过校验的用户批量写入
+     * @param users 待注册用户
+     * @return 每个用户的注册结果，顺序与 users 一致：成功时包含 id，失败时包含 message
+     */
+    List<Map<String, Object>> registerBatch(List<User> users);
+
+    /**
+     * 撤销批量注册（居民批量导入中居民写入失败时调用）
+     * 物理删除这些普通用户，释放用户名、手机号、邮箱，重新导入时不会被判定为已存在
+     * @param ids registerBatch 返回的用户id
+     * @return 删除的用户数
+     */
+    int rollbackRegisterBatch(List<Long> ids);
+
     /**
      * 更新用户信息
      */
@@ -49,8 +49,11 @@ public class AdminServiceImpl extends ServiceImpl<AdminMapper, Admin> implements
     public boolean updateById(Admin admin) {
         boolean result = super.updateById(admin);
         if (result) {
-            // 发送 ES 同步消息
-            sendESSyncMessage(ESSyncMessage.update("admin_index", admin.getId(), convertToMap(admin)));
+            // 发送 ES 同步消息（请求中的实体只包含要修改的字段，重新查询出完整记录再同步）
+            Admin stored = super.getById(admin.getId());
+            if (stored != null) {
+                sendESSyncMessage(ESSyncMessage.update("admin_index", stored.getId(), convertToMap(stored)));
+            }
         }
         return result;
     }
@@ -100,6 +103,7 @@ public class AdminServiceImpl extends ServiceImpl<AdminMapper, Admin> implements
             map.put("department", admin.getDepartment());
             map.put("position", admin.getPosition());
             map.put("remark", admin.getRemark());
+            map.put("deleted", admin.getDeleted() != null ? admin.getDeleted() : 0);
             // 将 LocalDateTime 转换为字符串格式（yyyy-MM-dd HH:mm:ss），以便前端正确显示
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
             if (admin.getCreateTime() != null) {
@@ -1,5 +1,6 @@
 package com.wuzuhao.cpm.user.service.impl;
 
+import com.wuzuhao.cpm.common.dto.TokenClaims;
 import com.wuzuhao.cpm.user.dto.LoginDTO;
 import com.wuzuhao.cpm.user.dto.LoginResultDTO;
 import com.wuzuhao.cpm.user.entity.User;
@@ -7,18 +8,27 @@ import com.wuzuhao.cpm.user.service.AuthService;
 import com.wuzuhao.cpm.user.feign.NotificationServiceClient;
 import com.wuzuhao.cpm.user.service.UserService;
 import com.wuzuhao.cpm.util.JwtUtil;
+import com.wuzuhao.cpm.util.VerifiedTokenCache;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 import org.springframework.util.DigestUtils;
 
+import javax.annotation.PostConstruct;
 import java.util.concurrent.TimeUnit;
 
 /**
  * 认证服务实现类
+ *
+ * Token 校验结果缓存在本地（{@link VerifiedTokenCache}），同一个 Token 只在首次请求时校验签名和查询 Redis。
+ * 登录（顶替旧 Token）和登出时吊销该用户此前的缓存，并通过 Redis 发布/订阅通知所有节点（包括网关）。
  */
+@Slf4j
 @Service
 public class AuthServiceImpl implements AuthService {
 
@@ -43,11 +53,42 @@ public class AuthServiceImpl implements AuthService {
     @Value("${login.captcha.enabled:false}")
     private boolean loginCaptchaEnabled;
 
-    private static final String REDIS_TOKEN_PREFIX = "token:";
+    private static final String REDIS_TOKEN_PREFIX = JwtUtil.TOKEN_KEY_PREFIX;
     private static final String LOGIN_FAIL_PREFIX = "login_fail:";
     private static final int MAX_LOGIN_FAIL_COUNT = 5; // 最大登录失败次数
     private static final int LOCK_TIME_MINUTES = 30; // 锁定时间（分钟）
 
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * Token 校验缓存最大条目数
+     */
+    @Value("${cpm.auth.token-cache.maximum-size:10000}")
+    private long tokenCacheMaximumSize;
+
+    /**
+     * Token 校验缓存最长保留时间（秒）
+     */
+    @Value("${cpm.auth.token-cache.max-ttl:300}")
+    private long tokenCacheMaxTtl;
+
+    /**
+     * 已校验的 Token
+     */
+    private VerifiedTokenCache tokenCache;
+
+    @PostConstruct
+    public void init() {
+        tokenCache = new VerifiedTokenCache(tokenCacheMaximumSize, tokenCacheMaxTtl);
+        redisMessageListenerContainer.addMessageListener((message, pattern) -> {
+            Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (body != null) {
+                tokenCache.revoke(Long.valueOf(body.toString()));
+            }
+        }, new ChannelTopic(JwtUtil.TOKEN_REVOKE_CHANNEL));
+    }
+
     @Override
     public LoginResultDTO login(LoginDTO loginDTO) {
         String username = loginDTO.getUsername();
@@ -104,6 +145,8 @@ public class AuthServiceImpl implements AuthService {
 
         // 将Token存入Redis，设置过期时间
         redisTemplate.opsForValue().set(REDIS_TOKEN_PREFIX + user.getId(), token, 24, TimeUnit.HOURS);
+        // 旧 Token 被顶替，清除各节点缓存的校验结果
+        revoke(user.getId());
 
         // 构建返回结果
         LoginResultDTO result = new LoginResultDTO();
@@ -141,6 +184,7 @@ public class AuthServiceImpl implements AuthService {
         try {
             Long userId = jwtUtil.getUserIdFromToken(token);
             redisTemplate.delete(REDIS_TOKEN_PREFIX + userId);
+            revoke(userId);
         } catch (Exception e) {
             // 忽略异常
         }
@@ -148,23 +192,53 @@ public class AuthServiceImpl implements AuthService {
 
     @Override
     public boolean validateToken(String token) {
+        return verifyToken(token) != null;
+    }
+
+    @Override
+    public TokenClaims verifyToken(String token) {
         if (token == null || token.isEmpty()) {
-            return false;
+            return null;
+        }
+
+        TokenClaims cached = tokenCache.get(token);
+        if (cached != null) {
+            return cached;
         }
 
-        // 验证Token是否有效
-        if (!jwtUtil.validateToken(token)) {
-            return false;
+        // 在校验前取版本号，校验期间发生的吊销会使这次写入的缓存失效
+        long version = tokenCache.version();
+        TokenClaims claims;
+        try {
+            // 解析时同时校验签名和过期时间
+            claims = jwtUtil.parseToken(token);
+        } catch (Exception e) {
+            return null;
         }
 
         // 检查Redis中是否存在Token
         try {
-            Long userId = jwtUtil.getUserIdFromToken(token);
-            Object redisToken = redisTemplate.opsForValue().get(REDIS_TOKEN_PREFIX + userId);
-            return token.equals(redisToken);
+            Object redisToken = redisTemplate.opsForValue().get(REDIS_TOKEN_PREFIX + claims.getUserId());
+            if (!token.equals(redisToken)) {
+                return null;
+            }
         } catch (Exception e) {
-            return false;
+            return null;
         }
+        tokenCache.put(token, claims, version);
+        return claims;
     }
-}
 
+    /**
+     * 吊销用户之前的 Token 校验缓存，并通知其他节点
+     */
+    private void revoke(Long userId) {
+        tokenCache.revoke(userId);
+        try {
+            redisTemplate.convertAndSend(JwtUtil.TOKEN_REVOKE_CHANNEL, userId.toString());
+        } catch (Exception e) {
+            // 通知失败时其他节点的缓存在最长保留时间后自然失效
+            log.warn("发送Token吊销通知失败: {}", e.getMessage());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.wuzuhao.cpm.user.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.wuzuhao.cpm.user.entity.User;
 import com.wuzuhao.cpm.user.mapper.UserMapper;
@@ -8,19 +9,27 @@ import com.wuzuhao.cpm.user.feign.FileServiceClient;
 import com.wuzuhao.cpm.common.dto.ESSyncMessage;
 import com.wuzuhao.cpm.config.RabbitMQConfig;
 import com.wuzuhao.cpm.user.service.UserService;
-import com.wuzuhao.cpm.util.RedisUtil;
+import com.wuzuhao.cpm.util.NearCache;
+import com.wuzuhao.cpm.util.RedisBloomFilter;
 import com.wuzuhao.cpm.util.ValidationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.util.DigestUtils;
 
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 用户服务实现类
@@ -33,9 +42,15 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     private static final String CACHE_BY_USERNAME = CACHE_PREFIX + "username:";
     private static final String CACHE_BY_EMAIL = CACHE_PREFIX + "email:";
     private static final long CACHE_EXPIRE_TIME = 3600; // 缓存过期时间：1小时
+    private static final String BLOOM_USERNAME = "user:username";
+    private static final int BLOOM_BUILD_PAGE_SIZE = 1000;
+    private static final int REGISTER_BATCH_SIZE = 500;
 
     @Autowired
-    private RedisUtil redisUtil;
+    private NearCache nearCache;
+
+    @Autowired
+    private RedisBloomFilter redisBloomFilter;
 
     @Autowired
     @Lazy
@@ -50,16 +65,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         if (id == null) {
             return null;
         }
-        String cacheKey = CACHE_BY_ID + id;
-        User user = (User) redisUtil.get(cacheKey);
-        if (user != null) {
-            return user;
-        }
-        user = super.getById(id);
-        if (user != null) {
-            redisUtil.set(cacheKey, user, CACHE_EXPIRE_TIME);
-        }
-        return user;
+        return nearCache.getOrLoad(CACHE_BY_ID + id, CACHE_EXPIRE_TIME, () -> super.getById(id));
     }
 
     @Override
@@ -67,20 +73,20 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         if (username == null || username.trim().isEmpty()) {
             return null;
         }
-        String cacheKey = CACHE_BY_USERNAME + username;
-        User user = (User) redisUtil.get(cacheKey);
-        if (user != null) {
-            return user;
-        }
-        LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(User::getUsername, username);
-        user = this.getOne(wrapper);
-        if (user != null) {
-            redisUtil.set(cacheKey, user, CACHE_EXPIRE_TIME);
-            // 同时缓存按ID查询的结果
-            redisUtil.set(CACHE_BY_ID + user.getId(), user, CACHE_EXPIRE_TIME);
+        // 布隆过滤器判定不存在的用户名（注册查重、错误用户名登录）直接返回，不访问缓存和数据库
+        if (!redisBloomFilter.mightContain(BLOOM_USERNAME, username)) {
+            return null;
         }
-        return user;
+        return nearCache.getOrLoad(CACHE_BY_USERNAME + username, CACHE_EXPIRE_TIME, () -> {
+            LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
+            wrapper.eq(User::getUsername, username);
+            User user = this.getOne(wrapper);
+            if (user != null) {
+                // 同时缓存按ID查询的结果
+                nearCache.set(CACHE_BY_ID + user.getId(), user, CACHE_EXPIRE_TIME);
+            }
+            return user;
+        });
     }
 
     @Override
@@ -88,23 +94,44 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         if (email == null || email.trim().isEmpty()) {
             return null;
         }
-        String cacheKey = CACHE_BY_EMAIL + email;
-        User user = (User) redisUtil.get(cacheKey);
-        if (user != null) {
+        return nearCache.getOrLoad(CACHE_BY_EMAIL + email, CACHE_EXPIRE_TIME, () -> {
+            LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
+            wrapper.eq(User::getEmail, email);
+            User user = this.getOne(wrapper);
+            if (user != null) {
+                // 同时缓存按ID和username查询的结果
+                nearCache.set(CACHE_BY_ID + user.getId(), user, CACHE_EXPIRE_TIME);
+                if (user.getUsername() != null) {
+                    nearCache.set(CACHE_BY_USERNAME + user.getUsername(), user, CACHE_EXPIRE_TIME);
+                }
+            }
             return user;
-        }
-        LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(User::getEmail, email);
-        user = this.getOne(wrapper);
-        if (user != null) {
-            redisUtil.set(cacheKey, user, CACHE_EXPIRE_TIME);
-            // 同时缓存按ID和username查询的结果
-            redisUtil.set(CACHE_BY_ID + user.getId(), user, CACHE_EXPIRE_TIME);
-            if (user.getUsername() != null) {
-                redisUtil.set(CACHE_BY_USERNAME + user.getUsername(), user, CACHE_EXPIRE_TIME);
+        });
+    }
+
+    /**
+     * 启动后构建用户名布隆过滤器（已构建时跳过）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initUsernameBloomFilter() {
+        redisBloomFilter.buildIfAbsent(BLOOM_USERNAME, sink -> {
+            long lastId = 0L;
+            while (true) {
+                LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
+                wrapper.select(User::getId, User::getUsername)
+                        .gt(User::getId, lastId)
+                        .orderByAsc(User::getId)
+                        .last("LIMIT " + BLOOM_BUILD_PAGE_SIZE);
+                List<User> users = this.list(wrapper);
+                for (User user : users) {
+                    sink.accept(user.getUsername());
+                }
+                if (users.size() < BLOOM_BUILD_PAGE_SIZE) {
+                    return;
+                }
+                lastId = users.get(users.size() - 1).getId();
             }
-        }
-        return user;
+        });
     }
 
     /**
@@ -112,13 +139,16 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
      */
     private void clearUserCache(User user) {
         if (user != null) {
-            redisUtil.del(CACHE_BY_ID + user.getId());
+            // 一次性失效所有相关键，只发送一条跨节点失效通知
+            List<String> keys = new ArrayList<>();
+            keys.add(CACHE_BY_ID + user.getId());
             if (user.getUsername() != null) {
-                redisUtil.del(CACHE_BY_USERNAME + user.getUsername());
+                keys.add(CACHE_BY_USERNAME + user.getUsername());
             }
             if (user.getEmail() != null) {
-                redisUtil.del(CACHE_BY_EMAIL + user.getEmail());
+                keys.add(CACHE_BY_EMAIL + user.getEmail());
             }
+            nearCache.evict(keys.toArray(new String[0]));
         }
     }
 
@@ -169,6 +199,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         user.setStatus(1);
         // createTime 和 updateTime 由 MyBatis-Plus 自动填充
         this.save(user);
+        redisBloomFilter.put(BLOOM_USERNAME, user.getUsername());
         // 注册后清除相关缓存（虽然新数据可能不在缓存中，但为了保持一致性）
         clearUserCache(user);
         // 发送 ES 同步消息
@@ -176,6 +207,144 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         return user;
     }
 
+    @Override
+    public List<Map<String, Object>> registerBatch(List<User> users) {
+        String[] errors = new String[users.size()];
+        Set<String> usernames = new HashSet<>();
+        Set<String> phones = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+
+        // 格式校验和批内查重
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            String error = validateRegisterFormat(user);
+            if (error == null && !usernames.add(user.getUsername())) {
+                error = "用户名重复";
+            }
+            if (error == null && hasText(user.getPhone()) && !phones.add(user.getPhone())) {
+                error = "手机号重复";
+            }
+            if (error == null && hasText(user.getEmail()) && !emails.add(user.getEmail())) {
+                error = "邮箱重复";
+            }
+            errors[i] = error;
+        }
+
+        // 与已有数据查重，每个字段一次 IN 查询
+        Set<String> existingUsernames = findExisting(User::getUsername, usernames);
+        Set<String> existingPhones = findExisting(User::getPhone, phones);
+        Set<String> existingEmails = findExisting(User::getEmail, emails);
+        List<User> toSave = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            if (errors[i] != null) {
+                continue;
+            }
+            User user = users.get(i);
+            if (existingUsernames.contains(user.getUsername())) {
+                errors[i] = "用户名已存在";
+            } else if (hasText(user.getPhone()) && existingPhones.contains(user.getPhone())) {
+                errors[i] = "手机号已被使用";
+            } else if (hasText(user.getEmail()) && existingEmails.contains(user.getEmail())) {
+                errors[i] = "邮箱已被使用";
+            } else {
+                user.setId(null);
+                user.setPassword(DigestUtils.md5DigestAsHex(user.getPassword().getBytes()));
+                user.setStatus(1);
+                toSave.add(user);
+            }
+        }
+
+        if (!toSave.isEmpty()) {
+            // 批量写入（JDBC batch），createTime 和 updateTime 由 MyBatis-Plus 自动填充
+            this.saveBatch(toSave, REGISTER_BATCH_SIZE);
+            List<String> savedUsernames = new ArrayList<>(toSave.size());
+            List<String> cacheKeys = new ArrayList<>();
+            List<ESSyncMessage> messages = new ArrayList<>(toSave.size());
+            for (User user : toSave) {
+                savedUsernames.add(user.getUsername());
+                cacheKeys.add(CACHE_BY_ID + user.getId());
+                cacheKeys.add(CACHE_BY_USERNAME + user.getUsername());
+                if (user.getEmail() != null) {
+                    cacheKeys.add(CACHE_BY_EMAIL + user.getEmail());
+                }
+                messages.add(ESSyncMessage.create("user_index", user.getId(), convertToMap(user)));
+            }
+            redisBloomFilter.putAll(BLOOM_USERNAME, savedUsernames);
+            nearCache.evict(cacheKeys.toArray(new String[0]));
+            sendESSyncMessages(messages);
+            log.info("批量注册用户完成，提交: {}，成功: {}", users.size(), toSave.size());
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("username", users.get(i).getUsername());
+            if (errors[i] == null) {
+                item.put("id", users.get(i).getId());
+            } else {
+                item.put("message", errors[i]);
+            }
+            results.add(item);
+        }
+        return results;
+    }
+
+    /**
+     * 注册信息格式校验（与单个注册的校验规则一致）
+     * @return 错误信息，校验通过时返回null
+     */
+    private String validateRegisterFormat(User user) {
+        if (user == null || !hasText(user.getUsername())) {
+            return "用户名不能为空";
+        }
+        if (hasText(user.getPhone()) && !ValidationUtil.isValidPhone(user.getPhone())) {
+            return "手机号格式不正确，应为11位数字且以1开头";
+        }
+        if (hasText(user.getEmail()) && !ValidationUtil.isValidEmail(user.getEmail())) {
+            return "邮箱格式不正确";
+        }
+        if (!hasText(user.getPassword())) {
+            return "密码不能为空";
+        }
+        if (!ValidationUtil.validatePasswordLength(user.getPassword())) {
+            return "密码长度至少8位";
+        }
+        return null;
+    }
+
+    /**
+     * 查询指定字段中已存在的值（分批 IN 查询）
+     */
+    private Set<String> findExisting(SFunction<User, String> column, Collection<String> values) {
+        Set<String> existing = new HashSet<>();
+        List<String> batch = new ArrayList<>();
+        for (String value : values) {
+            batch.add(value);
+            if (batch.size() >= REGISTER_BATCH_SIZE) {
+                existing.addAll(selectExisting(column, batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            existing.addAll(selectExisting(column, batch));
+        }
+        return existing;
+    }
+
+    private Set<String> selectExisting(SFunction<User, String> column, List<String> values) {
+        LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(column).in(column, values);
+        Set<String> existing = new HashSet<>();
+        for (User user : this.list(wrapper)) {
+            existing.add(column.apply(user));
+        }
+        return existing;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
     @Override
     public boolean updateUser(User user) {
         // 更新前获取旧数据，用于清除缓存和删除旧图片
@@ -252,14 +421,66 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 
         boolean result = super.updateById(user);
         if (result) {
+            if (user.getUsername() != null) {
+                redisBloomFilter.put(BLOOM_USERNAME, user.getUsername());
+            }
             clearUserCache(oldUser);
             clearUserCache(user);
-            // 发送 ES 同步消息
-            sendESSyncMessage(ESSyncMessage.update("user_index", user.getId(), convertToMap(user)));
+            // 发送 ES 同步消息（请求中的实体只包含要修改的字段，重新查询出完整记录再同步）
+            User stored = super.getById(user.getId());
+            if (stored != null) {
+                sendESSyncMessage(ESSyncMessage.update("user_index", stored.getId(), convertToMap(stored)));
+            }
         }
         return result;
     }
     
+    @Override
+    public int rollbackRegisterBatch(List<Long> ids) {
+        List<User> users = super.listByIds(ids);
+        List<Long> userIds = new ArrayList<>(users.size());
+        List<String> cacheKeys = new ArrayList<>();
+        List<ESSyncMessage> messages = new ArrayList<>(users.size());
+        for (User user : users) {
+            if (!"USER".equals(user.getRole())) {
+                continue;
+            }
+            userIds.add(user.getId());
+            cacheKeys.add(CACHE_BY_ID + user.getId());
+            cacheKeys.add(CACHE_BY_USERNAME + user.getUsername());
+            if (user.getEmail() != null) {
+                cacheKeys.add(CACHE_BY_EMAIL + user.getEmail());
+            }
+            messages.add(ESSyncMessage.delete("user_index", user.getId()));
+        }
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        int deleted = baseMapper.deletePhysicallyByIds(userIds);
+        // 布隆过滤器无法删除元素，残留的用户名只会多一次数据库查询
+        nearCache.evict(cacheKeys.toArray(new String[0]));
+        sendESSyncMessages(messages);
+        log.info("撤销批量注册用户，请求: {}，删除: {}", ids.size(), deleted);
+        return deleted;
+    }
+
+    /**
+     * 批量发送 ES 同步消息：在同一个 Channel 上连续发送，不必每条消息都获取一次 Channel
+     */
+    private void sendESSyncMessages(List<ESSyncMessage> messages) {
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (ESSyncMessage message : messages) {
+                    operations.convertAndSend(RabbitMQConfig.USER_SYNC_EXCHANGE, RabbitMQConfig.USER_SYNC_ROUTING_KEY, message);
+                }
+                return null;
+            });
+            log.debug("批量发送 ES 同步消息成功，数量: {}", messages.size());
+        } catch (Exception e) {
+            log.error("批量发送 ES 同步消息失败: {}", e.getMessage(), e);
+        }
+    }
+
     /**
      * 发送 ES 同步消息
      */
@@ -294,6 +515,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
             map.put("avatar", user.getAvatar());
             map.put("role", user.getRole());
             map.put("status", user.getStatus());
+            map.put("deleted", user.getDeleted() != null ? user.getDeleted() : 0);
             // 将 LocalDateTime 转换为字符串格式（yyyy-MM-dd HH:mm:ss），以便前端正确显示
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
             if (user.getCreateTime() != null) {
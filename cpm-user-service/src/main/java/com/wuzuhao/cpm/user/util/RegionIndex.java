@@ -0,0 +1,271 @@
+package com.wuzuhao.cpm.user.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 行政区划索引
+ * 启动时把 regions_data-main/data_acq/build_region_index.py 编译出的 regions.bin 内存映射进来，
+ * 区划代码、下级节点位置、名称偏移等按列存放，查询直接读取映射区域，不复制到堆内。
+ *
+ * 节点按层序排列，省级节点在最前面，每个节点的下级节点连续存放，查下级只需读出起始下标和数量；
+ * 按代码查节点时在 by_code 列上二分查找。返回的数据结构与 regions_data API 服务一致。
+ */
+@Component
+public class RegionIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(RegionIndex.class);
+
+    private static final int MAGIC = 0x43504D52; // "CPMR"
+    private static final int VERSION = 1;
+
+    /**
+     * 索引文件路径，文件不存在时区划接口转发到 regions_data 服务
+     */
+    @Value("${regions.index.path:regions_data-main/regions.bin}")
+    private String indexPath;
+
+    private boolean loaded;
+
+    private int nodeCount;
+    private int rootCount;
+    private int[] typeCodes;
+    private String[] typeNames;
+
+    private LongBuffer codes;
+    private IntBuffer firstChild;
+    private IntBuffer childCount;
+    private IntBuffer nameOffsets;
+    private ByteBuffer levels;
+    private ByteBuffer depths;
+    private ByteBuffer types;
+    private IntBuffer byCode;
+    private ByteBuffer names;
+
+    /**
+     * 统计数据（加载时计算一次）
+     */
+    private Map<String, Object> stats;
+
+    @PostConstruct
+    public void load() {
+        Path path = Paths.get(indexPath);
+        if (!Files.isRegularFile(path)) {
+            log.warn("行政区划索引文件不存在: {}，区划接口将转发到 regions_data 服务", path.toAbsolutePath());
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // 映射在通道关闭后仍然有效
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            parse(buffer);
+            stats = buildStats();
+            loaded = true;
+            log.info("行政区划索引已加载: {}，节点数: {}，文件大小: {} 字节", path.toAbsolutePath(), nodeCount, channel.size());
+        } catch (IOException | RuntimeException e) {
+            log.error("加载行政区划索引失败: {}，区划接口将转发到 regions_data 服务", path.toAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * 索引是否已加载
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * 所有省级行政区划
+     */
+    public List<Map<String, Object>> getProvinces() {
+        List<Map<String, Object>> provinces = new ArrayList<>(rootCount);
+        for (int node = 0; node < rootCount; node++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("code", code(node));
+            item.put("name", name(node));
+            item.put("type", typeNames[types.get(node)]);
+            item.put("type_code", typeCodes[types.get(node)]);
+            provinces.add(item);
+        }
+        return provinces;
+    }
+
+    /**
+     * 指定区划的下级行政区划
+     * @return items-下级列表, hasChildren-是否有下级, childrenTypeName-第一个下级的类型, hasGrandchildren-第一个下级是否还有下级, count-下级数量
+     */
+    public Map<String, Object> getChildren(String parentCode) {
+        int parent = find(parentCode);
+        int count = parent >= 0 ? childCount.get(parent) : 0;
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (count == 0) {
+            result.put("items", Collections.emptyList());
+            result.put("hasChildren", false);
+            result.put("childrenTypeName", null);
+            result.put("count", 0);
+            return result;
+        }
+
+        int first = firstChild.get(parent);
+        List<Map<String, Object>> items = new ArrayList<>(count);
+        for (int node = first; node < first + count; node++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("code", code(node));
+            item.put("name", name(node));
+            item.put("level", (int) levels.get(node));
+            item.put("depth", (int) depths.get(node));
+            item.put("type", typeNames[types.get(node)]);
+            item.put("type_code", typeCodes[types.get(node)]);
+            items.add(item);
+        }
+        result.put("items", items);
+        result.put("hasChildren", true);
+        result.put("childrenTypeName", typeNames[types.get(first)]);
+        result.put("hasGrandchildren", childCount.get(first) > 0);
+        result.put("count", count);
+        return result;
+    }
+
+    /**
+     * 统计数据：total-总数, by_level-按级别统计
+     */
+    public Map<String, Object> getStats() {
+        return stats;
+    }
+
+    /**
+     * 按区划代码查找节点
+     * @return 节点下标，不存在时返回-1
+     */
+    private int find(String code) {
+        if (code == null || code.isEmpty() || code.length() > 18 || code.charAt(0) == '0') {
+            return -1;
+        }
+        for (int i = 0; i < code.length(); i++) {
+            if (code.charAt(i) < '0' || code.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        long target = Long.parseLong(code);
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int node = byCode.get(mid);
+            long value = codes.get(node);
+            if (value < target) {
+                low = mid + 1;
+            } else if (value > target) {
+                high = mid - 1;
+            } else {
+                return node;
+            }
+        }
+        return -1;
+    }
+
+    private String code(int node) {
+        return Long.toString(codes.get(node));
+    }
+
+    private String name(int node) {
+        int start = nameOffsets.get(node);
+        byte[] bytes = new byte[nameOffsets.get(node + 1) - start];
+        ByteBuffer source = names.duplicate();
+        source.position(start);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Map<String, Object> buildStats() {
+        Map<Integer, Integer> countByLevel = new TreeMap<>();
+        for (int node = 0; node < nodeCount; node++) {
+            countByLevel.merge((int) levels.get(node), 1, Integer::sum);
+        }
+        List<Map<String, Object>> byLevel = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : countByLevel.entrySet()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("level", entry.getKey());
+            item.put("count", entry.getValue());
+            byLevel.add(item);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", nodeCount);
+        result.put("by_level", byLevel);
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * 按 build_region_index.py 中描述的格式读取各列（只在加载时顺序读取，之后只做绝对位置读取，线程安全）
+     */
+    private void parse(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IllegalStateException("行政区划索引文件格式不正确");
+        }
+        nodeCount = buffer.getInt();
+        rootCount = buffer.getInt();
+        int typeCount = buffer.getInt();
+        int nameBytes = buffer.getInt();
+
+        typeCodes = new int[typeCount];
+        typeNames = new String[typeCount];
+        for (int i = 0; i < typeCount; i++) {
+            typeCodes[i] = buffer.getInt();
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            typeNames[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        align(buffer, 8);
+
+        codes = column(buffer, nodeCount * 8).asLongBuffer();
+        firstChild = column(buffer, nodeCount * 4).asIntBuffer();
+        childCount = column(buffer, nodeCount * 4).asIntBuffer();
+        nameOffsets = column(buffer, (nodeCount + 1) * 4).asIntBuffer();
+        levels = column(buffer, nodeCount);
+        depths = column(buffer, nodeCount);
+        types = column(buffer, nodeCount);
+        align(buffer, 4);
+        byCode = column(buffer, nodeCount * 4).asIntBuffer();
+        names = column(buffer, nameBytes);
+    }
+
+    /**
+     * 从当前位置切出指定长度的一列
+     */
+    private ByteBuffer column(ByteBuffer buffer, int length) {
+        if (buffer.remaining() < length) {
+            throw new IllegalStateException("行政区划索引文件不完整");
+        }
+        ByteBuffer column = buffer.slice();
+        column.limit(length);
+        buffer.position(buffer.position() + length);
+        return column;
+    }
+
+    private void align(ByteBuffer buffer, int alignment) {
+        int remainder = buffer.position() % alignment;
+        if (remainder != 0) {
+            buffer.position(buffer.position() + alignment - remainder);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+"""
+行政区划索引编译脚本
+将 regions.db 编译为紧凑的二进制索引文件 regions.bin，供 cpm-user-service 启动时内存映射，
+在进程内直接查询省份、下级区划和统计数据，不再依赖 regions_data API 服务。
+
+文件格式（大端序）：
+    头部      int magic("CPMR"), int version, int 节点数 n, int 省级节点数, int 类型数, int 名称总字节数
+    类型表    每项 int type_code, int 名称字节数, UTF-8 名称；之后补齐到 8 字节
+    code      long[n]     区划代码
+    first     int[n]      第一个下级节点的下标
+    count     int[n]      下级节点数
+    name      int[n + 1]  名称在名称区中的起止偏移
+    level     byte[n]
+    depth     byte[n]
+    type      byte[n]     类型表下标；之后补齐到 4 字节
+    by_code   int[n]      按区划代码升序排列的节点下标（用于二分查找）
+    名称区    UTF-8 字节
+
+节点按层序排列：省级节点在最前面，每个节点的下级节点连续存放，排序与 API 相同（sort_order, code）。
+"""
+
+import argparse
+import os
+import sqlite3
+import struct
+
+
+MAGIC = 0x43504D52  # "CPMR"
+VERSION = 1
+
+
+def load_regions(db_path):
+    """读取未删除的区划，按 (sort_order, code) 排序"""
+    conn = sqlite3.connect(db_path)
+    try:
+        cursor = conn.cursor()
+        cursor.execute("""
+            SELECT code, name, level, depth, parent_code, type, type_code
+            FROM regions
+            WHERE is_deleted = 0
+            ORDER BY sort_order, code
+        """)
+        return cursor.fetchall()
+    finally:
+        conn.close()
+
+
+def build_tree(rows):
+    """
+    按层序排列节点，每个节点的下级连续存放
+
+    Returns:
+        (节点列表, 省级节点数, 每个节点的第一个下级下标, 每个节点的下级数)
+    """
+    children = {}
+    roots = []
+    codes = set()
+    for row in rows:
+        code = row[0]
+        if not code.isdigit() or code.startswith("0") or len(code) > 18:
+            raise ValueError(f"区划代码必须是不以 0 开头的数字: {code}")
+        if code in codes:
+            raise ValueError(f"区划代码重复: {code}")
+        codes.add(code)
+        if row[3] == 1:
+            roots.append(row)
+        else:
+            children.setdefault(row[4], []).append(row)
+
+    nodes = list(roots)
+    first_child = []
+    child_count = []
+    i = 0
+    while i < len(nodes):
+        own = children.pop(nodes[i][0], [])
+        first_child.append(len(nodes))
+        child_count.append(len(own))
+        nodes.extend(own)
+        i += 1
+
+    orphans = sum(len(v) for v in children.values())
+    if orphans:
+        print(f"警告: {orphans} 条区划的上级不存在，已忽略")
+    return nodes, len(roots), first_child, child_count
+
+
+def pad(out, alignment):
+    """补零到指定字节对齐"""
+    remainder = len(out) % alignment
+    if remainder:
+        out.extend(b"\0" * (alignment - remainder))
+
+
+def write_index(nodes, root_count, first_child, child_count, output_path):
+    """写入二进制索引文件"""
+    types = []
+    type_index = {}
+    for node in nodes:
+        key = (node[6] or 0, node[5] or "")
+        if key not in type_index:
+            if len(types) >= 128:
+                raise ValueError("区划类型超过 128 种")
+            type_index[key] = len(types)
+            types.append(key)
+
+    name_bytes = bytearray()
+    name_offsets = [0]
+    for node in nodes:
+        name_bytes.extend(node[1].encode("utf-8"))
+        name_offsets.append(len(name_bytes))
+
+    n = len(nodes)
+    by_code = sorted(range(n), key=lambda idx: int(nodes[idx][0]))
+
+    out = bytearray()
+    out.extend(struct.pack(">6i", MAGIC, VERSION, n, root_count, len(types), len(name_bytes)))
+    for type_code, type_name in types:
+        encoded = type_name.encode("utf-8")
+        out.extend(struct.pack(">2i", type_code, len(encoded)))
+        out.extend(encoded)
+    pad(out, 8)
+
+    out.extend(struct.pack(f">{n}q", *(int(node[0]) for node in nodes)))
+    out.extend(struct.pack(f">{n}i", *first_child))
+    out.extend(struct.pack(f">{n}i", *child_count))
+    out.extend(struct.pack(f">{n + 1}i", *name_offsets))
+    out.extend(bytes(node[2] for node in nodes))
+    out.extend(bytes(node[3] for node in nodes))
+    out.extend(bytes(type_index[(node[6] or 0, node[5] or "")] for node in nodes))
+    pad(out, 4)
+    out.extend(struct.pack(f">{n}i", *by_code))
+    out.extend(name_bytes)
+
+    with open(output_path, "wb") as f:
+        f.write(out)
+    print(f"索引文件已生成: {output_path}")
+    print(f"  节点数: {n}, 省级: {root_count}, 类型数: {len(types)}, 文件大小: {len(out)} 字节")
+
+
+def main():
+    base_dir = os.path.dirname(os.path.dirname(os.path.abspath(__file__)))
+    parser = argparse.ArgumentParser(description="将 regions.db 编译为二进制索引文件")
+    parser.add_argument("--db", default=os.path.join(base_dir, "regions.db"), help="SQLite 数据库路径")
+    parser.add_argument("--output", default=os.path.join(base_dir, "regions.bin"), help="输出文件路径")
+    args = parser.parse_args()
+
+    rows = load_regions(args.db)
+    if not rows:
+        print("没有数据可编译！")
+        return
+    nodes, root_count, first_child, child_count = build_tree(rows)
+    write_index(nodes, root_count, first_child, child_count, args.output)
+
+
+if __name__ == "__main__":
+    main()